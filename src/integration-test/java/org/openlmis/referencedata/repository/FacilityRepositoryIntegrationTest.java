@@ -16,6 +16,7 @@
 package org.openlmis.referencedata.repository;
 
 import static java.util.Collections.singleton;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasItems;
@@ -195,6 +196,26 @@ public class FacilityRepositoryIntegrationTest extends BaseCrudRepositoryIntegra
     assertEquals(searchedAndSortedFacility.get(1).getName(), facility1.getName());
   }
 
+  @Test
+  public void shouldRankFacilitiesBySimilarityToNameIfSortIsNull() {
+    facility1.setName("A Comfort Health Clinic");
+    facility.setName("Comfort");
+
+    repository.save(facility1);
+    repository.save(facility);
+
+    FacilityRepositoryCustom.SearchParams searchParams =
+        new TestSearchParams(null, "comfort", null, Sets.newHashSet());
+
+    List<Facility> foundFacilities = repository
+        .search(searchParams, Sets.newHashSet(), null, pageableWithNullSort)
+        .getContent();
+
+    assertEquals(2, foundFacilities.size());
+    assertEquals(facility.getId(), foundFacilities.get(0).getId());
+    assertEquals(facility1.getId(), foundFacilities.get(1).getId());
+  }
+
   @Test
   public void shouldFindAndSortFacilityByFacilityName() {
     facility1.setName("Facility - z");
@@ -307,6 +328,54 @@ public class FacilityRepositoryIntegrationTest extends BaseCrudRepositoryIntegra
     assertEquals(facility.getId(), foundFacilties.get(0).getId());
   }
 
+  @Test
+  public void shouldFindFacilitiesInDescendantGeographicZones() {
+    // given
+    GeographicZone childZone = prepareChildZoneOfFacility1();
+
+    FacilityRepositoryCustom.SearchParams searchParams =
+        new TestSearchParams(null, null, null, Sets.newHashSet());
+
+    // when
+    List<Facility> foundFacilities = repository.search(searchParams,
+        ImmutableSet.of(geographicZone.getId()), true, null, pageable).getContent();
+    List<Facility> foundInChildZone = repository.search(searchParams,
+        ImmutableSet.of(childZone.getId()), true, null, pageable).getContent();
+
+    // then
+    assertThat(
+        foundFacilities.stream().map(Identifiable::getId).collect(Collectors.toSet()),
+        containsInAnyOrder(facility.getId(), facility1.getId()));
+    assertEquals(1, foundInChildZone.size());
+    assertEquals(facility1.getId(), foundInChildZone.get(0).getId());
+  }
+
+  @Test
+  public void shouldFindFacilitiesInDescendantGeographicZonesUsingExtraData()
+      throws JsonProcessingException {
+    // given
+    prepareChildZoneOfFacility1();
+
+    Map<String, Object> extraDataRural = new ExtraDataBuilder().add("type", "rural").build();
+    facility.setExtraData(extraDataRural);
+    facility1.setExtraData(extraDataRural);
+    repository.save(facility);
+    repository.save(facility1);
+
+    FacilityRepositoryCustom.SearchParams searchParams =
+        new TestSearchParams(null, null, null, Sets.newHashSet());
+
+    // when
+    List<Facility> foundFacilities = repository.search(searchParams,
+        ImmutableSet.of(geographicZone.getId()), true, mapper.writeValueAsString(extraDataRural),
+        pageable).getContent();
+
+    // then
+    assertThat(
+        foundFacilities.stream().map(Identifiable::getId).collect(Collectors.toSet()),
+        containsInAnyOrder(facility.getId(), facility1.getId()));
+  }
+
   @Test
   public void shouldFindFacilitiesUsingExtraData() throws JsonProcessingException {
     // given
@@ -374,11 +443,71 @@ public class FacilityRepositoryIntegrationTest extends BaseCrudRepositoryIntegra
     Polygon boundary = gf.createPolygon(coords);
 
     // when
-    List<Facility> foundFacilities = repository.findByBoundary(boundary);
+    Page<Facility> foundFacilities = repository.findByBoundary(boundary, pageable);
 
     // then
-    assertEquals(1, foundFacilities.size());
-    assertEquals(facility.getId(), foundFacilities.get(0).getId());
+    assertEquals(1, foundFacilities.getTotalElements());
+    assertEquals(facility.getId(), foundFacilities.getContent().get(0).getId());
+  }
+
+  @Test
+  public void shouldPageFacilitiesByBoundary() {
+    // given
+    GeometryFactory gf = new GeometryFactory();
+
+    facility.setLocation(gf.createPoint(new Coordinate(1, 1)));
+    repository.save(facility);
+
+    facility1.setLocation(gf.createPoint(new Coordinate(1.5, 1.5)));
+    repository.save(facility1);
+
+    Polygon boundary = gf.createPolygon(new Coordinate[]{
+        new Coordinate(0, 0),
+        new Coordinate(2, 0),
+        new Coordinate(2, 2),
+        new Coordinate(0, 2),
+        new Coordinate(0, 0)
+    });
+
+    // when
+    Page<Facility> firstPage = repository.findByBoundary(boundary,
+        PageRequest.of(0, 1, Sort.Direction.ASC, "code"));
+    Page<Facility> secondPage = repository.findByBoundary(boundary,
+        PageRequest.of(1, 1, Sort.Direction.ASC, "code"));
+
+    // then
+    assertEquals(2, firstPage.getTotalElements());
+    assertEquals(1, firstPage.getContent().size());
+    assertEquals(1, secondPage.getContent().size());
+    assertThat(
+        Sets.newHashSet(firstPage.getContent().get(0).getId(),
+            secondPage.getContent().get(0).getId()),
+        containsInAnyOrder(facility.getId(), facility1.getId()));
+  }
+
+  @Test
+  public void shouldFindNearestFacilities() {
+    // given
+    GeometryFactory gf = new GeometryFactory();
+
+    facility.setLocation(gf.createPoint(new Coordinate(3, 3)));
+    repository.save(facility);
+
+    facility1.setLocation(gf.createPoint(new Coordinate(1, 1)));
+    repository.save(facility1);
+
+    repository.save(getFacilityDataBuilder().withLocation(null).buildAsNew());
+
+    // when
+    List<Facility> nearest = repository.findNearest(gf.createPoint(new Coordinate(0, 0)), 10);
+    List<Facility> limited = repository.findNearest(gf.createPoint(new Coordinate(4, 4)), 1);
+
+    // then
+    assertEquals(2, nearest.size());
+    assertEquals(facility1.getId(), nearest.get(0).getId());
+    assertEquals(facility.getId(), nearest.get(1).getId());
+    assertEquals(1, limited.size());
+    assertEquals(facility.getId(), limited.get(0).getId());
   }
 
   @Test
@@ -490,6 +619,19 @@ public class FacilityRepositoryIntegrationTest extends BaseCrudRepositoryIntegra
     return pageable;
   }
 
+  private GeographicZone prepareChildZoneOfFacility1() {
+    GeographicZone childZone = new GeographicZoneDataBuilder()
+        .withLevel(geographicLevel)
+        .withParent(geographicZone)
+        .buildAsNew();
+    geographicZoneRepository.save(childZone);
+
+    facility1.setGeographicZone(childZone);
+    repository.save(facility1);
+
+    return childZone;
+  }
+
   @Getter
   private static final class TestSearchParams
       implements FacilityRepositoryCustom.SearchParams {
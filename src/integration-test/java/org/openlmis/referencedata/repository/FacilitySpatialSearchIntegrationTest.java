@@ -0,0 +1,171 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.function.Supplier;
+import javax.persistence.EntityManager;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.referencedata.domain.Facility;
+import org.openlmis.referencedata.domain.FacilityType;
+import org.openlmis.referencedata.domain.GeographicLevel;
+import org.openlmis.referencedata.domain.GeographicZone;
+import org.openlmis.referencedata.testbuilder.FacilityTypeDataBuilder;
+import org.openlmis.referencedata.testbuilder.GeographicLevelDataBuilder;
+import org.openlmis.referencedata.testbuilder.GeographicZoneDataBuilder;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Benchmarks the paginated search of facilities by boundary against reading every facility in the
+ * boundary, and the nearest facilities lookup served by the spatial index of facility locations.
+ * The timings are logged; the assertions only check that the approaches agree.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class FacilitySpatialSearchIntegrationTest {
+
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(
+      FacilitySpatialSearchIntegrationTest.class);
+
+  private static final int FACILITY_COUNT = 50_000;
+  private static final int PAGE_SIZE = 20;
+  private static final int NEAREST_LIMIT = 10;
+
+  // facilities are spread randomly over a 10 x 10 square
+  private static final String INSERT_FACILITIES = "INSERT INTO referencedata.facilities"
+      + " (id, code, name, active, enabled, geographicZoneId, typeId, location)"
+      + " SELECT uuid_generate_v4(), 'BENCH' || n, 'Benchmark facility ' || n, true, true,"
+      + "   CAST(:geographicZoneId AS uuid), CAST(:typeId AS uuid),"
+      + "   ST_MakePoint(random() * 10, random() * 10)"
+      + " FROM generate_series(1, :facilityCount) AS n";
+
+  private static final String SELECT_ALL_BY_BOUNDARY = "SELECT f.*"
+      + " FROM referencedata.facilities f"
+      + " WHERE ST_Covers(:boundary, f.location)"
+      + " ORDER BY f.name";
+
+  private static final String COUNT_BY_BOUNDARY = "SELECT COUNT(*)"
+      + " FROM referencedata.facilities f"
+      + " WHERE ST_Covers(ST_GeomFromText(:boundary), f.location)";
+
+  @Autowired
+  private FacilityRepository facilityRepository;
+
+  @Autowired
+  private FacilityTypeRepository facilityTypeRepository;
+
+  @Autowired
+  private GeographicLevelRepository geographicLevelRepository;
+
+  @Autowired
+  private GeographicZoneRepository geographicZoneRepository;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  private final GeometryFactory geometryFactory = new GeometryFactory();
+
+  @Test
+  public void shouldPageFacilitiesByBoundaryAndFindNearestFacilities() {
+    seedFacilities();
+
+    Polygon boundary = geometryFactory.createPolygon(new Coordinate[]{
+        new Coordinate(2, 2),
+        new Coordinate(8, 2),
+        new Coordinate(8, 8),
+        new Coordinate(2, 8),
+        new Coordinate(2, 2)
+    });
+    long expected = count(boundary);
+
+    List<?> all = measure("all facilities by boundary", () -> entityManager
+        .createNativeQuery(SELECT_ALL_BY_BOUNDARY, Facility.class)
+        .setParameter("boundary", boundary)
+        .getResultList());
+    Page<Facility> page = measure("findByBoundary page", () -> facilityRepository
+        .findByBoundary(boundary, PageRequest.of(0, PAGE_SIZE, Sort.by("name", "id"))));
+
+    assertEquals(expected, all.size());
+    assertEquals(expected, page.getTotalElements());
+    assertEquals(PAGE_SIZE, page.getContent().size());
+
+    Point location = geometryFactory.createPoint(new Coordinate(5, 5));
+    List<Facility> nearest = measure("findNearest", () -> facilityRepository
+        .findNearest(location, NEAREST_LIMIT));
+
+    assertEquals(NEAREST_LIMIT, nearest.size());
+    for (int i = 1; i < nearest.size(); ++i) {
+      assertTrue(location.distance(nearest.get(i - 1).getLocation())
+          <= location.distance(nearest.get(i).getLocation()));
+    }
+  }
+
+  private void seedFacilities() {
+    FacilityType facilityType = facilityTypeRepository
+        .save(new FacilityTypeDataBuilder().buildAsNew());
+    GeographicLevel geographicLevel = geographicLevelRepository
+        .save(new GeographicLevelDataBuilder().buildAsNew());
+    GeographicZone geographicZone = geographicZoneRepository
+        .save(new GeographicZoneDataBuilder().withLevel(geographicLevel).buildAsNew());
+    entityManager.flush();
+
+    long start = System.currentTimeMillis();
+    entityManager.createNativeQuery(INSERT_FACILITIES)
+        .setParameter("geographicZoneId", geographicZone.getId().toString())
+        .setParameter("typeId", facilityType.getId().toString())
+        .setParameter("facilityCount", FACILITY_COUNT)
+        .executeUpdate();
+    entityManager.createNativeQuery("ANALYZE referencedata.facilities").executeUpdate();
+    XLOGGER.info("Spatial search benchmark: seeded {} facilities in {}ms",
+        FACILITY_COUNT, System.currentTimeMillis() - start);
+  }
+
+  private long count(Polygon boundary) {
+    return ((BigInteger) entityManager.createNativeQuery(COUNT_BY_BOUNDARY)
+        .setParameter("boundary", boundary.toText())
+        .getSingleResult()).longValue();
+  }
+
+  private <T> T measure(String name, Supplier<T> query) {
+    long start = System.currentTimeMillis();
+    T result = query.get();
+    XLOGGER.info("Spatial search benchmark: {} took {}ms", name,
+        System.currentTimeMillis() - start);
+
+    return result;
+  }
+
+}
@@ -28,6 +28,7 @@ import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -35,11 +36,14 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -75,6 +79,7 @@ import org.openlmis.referencedata.testbuilder.OrderableDisplayCategoryDataBuilde
 import org.openlmis.referencedata.testbuilder.ProgramDataBuilder;
 import org.openlmis.referencedata.testbuilder.ProgramOrderableDataBuilder;
 import org.openlmis.referencedata.util.messagekeys.FacilityMessageKeys;
+import org.openlmis.referencedata.web.FacilityTypeApprovedProductSearchParams;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
@@ -358,6 +363,48 @@ public class FacilityTypeApprovedProductRepositoryIntegrationTest {
     assertTrue(programOrderable.isActive());
   }
 
+  @Test
+  public void shouldFindIdentitiesOfLatestActiveApprovedProducts() {
+    FacilityTypeApprovedProduct fullSupply = saveAndGetProduct(facilityType1, true);
+    saveAndGetProduct(facilityType1, false);
+    saveAndGetProduct(facilityType1, true, program, false);
+    saveAndGetProduct(facilityType2, true);
+
+    List<VersionIdentity> identities = ftapRepository
+        .findApprovedProductIdentities(facilityType1.getId(), program.getId(), true);
+
+    assertEquals(Collections.singletonList(fullSupply.getVersionIdentity()), identities);
+    assertEquals(Collections.singletonList(fullSupply.getId()), ftapRepository
+        .findAllByIdentities(identities)
+        .stream()
+        .map(FacilityTypeApprovedProduct::getId)
+        .collect(Collectors.toList()));
+  }
+
+  @Test
+  public void shouldInvalidateApprovedProductListsOnceForMultiRowStatement() {
+    saveAndGetProduct(facilityType1, true);
+    saveAndGetProduct(facilityType1, false);
+    saveAndGetProduct(facilityType2, true);
+    entityManager.flush();
+
+    entityManager
+        .createNativeQuery("UPDATE referencedata.facility_type_approved_products"
+            + " SET maxPeriodsOfStock = 3 WHERE programId = ?")
+        .setParameter(1, program.getId())
+        .executeUpdate();
+
+    Object[] lists = (Object[]) entityManager
+        .createNativeQuery("SELECT count(*), count(DISTINCT version), count(ftapIds)"
+            + " FROM referencedata.approved_product_lists WHERE programId = ?")
+        .setParameter(1, program.getId())
+        .getSingleResult();
+
+    assertEquals(4L, ((Number) lists[0]).longValue());
+    assertEquals(4L, ((Number) lists[1]).longValue());
+    assertEquals(0L, ((Number) lists[2]).longValue());
+  }
+
   @Test
   public void shouldGetNonFullSupply() {
     // Create a full supply product
@@ -616,6 +663,47 @@ public class FacilityTypeApprovedProductRepositoryIntegrationTest {
     assertEquals(2, actual.getContent().size());
   }
 
+  @Test
+  public void shouldSeekProductsPageByPage() {
+    // given
+    Set<VersionIdentity> expected = Sets.newHashSet(
+        saveAndGetProduct(facilityType1, true).getVersionIdentity(),
+        saveAndGetProduct(facilityType1, false).getVersionIdentity(),
+        saveAndGetProduct(facilityType1, program2, orderable1).getVersionIdentity(),
+        saveAndGetProduct(facilityType1, program2, orderable2).getVersionIdentity());
+    saveAndGetProduct(facilityType2, program2, orderable1);
+
+    FacilityTypeApprovedProductSearchParams searchParams =
+        new FacilityTypeApprovedProductSearchParamsDataBuilder()
+            .withFacilityTypeCode(FACILITY_TYPE_CODE)
+            .build();
+
+    // when
+    KeysetPage<FacilityTypeApprovedProduct> first = ftapRepository
+        .seekProducts(searchParams, null, 3);
+    KeysetPage<FacilityTypeApprovedProduct> second = ftapRepository
+        .seekProducts(searchParams, first.getNextCursor(), 3);
+
+    // then
+    assertThat(first.getContent(), hasSize(3));
+    assertNotNull(first.getNextCursor());
+    assertThat(second.getContent(), hasSize(1));
+    assertNull(second.getNextCursor());
+
+    List<VersionIdentity> actual = Stream
+        .concat(first.getContent().stream(), second.getContent().stream())
+        .map(FacilityTypeApprovedProduct::getVersionIdentity)
+        .collect(Collectors.toList());
+    assertEquals(expected, new HashSet<>(actual));
+
+    // the database orders uuids like their textual form
+    List<VersionIdentity> sorted = actual
+        .stream()
+        .sorted(Comparator.comparing(identity -> identity.getId().toString()))
+        .collect(Collectors.toList());
+    assertEquals(sorted, actual);
+  }
+
   @Test
   public void shouldSearchBySeveralFacilityTypes() {
     // given
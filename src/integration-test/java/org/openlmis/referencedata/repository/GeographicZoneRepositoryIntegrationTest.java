@@ -15,6 +15,7 @@
 
 package org.openlmis.referencedata.repository;
 
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasProperty;
@@ -152,6 +153,43 @@ public class GeographicZoneRepositoryIntegrationTest
     assertEquals(regionZone.getId(), zones.iterator().next());
   }
 
+  @Test
+  public void shouldFindDescendantIds() {
+    // when
+    Set<UUID> zones = repository.findDescendantIds(countryZone.getId());
+
+    // then
+    assertThat(zones, containsInAnyOrder(regionZone.getId(), districtZone.getId()));
+  }
+
+  @Test
+  public void shouldFindAncestorIds() {
+    // when
+    Set<UUID> zones = repository.findAncestorIds(districtZone.getId());
+
+    // then
+    assertThat(zones, containsInAnyOrder(countryZone.getId(), regionZone.getId()));
+  }
+
+  @Test
+  public void shouldMoveDescendantsAlongWithZone() {
+    // given
+    GeographicZone otherCountryZone = repository.save(new GeographicZoneDataBuilder()
+        .withLevel(countryLevel)
+        .buildAsNew());
+
+    // when
+    regionZone.setParent(otherCountryZone);
+    repository.save(regionZone);
+
+    // then
+    assertThat(repository.findDescendantIds(countryZone.getId()), hasSize(0));
+    assertThat(repository.findDescendantIds(otherCountryZone.getId()),
+        containsInAnyOrder(regionZone.getId(), districtZone.getId()));
+    assertThat(repository.findAncestorIds(districtZone.getId()),
+        containsInAnyOrder(otherCountryZone.getId(), regionZone.getId()));
+  }
+
   @Test
   public void shouldFindByLevel() {
     // when
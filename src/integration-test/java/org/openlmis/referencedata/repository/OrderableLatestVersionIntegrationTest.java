@@ -0,0 +1,120 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.repository;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.util.function.Supplier;
+import javax.persistence.EntityManager;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.referencedata.domain.Orderable;
+import org.openlmis.referencedata.testbuilder.OrderableDataBuilder;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Benchmarks the latest orderable version lookup done with the maintained {@code latest} flag
+ * against the MAX(versionNumber) subquery it replaced. The timings are logged; the assertions only
+ * check that both approaches find the same orderables. In the regular suite only a few orderables
+ * are seeded; set the {@code benchmark.orderables} system property to benchmark a large catalog.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class OrderableLatestVersionIntegrationTest {
+
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(
+      OrderableLatestVersionIntegrationTest.class);
+
+  private static final int ORDERABLE_COUNT = Integer.getInteger("benchmark.orderables", 100);
+  private static final int VERSION_COUNT = 10;
+
+  // versions are inserted from the highest one, so every row finds its latest version at once
+  private static final String INSERT_ORDERABLES = "INSERT INTO referencedata.orderables"
+      + " (id, code, dispensableId, fullProductName, netContent, packRoundingThreshold,"
+      + " roundToZero, versionNumber, lastUpdated)"
+      + " SELECT ids.id, 'BENCH' || ids.n, CAST(:dispensableId AS uuid),"
+      + "   'Benchmark orderable ' || ids.n, 1, 0, false, v.versionNumber, NOW()"
+      + " FROM (SELECT n, uuid_generate_v4() AS id"
+      + "   FROM generate_series(1, :orderableCount) AS n) AS ids"
+      + " CROSS JOIN generate_series(:versionCount, 1, -1) AS v(versionNumber)"
+      + " ORDER BY v.versionNumber DESC";
+
+  private static final String COUNT_LATEST_BY_MAX_VERSION = "SELECT COUNT(*)"
+      + " FROM referencedata.orderables o"
+      + " INNER JOIN (SELECT id, MAX(versionNumber) AS versionNumber"
+      + "   FROM referencedata.orderables GROUP BY id) AS latest"
+      + " ON o.id = latest.id AND o.versionNumber = latest.versionNumber";
+
+  private static final String COUNT_LATEST_BY_FLAG = "SELECT COUNT(*)"
+      + " FROM referencedata.orderables o WHERE o.latest";
+
+  @Autowired
+  private OrderableRepository orderableRepository;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Test
+  public void shouldFindSameLatestVersionsAsMaxVersionSubquery() {
+    Orderable orderable = orderableRepository.save(new OrderableDataBuilder().buildAsNew());
+    entityManager.flush();
+
+    long start = System.currentTimeMillis();
+    entityManager.createNativeQuery(INSERT_ORDERABLES)
+        .setParameter("dispensableId", orderable.getDispensable().getId().toString())
+        .setParameter("orderableCount", ORDERABLE_COUNT)
+        .setParameter("versionCount", VERSION_COUNT)
+        .executeUpdate();
+    entityManager.createNativeQuery("ANALYZE referencedata.orderables").executeUpdate();
+    XLOGGER.info("Latest version benchmark: seeded {} orderables x {} versions in {}ms",
+        ORDERABLE_COUNT, VERSION_COUNT, System.currentTimeMillis() - start);
+
+    long byMaxVersion = measure("MAX(versionNumber) subquery", () -> count(
+        COUNT_LATEST_BY_MAX_VERSION));
+    long byFlag = measure("latest flag", () -> count(COUNT_LATEST_BY_FLAG));
+    long byRepository = measure("findAllLatest", () -> orderableRepository
+        .findAllLatest(PageRequest.of(0, 100))
+        .getTotalElements());
+
+    assertEquals(ORDERABLE_COUNT + 1L, byMaxVersion);
+    assertEquals(byMaxVersion, byFlag);
+    assertEquals(byMaxVersion, byRepository);
+  }
+
+  private long count(String sql) {
+    return ((BigInteger) entityManager.createNativeQuery(sql).getSingleResult()).longValue();
+  }
+
+  private long measure(String name, Supplier<Long> query) {
+    long start = System.currentTimeMillis();
+    Long result = query.get();
+    XLOGGER.info("Latest version benchmark: {} returned {} in {}ms",
+        name, result, System.currentTimeMillis() - start);
+
+    return result;
+  }
+
+}
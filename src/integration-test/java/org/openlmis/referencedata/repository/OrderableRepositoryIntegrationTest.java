@@ -37,6 +37,7 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +46,7 @@ import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceException;
 import lombok.AllArgsConstructor;
@@ -500,6 +502,20 @@ public class OrderableRepositoryIntegrationTest {
     checkSingleResultOrderableVersion(actual.getContent(), orderable.getVersionNumber());
   }
 
+  @Test
+  public void findAllLatestShouldFindPreviousVersionIfLatestOneWasRemoved() {
+    // given
+    Orderable orderable = saveAndGetOrderable();
+    repository.delete(orderable);
+    entityManager.flush();
+
+    // when
+    Page<Orderable> actual = repository.findAllLatest(pageable);
+
+    // then
+    checkSingleResultOrderableVersion(actual.getContent(), orderable.getVersionNumber() - 1);
+  }
+
   @Test
   public void findAllLatestByIdsShouldReturnEmptyPageEmptyContentWithNothingInTheRepository() {
     // given and when
@@ -649,6 +665,48 @@ public class OrderableRepositoryIntegrationTest {
     checkSingleResultOrderableVersion(orderables, orderable.getVersionNumber());
   }
 
+  @Test
+  public void shouldFindAllLatestByManyIdentifiersAtOnce() {
+    UUID tradeItemId1 = UUID.randomUUID();
+    UUID tradeItemId2 = UUID.randomUUID();
+
+    Orderable orderable1 = repository.save(new OrderableDataBuilder()
+        .withIdentifier(TRADE_ITEM, tradeItemId1)
+        .buildAsNew());
+    Orderable orderable2 = repository.save(new OrderableDataBuilder()
+        .withIdentifier(TRADE_ITEM, tradeItemId2)
+        .buildAsNew());
+    repository.save(new OrderableDataBuilder()
+        .withIdentifier(COMMODITY_TYPE, tradeItemId1)
+        .buildAsNew());
+    repository.save(new OrderableDataBuilder()
+        .withIdentifier(TRADE_ITEM, UUID.randomUUID())
+        .buildAsNew());
+
+    List<Orderable> orderables = repository.findAllLatestByIdentifiers(TRADE_ITEM,
+        newHashSet(tradeItemId1, tradeItemId2));
+
+    assertThat(orderables, hasSize(2));
+    assertThat(orderables.stream().map(Orderable::getId).collect(Collectors.toSet()),
+        hasItems(orderable1.getId(), orderable2.getId()));
+  }
+
+  @Test
+  public void findAllLatestByIdentifiersShouldFindOnlyLatestVersions() {
+    Orderable orderable = saveAndGetOrderable();
+
+    UUID tradeItemId = UUID.randomUUID();
+    Map<String, String> identifiers = new HashMap<>();
+    identifiers.put(TRADE_ITEM, tradeItemId.toString());
+    orderable.setIdentifiers(identifiers);
+    repository.save(orderable);
+
+    List<Orderable> orderables = repository.findAllLatestByIdentifiers(TRADE_ITEM,
+        Collections.singleton(tradeItemId));
+
+    checkSingleResultOrderableVersion(orderables, orderable.getVersionNumber());
+  }
+
   @Test
   public void findFirstByIdentityIdOrderByIdentityersionNumberDescShouldReturnNewestVersion() {
     // given
@@ -758,6 +816,200 @@ public class OrderableRepositoryIntegrationTest {
     assertEquals(lastUpdated, orderable3.getLastUpdated().withZoneSameLocal(ZoneId.of("GMT")));
   }
 
+  @Test
+  public void shouldSearchIdentitiesWithTotalAndLastUpdatedDate() {
+    //given
+    Orderable orderable1 = saveAndGetOrderable();
+    Orderable orderable2 = saveAndGetOrderable();
+    Orderable orderable3 = saveAndGetOrderable();
+    orderable1.setLastUpdated(ZonedDateTime.now().minusHours(1));
+    orderable2.setLastUpdated(ZonedDateTime.now().minusHours(2));
+    orderable3.setLastUpdated(ZonedDateTime.now());
+    repository.save(orderable1);
+    repository.save(orderable2);
+    repository.save(orderable3);
+
+    //when
+    OrderableIdentitiesPage page = repository.searchIdentities(
+        new TestSearchParams(CODE, null, null, null), PageRequest.of(0, 2));
+
+    //then
+    assertEquals(3, page.getTotalElements());
+    assertThat(page.getIdentities(), hasSize(2));
+    assertEquals(page.getLastUpdated(),
+        orderable3.getLastUpdated().withZoneSameLocal(ZoneId.of("GMT")));
+  }
+
+  @Test
+  public void shouldSearchIdentitiesWithTotalIfPageIsOutOfRange() {
+    //given
+    saveAndGetOrderable();
+    saveAndGetOrderable();
+
+    //when
+    OrderableIdentitiesPage page = repository.searchIdentities(
+        new TestSearchParams(CODE, null, null, null), PageRequest.of(5, 2));
+
+    //then
+    assertEquals(2, page.getTotalElements());
+    assertThat(page.getIdentities(), hasSize(0));
+    assertNotNull(page.getLastUpdated());
+  }
+
+  @Test
+  public void shouldSearchIdentitiesByIdentityPairsAndProgramCode() {
+    //given
+    Orderable orderable1 = createOrderableWithSupportedProgram(SOME_CODE);
+    Orderable orderable2 = createOrderableWithSupportedProgram("other-code");
+
+    //when
+    OrderableIdentitiesPage page = repository.searchIdentities(
+        new TestSearchParams(null, null, Collections.singleton(SOME_CODE),
+            Sets.newHashSet(Pair.of(orderable1.getId(), orderable1.getVersionNumber()),
+                Pair.of(orderable2.getId(), orderable2.getVersionNumber()))),
+        pageable);
+
+    //then
+    assertEquals(1, page.getTotalElements());
+    assertEquals(Collections.singletonList(orderable1.getVersionIdentity()),
+        page.getIdentities());
+  }
+
+  @Test
+  public void shouldSearchIdentitiesOfPreviousVersions() {
+    //given
+    Orderable orderable = saveAndGetOrderable();
+    Long previousVersionNumber = orderable.getVersionNumber() - 1;
+
+    //when
+    OrderableIdentitiesPage page = repository.searchIdentities(
+        new TestSearchParams(null, null, null,
+            Sets.newHashSet(Pair.of(orderable.getId(), previousVersionNumber))),
+        pageable);
+
+    //then
+    assertEquals(1, page.getTotalElements());
+    assertEquals(Collections.singletonList(
+        new VersionIdentity(orderable.getId(), previousVersionNumber)), page.getIdentities());
+  }
+
+  @Test
+  public void shouldReturnEmptyIdentitiesPageIfNothingMatches() {
+    //given
+    saveAndGetOrderable();
+
+    //when
+    OrderableIdentitiesPage page = repository.searchIdentities(
+        new TestSearchParams("not-existing", null, null, null), pageable);
+
+    //then
+    assertEquals(0, page.getTotalElements());
+    assertThat(page.getIdentities(), hasSize(0));
+    assertNull(page.getLastUpdated());
+  }
+
+  @Test
+  public void shouldFindAllByIdentitiesInOrderOfIdentities() {
+    //given
+    Orderable orderable1 = saveAndGetOrderable();
+    Orderable orderable2 = saveAndGetOrderable();
+    Orderable orderable3 = saveAndGetOrderable();
+
+    List<VersionIdentity> identities = Arrays.asList(orderable3.getVersionIdentity(),
+        orderable1.getVersionIdentity(), orderable2.getVersionIdentity());
+
+    //when
+    List<Orderable> found = repository.findAllByIdentities(identities);
+
+    //then
+    assertEquals(identities, found
+        .stream()
+        .map(Orderable::getVersionIdentity)
+        .collect(Collectors.toList()));
+  }
+
+  @Test
+  public void shouldSeekOrderablesPageByPage() {
+    //given
+    List<VersionIdentity> identities = Stream
+        .of(saveAndGetOrderable(), saveAndGetOrderable(), saveAndGetOrderable())
+        .map(Orderable::getVersionIdentity)
+        .sorted(Comparator.comparing((VersionIdentity identity) -> identity.getId().toString()))
+        .collect(Collectors.toList());
+    TestSearchParams searchParams = new TestSearchParams(CODE, null, null, null);
+
+    //when
+    KeysetPage<Orderable> first = repository.seek(searchParams, null, 2);
+    KeysetPage<Orderable> second = repository.seek(searchParams, first.getNextCursor(), 2);
+
+    //then
+    assertEquals(identities.subList(0, 2), first
+        .getContent()
+        .stream()
+        .map(Orderable::getVersionIdentity)
+        .collect(Collectors.toList()));
+    assertEquals(new SeekCursor(NAME, identities.get(1).getId(),
+        identities.get(1).getVersionNumber()), first.getNextCursor());
+
+    assertEquals(identities.subList(2, 3), second
+        .getContent()
+        .stream()
+        .map(Orderable::getVersionIdentity)
+        .collect(Collectors.toList()));
+    assertNull(second.getNextCursor());
+  }
+
+  @Test
+  public void shouldScrollOrderablesInBatches() {
+    //given
+    Set<VersionIdentity> identities = Stream
+        .of(saveAndGetOrderable(), saveAndGetOrderable(), saveAndGetOrderable())
+        .map(Orderable::getVersionIdentity)
+        .collect(Collectors.toSet());
+    List<List<VersionIdentity>> batches = new ArrayList<>();
+
+    //when
+    long total = repository.scroll(new TestSearchParams(CODE, null, null, null), 2,
+        batch -> batches.add(batch
+            .stream()
+            .map(Orderable::getVersionIdentity)
+            .collect(Collectors.toList())));
+
+    //then
+    assertEquals(3, total);
+    assertThat(batches, hasSize(2));
+    assertThat(batches.get(0), hasSize(2));
+    assertThat(batches.get(1), hasSize(1));
+    assertEquals(identities, batches
+        .stream()
+        .flatMap(List::stream)
+        .collect(Collectors.toSet()));
+  }
+
+  @Test
+  public void shouldScrollOrderablesByIdentitiesInBatches() {
+    //given
+    VersionIdentity first = saveAndGetOrderable().getVersionIdentity();
+    VersionIdentity second = saveAndGetOrderable().getVersionIdentity();
+    VersionIdentity third = saveAndGetOrderable().getVersionIdentity();
+    VersionIdentity missing = new VersionIdentity(UUID.randomUUID(), 1L);
+    List<List<VersionIdentity>> batches = new ArrayList<>();
+
+    //when
+    long total = repository.scrollByIdentities(
+        Arrays.asList(third, missing, first, second), 2,
+        batch -> batches.add(batch
+            .stream()
+            .map(Orderable::getVersionIdentity)
+            .collect(Collectors.toList())));
+
+    //then
+    assertEquals(3, total);
+    assertThat(batches, hasSize(2));
+    assertEquals(Collections.singletonList(third), batches.get(0));
+    assertEquals(Arrays.asList(first, second), batches.get(1));
+  }
+
   @Test
   public void shouldReturnOrderableWitAllProgramsWhenSearchingByProgramCode() {
     // given
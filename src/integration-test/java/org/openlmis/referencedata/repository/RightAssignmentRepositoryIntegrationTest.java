@@ -17,8 +17,10 @@ package org.openlmis.referencedata.repository;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import org.junit.Before;
@@ -215,4 +217,16 @@ public class RightAssignmentRepositoryIntegrationTest
     // then
     assertFalse(userHasRight);
   }
+
+  @Test
+  public void findRightAssignmentsByUserShouldReturnRightNameFacilityAndProgram() {
+    // when
+    List<Object[]> rightAssignments = repository.findRightAssignmentsByUser(userId);
+
+    // then
+    assertEquals(1, rightAssignments.size());
+    assertEquals(RIGHT_NAME, rightAssignments.get(0)[0]);
+    assertNull(rightAssignments.get(0)[1]);
+    assertNull(rightAssignments.get(0)[2]);
+  }
 }
@@ -0,0 +1,242 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.referencedata.domain.Facility;
+import org.openlmis.referencedata.domain.FacilityType;
+import org.openlmis.referencedata.domain.GeographicLevel;
+import org.openlmis.referencedata.domain.GeographicZone;
+import org.openlmis.referencedata.domain.ProcessingSchedule;
+import org.openlmis.referencedata.domain.Program;
+import org.openlmis.referencedata.domain.RequisitionGroup;
+import org.openlmis.referencedata.domain.Right;
+import org.openlmis.referencedata.domain.RightType;
+import org.openlmis.referencedata.domain.Role;
+import org.openlmis.referencedata.domain.SupervisionRoleAssignment;
+import org.openlmis.referencedata.domain.SupervisoryNode;
+import org.openlmis.referencedata.domain.User;
+import org.openlmis.referencedata.dto.RightAssignmentDto;
+import org.openlmis.referencedata.repository.FacilityRepository;
+import org.openlmis.referencedata.repository.FacilityTypeRepository;
+import org.openlmis.referencedata.repository.GeographicLevelRepository;
+import org.openlmis.referencedata.repository.GeographicZoneRepository;
+import org.openlmis.referencedata.repository.ProcessingScheduleRepository;
+import org.openlmis.referencedata.repository.ProgramRepository;
+import org.openlmis.referencedata.repository.RequisitionGroupProgramScheduleRepository;
+import org.openlmis.referencedata.repository.RequisitionGroupRepository;
+import org.openlmis.referencedata.repository.RightRepository;
+import org.openlmis.referencedata.repository.RoleRepository;
+import org.openlmis.referencedata.repository.SupervisoryNodeRepository;
+import org.openlmis.referencedata.repository.UserRepository;
+import org.openlmis.referencedata.testbuilder.FacilityDataBuilder;
+import org.openlmis.referencedata.testbuilder.FacilityTypeDataBuilder;
+import org.openlmis.referencedata.testbuilder.GeographicLevelDataBuilder;
+import org.openlmis.referencedata.testbuilder.GeographicZoneDataBuilder;
+import org.openlmis.referencedata.testbuilder.ProcessingScheduleDataBuilder;
+import org.openlmis.referencedata.testbuilder.ProgramDataBuilder;
+import org.openlmis.referencedata.testbuilder.RequisitionGroupDataBuilder;
+import org.openlmis.referencedata.testbuilder.RequisitionGroupProgramScheduleDataBuilder;
+import org.openlmis.referencedata.testbuilder.RightDataBuilder;
+import org.openlmis.referencedata.testbuilder.RoleDataBuilder;
+import org.openlmis.referencedata.testbuilder.SupervisoryNodeDataBuilder;
+import org.openlmis.referencedata.testbuilder.UserDataBuilder;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.Resource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Benchmarks the supervisory node expansion done during right assignment regeneration against
+ * the depth of the supervisory node tree and the number of users assigned to the root node. The
+ * timings are logged; the assertions only check that the expansion result is complete.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles({"test", "test-run"})
+@Transactional
+public class RightAssignmentServiceIntegrationTest {
+
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(
+      RightAssignmentServiceIntegrationTest.class);
+
+  private static final int[] TREE_DEPTHS = {1, 5, 10};
+  private static final int[] USER_COUNTS = {10, 50, 100};
+
+  @Autowired
+  private RightAssignmentService rightAssignmentService;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private RightRepository rightRepository;
+
+  @Autowired
+  private RoleRepository roleRepository;
+
+  @Autowired
+  private ProgramRepository programRepository;
+
+  @Autowired
+  private ProcessingScheduleRepository scheduleRepository;
+
+  @Autowired
+  private GeographicLevelRepository geographicLevelRepository;
+
+  @Autowired
+  private GeographicZoneRepository geographicZoneRepository;
+
+  @Autowired
+  private FacilityTypeRepository facilityTypeRepository;
+
+  @Autowired
+  private FacilityRepository facilityRepository;
+
+  @Autowired
+  private SupervisoryNodeRepository supervisoryNodeRepository;
+
+  @Autowired
+  private RequisitionGroupRepository requisitionGroupRepository;
+
+  @Autowired
+  private RequisitionGroupProgramScheduleRepository requisitionGroupProgramScheduleRepository;
+
+  private ProcessingSchedule schedule;
+  private GeographicZone geographicZone;
+  private FacilityType facilityType;
+
+  @Before
+  public void setUp() {
+    schedule = scheduleRepository.save(new ProcessingScheduleDataBuilder().buildWithoutId());
+
+    GeographicLevel geographicLevel = geographicLevelRepository.save(
+        new GeographicLevelDataBuilder().withLevelNumber(1).buildAsNew());
+    geographicZone = geographicZoneRepository.save(
+        new GeographicZoneDataBuilder().withLevel(geographicLevel).buildAsNew());
+    facilityType = facilityTypeRepository.save(new FacilityTypeDataBuilder().buildAsNew());
+  }
+
+  @Test
+  public void shouldExpandSupervisoryNodesForDifferentTreeDepthsAndUserCounts()
+      throws IOException {
+    Resource rightAssignmentsResource = (Resource) ReflectionTestUtils
+        .getField(rightAssignmentService, "rightAssignmentsResource");
+    Resource supervisedFacilitiesResource = (Resource) ReflectionTestUtils
+        .getField(rightAssignmentService, "supervisedFacilitiesResource");
+
+    for (int depth : TREE_DEPTHS) {
+      for (int userCount : USER_COUNTS) {
+        Set<UUID> userIds = createSupervisionTree(depth, userCount);
+        entityManager.flush();
+
+        long start = System.currentTimeMillis();
+        List<RightAssignmentDto> intermediate = rightAssignmentService
+            .getRightAssignmentsFromDbResource(rightAssignmentsResource);
+        Set<RightAssignmentDto> expanded = rightAssignmentService
+            .convertForInsert(intermediate, supervisedFacilitiesResource);
+        long duration = System.currentTimeMillis() - start;
+
+        XLOGGER.info("Right assignment regeneration: depth={}, users={}, rows={}, time={}ms",
+            depth, userCount, expanded.size(), duration);
+
+        Set<RightAssignmentDto> scenarioRows = expanded
+            .stream()
+            .filter(rightAssignment -> userIds.contains(rightAssignment.getUserId()))
+            .collect(Collectors.toSet());
+        assertEquals(depth * userCount, scenarioRows.size());
+      }
+    }
+  }
+
+  private Set<UUID> createSupervisionTree(int depth, int userCount) {
+    Program program = programRepository.save(new ProgramDataBuilder().buildAsNew());
+
+    SupervisoryNode root = null;
+    SupervisoryNode parent = null;
+    for (int level = 0; level < depth; ++level) {
+      Facility facility = facilityRepository.save(new FacilityDataBuilder()
+          .withType(facilityType)
+          .withGeographicZone(geographicZone)
+          .withoutOperator()
+          .withSupportedProgram(program)
+          .buildAsNew());
+
+      SupervisoryNode node = supervisoryNodeRepository.save(new SupervisoryNodeDataBuilder()
+          .withoutId()
+          .withFacility(facility)
+          .withParentNode(parent)
+          .build());
+
+      RequisitionGroup requisitionGroup = requisitionGroupRepository.save(
+          new RequisitionGroupDataBuilder()
+              .withSupervisoryNode(node)
+              .withMemberFacility(facility)
+              .buildAsNew());
+
+      requisitionGroupProgramScheduleRepository.save(
+          new RequisitionGroupProgramScheduleDataBuilder()
+              .withProgram(program)
+              .withRequisitionGroup(requisitionGroup)
+              .withSchedule(schedule)
+              .withDropOffFacility(facility)
+              .buildAsNew());
+
+      if (null == root) {
+        root = node;
+      }
+      parent = node;
+    }
+
+    Right right = rightRepository.save(new RightDataBuilder()
+        .withType(RightType.SUPERVISION)
+        .buildAsNew());
+    Role role = roleRepository.save(new RoleDataBuilder().withRights(right).buildAsNew());
+
+    List<User> users = new ArrayList<>(userCount);
+    for (int i = 0; i < userCount; ++i) {
+      User user = userRepository.save(new UserDataBuilder().buildAsNew());
+      user.assignRoles(new SupervisionRoleAssignment(role, user, program, root));
+      users.add(user);
+    }
+
+    return new HashSet<>(userRepository.saveAll(users))
+        .stream()
+        .map(User::getId)
+        .collect(Collectors.toSet());
+  }
+
+}
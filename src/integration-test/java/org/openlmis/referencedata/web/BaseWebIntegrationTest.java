@@ -27,7 +27,6 @@ import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
-import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
@@ -48,6 +47,7 @@ import guru.nidi.ramltester.RamlDefinition;
 import guru.nidi.ramltester.RamlLoaders;
 import guru.nidi.ramltester.restassured.RestAssuredClient;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.UUID;
 import javax.annotation.PostConstruct;
 import org.assertj.core.api.Assertions;
@@ -91,16 +91,21 @@ import org.openlmis.referencedata.repository.TradeItemRepository;
 import org.openlmis.referencedata.repository.UserRepository;
 import org.openlmis.referencedata.repository.custom.impl.ProgramRedisRepository;
 import org.openlmis.referencedata.repository.custom.impl.SupervisoryNodeDtoRedisRepository;
+import org.openlmis.referencedata.service.ApprovedProductListService;
 import org.openlmis.referencedata.service.AuthenticationHelper;
 import org.openlmis.referencedata.service.FacilityService;
 import org.openlmis.referencedata.service.FacilityTypeService;
+import org.openlmis.referencedata.service.GeographicHierarchy;
 import org.openlmis.referencedata.service.GeographicZoneService;
 import org.openlmis.referencedata.service.IdealStockAmountService;
+import org.openlmis.referencedata.service.OrderableCatalogVersion;
 import org.openlmis.referencedata.service.OrderableService;
+import org.openlmis.referencedata.service.PermissionIndex;
 import org.openlmis.referencedata.service.RequisitionGroupProgramScheduleService;
 import org.openlmis.referencedata.service.RequisitionGroupService;
 import org.openlmis.referencedata.service.RightService;
 import org.openlmis.referencedata.service.SupplyPartnerBuilder;
+import org.openlmis.referencedata.service.UserPermissionVersionService;
 import org.openlmis.referencedata.service.UserService;
 import org.openlmis.referencedata.service.export.DataExportService;
 import org.openlmis.referencedata.service.export.DataImportService;
@@ -197,6 +202,12 @@ public abstract class BaseWebIntegrationTest {
   @SpyBean
   protected RightService rightService;
 
+  @SpyBean
+  protected GeographicHierarchy geographicHierarchy;
+
+  @Autowired
+  private PermissionIndex permissionIndex;
+
   @Autowired
   private ObjectMapper objectMapper;
 
@@ -224,6 +235,9 @@ public abstract class BaseWebIntegrationTest {
   @MockBean
   protected FacilityTypeApprovedProductRepository facilityTypeApprovedProductRepository;
 
+  @MockBean
+  protected ApprovedProductListService approvedProductListService;
+
   @MockBean
   protected SupervisoryNodeRepository supervisoryNodeRepository;
 
@@ -254,6 +268,9 @@ public abstract class BaseWebIntegrationTest {
   @MockBean
   protected OrderableService orderableService;
 
+  @MockBean
+  protected OrderableCatalogVersion orderableCatalogVersion;
+
   @MockBean
   protected ProcessingPeriodRepository periodRepository;
 
@@ -292,6 +309,9 @@ public abstract class BaseWebIntegrationTest {
 
   @MockBean
   protected UserService userService;
+
+  @MockBean
+  protected UserPermissionVersionService userPermissionVersionService;
   
   @MockBean
   protected RightAssignmentRepository rightAssignmentRepository;
@@ -312,7 +332,7 @@ public abstract class BaseWebIntegrationTest {
   protected IdealStockAmountService idealStockAmountService;
 
   @MockBean
-  protected OrderableFulfillFactory factory;
+  protected OrderableFulfillGraph orderableFulfillGraph;
 
   @MockBean
   protected FacilityTypeService facilityTypeService;
@@ -382,8 +402,9 @@ public abstract class BaseWebIntegrationTest {
   public void setUp() {
     // by default user has no access to resources
     given(userRepository.existsById(ADMIN_ID)).willReturn(true);
-    given(rightAssignmentRepository.existsByUserIdAndRightName(eq(ADMIN_ID), anyString()))
-        .willReturn(false);
+    given(rightAssignmentRepository.findRightAssignmentsByUser(ADMIN_ID))
+        .willReturn(Collections.emptyList());
+    permissionIndex.invalidateAll();
 
     mockUserAuthenticated();
   }
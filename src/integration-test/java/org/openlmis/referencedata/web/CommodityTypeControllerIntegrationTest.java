@@ -265,6 +265,7 @@ public class CommodityTypeControllerIntegrationTest extends BaseWebIntegrationTe
     Set<TradeItem> itemsToUpdate = captor.getValue();
     assertThat(itemsToUpdate, hasSize(2));
     assertThat(itemsToUpdate, hasItems(tradeItem, anotherTradeItem));
+    verify(orderableFulfillGraph).invalidate();
   }
 
   @Test
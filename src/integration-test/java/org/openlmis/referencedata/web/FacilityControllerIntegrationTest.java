@@ -23,8 +23,11 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -32,6 +35,7 @@ import static org.openlmis.referencedata.domain.RightName.FACILITIES_MANAGE_RIGH
 
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
 import com.vividsolutions.jts.geom.Polygon;
 import guru.nidi.ramltester.junit.RamlMatchers;
 import java.util.ArrayList;
@@ -58,9 +62,11 @@ import org.openlmis.referencedata.domain.Program;
 import org.openlmis.referencedata.domain.SupervisoryNode;
 import org.openlmis.referencedata.domain.SupplyLine;
 import org.openlmis.referencedata.domain.SupportedProgram;
+import org.openlmis.referencedata.domain.VersionIdentity;
 import org.openlmis.referencedata.dto.FacilityDto;
 import org.openlmis.referencedata.dto.MinimalFacilityDto;
 import org.openlmis.referencedata.exception.ValidationMessageException;
+import org.openlmis.referencedata.service.ApprovedProductListService.ApprovedProductList;
 import org.openlmis.referencedata.service.PageDto;
 import org.openlmis.referencedata.testbuilder.FacilityDataBuilder;
 import org.openlmis.referencedata.testbuilder.FacilityTypeApprovedProductsDataBuilder;
@@ -72,10 +78,12 @@ import org.openlmis.referencedata.testbuilder.SupplyLineDataBuilder;
 import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.util.messagekeys.FacilityMessageKeys;
 import org.openlmis.referencedata.utils.AuditLogHelper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.util.LinkedMultiValueMap;
@@ -92,9 +100,11 @@ public class FacilityControllerIntegrationTest extends BaseWebIntegrationTest {
   private static final String ID_URL = RESOURCE_URL + "/{id}";
   private static final String SEARCH_FACILITIES = RESOURCE_URL + "/search";
   private static final String BYBOUNDARY_URL = RESOURCE_URL + "/byBoundary";
+  private static final String NEAREST_URL = RESOURCE_URL + "/nearest";
   private static final String NAME_KEY = "name";
   private static final String FULL_SUPPLY = "fullSupply";
   private static final String APPROVED_PRODUCTS = "/approvedProducts";
+  private static final long APPROVED_PRODUCT_LIST_VERSION = 7L;
   public static final String PAGE = "page";
   public static final String CODE = "code";
 
@@ -116,6 +126,9 @@ public class FacilityControllerIntegrationTest extends BaseWebIntegrationTest {
   };
   private PageRequest pageable = PageRequest.of(0, Integer.MAX_VALUE);
 
+  @Value("${facilities.approvedProducts.maxFacilities}")
+  private int approvedProductsMaxFacilities;
+
   @Before
   @Override
   public void setUp() {
@@ -315,13 +328,16 @@ public class FacilityControllerIntegrationTest extends BaseWebIntegrationTest {
     FacilityTypeApprovedProduct approvedProduct = new FacilityTypeApprovedProductsDataBuilder()
         .withOrderableId(orderable.getId())
         .build();
+    List<VersionIdentity> identities =
+        Collections.singletonList(approvedProduct.getVersionIdentity());
 
     when(orderableRepository
         .findAllLatestByIds(eq(Collections.singleton(orderable.getId())), any(Pageable.class)))
         .thenReturn(new PageImpl<>(Collections.singletonList(orderable), pageable, 1));
-    when(facilityTypeApprovedProductRepository.searchProducts(eq(facility.getId()),
-        eq(program.getId()), eq(false), eq(null), eq(null), eq(null), eq(null), eq(pageable)))
-        .thenReturn(new PageImpl<>(Collections.singletonList(approvedProduct), pageable, 1));
+    when(approvedProductListService.getList(facility.getId(), program.getId(), false))
+        .thenReturn(new ApprovedProductList(APPROVED_PRODUCT_LIST_VERSION, identities));
+    when(facilityTypeApprovedProductRepository.findAllByIdentities(identities))
+        .thenReturn(Collections.singletonList(approvedProduct));
 
     PageDto productDtos = restAssured.given()
         .queryParam(PROGRAM_ID, program.getId())
@@ -331,9 +347,160 @@ public class FacilityControllerIntegrationTest extends BaseWebIntegrationTest {
         .get(RESOURCE_URL + "/" + facility.getId() + APPROVED_PRODUCTS)
         .then()
         .statusCode(200)
+        .header(HttpHeaders.ETAG, "\"" + APPROVED_PRODUCT_LIST_VERSION + "\"")
         .extract().as(PageDto.class);
 
     assertEquals(1, productDtos.getContent().size());
+    assertEquals(1, productDtos.getTotalElements());
+    verify(facilityTypeApprovedProductRepository, never()).searchProducts(any(UUID.class),
+        nullable(UUID.class), nullable(Boolean.class), nullable(List.class),
+        nullable(Boolean.class), nullable(String.class), nullable(String.class),
+        any(Pageable.class));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnNotModifiedIfApprovedProductListHasNotChanged() {
+    when(approvedProductListService.getList(facility.getId(), program.getId(), true))
+        .thenReturn(new ApprovedProductList(APPROVED_PRODUCT_LIST_VERSION,
+            Collections.emptyList()));
+
+    restAssured.given()
+        .queryParam(PROGRAM_ID, program.getId())
+        .queryParam(FULL_SUPPLY, true)
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .header(HttpHeaders.IF_NONE_MATCH, "\"" + APPROVED_PRODUCT_LIST_VERSION + "\"")
+        .when()
+        .get(RESOURCE_URL + "/" + facility.getId() + APPROVED_PRODUCTS)
+        .then()
+        .statusCode(304);
+
+    verify(facilityTypeApprovedProductRepository, never()).findAllByIdentities(anyListOf(
+        VersionIdentity.class));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldFindApprovedProductsOfManyFacilitiesOncePerFacilityType() {
+    UUID otherFacilityId = UUID.randomUUID();
+    UUID otherTypeFacilityId = UUID.randomUUID();
+    UUID otherFacilityTypeId = UUID.randomUUID();
+    Map<UUID, UUID> facilityTypeIds = new HashMap<>();
+    facilityTypeIds.put(facility.getId(), facilityType.getId());
+    facilityTypeIds.put(otherFacilityId, facilityType.getId());
+    facilityTypeIds.put(otherTypeFacilityId, otherFacilityTypeId);
+    List<UUID> facilityIds = Arrays.asList(facility.getId(), otherFacilityId,
+        otherTypeFacilityId);
+
+    Orderable orderable = new OrderableDataBuilder().build();
+    FacilityTypeApprovedProduct approvedProduct = new FacilityTypeApprovedProductsDataBuilder()
+        .withOrderableId(orderable.getId())
+        .build();
+    FacilityTypeApprovedProduct otherApprovedProduct =
+        new FacilityTypeApprovedProductsDataBuilder()
+            .withOrderableId(orderable.getId())
+            .build();
+
+    when(approvedProductListService.getFacilityTypeIds(facilityIds)).thenReturn(facilityTypeIds);
+    when(approvedProductListService.getListOfType(facilityType.getId(), program.getId(), true))
+        .thenReturn(new ApprovedProductList(APPROVED_PRODUCT_LIST_VERSION,
+            Collections.singletonList(approvedProduct.getVersionIdentity())));
+    when(approvedProductListService.getListOfType(otherFacilityTypeId, program.getId(), true))
+        .thenReturn(new ApprovedProductList(APPROVED_PRODUCT_LIST_VERSION,
+            Collections.singletonList(otherApprovedProduct.getVersionIdentity())));
+    when(facilityTypeApprovedProductRepository.findAllByIdentities(anyListOf(
+        VersionIdentity.class)))
+        .thenReturn(Arrays.asList(approvedProduct, otherApprovedProduct));
+    when(orderableRepository
+        .findAllLatestByIds(eq(Collections.singleton(orderable.getId())), any(Pageable.class)))
+        .thenReturn(new PageImpl<>(Collections.singletonList(orderable)));
+
+    Map<String, Object> body = new HashMap<>();
+    body.put("facilityIds", facilityIds);
+    body.put(PROGRAM_ID, program.getId());
+    body.put(FULL_SUPPLY, true);
+
+    Map<String, List<Map<String, Object>>> response = restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .body(body)
+        .when()
+        .post(RESOURCE_URL + APPROVED_PRODUCTS)
+        .then()
+        .statusCode(200)
+        .extract().as(Map.class);
+
+    assertEquals(3, response.size());
+    assertEquals(approvedProduct.getId().toString(),
+        response.get(facility.getId().toString()).get(0).get("id"));
+    assertEquals(approvedProduct.getId().toString(),
+        response.get(otherFacilityId.toString()).get(0).get("id"));
+    assertEquals(otherApprovedProduct.getId().toString(),
+        response.get(otherTypeFacilityId.toString()).get(0).get("id"));
+    verify(approvedProductListService)
+        .getListOfType(facilityType.getId(), program.getId(), true);
+    verify(approvedProductListService, never())
+        .getListOfType(any(UUID.class), any(UUID.class), eq(false));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldNotFindApprovedProductsOfManyFacilitiesWithoutProgram() {
+    restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .body(Collections.singletonMap("facilityIds",
+            Collections.singletonList(facility.getId())))
+        .when()
+        .post(RESOURCE_URL + APPROVED_PRODUCTS)
+        .then()
+        .statusCode(400);
+
+    verifyZeroInteractions(approvedProductListService);
+  }
+
+  @Test
+  public void shouldNotFindApprovedProductsOfTooManyFacilities() {
+    Map<String, Object> body = new HashMap<>();
+    body.put("facilityIds",
+        Collections.nCopies(approvedProductsMaxFacilities + 1, facility.getId()));
+    body.put(PROGRAM_ID, program.getId());
+
+    restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .body(body)
+        .when()
+        .post(RESOURCE_URL + APPROVED_PRODUCTS)
+        .then()
+        .statusCode(400)
+        .body(MESSAGE_KEY, is(FacilityMessageKeys.ERROR_APPROVED_PRODUCTS_TOO_MANY_FACILITIES));
+
+    verifyZeroInteractions(approvedProductListService);
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldNotFindApprovedProductsOfManyFacilitiesIfFacilityDoesNotExist() {
+    List<UUID> facilityIds = Collections.singletonList(facility.getId());
+    when(approvedProductListService.getFacilityTypeIds(facilityIds))
+        .thenReturn(Collections.emptyMap());
+
+    Map<String, Object> body = new HashMap<>();
+    body.put("facilityIds", facilityIds);
+    body.put(PROGRAM_ID, program.getId());
+
+    restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .body(body)
+        .when()
+        .post(RESOURCE_URL + APPROVED_PRODUCTS)
+        .then()
+        .statusCode(400);
+
+    verify(facilityTypeApprovedProductRepository, never()).findAllByIdentities(anyListOf(
+        VersionIdentity.class));
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
@@ -386,10 +553,7 @@ public class FacilityControllerIntegrationTest extends BaseWebIntegrationTest {
 
   @Test
   public void shouldBadRequestWhenLookingForProductsInNonExistantFacility() {
-    when(facilityTypeApprovedProductRepository
-        .searchProducts(any(UUID.class), nullable(UUID.class), nullable(Boolean.class),
-            nullable(List.class), nullable(Boolean.class), nullable(String.class),
-            nullable(String.class), any(Pageable.class)))
+    when(approvedProductListService.getList(any(UUID.class), any(UUID.class), eq(false)))
         .thenThrow(new ValidationMessageException(FacilityMessageKeys.ERROR_NOT_FOUND));
 
     restAssured.given()
@@ -911,11 +1075,14 @@ public class FacilityControllerIntegrationTest extends BaseWebIntegrationTest {
   @Test
   public void findByBoundaryShouldFindFacilities() {
     Polygon boundary = gf.createPolygon(coords);
-    given(facilityRepository.findByBoundary(boundary))
-        .willReturn(Collections.singletonList(facility));
+    given(facilityRepository.findByBoundary(eq(boundary), any(Pageable.class)))
+        .willReturn(Pagination.getPage(Collections.singletonList(facility),
+            PageRequest.of(1, 1), 3));
 
     PageDto response = restAssured.given()
         .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .queryParam("page", 1)
+        .queryParam("size", 1)
         .body(boundary)
         .contentType(MediaType.APPLICATION_JSON_VALUE)
         .when()
@@ -926,7 +1093,113 @@ public class FacilityControllerIntegrationTest extends BaseWebIntegrationTest {
 
     Map<String, String> foundFacility = (Map) response.getContent().get(0);
     assertEquals(1, response.getContent().size());
+    assertEquals(3, response.getTotalElements());
     assertEquals(facility.getName(), foundFacility.get(NAME_KEY));
+    verify(facilityRepository).findByBoundary(boundary,
+        PageRequest.of(1, 1, Sort.by("name", "id")));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void findByBoundaryShouldSortByGivenColumnsAndId() {
+    Polygon boundary = gf.createPolygon(coords);
+    given(facilityRepository.findByBoundary(eq(boundary), any(Pageable.class)))
+        .willReturn(Pagination.getPage(Collections.singletonList(facility),
+            PageRequest.of(0, 1), 1));
+
+    restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .queryParam("page", 0)
+        .queryParam("size", 1)
+        .queryParam("sort", "goLiveDate,desc")
+        .body(boundary)
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .when()
+        .post(BYBOUNDARY_URL)
+        .then()
+        .statusCode(200);
+
+    verify(facilityRepository).findByBoundary(boundary, PageRequest.of(0, 1,
+        Sort.by(Sort.Order.desc("golivedate"), Sort.Order.asc("id"))));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void findByBoundaryShouldRejectUnknownSortProperty() {
+    restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .queryParam("sort", "geographicZone")
+        .body(gf.createPolygon(coords))
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .when()
+        .post(BYBOUNDARY_URL)
+        .then()
+        .statusCode(400)
+        .body(MESSAGE_KEY, is(FacilityMessageKeys.ERROR_BOUNDARY_SORT_INVALID));
+
+    verify(facilityRepository, never()).findByBoundary(any(Polygon.class), any(Pageable.class));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void findNearestShouldFindFacilities() {
+    Point location = gf.createPoint(new Coordinate(1, 1));
+    given(facilityRepository.findNearest(location, 2))
+        .willReturn(Collections.singletonList(facility));
+
+    FacilityDto[] response = restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .queryParam("limit", 2)
+        .body(location)
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .when()
+        .post(NEAREST_URL)
+        .then()
+        .statusCode(200)
+        .extract().as(FacilityDto[].class);
+
+    assertEquals(1, response.length);
+    assertEquals(facility.getName(), response[0].getName());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void findNearestShouldReturnBadRequestForInvalidLimit() {
+    Point location = gf.createPoint(new Coordinate(1, 1));
+
+    String messageKey = restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .queryParam("limit", 0)
+        .body(location)
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .when()
+        .post(NEAREST_URL)
+        .then()
+        .statusCode(400)
+        .extract()
+        .path(MESSAGE_KEY);
+
+    assertThat(messageKey, Matchers.is(equalTo(FacilityMessageKeys.ERROR_NEAREST_LIMIT_INVALID)));
+    verify(facilityRepository, never()).findNearest(any(Point.class), anyInt());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void findNearestShouldReturnForbiddenForUnauthorizedToken() {
+    mockUserHasNoRight(FACILITIES_MANAGE_RIGHT);
+
+    String messageKey = restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .body(gf.createPoint(new Coordinate(1, 1)))
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .when()
+        .post(NEAREST_URL)
+        .then()
+        .statusCode(403)
+        .extract()
+        .path(MESSAGE_KEY);
+
+    assertThat(messageKey, Matchers.is(equalTo(MESSAGEKEY_ERROR_UNAUTHORIZED)));
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
@@ -15,14 +15,18 @@
 
 package org.openlmis.referencedata.web;
 
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.openlmis.referencedata.domain.RightName.FACILITY_APPROVED_ORDERABLES_MANAGE;
 
 import com.google.common.collect.Lists;
@@ -41,6 +45,8 @@ import org.openlmis.referencedata.domain.Program;
 import org.openlmis.referencedata.domain.RightName;
 import org.openlmis.referencedata.dto.ApprovedProductDto;
 import org.openlmis.referencedata.exception.UnauthorizedException;
+import org.openlmis.referencedata.repository.KeysetPage;
+import org.openlmis.referencedata.repository.SeekCursor;
 import org.openlmis.referencedata.service.PageDto;
 import org.openlmis.referencedata.testbuilder.FacilityTypeApprovedProductSearchParamsDataBuilder;
 import org.openlmis.referencedata.testbuilder.FacilityTypeApprovedProductsDataBuilder;
@@ -65,6 +71,8 @@ public class FacilityTypeApprovedProductControllerIntegrationTest extends BaseWe
   private static final String RESOURCE_URL = "/api/facilityTypeApprovedProducts";
   private static final String ID_URL = RESOURCE_URL + "/{id}";
   private static final String SEARCH_URL = RESOURCE_URL + "/search";
+  private static final String CURSOR_URL = RESOURCE_URL + "/cursor";
+  private static final String CURSOR_PARAM = "cursor";
 
   private static final String FACILITY_TYPE_PARAM = "facilityType";
   private static final String PROGRAM_PARAM = "program";
@@ -454,6 +462,52 @@ public class FacilityTypeApprovedProductControllerIntegrationTest extends BaseWe
 
   // POST /facilityTypeApprovedProducts
 
+  // GET /facilityTypeApprovedProducts/cursor
+
+  @Test
+  public void shouldSearchFtapsByCursor() {
+    SeekCursor next = new SeekCursor(orderable.getFullProductName(),
+        facilityTypeAppProd.getId(), facilityTypeAppProd.getVersionNumber());
+    given(facilityTypeApprovedProductRepository
+        .seekProducts(any(QueryFacilityTypeApprovedProductSearchParams.class), eq(null), eq(1)))
+        .willReturn(new KeysetPage<>(Lists.newArrayList(facilityTypeAppProd), next));
+
+    String nextCursor = restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .queryParam(FACILITY_TYPE_PARAM, facilityType1.getCode())
+        .queryParam(PROGRAM_PARAM, program.getCode().toString())
+        .queryParam("size", 1)
+        .when()
+        .get(CURSOR_URL)
+        .then()
+        .statusCode(HttpStatus.SC_OK)
+        .body("content", hasSize(1))
+        .body("content[0].id", is(ftapDto.getId().toString()))
+        .extract()
+        .path("nextCursor");
+
+    assertEquals(next, SeekCursor.decode(nextCursor));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnBadRequestIfCursorIsInvalid() {
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .queryParam(CURSOR_PARAM, "not a cursor")
+        .when()
+        .get(CURSOR_URL)
+        .then()
+        .statusCode(HttpStatus.SC_BAD_REQUEST);
+
+    verify(facilityTypeApprovedProductRepository, never()).seekProducts(any(), any(), anyInt());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void shouldPostSearchFtaps() {
     FacilityTypeApprovedProductSearchParams searchParams =
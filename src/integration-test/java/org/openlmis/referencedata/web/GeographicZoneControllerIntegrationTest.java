@@ -22,6 +22,7 @@ import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 
 import com.google.common.collect.Lists;
 import com.vividsolutions.jts.geom.Coordinate;
@@ -149,6 +150,7 @@ public class GeographicZoneControllerIntegrationTest extends BaseWebIntegrationT
         .statusCode(HttpStatus.SC_NO_CONTENT);
 
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+    verify(geographicHierarchy).invalidate();
   }
 
   @Test
@@ -165,6 +167,7 @@ public class GeographicZoneControllerIntegrationTest extends BaseWebIntegrationT
         .body(isEqualToIgnoringGivenFields(countryZoneDto, ID));
 
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+    verify(geographicHierarchy).invalidate();
   }
 
   @Test
@@ -182,6 +185,7 @@ public class GeographicZoneControllerIntegrationTest extends BaseWebIntegrationT
         .body(isEqualToIgnoringGivenFields(countryZoneDto));
 
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+    verify(geographicHierarchy).invalidate();
   }
 
   @Test
@@ -15,16 +15,19 @@
 
 package org.openlmis.referencedata.web;
 
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertThat;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.openlmis.referencedata.domain.RightName.ORDERABLES_MANAGE;
@@ -33,12 +36,16 @@ import static org.openlmis.referencedata.util.messagekeys.OrderableMessageKeys.E
 import static org.openlmis.referencedata.util.messagekeys.OrderableMessageKeys.ERROR_PACK_ROUNDING_THRESHOLD_REQUIRED;
 import static org.openlmis.referencedata.util.messagekeys.OrderableMessageKeys.ERROR_PRODUCT_CODE_REQUIRED;
 import static org.openlmis.referencedata.util.messagekeys.OrderableMessageKeys.ERROR_ROUND_TO_ZERO_REQUIRED;
+import static org.openlmis.referencedata.util.messagekeys.OrderableMessageKeys.ERROR_TOO_MANY_VERSION_IDENTITIES;
 import static org.openlmis.referencedata.web.BaseController.RFC_7231_FORMAT;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.jayway.restassured.response.Response;
 import guru.nidi.ramltester.junit.RamlMatchers;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
@@ -72,18 +79,24 @@ import org.openlmis.referencedata.domain.OrderableDisplayCategory;
 import org.openlmis.referencedata.domain.Program;
 import org.openlmis.referencedata.domain.ProgramOrderable;
 import org.openlmis.referencedata.domain.RightName;
+import org.openlmis.referencedata.domain.VersionIdentity;
 import org.openlmis.referencedata.dto.OrderableChildDto;
 import org.openlmis.referencedata.dto.OrderableDto;
 import org.openlmis.referencedata.dto.PriceChangeDto;
 import org.openlmis.referencedata.dto.ProgramOrderableDto;
 import org.openlmis.referencedata.dto.VersionIdentityDto;
 import org.openlmis.referencedata.exception.UnauthorizedException;
+import org.openlmis.referencedata.repository.KeysetPage;
+import org.openlmis.referencedata.repository.SeekCursor;
+import org.openlmis.referencedata.service.OrderableCatalogVersion;
+import org.openlmis.referencedata.service.OrderableSearchResult;
 import org.openlmis.referencedata.service.PageDto;
 import org.openlmis.referencedata.testbuilder.OrderableDataBuilder;
 import org.openlmis.referencedata.util.Message;
 import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.utils.AuditLogHelper;
 import org.slf4j.profiler.Profiler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -97,6 +110,9 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
   private static final String RESOURCE_URL = "/api/orderables";
   private static final String ID_URL = RESOURCE_URL + "/{id}";
   private static final String SEARCH_URL = RESOURCE_URL + "/search";
+  private static final String CURSOR_URL = RESOURCE_URL + "/cursor";
+  private static final String STREAM_URL = RESOURCE_URL + "/stream";
+  private static final String VERSIONS_URL = RESOURCE_URL + "/versions";
 
   private static final String UNIT = "unit";
   private static final String NAME = "name";
@@ -105,6 +121,10 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
   private static final String ID = "id";
   private static final String VERSION_NAME = "versionNumber";
   private static final String GMT = "GMT";
+  private static final String CATALOG_VERSION = "5";
+
+  @Value("${orderables.versions.maxSize}")
+  private int versionsMaxSize;
 
   @Captor
   public ArgumentCaptor<QueryOrderableSearchParams> searchParamsArgumentCaptor;
@@ -134,6 +154,8 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
     when(orderableRepository.save(any(Orderable.class))).thenReturn(orderable);
     given(orderableRepository.findFirstByIdentityIdOrderByIdentityVersionNumberDesc(
         orderable.getId())).willReturn(orderable);
+    given(orderableCatalogVersion.getSnapshot())
+        .willReturn(new OrderableCatalogVersion.Snapshot(CATALOG_VERSION, null, 0L));
   }
 
   @Test
@@ -156,6 +178,7 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
     assertEquals(orderableDto.getPrograms(), orderableDtoResponse.getPrograms());
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
     assertThat(response.getHeaders().hasHeaderWithName(HttpHeaders.LAST_MODIFIED), is(true));
+    verify(orderableCatalogVersion).orderablesChanged();
   }
 
   @Test
@@ -445,13 +468,10 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
   @Test
   public void shouldRetrieveAllOrderables() {
     final List<Orderable> items = Collections.singletonList(orderable);
-    when(orderableService
-        .searchOrderables(any(QueryOrderableSearchParams.class), any(Pageable.class)))
-        .thenReturn(Pagination.getPage(items, PageRequest.of(0, 10)));
-
-    when(orderableService
-        .getLatestLastUpdatedDate(any(QueryOrderableSearchParams.class), any(Profiler.class)))
-        .thenReturn(modifiedDate);
+    when(orderableService.searchOrderables(
+        any(QueryOrderableSearchParams.class), any(Pageable.class), any(Profiler.class)))
+        .thenReturn(new OrderableSearchResult(modifiedDate,
+            () -> Pagination.getPage(items, PageRequest.of(0, 10))));
 
     PageDto response = restAssured
         .given()
@@ -472,13 +492,10 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
   @Test
   public void shouldRetrieveAllOrderablesIfAnyResourceWasModified() {
     final List<Orderable> items = Collections.singletonList(orderable);
-    when(orderableService
-        .searchOrderables(any(QueryOrderableSearchParams.class), any(Pageable.class)))
-        .thenReturn(Pagination.getPage(items, PageRequest.of(0, 10)));
-
-    when(orderableService
-            .getLatestLastUpdatedDate(any(QueryOrderableSearchParams.class), any(Profiler.class)))
-            .thenReturn(modifiedDate);
+    when(orderableService.searchOrderables(
+        any(QueryOrderableSearchParams.class), any(Pageable.class), any(Profiler.class)))
+        .thenReturn(new OrderableSearchResult(modifiedDate,
+            () -> Pagination.getPage(items, PageRequest.of(0, 10))));
 
     PageDto response = restAssured
         .given()
@@ -499,9 +516,9 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
 
   @Test
   public void shouldReturnEmptyPageIfNoOrderableWithLastUpdatedDateWasFound() {
-    when(orderableService
-        .getLatestLastUpdatedDate(any(QueryOrderableSearchParams.class), any(Profiler.class)))
-        .thenReturn(null);
+    when(orderableService.searchOrderables(
+        any(QueryOrderableSearchParams.class), any(Pageable.class), any(Profiler.class)))
+        .thenReturn(new OrderableSearchResult(null, Page::empty));
 
     PageDto response = restAssured
         .given()
@@ -521,13 +538,10 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
   @Test
   public void shouldReturnNotModifiedAndNoResponseBodyIfNoOrderableWasModified() {
     final List<Orderable> items = Collections.singletonList(orderable);
-    when(orderableService
-        .searchOrderables(any(QueryOrderableSearchParams.class), any(Pageable.class)))
-        .thenReturn(Pagination.getPage(items, PageRequest.of(0, 10)));
-
-    when(orderableService
-            .getLatestLastUpdatedDate(any(QueryOrderableSearchParams.class), any(Profiler.class)))
-            .thenReturn(modifiedDate);
+    when(orderableService.searchOrderables(
+        any(QueryOrderableSearchParams.class), any(Pageable.class), any(Profiler.class)))
+        .thenReturn(new OrderableSearchResult(modifiedDate,
+            () -> Pagination.getPage(items, PageRequest.of(0, 10))));
 
     restAssured
         .given()
@@ -542,6 +556,24 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldReturnNotModifiedWithoutSearchingIfCatalogVersionMatches() {
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .header(HttpHeaders.IF_NONE_MATCH, "\"" + CATALOG_VERSION + "\"")
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .when()
+        .get(RESOURCE_URL)
+        .then()
+        .statusCode(HttpStatus.SC_NOT_MODIFIED)
+        .header(HttpHeaders.ETAG, "\"" + CATALOG_VERSION + "\"");
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+    verify(orderableService, never()).searchOrderables(
+        any(QueryOrderableSearchParams.class), any(Pageable.class), any(Profiler.class));
+  }
+
   @Test
   public void shouldSearchOrderables() {
     final String code = "some-code";
@@ -552,13 +584,10 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
 
     UUID orderableId2 = UUID.randomUUID();
 
-    when(orderableService
-        .searchOrderables(any(QueryOrderableSearchParams.class), any(Pageable.class)))
-        .thenReturn(Pagination.getPage(items, PageRequest.of(0, 10)));
-
-    when(orderableService
-            .getLatestLastUpdatedDate(any(QueryOrderableSearchParams.class), any(Profiler.class)))
-            .thenReturn(modifiedDate);
+    when(orderableService.searchOrderables(
+        any(QueryOrderableSearchParams.class), any(Pageable.class), any(Profiler.class)))
+        .thenReturn(new OrderableSearchResult(modifiedDate,
+            () -> Pagination.getPage(items, PageRequest.of(0, 10))));
 
     PageDto response = restAssured
         .given()
@@ -579,8 +608,8 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
 
     checkIfEquals(response, OrderableDto.newInstances(items));
 
-    verify(orderableService)
-        .searchOrderables(searchParamsArgumentCaptor.capture(), any(Pageable.class));
+    verify(orderableService).searchOrderables(
+        searchParamsArgumentCaptor.capture(), any(Pageable.class), any(Profiler.class));
 
     QueryOrderableSearchParams value = searchParamsArgumentCaptor.getValue();
     assertEquals(code, value.getCode());
@@ -594,17 +623,168 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldFindOrderablesByCursor() {
+    SeekCursor after = new SeekCursor("name-1", UUID.randomUUID(), 1L);
+    SeekCursor next = new SeekCursor("name-2", orderableId, orderableVersionNumber);
+    when(orderableRepository.seek(any(QueryOrderableSearchParams.class), eq(after), eq(10)))
+        .thenReturn(new KeysetPage<>(Collections.singletonList(orderable), next));
+
+    String nextCursor = restAssured
+        .given()
+        .queryParam(CODE, CODE)
+        .queryParam("cursor", after.encode())
+        .queryParam("size", 10)
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .when()
+        .get(CURSOR_URL)
+        .then()
+        .statusCode(200)
+        .body("content", hasSize(1))
+        .body("content[0].id", is(orderableId.toString()))
+        .extract().path("nextCursor");
+
+    assertEquals(next, SeekCursor.decode(nextCursor));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldRejectInvalidCursor() {
+    restAssured
+        .given()
+        .queryParam("cursor", "not a cursor")
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .when()
+        .get(CURSOR_URL)
+        .then()
+        .statusCode(400);
+
+    verify(orderableRepository, never()).seek(any(), any(), anyInt());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldStreamOrderablesAsNewlineDelimitedJson() throws IOException {
+    String lines = "{\"id\":\"" + orderableId + "\"}\n";
+    when(orderableService.writeNdjson(any(QueryOrderableSearchParams.class),
+        any(OutputStream.class)))
+        .thenAnswer(invocation -> {
+          OutputStream outputStream = (OutputStream) invocation.getArguments()[1];
+          outputStream.write(lines.getBytes(StandardCharsets.UTF_8));
+          return 1L;
+        });
+
+    String response = restAssured
+        .given()
+        .queryParam(CODE, CODE)
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(STREAM_URL)
+        .then()
+        .statusCode(200)
+        .contentType(OrderableController.NDJSON)
+        .extract().asString();
+
+    assertEquals(lines, response);
+    verify(orderableService).writeNdjson(searchParamsArgumentCaptor.capture(),
+        any(OutputStream.class));
+    assertEquals(CODE, searchParamsArgumentCaptor.getValue().getCode());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldNotStreamOrderablesByIds() throws IOException {
+    restAssured
+        .given()
+        .queryParam(ID, orderableId)
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(STREAM_URL)
+        .then()
+        .statusCode(400);
+
+    verify(orderableService, never()).writeNdjson(any(), any());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnOrderableVersionsInOrderOfIdentities() throws IOException {
+    VersionIdentityDto other = new VersionIdentityDto(UUID.randomUUID(), 3L);
+    VersionIdentityDto chosen = new VersionIdentityDto(orderableId, orderableVersionNumber);
+    List<VersionIdentity> identities = Arrays.asList(
+        new VersionIdentity(other.getId(), other.getVersionNumber()),
+        new VersionIdentity(orderableId, orderableVersionNumber));
+
+    String content = "[{\"id\":\"" + orderableId + "\"}]";
+    when(orderableService.writeJsonByIdentities(eq(identities), any(OutputStream.class)))
+        .thenAnswer(invocation -> {
+          OutputStream outputStream = (OutputStream) invocation.getArguments()[1];
+          outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+          return 1L;
+        });
+
+    String response = restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .body(Arrays.asList(other, chosen, other))
+        .when()
+        .post(VERSIONS_URL)
+        .then()
+        .statusCode(200)
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .extract().asString();
+
+    assertEquals(content, response);
+    verify(orderableService).writeJsonByIdentities(eq(identities), any(OutputStream.class));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldNotReturnOrderableVersionsIfVersionNumberIsMissing() throws IOException {
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .body(Collections.singletonList(new VersionIdentityDto(orderableId, null)))
+        .when()
+        .post(VERSIONS_URL)
+        .then()
+        .statusCode(400);
+
+    verify(orderableService, never()).writeJsonByIdentities(any(), any());
+  }
+
+  @Test
+  public void shouldNotReturnOrderableVersionsIfTooManyAreRequested() throws IOException {
+    String messageKey = restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .body(Collections.nCopies(versionsMaxSize + 1,
+            new VersionIdentityDto(orderableId, orderableVersionNumber)))
+        .when()
+        .post(VERSIONS_URL)
+        .then()
+        .statusCode(400)
+        .extract()
+        .path(MESSAGE_KEY);
+
+    assertEquals(ERROR_TOO_MANY_VERSION_IDENTITIES, messageKey);
+    verify(orderableService, never()).writeJsonByIdentities(any(), any());
+  }
+
   @Test
   public void shouldPaginateSearchOrderables() {
     final List<Orderable> items = Collections.singletonList(orderable);
 
     Pageable page = PageRequest.of(0, 10);
-    when(orderableService.searchOrderables(any(QueryOrderableSearchParams.class), eq(page)))
-        .thenReturn(Pagination.getPage(items, page));
-
-    when(orderableService
-            .getLatestLastUpdatedDate(any(QueryOrderableSearchParams.class), any(Profiler.class)))
-            .thenReturn(modifiedDate);
+    when(orderableService.searchOrderables(
+        any(QueryOrderableSearchParams.class), eq(page), any(Profiler.class)))
+        .thenReturn(new OrderableSearchResult(modifiedDate,
+            () -> Pagination.getPage(items, page)));
 
     PageDto response = restAssured
         .given()
@@ -634,8 +814,10 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
     final List<Orderable> items = Collections.singletonList(orderable);
 
     Pageable page = PageRequest.of(0, 0);
-    when(orderableService.searchOrderables(any(QueryOrderableSearchParams.class), eq(page)))
-        .thenReturn(Pagination.getPage(items, page));
+    when(orderableService.searchOrderables(
+        any(QueryOrderableSearchParams.class), eq(page), any(Profiler.class)))
+        .thenReturn(new OrderableSearchResult(modifiedDate,
+            () -> Pagination.getPage(items, page)));
 
     restAssured
         .given()
@@ -654,8 +836,10 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
     final List<Orderable> items = Collections.singletonList(orderable);
 
     Pageable page = PageRequest.of(0, 0);
-    when(orderableService.searchOrderables(any(QueryOrderableSearchParams.class), eq(page)))
-        .thenReturn(Pagination.getPage(items, page));
+    when(orderableService.searchOrderables(
+        any(QueryOrderableSearchParams.class), eq(page), any(Profiler.class)))
+        .thenReturn(new OrderableSearchResult(modifiedDate,
+            () -> Pagination.getPage(items, page)));
 
     restAssured
         .given()
@@ -757,14 +941,10 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
             orderableDto.getId(), orderableDto.getVersionNumber())),
         0, 10);
 
-    doReturn(Pagination.getPage(Lists.newArrayList(orderable), PageRequest.of(0, 10)))
-        .when(orderableRepository)
-        .search(eq(searchParams), any(Pageable.class));
-
-    doReturn(modifiedDate)
+    doReturn(new OrderableSearchResult(modifiedDate,
+        () -> Pagination.getPage(Lists.newArrayList(orderable), PageRequest.of(0, 10))))
         .when(orderableService)
-        .getLatestLastUpdatedDate(any(QueryOrderableSearchParams.class), any(Profiler.class));
-
+        .searchOrderablesByParams(eq(searchParams), any(Pageable.class), any(Profiler.class));
 
     PageDto response = restAssured
         .given()
@@ -793,14 +973,10 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
             orderableDto.getId(), orderableDto.getVersionNumber())),
         0, 10);
 
-    doReturn(Pagination.getPage(Lists.newArrayList(orderable), PageRequest.of(0, 10)))
-        .when(orderableRepository)
-        .search(eq(searchParams), any(Pageable.class));
-
-    doReturn(modifiedDate)
+    doReturn(new OrderableSearchResult(modifiedDate,
+        () -> Pagination.getPage(Lists.newArrayList(orderable), PageRequest.of(0, 10))))
         .when(orderableService)
-        .getLatestLastUpdatedDate(any(QueryOrderableSearchParams.class), any(Profiler.class));
-
+        .searchOrderablesByParams(eq(searchParams), any(Pageable.class), any(Profiler.class));
     PageDto response = restAssured
         .given()
         .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
@@ -829,14 +1005,10 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
             orderableDto.getId(), orderableDto.getVersionNumber())),
         0, 10);
 
-    doReturn(Pagination.getPage(Lists.newArrayList(orderable), PageRequest.of(0, 10)))
-        .when(orderableRepository)
-        .search(eq(searchParams), any(Pageable.class));
-
-    doReturn(modifiedDate)
+    doReturn(new OrderableSearchResult(modifiedDate,
+        () -> Pagination.getPage(Lists.newArrayList(orderable), PageRequest.of(0, 10))))
         .when(orderableService)
-        .getLatestLastUpdatedDate(any(QueryOrderableSearchParams.class), any(Profiler.class));
-
+        .searchOrderablesByParams(eq(searchParams), any(Pageable.class), any(Profiler.class));
     restAssured
         .given()
         .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
@@ -852,6 +1024,28 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldReturnNotModifiedWithoutSearchingIfCatalogWasNotModifiedSince() {
+    given(orderableCatalogVersion.getSnapshot())
+        .willReturn(new OrderableCatalogVersion.Snapshot(CATALOG_VERSION, modifiedDate, 0L));
+
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .header(HttpHeaders.IF_MODIFIED_SINCE, modifiedDate.format(RFC_7231_FORMAT))
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .when()
+        .body(new OrderableSearchParams())
+        .post(SEARCH_URL)
+        .then()
+        .statusCode(HttpStatus.SC_NOT_MODIFIED)
+        .header(HttpHeaders.LAST_MODIFIED, modifiedDate.format(RFC_7231_FORMAT));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+    verify(orderableService, never()).searchOrderablesByParams(
+        any(OrderableSearchParams.class), any(Pageable.class), any(Profiler.class));
+  }
+
   @Test
   public void postSearchShouldReturnEmptyPageWhenNoOrderablesFound() {
     OrderableSearchParams searchParams = new OrderableSearchParams(
@@ -861,14 +1055,10 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
             orderableDto.getId(), orderableDto.getVersionNumber())),
         0, 10);
 
-    doReturn(Pagination.getPage(Lists.newArrayList(), PageRequest.of(0, 10)))
-        .when(orderableRepository)
-        .search(eq(searchParams), any(Pageable.class));
-
-    doReturn(modifiedDate)
+    doReturn(new OrderableSearchResult(modifiedDate,
+        () -> Pagination.getPage(Lists.newArrayList(), PageRequest.of(0, 10))))
         .when(orderableService)
-        .getLatestLastUpdatedDate(any(QueryOrderableSearchParams.class), any(Profiler.class));
-
+        .searchOrderablesByParams(eq(searchParams), any(Pageable.class), any(Profiler.class));
     PageDto response = restAssured
         .given()
         .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
@@ -15,16 +15,16 @@
 
 package org.openlmis.referencedata.web;
 
-import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonMap;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.verifyZeroInteractions;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -33,12 +33,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
-import org.junit.Before;
 import org.junit.Test;
 import org.openlmis.referencedata.domain.FacilityTypeApprovedProduct;
-import org.openlmis.referencedata.domain.Orderable;
 import org.openlmis.referencedata.testbuilder.FacilityTypeApprovedProductsDataBuilder;
-import org.openlmis.referencedata.testbuilder.OrderableDataBuilder;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.http.HttpHeaders;
@@ -48,25 +45,16 @@ public class OrderableFulfillControllerIntegrationTest extends BaseWebIntegratio
   private static final String CAN_BE_FULFILLED_BY_ME = ".canBeFulfilledByMe";
   private static final String CAN_FULFILL_FOR_ME_FIELD_NAME = ".canFulfillForMe";
 
-  private Orderable orderable = new OrderableDataBuilder().build();
   private UUID facilityId = UUID.randomUUID();
   private UUID programId = UUID.randomUUID();
 
   private UUID tradeItemOrderableId = UUID.randomUUID();
   private UUID commodityTypeOrderableId = UUID.randomUUID();
 
-  @Override
-  @Before
-  public void setUp() {
-    super.setUp();
-    given(orderableRepository.findAllLatest(any())).willReturn(getPage(orderable));
-  }
-
   @Test
   public void shouldCreateResourceForTradeItem() {
-    orderable.setId(tradeItemOrderableId);
-    given(factory.createFor(eq(orderable), any(), any()))
-        .willReturn(OrderableFulfill.ofTradeItem(commodityTypeOrderableId));
+    given(orderableFulfillGraph.getAll()).willReturn(singletonMap(tradeItemOrderableId,
+        OrderableFulfill.ofTradeItem(commodityTypeOrderableId)));
 
     String canFulfillForMeField = tradeItemOrderableId + CAN_FULFILL_FOR_ME_FIELD_NAME;
     String canBeFulfilledByMeField = tradeItemOrderableId + CAN_BE_FULFILLED_BY_ME;
@@ -79,9 +67,8 @@ public class OrderableFulfillControllerIntegrationTest extends BaseWebIntegratio
 
   @Test
   public void shouldCreateResourceForCommodityType() {
-    orderable.setId(commodityTypeOrderableId);
-    given(factory.createFor(eq(orderable), any(), any()))
-        .willReturn(OrderableFulfill.ofCommodityType(tradeItemOrderableId));
+    given(orderableFulfillGraph.getAll()).willReturn(singletonMap(commodityTypeOrderableId,
+        OrderableFulfill.ofCommodityType(tradeItemOrderableId)));
 
     String canBeFulfilledByMeField = commodityTypeOrderableId + CAN_BE_FULFILLED_BY_ME;
     String canFulfillForMeField = commodityTypeOrderableId + CAN_FULFILL_FOR_ME_FIELD_NAME;
@@ -94,19 +81,16 @@ public class OrderableFulfillControllerIntegrationTest extends BaseWebIntegratio
 
   @Test
   public void shouldReturnEmptyListIfThereAreNoOrderables() {
-    given(orderableRepository.findAllLatest(any())).willReturn(new PageImpl<>(emptyList()));
+    given(orderableFulfillGraph.getAll()).willReturn(Collections.emptyMap());
 
     doRequest(null).body("isEmpty()", is(true));
-    verifyZeroInteractions(factory);
   }
 
   @Test
   public void shouldCreateResourceBasingOnIds() {
-    orderable.setId(commodityTypeOrderableId);
-
-    given(orderableRepository.findAllLatestByIds(any(), any())).willReturn(getPage(orderable));
-    given(factory.createFor(eq(orderable), any(), any()))
-        .willReturn(OrderableFulfill.ofCommodityType(tradeItemOrderableId));
+    given(orderableFulfillGraph.get(singleton(commodityTypeOrderableId)))
+        .willReturn(singletonMap(commodityTypeOrderableId,
+            OrderableFulfill.ofCommodityType(tradeItemOrderableId)));
 
     String canFulfillForMeField = commodityTypeOrderableId + CAN_FULFILL_FOR_ME_FIELD_NAME;
 
@@ -116,21 +100,20 @@ public class OrderableFulfillControllerIntegrationTest extends BaseWebIntegratio
     ValidatableResponse response = doRequest(params);
     response.body(canFulfillForMeField, hasItem(tradeItemOrderableId.toString()));
 
-    verify(orderableRepository, times(0)).findAllLatest(any());
+    verify(orderableFulfillGraph, never()).getAll();
   }
 
   @Test
   public void shouldCreateResourceBasingOnFacilityIdAndProgramIdParams() {
-    orderable.setId(commodityTypeOrderableId);
     FacilityTypeApprovedProduct ftap = new FacilityTypeApprovedProductsDataBuilder()
         .withOrderableId(commodityTypeOrderableId).build();
 
     given(facilityTypeApprovedProductRepository
         .searchProducts(eq(facilityId), eq(programId), any(), any(), eq(true), any(), any(),any()))
         .willReturn(getPage(ftap));
-    given(orderableRepository.findAllLatestByIds(any(), any())).willReturn(getPage(orderable));
-    given(factory.createFor(eq(orderable), any(), any()))
-        .willReturn(OrderableFulfill.ofCommodityType(tradeItemOrderableId));
+    given(orderableFulfillGraph.get(singleton(commodityTypeOrderableId)))
+        .willReturn(singletonMap(commodityTypeOrderableId,
+            OrderableFulfill.ofCommodityType(tradeItemOrderableId)));
 
     String canFulfillForMeField = commodityTypeOrderableId + CAN_FULFILL_FOR_ME_FIELD_NAME;
 
@@ -141,7 +124,7 @@ public class OrderableFulfillControllerIntegrationTest extends BaseWebIntegratio
     ValidatableResponse response = doRequest(params);
     response.body(canFulfillForMeField, hasItem(tradeItemOrderableId.toString()));
 
-    verify(orderableRepository, times(0)).findAllLatest(any());
+    verify(orderableFulfillGraph, never()).getAll();
     verify(facilityTypeApprovedProductRepository)
         .searchProducts(eq(facilityId), eq(programId), any(), any(), eq(true), any(), any(), any());
   }
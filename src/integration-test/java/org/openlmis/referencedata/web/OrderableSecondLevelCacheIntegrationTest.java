@@ -0,0 +1,100 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.UUID;
+import net.sf.ehcache.CacheManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.referencedata.domain.Orderable;
+import org.openlmis.referencedata.dto.OrderableDto;
+import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.testbuilder.OrderableDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Checks that repeated reads of the same orderable are answered from the second-level cache.
+ * Unlike the other controller tests, the repository is not mocked here and the data is committed,
+ * because the query cache ignores tables changed by a transaction that is still open.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("test")
+public class OrderableSecondLevelCacheIntegrationTest {
+
+  private static final String ORDERABLE_REGION = Orderable.class.getName();
+  private static final String QUERY_REGION = "default-query-results-region";
+
+  @Autowired
+  private OrderableController orderableController;
+
+  @Autowired
+  private OrderableRepository orderableRepository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private CacheManager cacheManager;
+  private Orderable orderable;
+
+  @Before
+  public void setUp() {
+    cacheManager = CacheManager.getInstance();
+    orderable = orderableRepository.save(new OrderableDataBuilder().buildAsNew());
+  }
+
+  @After
+  public void tearDown() {
+    orderableRepository.delete(orderable);
+  }
+
+  @Test
+  public void shouldAnswerRepeatedGetChosenOrderableFromSecondLevelCache() {
+    UUID orderableId = orderable.getId();
+
+    OrderableDto first = getChosenOrderable(orderableId);
+    long orderableHits = hitCount(ORDERABLE_REGION);
+    long queryHits = hitCount(QUERY_REGION);
+
+    OrderableDto second = getChosenOrderable(orderableId);
+
+    assertEquals(first.getId(), second.getId());
+    assertEquals(first.getVersionNumber(), second.getVersionNumber());
+    assertTrue(hitCount(QUERY_REGION) > queryHits);
+    assertTrue(hitCount(ORDERABLE_REGION) > orderableHits);
+  }
+
+  // every call gets its own persistence context, as a request does with open session in view
+  private OrderableDto getChosenOrderable(UUID orderableId) {
+    return new TransactionTemplate(transactionManager).execute(status -> orderableController
+        .getChosenOrderable(orderableId, null, null)
+        .getBody());
+  }
+
+  private long hitCount(String region) {
+    return cacheManager.getEhcache(region).getStatistics().cacheHitCount();
+  }
+}
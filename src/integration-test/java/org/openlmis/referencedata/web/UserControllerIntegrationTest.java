@@ -33,11 +33,14 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.openlmis.referencedata.util.messagekeys.UserMessageKeys.ERROR_FIRSTNAME_REQUIRED;
 import static org.openlmis.referencedata.util.messagekeys.UserMessageKeys.ERROR_LASTNAME_REQUIRED;
+import static org.openlmis.referencedata.util.messagekeys.UserMessageKeys.ERROR_RIGHT_CHECK_ID_REQUIRED;
+import static org.openlmis.referencedata.util.messagekeys.UserMessageKeys.ERROR_RIGHT_CHECK_TOO_MANY;
 import static org.openlmis.referencedata.util.messagekeys.UserMessageKeys.ERROR_USERNAME_DUPLICATED;
 import static org.openlmis.referencedata.util.messagekeys.UserMessageKeys.ERROR_USERNAME_INVALID;
 import static org.openlmis.referencedata.util.messagekeys.UserMessageKeys.ERROR_USERNAME_REQUIRED;
@@ -46,6 +49,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.jayway.restassured.response.Response;
+import com.jayway.restassured.specification.RequestSpecification;
 import guru.nidi.ramltester.junit.RamlMatchers;
 import java.util.Arrays;
 import java.util.Collections;
@@ -78,12 +82,15 @@ import org.openlmis.referencedata.domain.SupervisoryNode;
 import org.openlmis.referencedata.domain.User;
 import org.openlmis.referencedata.dto.DetailedRoleAssignmentDto;
 import org.openlmis.referencedata.dto.NamedResource;
+import org.openlmis.referencedata.dto.PermissionStringsDeltaDto;
 import org.openlmis.referencedata.dto.ResultDto;
+import org.openlmis.referencedata.dto.RightCheckDto;
 import org.openlmis.referencedata.dto.UserDto;
 import org.openlmis.referencedata.exception.UnauthorizedException;
 import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.repository.UserSearchParams;
 import org.openlmis.referencedata.service.PageDto;
+import org.openlmis.referencedata.service.UserPermissionVersionService.PermissionVersion;
 import org.openlmis.referencedata.testbuilder.FacilityDataBuilder;
 import org.openlmis.referencedata.testbuilder.GeographicZoneDataBuilder;
 import org.openlmis.referencedata.testbuilder.SupervisoryNodeDataBuilder;
@@ -94,6 +101,7 @@ import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.util.UserSearchParamsDataBuilder;
 import org.openlmis.referencedata.util.messagekeys.RightMessageKeys;
 import org.openlmis.referencedata.utils.AuditLogHelper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
@@ -108,6 +116,7 @@ public class UserControllerIntegrationTest extends BaseWebIntegrationTest {
   private static final String ID_URL = RESOURCE_URL + "/{id}";
   private static final String ROLE_ASSIGNMENTS_URL = ID_URL + "/roleAssignments";
   private static final String HAS_RIGHT_URL = ID_URL + "/hasRight";
+  private static final String BULK_HAS_RIGHT_URL = RESOURCE_URL + "/hasRight";
   private static final String PROGRAMS_URL = ID_URL + "/programs";
   private static final String SUPPORTED_PROGRAMS_URL = ID_URL + "/supportedPrograms";
   private static final String FULFILLMENT_FACILITIES_URL = ID_URL + "/fulfillmentFacilities";
@@ -126,6 +135,7 @@ public class UserControllerIntegrationTest extends BaseWebIntegrationTest {
   private static final String SUPERVISORY_NODE_ID_STRING = "supervisoryNodeId";
   private static final String WAREHOUSE_ID_STRING = "warehouseId";
   private static final String ADMIN_RIGHT_NAME = "adminRight";
+  private static final long PERMISSION_VERSION = 5L;
 
   private static final UUID RIGHT_ID = UUID.randomUUID();
   private static final UUID SUPERVISORY_NODE_ID = UUID.randomUUID();
@@ -163,6 +173,9 @@ public class UserControllerIntegrationTest extends BaseWebIntegrationTest {
   private SupervisionRoleAssignment roleAssignment3;
   private FulfillmentRoleAssignment roleAssignment4;
 
+  @Value("${users.rightChecks.maxSize}")
+  private int rightChecksMaxSize;
+
   /**
    * Constructor for test class.
    */
@@ -554,6 +567,66 @@ public class UserControllerIntegrationTest extends BaseWebIntegrationTest {
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldCheckIfUsersHaveRights() {
+    mockUserHasRight(RightName.USERS_MANAGE_RIGHT);
+
+    RightCheckDto[] response = postUsersHaveRights(asList(
+        new RightCheckDto(userId, supervisionRightId, program1Id, homeFacilityId, null, null),
+        new RightCheckDto(userId, supervisionRightId, program2Id, homeFacilityId, null, null)))
+        .then()
+        .statusCode(200)
+        .extract().as(RightCheckDto[].class);
+
+    assertEquals(2, response.length);
+    assertTrue(response[0].getResult());
+    assertFalse(response[1].getResult());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldBadRequestCheckIfUsersHaveRightsWithMissingRightId() {
+    String messageKey = postUsersHaveRights(singletonList(
+        new RightCheckDto(userId, null, null, null, null, null)))
+        .then()
+        .statusCode(400)
+        .extract()
+        .path(MESSAGE_KEY);
+
+    assertThat(messageKey, Matchers.is(equalTo(ERROR_RIGHT_CHECK_ID_REQUIRED)));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldBadRequestCheckIfUsersHaveRightsWithTooManyChecks() {
+    mockUserHasRight(RightName.USERS_MANAGE_RIGHT);
+
+    String messageKey = postUsersHaveRights(Collections.nCopies(rightChecksMaxSize + 1,
+        new RightCheckDto(userId, supervisionRightId, null, null, null, null)))
+        .then()
+        .statusCode(400)
+        .extract()
+        .path(MESSAGE_KEY);
+
+    assertThat(messageKey, Matchers.is(equalTo(ERROR_RIGHT_CHECK_TOO_MANY)));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldRejectCheckIfUsersHaveRightsIfUserHasNoRight() {
+    mockUserHasNoRight(RightName.USERS_MANAGE_RIGHT);
+
+    String messageKey = postUsersHaveRights(singletonList(
+        new RightCheckDto(userId, supervisionRightId, null, null, null, null)))
+        .then()
+        .statusCode(403)
+        .extract()
+        .path(MESSAGE_KEY);
+
+    assertThat(messageKey, Matchers.is(equalTo(MESSAGEKEY_ERROR_UNAUTHORIZED)));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void shouldBadRequestGetUserHasRightWithMissingFacility() {
     mockUserHasRight(RightName.USERS_MANAGE_RIGHT);
@@ -1038,6 +1111,41 @@ public class UserControllerIntegrationTest extends BaseWebIntegrationTest {
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void getPermissionStringsShouldReturnNotModifiedIfVersionMatches() {
+    mockUserHasRight(RightName.USERS_MANAGE_RIGHT);
+
+    given(userRepository.existsById(userId)).willReturn(true);
+
+    getUsersPermissionStrings("\"" + PERMISSION_VERSION + "\"")
+        .then()
+        .statusCode(304)
+        .header(HttpHeaders.ETAG, "\"" + PERMISSION_VERSION + "\"");
+
+    verify(rightAssignmentRepository, never()).findByUser(userId);
+  }
+
+  @Test
+  public void getPermissionStringsShouldReturnDeltaSinceVersion() {
+    mockUserHasRight(RightName.USERS_MANAGE_RIGHT);
+
+    given(userRepository.existsById(userId)).willReturn(true);
+    given(userPermissionVersionService.getDelta(userId, 3L))
+        .willReturn(new PermissionStringsDeltaDto(PERMISSION_VERSION, false,
+            Sets.newHashSet(ADMIN_RIGHT_NAME), Sets.newHashSet(SUPERVISION_RIGHT_NAME)));
+
+    PermissionStringsDeltaDto response = getUsersPermissionStringsDelta(3L)
+        .then()
+        .statusCode(200)
+        .extract().as(PermissionStringsDeltaDto.class);
+
+    assertEquals(PERMISSION_VERSION, response.getVersion());
+    assertFalse(response.isFull());
+    assertEquals(Sets.newHashSet(ADMIN_RIGHT_NAME), response.getAdded());
+    assertEquals(Sets.newHashSet(SUPERVISION_RIGHT_NAME), response.getRemoved());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void getPermissionStringsShouldReturnForbiddenIfUserTokenAndUserRequestsDifferentRecord() {
     mockUserHasNoRight(RightName.USERS_MANAGE_RIGHT);
@@ -1137,10 +1245,31 @@ public class UserControllerIntegrationTest extends BaseWebIntegrationTest {
   }
 
   private Response getUsersPermissionStrings() {
+    return getUsersPermissionStrings(null);
+  }
+
+  private Response getUsersPermissionStrings(String ifNoneMatch) {
+    given(userPermissionVersionService.getVersion(userId))
+        .willReturn(new PermissionVersion(PERMISSION_VERSION, 0));
+
+    RequestSpecification request = restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .pathParam("id", userId);
+    if (null != ifNoneMatch) {
+      request = request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+    }
+
+    return request
+        .when()
+        .get(PERMISSION_STRINGS_URL);
+  }
 
+  private Response getUsersPermissionStringsDelta(long sinceVersion) {
     return restAssured
         .given()
         .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .queryParam("sinceVersion", sinceVersion)
         .pathParam("id", userId)
         .when()
         .get(PERMISSION_STRINGS_URL);
@@ -1217,8 +1346,9 @@ public class UserControllerIntegrationTest extends BaseWebIntegrationTest {
     given(rightRepository.findById(supervisionRightId)).willReturn(Optional.of(supervisionRight));
     given(programRepository.existsById(program1Id)).willReturn(true);
     given(programRepository.existsById(program2Id)).willReturn(true);
-    given(rightAssignmentRepository.existsByUserIdAndAndRightNameAndFacilityIdAndProgramId(
-        userId, supervisionRight.getName(), homeFacilityId, program1Id)).willReturn(true);
+    given(rightAssignmentRepository.findRightAssignmentsByUser(userId)).willReturn(
+        Collections.singletonList(
+            new Object[]{supervisionRight.getName(), homeFacilityId, program1Id}));
 
     return restAssured
         .given()
@@ -1231,6 +1361,26 @@ public class UserControllerIntegrationTest extends BaseWebIntegrationTest {
         .get(HAS_RIGHT_URL);
   }
 
+  private Response postUsersHaveRights(List<RightCheckDto> rightChecks) {
+    given(userRepository.findAllById(any())).willReturn(singletonList(user1));
+    given(rightRepository.findAllById(any())).willReturn(singletonList(supervisionRight));
+    program1.setId(program1Id);
+    program2.setId(program2Id);
+    given(programRepository.findAllById(any())).willReturn(asList(program1, program2));
+    given(facilityRepository.findAllById(any())).willReturn(singletonList(homeFacility));
+    given(rightAssignmentRepository.findRightAssignmentsByUser(userId)).willReturn(
+        Collections.singletonList(
+            new Object[]{supervisionRight.getName(), homeFacilityId, program1Id}));
+
+    return restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .body(rightChecks)
+        .when()
+        .post(BULK_HAS_RIGHT_URL);
+  }
+
   private Response getUserPrograms() {
     given(userRepository.existsById(userId)).willReturn(true);
     given(programRepository.findSupervisionProgramsByUser(userId)).willReturn(
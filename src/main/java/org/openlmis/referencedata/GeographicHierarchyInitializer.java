@@ -0,0 +1,54 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata;
+
+import org.openlmis.referencedata.service.GeographicHierarchy;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * GeographicHierarchyInitializer runs after its associated Spring application has loaded. It
+ * builds the in-memory snapshot of the geographic zone tree, so the first requests which need it
+ * do not have to wait for it.
+ */
+@Component
+@Order(40)
+public class GeographicHierarchyInitializer implements CommandLineRunner {
+
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(
+      GeographicHierarchyInitializer.class);
+
+  @Autowired
+  private GeographicHierarchy geographicHierarchy;
+
+  /**
+   * Loads the geographic zone tree into memory.
+   * @param args command line arguments
+   */
+  @Override
+  public void run(String... args) {
+    XLOGGER.entry();
+
+    int size = geographicHierarchy.getSnapshot().size();
+
+    XLOGGER.info("Loaded {} geographic zones into the geographic hierarchy", size);
+    XLOGGER.exit(size);
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import org.openlmis.referencedata.domain.Orderable;
+import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.web.QueryOrderableSearchParams;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.slf4j.profiler.Profiler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.LinkedMultiValueMap;
+
+/**
+ * OrderableCacheInitializer runs after its associated Spring application has loaded. It reads
+ * the latest version of orderables in batches so that the orderables, their program orderables,
+ * children, identifiers and dispensables are put into the second-level cache before the first
+ * requests arrive. It stops once the orderable cache region is full (see ehcache.xml), as loading
+ * more orderables would only evict the ones loaded before. It can be turned off with the
+ * orderables.cache.warmUp.enabled property.
+ */
+@Component
+@Order(30)
+@DependsOn("entityManagerFactory")
+@Transactional(readOnly = true)
+public class OrderableCacheInitializer implements CommandLineRunner {
+
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(
+      OrderableCacheInitializer.class);
+
+  @Autowired
+  private OrderableRepository orderableRepository;
+
+  @Value("${orderables.cache.warmUp.enabled}")
+  private boolean enabled;
+
+  @Value("${orderables.cache.warmUp.batchSize}")
+  private int batchSize;
+
+  private final CacheManager cacheManager;
+
+  public OrderableCacheInitializer() {
+    this(CacheManager.getInstance());
+  }
+
+  OrderableCacheInitializer(CacheManager cacheManager) {
+    this.cacheManager = cacheManager;
+  }
+
+  /**
+   * Loads the current orderable catalog into the second-level cache.
+   * @param args command line arguments
+   */
+  @Override
+  public void run(String... args) {
+    XLOGGER.entry();
+
+    if (!enabled) {
+      XLOGGER.debug("Orderable cache warm-up is disabled");
+      XLOGGER.exit();
+      return;
+    }
+
+    Profiler profiler = new Profiler("WARM_UP_ORDERABLE_CACHE");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("GET_CACHE_CAPACITY");
+    int capacity = getCapacity();
+
+    profiler.start("SCROLL_LATEST_ORDERABLES");
+    long count = orderableRepository.scroll(
+        new QueryOrderableSearchParams(new LinkedMultiValueMap<>()), batchSize, capacity,
+        batch -> { });
+
+    profiler.stop().log();
+    XLOGGER.info("Loaded {} orderables into the second-level cache", count);
+    XLOGGER.exit(count);
+  }
+
+  // 0 if the region is not configured or not limited, which loads all orderables
+  private int getCapacity() {
+    Ehcache cache = cacheManager.getEhcache(Orderable.class.getName());
+    if (null == cache) {
+      return 0;
+    }
+
+    return (int) Math.min(Integer.MAX_VALUE,
+        cache.getCacheConfiguration().getMaxEntriesLocalHeap());
+  }
+}
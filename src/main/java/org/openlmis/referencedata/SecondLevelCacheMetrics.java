@@ -0,0 +1,55 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.EhCache2Metrics;
+import java.util.Collections;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exports hit, miss, put, eviction and size statistics of every Hibernate second-level cache
+ * region (see ehcache.xml) as cache.* metrics tagged with the region name.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class SecondLevelCacheMetrics implements MeterBinder {
+
+  private final CacheManager cacheManager;
+
+  public SecondLevelCacheMetrics() {
+    this(CacheManager.getInstance());
+  }
+
+  SecondLevelCacheMetrics(CacheManager cacheManager) {
+    this.cacheManager = cacheManager;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    for (String name : cacheManager.getCacheNames()) {
+      Ehcache cache = cacheManager.getEhcache(name);
+
+      if (null != cache) {
+        new EhCache2Metrics(cache, Collections.emptyList()).bindTo(registry);
+      }
+    }
+  }
+}
@@ -18,6 +18,7 @@ package org.openlmis.referencedata.domain;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import javax.persistence.Cacheable;
 import javax.persistence.CollectionTable;
 import javax.persistence.Column;
 import javax.persistence.DiscriminatorColumn;
@@ -32,6 +33,8 @@ import javax.persistence.JoinColumn;
 import javax.persistence.MapKeyColumn;
 import javax.persistence.Table;
 import lombok.Getter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.util.messagekeys.OrderableMessageKeys;
 
@@ -45,6 +48,8 @@ import org.openlmis.referencedata.util.messagekeys.OrderableMessageKeys;
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "type", discriminatorType = DiscriminatorType.STRING)
 @DiscriminatorValue("abstract")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public abstract class Dispensable extends BaseEntity {
 
   public static final String KEY_DISPENSING_UNIT = "dispensingUnit";
@@ -58,6 +63,7 @@ public abstract class Dispensable extends BaseEntity {
       name = "dispensable_attributes",
       joinColumns = @JoinColumn(name = "dispensableid"))
   @Getter
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
   protected Map<String, String> attributes;
 
   protected Dispensable() {
@@ -34,6 +34,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.javers.core.metamodel.annotation.DiffIgnore;
 import org.javers.core.metamodel.annotation.TypeName;
 import org.openlmis.referencedata.domain.BaseEntity.BaseExporter;
 import org.openlmis.referencedata.domain.BaseEntity.BaseImporter;
@@ -93,6 +94,14 @@ public class FacilityTypeApprovedProduct implements Versionable {
   @Setter
   private ZonedDateTime lastUpdated;
 
+  // maintained by the database, only used to filter the latest versions in queries
+  @Column(insertable = false, updatable = false)
+  @DiffIgnore
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  @SuppressWarnings("PMD.UnusedPrivateField")
+  private boolean latest;
+
   /**
    * A minimal constructor with only required fields.
    *
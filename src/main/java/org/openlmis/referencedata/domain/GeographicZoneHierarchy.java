@@ -0,0 +1,74 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.domain;
+
+import static org.openlmis.referencedata.domain.BaseEntity.UUID_TYPE;
+
+import java.io.Serializable;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Synchronize;
+import org.hibernate.annotations.Type;
+
+/**
+ * A link between a geographic zone and one of its ancestors (or itself, with depth 0). The links
+ * are maintained by the database whenever a zone is created or moved, so they are read-only here.
+ */
+@Entity
+@Immutable
+@Synchronize("referencedata.geographic_zones")
+@Table(name = "geographic_zone_hierarchy", schema = "referencedata")
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+@AllArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+public class GeographicZoneHierarchy {
+
+  @EmbeddedId
+  private Key key;
+
+  @Column(nullable = false)
+  private int depth;
+
+  @Getter
+  @Embeddable
+  @NoArgsConstructor(access = AccessLevel.PACKAGE)
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  @ToString
+  public static class Key implements Serializable {
+
+    @Type(type = UUID_TYPE)
+    @Column(nullable = false)
+    private UUID ancestorId;
+
+    @Type(type = UUID_TYPE)
+    @Column(nullable = false)
+    private UUID descendantId;
+  }
+}
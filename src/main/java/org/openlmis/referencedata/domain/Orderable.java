@@ -209,6 +209,7 @@ public class Orderable implements Versionable {
                           referencedColumnName = "versionNumber")})
   @Setter
   @Getter
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
   private Map<String, String> identifiers;
 
   @Embedded
@@ -217,6 +218,12 @@ public class Orderable implements Versionable {
   @EmbeddedId
   private VersionIdentity identity;
 
+  // maintained by the database, only used to filter the latest versions in queries
+  @Column(insertable = false, updatable = false)
+  @DiffIgnore
+  @SuppressWarnings("PMD.UnusedPrivateField")
+  private boolean latest;
+
   @Getter
   @Setter
   private ZonedDateTime lastUpdated;
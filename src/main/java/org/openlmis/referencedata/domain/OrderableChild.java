@@ -15,6 +15,7 @@
 
 package org.openlmis.referencedata.domain;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinColumns;
@@ -26,6 +27,8 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.javers.core.metamodel.annotation.TypeName;
 
 @Entity
@@ -38,6 +41,8 @@ import org.javers.core.metamodel.annotation.TypeName;
 @AllArgsConstructor
 @TypeName("OrderableChild")
 @EqualsAndHashCode(callSuper = false, of = {"parent", "orderable"})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class OrderableChild extends BaseEntity {
 
   @ManyToOne
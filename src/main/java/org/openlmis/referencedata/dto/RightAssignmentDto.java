@@ -76,4 +76,21 @@ public final class RightAssignmentDto {
     columns[4] = programId != null ? programId.toString() : null;
     return columns;
   }
+
+  /**
+   * Converts to a permission string, in the same format as permission strings read from the
+   * right assignments table: right name, followed by facility ID and program ID if present,
+   * separated with a pipe.
+   *
+   * @return the permission string
+   */
+  public String toPermissionString() {
+    if (null == facilityId && null == programId) {
+      return rightName;
+    }
+
+    return null == programId
+        ? rightName + "|" + facilityId
+        : rightName + "|" + facilityId + "|" + programId;
+  }
 }
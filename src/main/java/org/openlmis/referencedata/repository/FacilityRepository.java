@@ -15,6 +15,7 @@
 
 package org.openlmis.referencedata.repository;
 
+import com.vividsolutions.jts.geom.Point;
 import com.vividsolutions.jts.geom.Polygon;
 import java.util.List;
 import java.util.Optional;
@@ -36,9 +37,25 @@ public interface FacilityRepository
   @Query(value = "SELECT f.*"
       + " FROM referencedata.facilities f"
       + " WHERE ST_Covers(:boundary, f.location)",
+      countQuery = "SELECT COUNT(*)"
+      + " FROM referencedata.facilities f"
+      + " WHERE ST_Covers(:boundary, f.location)",
+      nativeQuery = true
+  )
+  Page<Facility> findByBoundary(@Param("boundary") Polygon boundary, Pageable pageable);
+
+  /**
+   * Returns facilities with a location, nearest to the given location first. The ordering is
+   * served by the spatial index of facility locations, so only the returned rows are read.
+   */
+  @Query(value = "SELECT f.*"
+      + " FROM referencedata.facilities f"
+      + " WHERE f.location IS NOT NULL"
+      + " ORDER BY f.location <-> :location"
+      + " LIMIT :limit",
       nativeQuery = true
   )
-  List<Facility> findByBoundary(@Param("boundary") Polygon boundary);
+  List<Facility> findNearest(@Param("location") Point location, @Param("limit") int limit);
 
   Facility findFirstByCode(String code);
 
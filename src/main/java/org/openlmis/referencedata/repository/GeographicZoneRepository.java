@@ -37,6 +37,25 @@ public interface GeographicZoneRepository extends PagingAndSortingRepository<Geo
   @Query(name = "GeographicZone.findIdsByParent")
   Set<UUID> findIdsByParent(@Param("parentId") UUID parentId);
 
+  @Query("SELECT h.key.descendantId"
+      + " FROM GeographicZoneHierarchy AS h"
+      + " WHERE h.key.ancestorId = :zoneId AND h.depth > 0")
+  Set<UUID> findDescendantIds(@Param("zoneId") UUID zoneId);
+
+  @Query("SELECT h.key.ancestorId"
+      + " FROM GeographicZoneHierarchy AS h"
+      + " WHERE h.key.descendantId = :zoneId AND h.depth > 0")
+  Set<UUID> findAncestorIds(@Param("zoneId") UUID zoneId);
+
+  /**
+   * Returns id, parent id, code and level number of every zone.
+   */
+  @Query("SELECT z.id, p.id, z.code, l.levelNumber"
+      + " FROM GeographicZone AS z"
+      + " LEFT JOIN z.parent AS p"
+      + " INNER JOIN z.level AS l")
+  List<Object[]> findAllHierarchyEntries();
+
   List<GeographicZone> findByLevel(GeographicLevel level);
 
   <S extends GeographicZone> S findByCode(String code);
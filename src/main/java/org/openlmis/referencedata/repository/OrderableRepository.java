@@ -17,7 +17,7 @@ package org.openlmis.referencedata.repository;
 
 import static org.openlmis.referencedata.repository.RepositoryConstants.FROM_ORDERABLES_CLAUSE;
 import static org.openlmis.referencedata.repository.RepositoryConstants.FROM_REFERENCEDATA_ORDERABLES_CLAUSE;
-import static org.openlmis.referencedata.repository.RepositoryConstants.JOIN_WITH_LATEST_ORDERABLE;
+import static org.openlmis.referencedata.repository.RepositoryConstants.NATIVE_WHERE_LATEST_ORDERABLE;
 import static org.openlmis.referencedata.repository.RepositoryConstants.ORDER_BY_LAST_UPDATED_DESC_LIMIT_1;
 import static org.openlmis.referencedata.repository.RepositoryConstants.ORDER_BY_PAGEABLE;
 import static org.openlmis.referencedata.repository.RepositoryConstants.SELECT_DISTINCT_ORDERABLE;
@@ -28,7 +28,6 @@ import static org.openlmis.referencedata.repository.RepositoryConstants.WHERE_VE
 
 import java.sql.Timestamp;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 import javax.persistence.QueryHint;
 import org.openlmis.referencedata.domain.Code;
@@ -97,17 +96,14 @@ public interface OrderableRepository extends
 
   @Query(
       value =
-          "SELECT DISTINCT o FROM Orderable o"
-              + " WHERE (o.identity.id, o.identity.versionNumber)"
-              + " IN (SELECT identity.id, MAX(identity.versionNumber)"
-              + " FROM Orderable GROUP BY identity.id)"
+          SELECT_DISTINCT_ORDERABLE
+              + FROM_ORDERABLES_CLAUSE
+              + WHERE_LATEST_ORDERABLE
               + " AND o.productCode IN :productCodes",
       countQuery =
           "SELECT COUNT(1)"
-              + " FROM Orderable o"
-              + " WHERE (o.identity.id, o.identity.versionNumber)"
-              + " IN (SELECT identity.id, MAX(identity.versionNumber)"
-              + " FROM Orderable GROUP BY identity.id)"
+              + FROM_ORDERABLES_CLAUSE
+              + WHERE_LATEST_ORDERABLE
               + " AND o.productCode IN :productCodes")
   List<Orderable> findAllLatestByProductCode(@Param("productCodes") Iterable<Code> productCodes);
 
@@ -132,10 +128,12 @@ public interface OrderableRepository extends
   )
   List<Orderable> findAllLatestByIdentifier(@Param("key") String key, @Param("value") String value);
 
+  @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
   Orderable findFirstByIdentityIdOrderByIdentityVersionNumberDesc(UUID id);
 
   Orderable findFirstByProductCodeOrderByIdentityVersionNumberDesc(Code code);
 
+  @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
   Orderable findByIdentityIdAndIdentityVersionNumber(UUID id, Long versionNumber);
 
   @Query(value = SELECT_ORDERABLE
@@ -166,7 +164,7 @@ public interface OrderableRepository extends
 
   @Query(value = SELECT_LAST_UPDATED
           + FROM_REFERENCEDATA_ORDERABLES_CLAUSE
-          + JOIN_WITH_LATEST_ORDERABLE
+          + NATIVE_WHERE_LATEST_ORDERABLE
           + ORDER_BY_LAST_UPDATED_DESC_LIMIT_1,
           nativeQuery = true
   )
@@ -174,27 +172,13 @@ public interface OrderableRepository extends
 
   @Query(value = SELECT_LAST_UPDATED
           + FROM_REFERENCEDATA_ORDERABLES_CLAUSE
-          + JOIN_WITH_LATEST_ORDERABLE
-          + " WHERE o.id IN :ids"
+          + NATIVE_WHERE_LATEST_ORDERABLE
+          + " AND o.id IN :ids"
           + ORDER_BY_LAST_UPDATED_DESC_LIMIT_1,
           nativeQuery = true
   )
   Timestamp findLatestModifiedDateByIds(@Param("ids") Iterable<UUID> ids);
 
-  @Query(
-          value = "SELECT"
-                  + " CAST(oi.orderableid AS VARCHAR) AS id,"
-                  + " CAST(oi.orderableversionnumber AS VARCHAR) AS versionNumber"
-                  + " FROM referencedata.orderable_identifiers oi"
-                  + " WHERE oi.key = :key"
-                  + " AND oi.value IN :values",
-          nativeQuery = true
-  )
-  public List<Map<String, String>> getIdentitiesByIdentifier(
-          @Param("key") String key,
-          @Param("values") Iterable<String> values
-  );
-
   @Query(nativeQuery = true)
   List<OrderableIdentifierCsvModel> findAllOrderableIdentifierCsvModels();
 
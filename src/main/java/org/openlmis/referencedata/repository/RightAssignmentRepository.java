@@ -15,6 +15,7 @@
 
 package org.openlmis.referencedata.repository;
 
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import org.openlmis.referencedata.domain.RightAssignment;
@@ -35,6 +36,10 @@ public interface RightAssignmentRepository extends
       nativeQuery = true)
   Set<String> findByUser(@Param("userId") UUID userId);
 
+  @Query("SELECT ra.rightName, ra.facilityId, ra.programId FROM RightAssignment ra"
+      + " WHERE ra.user.id = :userId")
+  List<Object[]> findRightAssignmentsByUser(@Param("userId") UUID userId);
+
   boolean existsByUserIdAndRightName(UUID user, String rightName);
   
   boolean existsByUserIdAndAndRightNameAndFacilityId(UUID user, String rightName, UUID facilityId);
@@ -0,0 +1,75 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.openlmis.referencedata.exception.ValidationMessageException;
+import org.openlmis.referencedata.util.messagekeys.PageableMessageKeys;
+
+/**
+ * Position of the last row returned by a keyset search. The next page starts right after the
+ * (name, id, versionNumber) tuple, so it costs the same regardless of how many rows were read
+ * before. Clients receive the cursor as an opaque token.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public final class SeekCursor {
+
+  private static final String SEPARATOR = ":";
+
+  private final String name;
+  private final UUID id;
+  private final Long versionNumber;
+
+  /**
+   * Encodes the cursor into an URL safe token.
+   */
+  public String encode() {
+    String value = versionNumber + SEPARATOR + id + SEPARATOR + name;
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decodes a token created by {@link #encode()}. Blank tokens mean the first page and result in
+   * null.
+   *
+   * @throws ValidationMessageException if the token is malformed.
+   */
+  public static SeekCursor decode(String token) {
+    if (null == token || token.trim().isEmpty()) {
+      return null;
+    }
+
+    try {
+      String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      String[] parts = value.split(SEPARATOR, 3);
+
+      return new SeekCursor(parts[2], UUID.fromString(parts[1]), Long.valueOf(parts[0]));
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+      throw new ValidationMessageException(ex, PageableMessageKeys.ERROR_CURSOR_INVALID, token);
+    }
+  }
+
+}
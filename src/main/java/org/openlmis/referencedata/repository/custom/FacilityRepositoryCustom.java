@@ -26,6 +26,9 @@ public interface FacilityRepositoryCustom {
   Page<Facility> search(SearchParams params, Set<UUID> geographicZoneIds, String extraData,
       Pageable pageable);
 
+  Page<Facility> search(SearchParams params, Set<UUID> geographicZoneIds,
+      boolean includeDescendantZones, String extraData, Pageable pageable);
+
   interface SearchParams {
 
     String getCode();
@@ -20,6 +20,9 @@ import java.util.Set;
 import java.util.UUID;
 import org.apache.commons.lang3.tuple.Pair;
 import org.openlmis.referencedata.domain.FacilityTypeApprovedProduct;
+import org.openlmis.referencedata.domain.VersionIdentity;
+import org.openlmis.referencedata.repository.KeysetPage;
+import org.openlmis.referencedata.repository.SeekCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -37,6 +40,14 @@ public interface FacilityTypeApprovedProductRepositoryCustom {
 
   Page<FacilityTypeApprovedProduct> searchProducts(SearchParams searchParams, Pageable pageable);
 
+  KeysetPage<FacilityTypeApprovedProduct> seekProducts(SearchParams searchParams,
+      SeekCursor after, int size);
+
+  List<VersionIdentity> findApprovedProductIdentities(UUID facilityTypeId, UUID programId,
+      boolean fullSupply);
+
+  List<FacilityTypeApprovedProduct> findAllByIdentities(List<VersionIdentity> identities);
+
   interface SearchParams {
 
     Set<String> getFacilityTypeCodes();
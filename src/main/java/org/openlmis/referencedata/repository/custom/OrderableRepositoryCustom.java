@@ -16,10 +16,17 @@
 package org.openlmis.referencedata.repository.custom;
 
 import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import org.apache.commons.lang3.tuple.Pair;
 import org.openlmis.referencedata.domain.Orderable;
+import org.openlmis.referencedata.domain.VersionIdentity;
+import org.openlmis.referencedata.repository.KeysetPage;
+import org.openlmis.referencedata.repository.OrderableIdentitiesPage;
+import org.openlmis.referencedata.repository.SeekCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -29,6 +36,23 @@ public interface OrderableRepositoryCustom {
 
   ZonedDateTime findLatestModifiedDateByParams(SearchParams searchParams);
 
+  OrderableIdentitiesPage searchIdentities(SearchParams searchParams, Pageable pageable);
+
+  List<Orderable> findAllByIdentities(List<VersionIdentity> identities);
+
+  List<Orderable> findAllLatestByIdentifiers(String identifierType,
+      Collection<UUID> identifierIds);
+
+  KeysetPage<Orderable> seek(SearchParams searchParams, SeekCursor after, int size);
+
+  long scroll(SearchParams searchParams, int batchSize, Consumer<List<Orderable>> consumer);
+
+  long scroll(SearchParams searchParams, int batchSize, int maxResults,
+      Consumer<List<Orderable>> consumer);
+
+  long scrollByIdentities(List<VersionIdentity> identities, int batchSize,
+      Consumer<List<Orderable>> consumer);
+
   interface SearchParams {
 
     String getCode();
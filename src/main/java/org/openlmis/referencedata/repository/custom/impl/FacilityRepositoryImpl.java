@@ -30,6 +30,7 @@ import java.util.UUID;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 import org.hibernate.query.NativeQuery;
 import org.hibernate.type.PostgresUUIDType;
 import org.openlmis.referencedata.domain.Facility;
@@ -50,7 +51,9 @@ public class FacilityRepositoryImpl implements FacilityRepositoryCustom {
       + " INNER JOIN f.geographicZone AS g"
       + " INNER JOIN f.type AS t";
 
-  private static final String HQL_SELECT = "SELECT DISTINCT f"
+  // geographic zone and type are many-to-one, so the joins can't duplicate facilities; DISTINCT
+  // is left out because it would forbid ordering by similarity of the name and code
+  private static final String HQL_SELECT = "SELECT f"
       + " FROM Facility AS f"
       + " INNER JOIN f.geographicZone AS g"
       + " INNER JOIN f.type AS t";
@@ -60,9 +63,17 @@ public class FacilityRepositoryImpl implements FacilityRepositoryCustom {
   private static final String DEFAULT_SORT = "f.name ASC";
   private static final String ORDER_BY = "ORDER BY";
 
-  private static final String WITH_CODE = "UPPER(f.code) LIKE :code";
-  private static final String WITH_NAME = "UPPER(f.name) LIKE :name";
+  private static final String CODE = "code";
+  private static final String NAME = "name";
+  private static final String CODE_TERM = "codeTerm";
+  private static final String NAME_TERM = "nameTerm";
+  private static final String WITH_CODE = TrigramSearch.contains("f.code", CODE);
+  private static final String WITH_NAME = TrigramSearch.contains("f.name", NAME);
   private static final String WITH_ZONE = "g.id IN (:zones)";
+  private static final String HQL_WITH_ZONE_HIERARCHY = "g.id IN (SELECT h.key.descendantId"
+      + " FROM GeographicZoneHierarchy AS h WHERE h.key.ancestorId IN (:zones))";
+  private static final String NATIVE_WITH_ZONE_HIERARCHY = "g.id IN (SELECT h.descendantId"
+      + " FROM referencedata.geographic_zone_hierarchy AS h WHERE h.ancestorId IN (:zones))";
   private static final String WITH_IDS = "f.id IN (:ids)";
   private static final String WITH_TYPE = "t.code = :typeCode";
   private static final String WITH_EXTRA_DATA = "f.extradata @> (:extraData)\\:\\:jsonb";
@@ -72,7 +83,8 @@ public class FacilityRepositoryImpl implements FacilityRepositoryCustom {
 
   /**
    * This method is supposed to retrieve all facilities with matched parameters.
-   * Method is ignoring case for facility code and name.
+   * Method is ignoring case for facility code and name. If no sort is given, facilities most
+   * similar to the searched name and code come first.
    *
    * @param searchParams      Params to search facilities by.
    * @param geographicZoneIds Geographic zone IDs.
@@ -82,19 +94,38 @@ public class FacilityRepositoryImpl implements FacilityRepositoryCustom {
    */
   public Page<Facility> search(SearchParams searchParams,
                                Set<UUID> geographicZoneIds, String extraData, Pageable pageable) {
+    return search(searchParams, geographicZoneIds, false, extraData, pageable);
+  }
+
+  /**
+   * This method is supposed to retrieve all facilities with matched parameters. If descendant
+   * zones should be included, facilities are matched against the geographic zone hierarchy of
+   * the given zones directly in the query.
+   *
+   * @param searchParams      Params to search facilities by.
+   * @param geographicZoneIds Geographic zone IDs.
+   * @param includeDescendantZones whether facilities of descendants of the zones should match.
+   * @param extraData         extra data
+   * @param pageable object used to encapsulate the pagination related values: page, size and sort.
+   * @return Page of Facilities matching the parameters.
+   */
+  public Page<Facility> search(SearchParams searchParams, Set<UUID> geographicZoneIds,
+      boolean includeDescendantZones, String extraData, Pageable pageable) {
     if (null != extraData) {
-      return searchWithExtraData(searchParams, geographicZoneIds, extraData, pageable);
+      return searchWithExtraData(searchParams, geographicZoneIds,
+          includeDescendantZones ? NATIVE_WITH_ZONE_HIERARCHY : WITH_ZONE, extraData, pageable);
     }
-    return searchWithoutExtraData(searchParams, geographicZoneIds, pageable);
+    return searchWithoutExtraData(searchParams, geographicZoneIds,
+        includeDescendantZones ? HQL_WITH_ZONE_HIERARCHY : WITH_ZONE, pageable);
   }
 
   private Page<Facility> searchWithExtraData(SearchParams searchParams,
-                                             Set<UUID> geographicZoneIds,
+                                             Set<UUID> geographicZoneIds, String withZones,
                                              String extraData, Pageable pageable) {
 
     Map<String, Object> params = Maps.newHashMap();
-    String query =
-        prepareQuery(NATIVE_SELECT_BY_PARAMS, searchParams, geographicZoneIds, extraData, params);
+    String query = prepareQuery(NATIVE_SELECT_BY_PARAMS, searchParams, geographicZoneIds,
+        withZones, extraData, params);
 
     Query nativeQuery = entityManager.createNativeQuery(query);
     params.forEach(nativeQuery::setParameter);
@@ -110,12 +141,14 @@ public class FacilityRepositoryImpl implements FacilityRepositoryCustom {
       return Pagination.getPage(Collections.emptyList(), pageable, 0);
     }
 
+    params = Maps.newHashMap();
+    params.put("ids", ids);
     String hqlWithSort = Joiner.on(' ').join(Lists.newArrayList(HQL_SELECT, WHERE, WITH_IDS,
-        ORDER_BY, PageableUtil.getOrderPredicate(pageable, "f.", DEFAULT_SORT)));
+        ORDER_BY, getOrderPredicate(searchParams, pageable, params)));
 
-    List<Facility> facilities =  entityManager
-        .createQuery(hqlWithSort, Facility.class)
-        .setParameter("ids", ids)
+    TypedQuery<Facility> searchQuery = entityManager.createQuery(hqlWithSort, Facility.class);
+    params.forEach(searchQuery::setParameter);
+    List<Facility> facilities = searchQuery
         .setMaxResults(pageable.getPageSize())
         .setFirstResult(Math.toIntExact(pageable.getOffset()))
         .getResultList();
@@ -124,11 +157,12 @@ public class FacilityRepositoryImpl implements FacilityRepositoryCustom {
   }
 
   private Page<Facility> searchWithoutExtraData(SearchParams searchParams,
-                                                Set<UUID> geographicZoneIds, Pageable pageable) {
+                                                Set<UUID> geographicZoneIds, String withZones,
+                                                Pageable pageable) {
 
     Map<String, Object> params = Maps.newHashMap();
     Query countQuery = entityManager.createQuery(prepareQuery(
-        HQL_COUNT, searchParams, geographicZoneIds, null, params), Long.class);
+        HQL_COUNT, searchParams, geographicZoneIds, withZones, null, params), Long.class);
     params.forEach(countQuery::setParameter);
     Long count = (Long) countQuery.getSingleResult();
 
@@ -138,8 +172,8 @@ public class FacilityRepositoryImpl implements FacilityRepositoryCustom {
 
     params = Maps.newHashMap();
     String hqlWithSort = Joiner.on(' ').join(Lists.newArrayList(
-        prepareQuery(HQL_SELECT, searchParams, geographicZoneIds, null, params),
-        ORDER_BY, PageableUtil.getOrderPredicate(pageable, "f.", DEFAULT_SORT)));
+        prepareQuery(HQL_SELECT, searchParams, geographicZoneIds, withZones, null, params),
+        ORDER_BY, getOrderPredicate(searchParams, pageable, params)));
 
     Query searchQuery = entityManager.createQuery(hqlWithSort, Facility.class);
     params.forEach(searchQuery::setParameter);
@@ -152,19 +186,20 @@ public class FacilityRepositoryImpl implements FacilityRepositoryCustom {
   }
 
   private String prepareQuery(String baseSql, SearchParams searchParams,
-      Set<UUID> geographicZoneIds, String extraData, Map<String, Object> params) {
+      Set<UUID> geographicZoneIds, String withZones, String extraData,
+      Map<String, Object> params) {
 
     List<String> sql = Lists.newArrayList(baseSql);
     List<String> where = Lists.newArrayList();
 
     if (isNotBlank(searchParams.getCode())) {
       where.add(WITH_CODE);
-      params.put("code", "%" + searchParams.getCode().toUpperCase() + "%");
+      params.put(CODE, TrigramSearch.pattern(searchParams.getCode()));
     }
 
     if (isNotBlank(searchParams.getName())) {
       where.add(WITH_NAME);
-      params.put("name", "%" + searchParams.getName().toUpperCase() + "%");
+      params.put(NAME, TrigramSearch.pattern(searchParams.getName()));
     }
 
     if (isNotBlank(searchParams.getFacilityTypeCode())) {
@@ -173,7 +208,7 @@ public class FacilityRepositoryImpl implements FacilityRepositoryCustom {
     }
 
     if (isNotEmpty(geographicZoneIds)) {
-      where.add(WITH_ZONE);
+      where.add(withZones);
       params.put("zones", geographicZoneIds);
     }
 
@@ -194,4 +229,26 @@ public class FacilityRepositoryImpl implements FacilityRepositoryCustom {
 
     return Joiner.on(' ').join(sql);
   }
+
+  private String getOrderPredicate(SearchParams searchParams, Pageable pageable,
+      Map<String, Object> params) {
+    if (pageable.getSort().isSorted()) {
+      return PageableUtil.getOrderPredicate(pageable, "f.", DEFAULT_SORT);
+    }
+
+    List<String> orders = Lists.newArrayList();
+
+    if (isNotBlank(searchParams.getName())) {
+      orders.add(TrigramSearch.bySimilarity("f.name", NAME_TERM));
+      params.put(NAME_TERM, TrigramSearch.term(searchParams.getName()));
+    }
+
+    if (isNotBlank(searchParams.getCode())) {
+      orders.add(TrigramSearch.bySimilarity("f.code", CODE_TERM));
+      params.put(CODE_TERM, TrigramSearch.term(searchParams.getCode()));
+    }
+
+    orders.add(DEFAULT_SORT);
+    return Joiner.on(", ").join(orders);
+  }
 }
\ No newline at end of file
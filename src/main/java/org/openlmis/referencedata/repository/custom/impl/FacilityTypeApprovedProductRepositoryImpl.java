@@ -18,12 +18,15 @@ package org.openlmis.referencedata.repository.custom.impl;
 import static org.apache.commons.collections4.CollectionUtils.isEmpty;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -37,7 +40,6 @@ import javax.persistence.criteria.Join;
 import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
-import javax.persistence.criteria.Subquery;
 import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.hibernate.query.NativeQuery;
@@ -50,6 +52,8 @@ import org.openlmis.referencedata.domain.FacilityTypeApprovedProduct;
 import org.openlmis.referencedata.domain.Program;
 import org.openlmis.referencedata.domain.VersionIdentity;
 import org.openlmis.referencedata.exception.ValidationMessageException;
+import org.openlmis.referencedata.repository.KeysetPage;
+import org.openlmis.referencedata.repository.SeekCursor;
 import org.openlmis.referencedata.repository.custom.FacilityTypeApprovedProductRepositoryCustom;
 import org.openlmis.referencedata.repository.custom.FacilityTypeApprovedProductRepositoryCustom.SearchParams;
 import org.openlmis.referencedata.util.Pagination;
@@ -84,9 +88,8 @@ public class FacilityTypeApprovedProductRepositoryImpl
   private static final String NATIVE_PROGRAM_INNER_JOIN =
       " INNER JOIN referencedata.programs AS p ON p.id = ftap.programId";
   private static final String NATIVE_ORDERABLE_INNER_JOIN_TEMPLATE =
-      " INNER JOIN (SELECT id, MAX(versionNumber) AS versionNumber"
-          + "   FROM referencedata.orderables o WHERE (%s) GROUP BY id) AS o"
-          + "   ON o.id = ftap.orderableId";
+      " INNER JOIN referencedata.orderables AS o"
+          + "   ON o.id = ftap.orderableId AND o.latest AND (%s)";
   private static final String NATIVE_PROGRAM_ORDERABLE_INNER_JOIN =
       " INNER JOIN referencedata.program_orderables AS po"
           + " ON o.id = po.orderableId"
@@ -95,19 +98,30 @@ public class FacilityTypeApprovedProductRepositoryImpl
           + " AND po.active IS TRUE";
   private static final String NATIVE_FACILITY_TYPE_INNER_JOIN =
       " INNER JOIN referencedata.facility_types AS ft ON ft.id = ftap.facilityTypeId";
-  private static final String NATIVE_LATEST_FTAPS_INNER_JOIN =
-      " INNER JOIN (SELECT id, MAX(versionNumber) AS versionNumber"
-          + "   FROM referencedata.facility_type_approved_products GROUP BY id) AS latest"
-          + "   ON ftap.id = latest.id AND ftap.versionNumber = latest.versionNumber";
-  private static final String NATIVE_FTAP_ACTIVE_FLAG = " ftap.active = :active";
+  private static final String NATIVE_LATEST_FTAPS = " ftap.latest";
+  private static final String NATIVE_FTAP_ACTIVE_FLAG = " AND ftap.active = :active";
 
   private static final String NATIVE_PAGEABLE = " LIMIT :limit OFFSET :offset";
 
+  private static final String NATIVE_FTAP_ID = "ftap.id";
+  private static final String NATIVE_FTAP_VERSION_NUMBER = "ftap.versionNumber";
+  private static final String NATIVE_PROGRAM_CODE_INNER_JOIN = NATIVE_PROGRAM_INNER_JOIN
+      + " AND LOWER(p.code) = :programCode";
+  private static final String NATIVE_FACILITY_TYPE_CODES_INNER_JOIN =
+      NATIVE_FACILITY_TYPE_INNER_JOIN + " AND ft.code IN (:facilityTypeCodes)";
+  private static final String NATIVE_WHERE_IDENTITY_PAIRS = "(ftap.id, ftap.versionNumber) IN"
+      + " (SELECT * FROM unnest(CAST(:ids AS uuid[]), CAST(:versionNumbers AS bigint[])))";
+  private static final String NATIVE_WHERE_ORDERABLE_IDS = "ftap.orderableId IN (:orderableIds)";
+  private static final String NATIVE_WHERE_LATEST = "ftap.latest";
+  private static final String NATIVE_WHERE_ACTIVE = "ftap.active = :active";
+  private static final String AND = " AND ";
+
   private static final String WHERE = " WHERE ";
   private static final String IDENTITY = "identity";
   private static final String ID = "id";
   private static final String VERSION_NUMBER = "versionNumber";
   private static final String ACTIVE = "active";
+  private static final String LATEST = "latest";
   private static final String FTAP_ALIAS = "ftap";
   private static final String PROGRAM = "program";
   private static final String CODE = "code";
@@ -193,6 +207,113 @@ public class FacilityTypeApprovedProductRepositoryImpl
     return Pagination.getPage(ftaps, pageable, total);
   }
 
+  /**
+   * Retrieves a page of approved products matching the parameters that follows the given cursor.
+   * Products are ordered by id and version number, which the primary key and the index of the
+   * latest versions serve, and the page is read with a seek predicate instead of an offset. The
+   * total number of matching products is not calculated.
+   *
+   * @return the page of approved products and the cursor of the next page.
+   */
+  @Override
+  public KeysetPage<FacilityTypeApprovedProduct> seekProducts(SearchParams searchParams,
+      SeekCursor after, int size) {
+    Profiler profiler = new Profiler("FTAP_REPOSITORY_SEEK");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("PREPARE_QUERY");
+    StringBuilder builder = new StringBuilder(KeysetSearch
+        .select(null, NATIVE_FTAP_ID, NATIVE_FTAP_VERSION_NUMBER))
+        .append(FROM_FTAP_TABLE);
+    Map<String, Object> params = Maps.newHashMap();
+    List<String> wheres = Lists.newArrayList();
+
+    String programCode = searchParams.getProgramCode();
+    if (isNotBlank(programCode)) {
+      builder.append(NATIVE_PROGRAM_CODE_INNER_JOIN);
+      params.put("programCode", programCode.toLowerCase());
+    }
+
+    Set<String> facilityTypeCodes = searchParams.getFacilityTypeCodes();
+    if (!isEmpty(facilityTypeCodes)) {
+      builder.append(NATIVE_FACILITY_TYPE_CODES_INNER_JOIN);
+      params.put("facilityTypeCodes", facilityTypeCodes);
+    }
+
+    Set<Pair<UUID, Long>> identityPairs = searchParams.getIdentityPairs();
+    if (isEmpty(identityPairs)) {
+      wheres.add(NATIVE_WHERE_LATEST);
+    } else {
+      wheres.add(NATIVE_WHERE_IDENTITY_PAIRS);
+      params.put("ids", identityPairs.stream().map(Pair::getLeft).map(String::valueOf)
+          .collect(Collectors.joining(",", "{", "}")));
+      params.put("versionNumbers", identityPairs.stream().map(Pair::getRight)
+          .map(String::valueOf).collect(Collectors.joining(",", "{", "}")));
+    }
+
+    Set<UUID> orderableIds = searchParams.getOrderableIds();
+    if (!isEmpty(orderableIds)) {
+      wheres.add(NATIVE_WHERE_ORDERABLE_IDS);
+      params.put("orderableIds", orderableIds);
+    }
+
+    if (null != searchParams.getActive()) {
+      wheres.add(NATIVE_WHERE_ACTIVE);
+      params.put(ACTIVE, searchParams.getActive());
+    }
+
+    if (null != after) {
+      wheres.add(KeysetSearch.after(null, NATIVE_FTAP_ID,
+          NATIVE_FTAP_VERSION_NUMBER, after, params));
+    }
+
+    builder
+        .append(WHERE)
+        .append(String.join(AND, wheres))
+        .append(KeysetSearch.orderAndLimit(null, NATIVE_FTAP_ID,
+            NATIVE_FTAP_VERSION_NUMBER, size, params));
+
+    profiler.start("EXECUTE_QUERY");
+    KeysetPage<FacilityTypeApprovedProduct> page = KeysetSearch
+        .execute(entityManager, builder.toString(), params, size, this::retrieveFtapsInOrder);
+
+    profiler.stop().log();
+    return page;
+  }
+
+  /**
+   * This method is supposed to retrieve identities of the latest active approved products of the
+   * facility type in the program, which are either full supply or non-full supply. Neither the
+   * total number of products nor the products themselves are loaded.
+   *
+   * @return List of approved product identities.
+   */
+  @Override
+  public List<VersionIdentity> findApprovedProductIdentities(UUID facilityTypeId,
+      UUID programId, boolean fullSupply) {
+    Profiler profiler = new Profiler("FTAP_REPOSITORY_FIND_IDENTITIES");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("GET_VERSION_IDENTITY");
+    Query nativeQuery = prepareNativeQuery(facilityTypeId, programId, fullSupply, null, true,
+        null, null, false, null);
+    List<VersionIdentity> identities = executeNativeQuery(nativeQuery);
+
+    profiler.stop().log();
+    return identities;
+  }
+
+  /**
+   * This method is supposed to retrieve approved products with the given identities, in the order
+   * of the identities.
+   *
+   * @return List of approved products with the given identities.
+   */
+  @Override
+  public List<FacilityTypeApprovedProduct> findAllByIdentities(List<VersionIdentity> identities) {
+    return retrieveFtapsInOrder(identities);
+  }
+
   private UUID getFacilityTypeId(UUID facilityId, Profiler profiler) {
     String queryString = String.format(NATIVE_SELECT_FACILITY_TYPE_ID, facilityId);
     Query query = entityManager.createNativeQuery(queryString);
@@ -253,11 +374,7 @@ public class FacilityTypeApprovedProductRepositoryImpl
     if (!isEmpty(identities)) {
       predicate = builder.and(predicate, builder.in(root.get(IDENTITY)).value(identities));
     } else {
-      Subquery<String> latestFtapQuery = createFtapSubQuery(newQuery, builder);
-      predicate = builder.and(predicate, builder.in(builder.concat(
-          root.get(IDENTITY).get(ID).as(String.class),
-          root.get(IDENTITY).get(VERSION_NUMBER).as(String.class)))
-          .value(latestFtapQuery));
+      predicate = builder.and(predicate, builder.isTrue(root.get(LATEST)));
     }
 
     Boolean isActive = searchParams.getActive();
@@ -306,13 +423,13 @@ public class FacilityTypeApprovedProductRepositoryImpl
     }
 
     if (isNotBlank(orderableCode)) {
-      orderablesCondition += " AND o.code ILIKE :orderableCode";
-      params.put("orderableCode", '%' + orderableCode + '%');
+      orderablesCondition += " AND " + TrigramSearch.contains("o.code", "orderableCode");
+      params.put("orderableCode", TrigramSearch.pattern(orderableCode));
     }
 
     if (isNotBlank(orderableName)) {
-      orderablesCondition += " AND o.fullproductname ILIKE :orderableName";
-      params.put("orderableName", '%' + orderableName + '%');
+      orderablesCondition += " AND " + TrigramSearch.contains("o.fullproductname", "orderableName");
+      params.put("orderableName", TrigramSearch.pattern(orderableName));
     }
 
     builder.append(String.format(NATIVE_ORDERABLE_INNER_JOIN_TEMPLATE, orderablesCondition))
@@ -330,8 +447,8 @@ public class FacilityTypeApprovedProductRepositoryImpl
     }
 
     builder
-        .append(NATIVE_LATEST_FTAPS_INNER_JOIN)
         .append(WHERE)
+        .append(NATIVE_LATEST_FTAPS)
         .append(NATIVE_FTAP_ACTIVE_FLAG);
     params.put(ACTIVE, null == active || active);
 
@@ -383,19 +500,18 @@ public class FacilityTypeApprovedProductRepositoryImpl
         .collect(Collectors.toList());
   }
 
-  private Subquery<String> createFtapSubQuery(CriteriaQuery query, CriteriaBuilder builder) {
-    Subquery<String> latestFtapsQuery = query.subquery(String.class);
-    Root<FacilityTypeApprovedProduct> latestFtapsRoot =
-        latestFtapsQuery.from(FacilityTypeApprovedProduct.class);
-    latestFtapsRoot.alias("latestFtap");
-
-    latestFtapsQuery.select(
-        builder.concat(
-            latestFtapsRoot.get(IDENTITY).get(ID).as(String.class),
-            builder.max(latestFtapsRoot.get(IDENTITY).get(VERSION_NUMBER)).as(String.class)));
-    latestFtapsQuery.groupBy(latestFtapsRoot.get(IDENTITY).get(ID));
+  private List<FacilityTypeApprovedProduct> retrieveFtapsInOrder(
+      List<VersionIdentity> identities) {
+    Map<VersionIdentity, FacilityTypeApprovedProduct> ftaps = new HashMap<>();
+    for (List<VersionIdentity> partition : ListUtils.partition(identities, MAX_IDENTITIES_SIZE)) {
+      retrieveFtaps(partition).forEach(ftap -> ftaps.put(ftap.getVersionIdentity(), ftap));
+    }
 
-    return latestFtapsQuery;
+    return identities
+        .stream()
+        .map(ftaps::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
   }
 
   // appropriate class has been passed in the EntityManager.createNativeQuery method
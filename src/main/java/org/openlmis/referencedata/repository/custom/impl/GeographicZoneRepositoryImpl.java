@@ -47,7 +47,8 @@ public class GeographicZoneRepositoryImpl implements GeographicZoneRepositoryCus
 
   /**
    * This method is supposed to retrieve page of geographic zones with matched parameters.
-   * Method is ignoring case for geographic code and name.
+   * Method is ignoring case for geographic code and name. If no sort is given, zones most similar
+   * to the searched name and code come first.
    *
    * @param name Part of wanted name.
    * @param code Part of wanted code.
@@ -100,13 +101,11 @@ public class GeographicZoneRepositoryImpl implements GeographicZoneRepositoryCus
     Predicate predicate = builder.conjunction();
 
     if (name != null) {
-      predicate = builder.and(predicate,
-          builder.like(builder.upper(root.get(NAME)), "%" + name.toUpperCase() + "%"));
+      predicate = builder.and(predicate, TrigramSearch.contains(builder, root.get(NAME), name));
     }
 
     if (code != null) {
-      predicate = builder.and(predicate,
-          builder.like(builder.upper(root.get(CODE)), "%" + code.toUpperCase() + "%"));
+      predicate = builder.and(predicate, TrigramSearch.contains(builder, root.get(CODE), code));
     }
 
     if (parent != null) {
@@ -121,7 +120,7 @@ public class GeographicZoneRepositoryImpl implements GeographicZoneRepositoryCus
 
     query.where(predicate);
 
-    if (!count && pageable.getSort() != null) {
+    if (!count && pageable.getSort() != null && pageable.getSort().isSorted()) {
       List<Order> orders = new ArrayList<>();
       Iterator<Sort.Order> iterator = pageable.getSort().iterator();
       Sort.Order order;
@@ -134,8 +133,25 @@ public class GeographicZoneRepositoryImpl implements GeographicZoneRepositoryCus
         }
       }
       query.orderBy(orders);
+    } else if (!count) {
+      query.orderBy(getSimilarityOrders(builder, root, name, code));
     }
 
     return query;
   }
+
+  private List<Order> getSimilarityOrders(CriteriaBuilder builder, Root<GeographicZone> root,
+      String name, String code) {
+    List<Order> orders = new ArrayList<>();
+
+    if (name != null) {
+      orders.add(TrigramSearch.bySimilarity(builder, root.get(NAME), name));
+    }
+
+    if (code != null) {
+      orders.add(TrigramSearch.bySimilarity(builder, root.get(CODE), code));
+    }
+
+    return orders;
+  }
 }
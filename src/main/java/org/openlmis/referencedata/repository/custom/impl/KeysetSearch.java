@@ -0,0 +1,137 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.repository.custom.impl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.LongType;
+import org.hibernate.type.PostgresUUIDType;
+import org.hibernate.type.StringType;
+import org.openlmis.referencedata.domain.VersionIdentity;
+import org.openlmis.referencedata.repository.KeysetPage;
+import org.openlmis.referencedata.repository.SeekCursor;
+
+/**
+ * Builds keyset (seek) pagination for native queries. Rows are ordered by the (name, id,
+ * versionNumber) tuple and a page starts right after the tuple stored in the cursor, so the
+ * database does not have to read and discard the rows of the previous pages. One row more than the
+ * page size is read to find out whether there is a next page. Without a name column rows are
+ * ordered by the (id, versionNumber) pair only, and the cursor name is left empty.
+ */
+final class KeysetSearch {
+
+  static final String ID = "id";
+  static final String VERSION_NUMBER = "versionNumber";
+  static final String NAME = "name";
+
+  private static final String AFTER_NAME = "afterName";
+  private static final String AFTER_ID = "afterId";
+  private static final String AFTER_VERSION_NUMBER = "afterVersionNumber";
+  private static final String SEEK_LIMIT = "seekLimit";
+
+  private KeysetSearch() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Returns the select clause of the seek columns. Null names are sorted as empty strings, because
+   * a row comparison with null is never true.
+   */
+  static String select(String name, String id, String versionNumber) {
+    return "SELECT " + (null == name ? "''" : key(name)) + " AS " + NAME + ", " + id + " AS " + ID
+        + ", " + versionNumber + " AS " + VERSION_NUMBER;
+  }
+
+  /**
+   * Returns the condition selecting rows after the cursor and binds the cursor values.
+   */
+  static String after(String name, String id, String versionNumber, SeekCursor cursor,
+      Map<String, Object> params) {
+    params.put(AFTER_ID, cursor.getId().toString());
+    params.put(AFTER_VERSION_NUMBER, cursor.getVersionNumber());
+    String values = "CAST(:" + AFTER_ID + " AS uuid), :" + AFTER_VERSION_NUMBER;
+
+    if (null != name) {
+      params.put(AFTER_NAME, cursor.getName());
+      values = ":" + AFTER_NAME + ", " + values;
+    }
+
+    return "(" + columns(name, id, versionNumber) + ") > (" + values + ")";
+  }
+
+  /**
+   * Returns the order by and limit clauses of a page with the given size.
+   */
+  static String orderAndLimit(String name, String id, String versionNumber, int size,
+      Map<String, Object> params) {
+    params.put(SEEK_LIMIT, (long) size + 1);
+
+    return " ORDER BY " + columns(name, id, versionNumber) + " LIMIT :" + SEEK_LIMIT;
+  }
+
+  /**
+   * Executes the seek query and converts rows read from the database into a page. The loader
+   * has to return elements in the order of the passed identities.
+   */
+  static <T> KeysetPage<T> execute(EntityManager entityManager, String sql,
+      Map<String, Object> params, int size, Function<List<VersionIdentity>, List<T>> loader) {
+    Query query = entityManager.createNativeQuery(sql);
+    params.forEach(query::setParameter);
+
+    query.unwrap(NativeQuery.class)
+        .addScalar(NAME, StringType.INSTANCE)
+        .addScalar(ID, PostgresUUIDType.INSTANCE)
+        .addScalar(VERSION_NUMBER, LongType.INSTANCE);
+
+    // appropriate scalars have been set in the native query
+    @SuppressWarnings("unchecked")
+    List<Object[]> rows = query.getResultList();
+
+    List<SeekCursor> cursors = rows
+        .stream()
+        .map(row -> new SeekCursor((String) row[0], (UUID) row[1], (Long) row[2]))
+        .collect(Collectors.toList());
+
+    SeekCursor next = null;
+    if (cursors.size() > size) {
+      cursors = cursors.subList(0, size);
+      next = cursors.get(size - 1);
+    }
+
+    List<VersionIdentity> identities = cursors
+        .stream()
+        .map(cursor -> new VersionIdentity(cursor.getId(), cursor.getVersionNumber()))
+        .collect(Collectors.toList());
+
+    return new KeysetPage<>(identities.isEmpty() ? identities : loader.apply(identities), next);
+  }
+
+  private static String columns(String name, String id, String versionNumber) {
+    String columns = id + ", " + versionNumber;
+    return null == name ? columns : key(name) + ", " + columns;
+  }
+
+  private static String key(String name) {
+    return "COALESCE(" + name + ", '')";
+  }
+
+}
@@ -19,18 +19,22 @@ import static org.apache.commons.collections4.CollectionUtils.isEmpty;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import java.sql.Timestamp;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -42,27 +46,34 @@ import javax.persistence.criteria.Join;
 import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
-import javax.persistence.criteria.Subquery;
 import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.collections4.SetUtils;
 import org.apache.commons.lang3.tuple.Pair;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.jpa.QueryHints;
+import org.hibernate.query.NativeQuery;
 import org.hibernate.transform.DistinctRootEntityResultTransformer;
+import org.hibernate.type.LongType;
+import org.hibernate.type.PostgresUUIDType;
+import org.hibernate.type.TimestampType;
 import org.openlmis.referencedata.domain.Orderable;
 import org.openlmis.referencedata.domain.Program;
 import org.openlmis.referencedata.domain.ProgramOrderable;
 import org.openlmis.referencedata.domain.VersionIdentity;
-import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.repository.KeysetPage;
+import org.openlmis.referencedata.repository.OrderableIdentitiesPage;
+import org.openlmis.referencedata.repository.SeekCursor;
 import org.openlmis.referencedata.repository.custom.OrderableRepositoryCustom;
 import org.openlmis.referencedata.repository.custom.OrderableRepositoryCustom.SearchParams;
 import org.openlmis.referencedata.util.Pagination;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.slf4j.profiler.Profiler;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+@SuppressWarnings({"PMD.TooManyMethods"})
 public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<SearchParams>
     implements OrderableRepositoryCustom {
 
@@ -74,6 +85,7 @@ public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<Sear
   static final String IDENTITY = "identity";
   static final String PROGRAM = "program";
   static final String CODE = "code";
+  static final String LATEST = "latest";
   private static final XLogger XLOGGER = XLoggerFactory.getXLogger(OrderableRepositoryImpl.class);
   private static final String FROM_ORDERABLES_TABLE = " FROM referencedata.orderables AS o";
   private static final String NATIVE_PROGRAM_ORDERABLE_JOIN =
@@ -86,26 +98,65 @@ public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<Sear
           + "  ON p.id = po.programId";
   private static final String NATIVE_PROGRAM_INNER_JOIN =
       " INNER" + NATIVE_PROGRAM_JOIN;
-  private static final String NATIVE_LATEST_ORDERABLE_INNER_JOIN =
-      " INNER JOIN (SELECT id, MAX (versionNumber) AS versionNumber"
-          + "  FROM referencedata.orderables GROUP BY id) AS latest"
-          + "  ON o.id = latest.id AND o.versionNumber = latest.versionNumber";
+  private static final String NATIVE_WHERE_LATEST_ORDERABLE = "o.latest";
   static final String NATIVE_SELECT_LAST_UPDATED = "SELECT o.lastupdated "
-      + FROM_ORDERABLES_TABLE + NATIVE_LATEST_ORDERABLE_INNER_JOIN;
+      + FROM_ORDERABLES_TABLE;
   static final String NATIVE_COUNT_LAST_UPDATED = "SELECT COUNT(*) "
-      + FROM_ORDERABLES_TABLE + NATIVE_LATEST_ORDERABLE_INNER_JOIN;
+      + FROM_ORDERABLES_TABLE;
   private static final String ORDER_BY_LAST_UPDATED_DESC_LIMIT_1 = " ORDER BY o.lastupdated"
       + " DESC LIMIT 1";
+  private static final String NATIVE_SELECT_IDENTITIES_WITH_TOTALS = "SELECT o.id AS id,"
+      + " o.versionNumber AS versionNumber,"
+      + " COUNT(*) OVER () AS total,"
+      + " MAX(o.lastUpdated) OVER () AS lastUpdated"
+      + FROM_ORDERABLES_TABLE;
+  private static final String NATIVE_SELECT_IDENTITIES = "SELECT o.id AS id,"
+      + " o.versionNumber AS versionNumber"
+      + FROM_ORDERABLES_TABLE;
+  private static final String NATIVE_WHERE_IDENTITY_PAIRS = "(o.id, o.versionNumber) IN"
+      + " (SELECT * FROM unnest(CAST(:ids AS uuid[]), CAST(:versionNumbers AS bigint[])))";
+  private static final String NATIVE_WHERE_PROGRAM_CODES = "EXISTS (SELECT 1"
+      + " FROM referencedata.program_orderables AS po"
+      + " INNER JOIN referencedata.programs AS p ON p.id = po.programId"
+      + " WHERE po.orderableId = o.id AND po.orderableVersionNumber = o.versionNumber"
+      + " AND LOWER(p.code) IN (:programCodes))";
+  private static final String NATIVE_SELECT_IDENTITIES_BY_TYPED_IDENTIFIERS = "SELECT DISTINCT"
+      + " oti.orderableId AS id,"
+      + " oti.orderableVersionNumber AS versionNumber"
+      + " FROM referencedata.orderable_typed_identifiers AS oti";
+  private static final String NATIVE_LATEST_ORDERABLE_JOIN =
+      " INNER JOIN referencedata.orderables AS o"
+      + " ON o.id = oti.orderableId AND o.versionNumber = oti.orderableVersionNumber"
+      + " AND o.latest";
+  private static final String NATIVE_WHERE_TYPED_IDENTIFIERS =
+      " WHERE oti.identifierType = :identifierType"
+      + " AND oti.identifierId = ANY(CAST(:identifierIds AS uuid[]))";
+  private static final String IDENTIFIER_TYPE = "identifierType";
+  private static final String IDENTIFIER_IDS = "identifierIds";
+  private static final String NAME = "name";
+  private static final String CODE_TERM = "codeTerm";
+  private static final String NAME_TERM = "nameTerm";
+  private static final String NATIVE_CODE = "o.code";
+  private static final String NATIVE_FULL_PRODUCT_NAME = "o.fullProductName";
+  private static final String NATIVE_WHERE_CODE = TrigramSearch.contains(NATIVE_CODE, CODE);
+  private static final String NATIVE_WHERE_NAME =
+      TrigramSearch.contains(NATIVE_FULL_PRODUCT_NAME, NAME);
+  private static final String NATIVE_ORDER_BY_NAME = "o.fullProductName, o.id, o.versionNumber";
+  private static final String NATIVE_ID = "o.id";
+  private static final String NATIVE_VERSION_NUMBER = "o.versionNumber";
+  private static final String ORDER_BY = " ORDER BY ";
+  private static final String NATIVE_PAGEABLE = " LIMIT :limit OFFSET :offset";
+  private static final String TOTAL = "total";
+  private static final String LAST_UPDATED = "lastUpdated";
+  private static final String LIMIT = "limit";
+  private static final String OFFSET = "offset";
   private static final String WHERE = " WHERE ";
   private static final String AND = " AND ";
   private static final String GMT = "GMT";
   private static final String ORDERABLE = "orderable";
-  private static final String LATEST_ORDERABLE_ALIAS = "latest";
   private static final String TRADE_ITEM = "tradeItem";
   @PersistenceContext
   private EntityManager entityManager;
-  @Autowired
-  private OrderableRepository orderableRepository;
 
   /**
    * This method is supposed to retrieve all orderables with matched parameters. Method is ignoring
@@ -122,16 +173,7 @@ public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<Sear
     profiler.start("CALCULATE_FULL_LIST_SIZE");
     CriteriaBuilder builder = entityManager.getCriteriaBuilder();
     List<VersionIdentity> identityList = new ArrayList<>();
-    Set<Pair<UUID, Long>> identityPairs = searchParams.getIdentityPairs();
-
-    Set<UUID> tradeItemId = searchParams.getTradeItemId();
-    if (!tradeItemId.isEmpty()) {
-      Set<Pair<UUID, Long>> identitiesByTradeItemId = getIdentitiesByTradeItemId(tradeItemId);
-
-      identityPairs = identityPairs.isEmpty()
-          ? identitiesByTradeItemId
-          : SetUtils.intersection(identitiesByTradeItemId, identityPairs).toSet();
-    }
+    Set<Pair<UUID, Long>> identityPairs = getIdentityPairs(searchParams);
 
     Long total = getTotal(searchParams, identityPairs, identityList, builder, pageable);
 
@@ -180,6 +222,239 @@ public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<Sear
     return ZonedDateTime.of(timestamp.toLocalDateTime(), ZoneId.of(GMT));
   }
 
+  /**
+   * This method is supposed to retrieve identities of a page of orderables matching the parameters
+   * together with the number of all matching orderables and their latest last update date. The
+   * count and the date are calculated with window functions, so all of them are read with a single
+   * query.
+   *
+   * @return identities of the page of orderables, the total number and the latest last update date.
+   */
+  @Override
+  public OrderableIdentitiesPage searchIdentities(SearchParams searchParams, Pageable pageable) {
+    Profiler profiler = new Profiler("ORDERABLE_REPOSITORY_SEARCH_IDENTITIES");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("PREPARE_QUERY");
+    StringBuilder builder = new StringBuilder(NATIVE_SELECT_IDENTITIES_WITH_TOTALS);
+    Map<String, Object> params = Maps.newHashMap();
+    List<String> wheres = prepareNativeConditions(searchParams, params);
+
+    builder.append(WHERE).append(String.join(AND, wheres))
+        .append(prepareNativeOrder(searchParams, params));
+
+    Pair<Integer, Integer> maxAndFirst = PageableUtil.querysMaxAndFirstResult(pageable);
+    if (maxAndFirst.getLeft() > 0) {
+      builder.append(NATIVE_PAGEABLE);
+      params.put(LIMIT, maxAndFirst.getLeft());
+      params.put(OFFSET, maxAndFirst.getRight());
+    }
+
+    profiler.start("EXECUTE_QUERY");
+    String sql = builder.toString();
+    List<Object[]> rows = executeIdentitiesQuery(sql, params);
+    List<VersionIdentity> identities = rows
+        .stream()
+        .map(row -> new VersionIdentity((UUID) row[0], (Long) row[1]))
+        .collect(Collectors.toList());
+
+    if (rows.isEmpty() && maxAndFirst.getRight() > 0) {
+      // the requested page is past the last matching orderable, so the window values
+      // have to be read from the first row
+      profiler.start("EXECUTE_QUERY_FOR_FIRST_ROW");
+      params.put(LIMIT, 1);
+      params.put(OFFSET, 0);
+      rows = executeIdentitiesQuery(sql, params);
+    }
+
+    profiler.stop().log();
+
+    if (rows.isEmpty()) {
+      return new OrderableIdentitiesPage(identities, 0, null);
+    }
+
+    Object[] first = rows.get(0);
+    return new OrderableIdentitiesPage(identities, (Long) first[2],
+        ZonedDateTime.of(((Timestamp) first[3]).toLocalDateTime(), ZoneId.of(GMT)));
+  }
+
+  /**
+   * This method is supposed to retrieve orderables with the given identities, in the order of the
+   * identities.
+   *
+   * @return List of orderables with the given identities.
+   */
+  @Override
+  public List<Orderable> findAllByIdentities(List<VersionIdentity> identities) {
+    Map<VersionIdentity, Orderable> orderables = new HashMap<>();
+    for (List<VersionIdentity> partition : ListUtils.partition(identities, MAX_IDENTITIES_SIZE)) {
+      retrieveOrderables(partition)
+          .forEach(orderable -> orderables.put(orderable.getVersionIdentity(), orderable));
+    }
+
+    return identities
+        .stream()
+        .map(orderables::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * This method is supposed to retrieve the latest versions of orderables which have a trade item
+   * or commodity type identifier with any of the given values. All values are looked up with a
+   * single query on the typed identifiers index.
+   *
+   * @param identifierType either {@link Orderable#TRADE_ITEM} or {@link Orderable#COMMODITY_TYPE}
+   * @param identifierIds ids of trade items or commodity types
+   * @return List of the latest orderables with matching identifiers.
+   */
+  @Override
+  public List<Orderable> findAllLatestByIdentifiers(String identifierType,
+      Collection<UUID> identifierIds) {
+    if (isEmpty(identifierIds)) {
+      return Collections.emptyList();
+    }
+
+    Profiler profiler = new Profiler("ORDERABLE_REPOSITORY_FIND_ALL_LATEST_BY_IDENTIFIERS");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("FIND_IDENTITIES");
+    List<VersionIdentity> identities = findIdentitiesByTypedIdentifiers(
+        identifierType, identifierIds, true);
+
+    profiler.start("FIND_ORDERABLES");
+    List<Orderable> orderables = findAllByIdentities(identities);
+
+    profiler.stop().log();
+    return orderables;
+  }
+
+  /**
+   * This method is supposed to retrieve a page of orderables matching the parameters that follows
+   * the given cursor. Orderables are ordered by name, id and version number and the page is read
+   * with a seek predicate instead of an offset, so each page costs the same regardless of how deep
+   * the client is. The total number of matching orderables is not calculated.
+   *
+   * @return the page of orderables and the cursor of the next page.
+   */
+  @Override
+  public KeysetPage<Orderable> seek(SearchParams searchParams, SeekCursor after, int size) {
+    Profiler profiler = new Profiler("ORDERABLE_REPOSITORY_SEEK");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("PREPARE_QUERY");
+    Map<String, Object> params = Maps.newHashMap();
+    List<String> wheres = prepareNativeConditions(searchParams, params);
+
+    if (null != after) {
+      wheres.add(KeysetSearch.after(NATIVE_FULL_PRODUCT_NAME, NATIVE_ID, NATIVE_VERSION_NUMBER,
+          after, params));
+    }
+
+    String sql = KeysetSearch.select(NATIVE_FULL_PRODUCT_NAME, NATIVE_ID, NATIVE_VERSION_NUMBER)
+        + FROM_ORDERABLES_TABLE
+        + WHERE + String.join(AND, wheres)
+        + KeysetSearch.orderAndLimit(NATIVE_FULL_PRODUCT_NAME, NATIVE_ID, NATIVE_VERSION_NUMBER,
+        size, params);
+
+    profiler.start("EXECUTE_QUERY");
+    KeysetPage<Orderable> page = KeysetSearch
+        .execute(entityManager, sql, params, size, this::findAllByIdentities);
+
+    profiler.stop().log();
+    return page;
+  }
+
+  /**
+   * This method is supposed to pass all orderables matching the parameters, ordered by name, to
+   * the consumer in batches of the given size. Identities are read with a forward-only cursor and
+   * the persistence context is cleared after each batch, so memory use does not depend on the
+   * number of orderables. It has to be called inside a transaction.
+   *
+   * @return number of orderables passed to the consumer.
+   */
+  @Override
+  public long scroll(SearchParams searchParams, int batchSize,
+      Consumer<List<Orderable>> consumer) {
+    return scroll(searchParams, batchSize, 0, consumer);
+  }
+
+  /**
+   * This method is supposed to pass at most the given number of orderables matching the
+   * parameters, ordered by name, to the consumer in batches of the given size. A maximum of 0
+   * passes all of them. It has to be called inside a transaction.
+   *
+   * @return number of orderables passed to the consumer.
+   */
+  @Override
+  public long scroll(SearchParams searchParams, int batchSize, int maxResults,
+      Consumer<List<Orderable>> consumer) {
+    Profiler profiler = new Profiler("ORDERABLE_REPOSITORY_SCROLL");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("PREPARE_QUERY");
+    Map<String, Object> params = Maps.newHashMap();
+    List<String> wheres = prepareNativeConditions(searchParams, params);
+    String sql = NATIVE_SELECT_IDENTITIES + WHERE + String.join(AND, wheres)
+        + ORDER_BY + NATIVE_ORDER_BY_NAME;
+
+    NativeQuery<?> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+    params.forEach(query::setParameter);
+    query
+        .addScalar(ID, PostgresUUIDType.INSTANCE)
+        .addScalar(VERSION_NUMBER, LongType.INSTANCE)
+        .setFetchSize(batchSize)
+        .setReadOnly(true);
+    if (maxResults > 0) {
+      query.setMaxResults(maxResults);
+    }
+
+    profiler.start("SCROLL_ORDERABLES");
+    long total = 0;
+    try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+      List<VersionIdentity> batch = new ArrayList<>(batchSize);
+      while (results.next()) {
+        batch.add(new VersionIdentity((UUID) results.get(0), (Long) results.get(1)));
+
+        if (batch.size() == batchSize) {
+          total += consumeBatch(batch, consumer);
+          batch = new ArrayList<>(batchSize);
+        }
+      }
+
+      if (!batch.isEmpty()) {
+        total += consumeBatch(batch, consumer);
+      }
+    }
+
+    profiler.stop().log();
+    return total;
+  }
+
+  /**
+   * This method is supposed to pass orderables with the given identities, in the order of the
+   * identities, to the consumer in batches of the given size. Identities without an orderable are
+   * skipped. The persistence context is cleared after each batch, so it has to be called inside a
+   * transaction.
+   *
+   * @return number of orderables passed to the consumer.
+   */
+  @Override
+  public long scrollByIdentities(List<VersionIdentity> identities, int batchSize,
+      Consumer<List<Orderable>> consumer) {
+    Profiler profiler = new Profiler("ORDERABLE_REPOSITORY_SCROLL_BY_IDENTITIES");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("SCROLL_ORDERABLES");
+    long total = 0;
+    for (List<VersionIdentity> batch : ListUtils.partition(identities, batchSize)) {
+      total += consumeBatch(batch, consumer);
+    }
+
+    profiler.stop().log();
+    return total;
+  }
+
   @Override
   <E> TypedQuery<E> prepareQuery(SearchParams searchParams, CriteriaQuery<E> query,
                                  boolean count, Collection<VersionIdentity> identities,
@@ -199,7 +474,7 @@ public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<Sear
       newQuery = (CriteriaQuery<E>) typeQuery.select(root.get(IDENTITY));
     }
 
-    Predicate where = prepareParams(root, newQuery, searchParams, identities);
+    Predicate where = prepareParams(root, searchParams, identities);
 
     newQuery.where(where);
 
@@ -218,9 +493,8 @@ public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<Sear
     return entityManager.createQuery(newQuery);
   }
 
-  private <E> Predicate prepareParams(Root<Orderable> root, CriteriaQuery<E> query,
-                                      SearchParams searchParams,
-                                      Collection<VersionIdentity> identities) {
+  private Predicate prepareParams(Root<Orderable> root, SearchParams searchParams,
+      Collection<VersionIdentity> identities) {
     CriteriaBuilder builder = entityManager.getCriteriaBuilder();
     Predicate where = builder.conjunction();
 
@@ -234,35 +508,126 @@ public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<Sear
       }
 
       if (isEmpty(identities)) {
-        Subquery<String> latestOrderablesQuery = createSubQuery(query, builder);
-        where = builder.and(where, builder.in(builder.concat(
-                root.get(IDENTITY).get(ID).as(String.class),
-                root.get(IDENTITY).get(VERSION_NUMBER)).as(String.class))
-            .value(latestOrderablesQuery));
+        where = builder.and(where, builder.isTrue(root.get(LATEST)));
       } else {
         where = builder.and(where, builder.in(root.get(IDENTITY)).value(identities));
       }
 
       if (isNotBlank(searchParams.getCode())) {
-        where = builder.and(where, builder.like(builder.lower(root.get(PRODUCT_CODE).get(CODE)),
-            "%" + searchParams.getCode().toLowerCase() + "%"));
+        where = builder.and(where, TrigramSearch.contains(builder,
+            root.get(PRODUCT_CODE).get(CODE), searchParams.getCode()));
       }
 
       if (isNotBlank(searchParams.getName())) {
-        where = builder.and(where, builder.like(builder.lower(root.get(FULL_PRODUCT_NAME)),
-            "%" + searchParams.getName().toLowerCase() + "%"));
+        where = builder.and(where, TrigramSearch.contains(builder,
+            root.get(FULL_PRODUCT_NAME), searchParams.getName()));
       }
     } else {
-      Subquery<String> latestOrderablesQuery = createSubQuery(query, builder);
-      where = builder.and(where, builder.in(builder.concat(
-              root.get(IDENTITY).get(ID).as(String.class),
-              root.get(IDENTITY).get(VERSION_NUMBER)).as(String.class))
-          .value(latestOrderablesQuery));
+      where = builder.and(where, builder.isTrue(root.get(LATEST)));
     }
 
     return where;
   }
 
+  private Set<Pair<UUID, Long>> getIdentityPairs(SearchParams searchParams) {
+    Set<Pair<UUID, Long>> identityPairs = searchParams.getIdentityPairs();
+
+    Set<UUID> tradeItemId = searchParams.getTradeItemId();
+    if (!tradeItemId.isEmpty()) {
+      Set<Pair<UUID, Long>> identitiesByTradeItemId = getIdentitiesByTradeItemId(tradeItemId);
+
+      identityPairs = identityPairs.isEmpty()
+          ? identitiesByTradeItemId
+          : SetUtils.intersection(identitiesByTradeItemId, identityPairs).toSet();
+    }
+
+    return identityPairs;
+  }
+
+  private List<String> prepareNativeConditions(SearchParams searchParams,
+      Map<String, Object> params) {
+    List<String> wheres = Lists.newArrayList();
+
+    Set<Pair<UUID, Long>> identityPairSet = getIdentityPairs(searchParams);
+    if (isEmpty(identityPairSet)) {
+      wheres.add(NATIVE_WHERE_LATEST_ORDERABLE);
+    } else {
+      List<Pair<UUID, Long>> identityPairs = new ArrayList<>(identityPairSet);
+      wheres.add(NATIVE_WHERE_IDENTITY_PAIRS);
+      params.put("ids", toArrayLiteral(identityPairs, Pair::getLeft));
+      params.put("versionNumbers", toArrayLiteral(identityPairs, Pair::getRight));
+    }
+
+    Set<String> programCodes = getProgramCodesLowerCase(searchParams);
+    if (!programCodes.isEmpty()) {
+      wheres.add(NATIVE_WHERE_PROGRAM_CODES);
+      params.put("programCodes", programCodes);
+    }
+
+    if (isNotBlank(searchParams.getCode())) {
+      wheres.add(NATIVE_WHERE_CODE);
+      params.put(CODE, TrigramSearch.pattern(searchParams.getCode()));
+    }
+
+    if (isNotBlank(searchParams.getName())) {
+      wheres.add(NATIVE_WHERE_NAME);
+      params.put(NAME, TrigramSearch.pattern(searchParams.getName()));
+    }
+
+    return wheres;
+  }
+
+  private String prepareNativeOrder(SearchParams searchParams, Map<String, Object> params) {
+    List<String> orders = Lists.newArrayList();
+
+    if (isNotBlank(searchParams.getName())) {
+      orders.add(TrigramSearch.bySimilarity(NATIVE_FULL_PRODUCT_NAME, NAME_TERM));
+      params.put(NAME_TERM, TrigramSearch.term(searchParams.getName()));
+    }
+
+    if (isNotBlank(searchParams.getCode())) {
+      orders.add(TrigramSearch.bySimilarity(NATIVE_CODE, CODE_TERM));
+      params.put(CODE_TERM, TrigramSearch.term(searchParams.getCode()));
+    }
+
+    orders.add(NATIVE_ORDER_BY_NAME);
+    return ORDER_BY + String.join(", ", orders);
+  }
+
+  private int consumeBatch(List<VersionIdentity> batch, Consumer<List<Orderable>> consumer) {
+    List<Orderable> orderables = findAllByIdentities(batch);
+    consumer.accept(orderables);
+    // orderables of the batch have been written, so they should not be kept in memory
+    entityManager.clear();
+
+    return orderables.size();
+  }
+
+  private <T> String toArrayLiteral(List<Pair<UUID, Long>> identityPairs,
+      Function<Pair<UUID, Long>, T> mapper) {
+    return identityPairs
+        .stream()
+        .map(mapper)
+        .map(String::valueOf)
+        .collect(Collectors.joining(",", "{", "}"));
+  }
+
+  private List<Object[]> executeIdentitiesQuery(String sql, Map<String, Object> params) {
+    Query query = entityManager.createNativeQuery(sql);
+    params.forEach(query::setParameter);
+
+    query.unwrap(NativeQuery.class)
+        .addScalar(ID, PostgresUUIDType.INSTANCE)
+        .addScalar(VERSION_NUMBER, LongType.INSTANCE)
+        .addScalar(TOTAL, LongType.INSTANCE)
+        .addScalar(LAST_UPDATED, TimestampType.INSTANCE);
+
+    // appropriate scalars have been set in the native query
+    @SuppressWarnings("unchecked")
+    List<Object[]> rows = query.getResultList();
+    return rows;
+  }
+
   private Set<String> getProgramCodesLowerCase(SearchParams searchParams) {
     return Optional.ofNullable(searchParams)
         .map(SearchParams::getProgramCodes)
@@ -273,24 +638,11 @@ public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<Sear
         .collect(Collectors.toSet());
   }
 
-  private Subquery<String> createSubQuery(CriteriaQuery query, CriteriaBuilder builder) {
-    Subquery<String> latestOrderablesQuery = query.subquery(String.class);
-    Root<Orderable> latestOrderablesRoot = latestOrderablesQuery.from(Orderable.class);
-    latestOrderablesRoot.alias(LATEST_ORDERABLE_ALIAS);
-
-    latestOrderablesQuery.select(
-        builder.concat(
-            latestOrderablesRoot.get(IDENTITY).get(ID).as(String.class),
-            builder.max(latestOrderablesRoot.get(IDENTITY).get(VERSION_NUMBER)).as(String.class)));
-    latestOrderablesQuery.groupBy(latestOrderablesRoot.get(IDENTITY).get(ID));
-
-    return latestOrderablesQuery;
-  }
-
   private Query getLastUpdatedQuery(SearchParams searchParams, boolean count) {
     String startNativeQuery = count ? NATIVE_COUNT_LAST_UPDATED : NATIVE_SELECT_LAST_UPDATED;
     StringBuilder builder = new StringBuilder(startNativeQuery);
-    List<String> wheres = Lists.newArrayList();
+    List<String> wheres = Lists.newArrayList(NATIVE_WHERE_LATEST_ORDERABLE);
+    Map<String, Object> params = Maps.newHashMap();
     String queryCondition;
 
     if (null != searchParams) {
@@ -303,28 +655,27 @@ public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<Sear
       }
 
       if (null != searchParams.getCode()) {
-        queryCondition = "LOWER (o.code) LIKE '%"
-            + searchParams.getCode().toLowerCase() + "%'";
-        wheres.add(queryCondition);
+        wheres.add(NATIVE_WHERE_CODE);
+        params.put(CODE, TrigramSearch.pattern(searchParams.getCode()));
       }
 
       if (null != searchParams.getName()) {
-        queryCondition = "LOWER (o.fullproductname) LIKE '%"
-            + searchParams.getName().toLowerCase() + "%'";
-        wheres.add(queryCondition);
+        wheres.add(NATIVE_WHERE_NAME);
+        params.put(NAME, TrigramSearch.pattern(searchParams.getName()));
       }
 
-      if (!wheres.isEmpty()) {
-        builder.append(WHERE).append(String.join(AND, wheres));
-      }
     }
 
+    builder.append(WHERE).append(String.join(AND, wheres));
+
     if (!count) {
       builder.append(ORDER_BY_LAST_UPDATED_DESC_LIMIT_1);
     }
     String builderText = builder.toString();
     XLOGGER.info("QueryParamString: " + builderText);
-    return entityManager.createNativeQuery(builderText);
+    Query query = entityManager.createNativeQuery(builderText);
+    params.forEach(query::setParameter);
+    return query;
   }
 
   private String generateProgramCodesText(Set<String> programCodesLowerCase) {
@@ -371,17 +722,36 @@ public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<Sear
    * @return Identity pairs matching supplied trade item ids
    */
   public Set<Pair<UUID, Long>> getIdentitiesByTradeItemId(Set<UUID> tradeItemId) {
-    List<Map<String, String>> tradeItem = orderableRepository.getIdentitiesByIdentifier(
-        TRADE_ITEM,
-        tradeItemId.stream().map(UUID::toString).collect(Collectors.toSet())
-    );
-
-    Set<Pair<UUID, Long>> result = tradeItem.stream()
-        .filter(item -> item.containsKey(ID) && item.containsKey(VERSION_NUMBER))
-        .map(item -> Pair.of(UUID.fromString(item.get(ID)), Long.valueOf(item.get(VERSION_NUMBER))))
+    return findIdentitiesByTypedIdentifiers(TRADE_ITEM, tradeItemId, false)
+        .stream()
+        .map(identity -> Pair.of(identity.getId(), identity.getVersionNumber()))
         .collect(Collectors.toSet());
+  }
+
+  private List<VersionIdentity> findIdentitiesByTypedIdentifiers(String identifierType,
+      Collection<UUID> identifierIds, boolean latestOnly) {
+    String sql = NATIVE_SELECT_IDENTITIES_BY_TYPED_IDENTIFIERS
+        + (latestOnly ? NATIVE_LATEST_ORDERABLE_JOIN : "")
+        + NATIVE_WHERE_TYPED_IDENTIFIERS;
 
-    return result;
+    Query query = entityManager.createNativeQuery(sql);
+    query.setParameter(IDENTIFIER_TYPE, identifierType);
+    query.setParameter(IDENTIFIER_IDS, identifierIds
+        .stream()
+        .map(String::valueOf)
+        .collect(Collectors.joining(",", "{", "}")));
+
+    query.unwrap(NativeQuery.class)
+        .addScalar(ID, PostgresUUIDType.INSTANCE)
+        .addScalar(VERSION_NUMBER, LongType.INSTANCE);
+
+    // appropriate scalars have been set in the native query
+    @SuppressWarnings("unchecked")
+    List<Object[]> rows = query.getResultList();
+    return rows
+        .stream()
+        .map(row -> new VersionIdentity((UUID) row[0], (Long) row[1]))
+        .collect(Collectors.toList());
   }
 
 }
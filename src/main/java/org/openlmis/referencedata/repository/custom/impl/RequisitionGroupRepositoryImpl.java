@@ -15,6 +15,7 @@
 
 package org.openlmis.referencedata.repository.custom.impl;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import javax.persistence.EntityManager;
@@ -23,6 +24,7 @@ import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Join;
 import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Order;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import org.apache.commons.lang3.StringUtils;
@@ -105,14 +107,16 @@ public class RequisitionGroupRepositoryImpl implements RequisitionGroupRepositor
 
     Predicate predicate = builder.conjunction();
 
+    List<Order> orders = new ArrayList<>();
+
     if (code != null) {
-      predicate = builder.and(predicate,
-          builder.like(builder.upper(root.get(CODE)), "%" + code.toUpperCase() + "%"));
+      predicate = builder.and(predicate, TrigramSearch.contains(builder, root.get(CODE), code));
+      orders.add(TrigramSearch.bySimilarity(builder, root.get(CODE), code));
     }
 
     if (name != null) {
-      predicate = builder.and(predicate,
-          builder.like(builder.upper(root.get(NAME)), "%" + name.toUpperCase() + "%"));
+      predicate = builder.and(predicate, TrigramSearch.contains(builder, root.get(NAME), name));
+      orders.add(TrigramSearch.bySimilarity(builder, root.get(NAME), name));
     }
 
     if (program != null) {
@@ -129,7 +133,8 @@ public class RequisitionGroupRepositoryImpl implements RequisitionGroupRepositor
     query.where(predicate);
 
     if (!count) {
-      query.orderBy(builder.asc(root.get(NAME)));
+      orders.add(builder.asc(root.get(NAME)));
+      query.orderBy(orders);
     }
 
     return query;
@@ -17,6 +17,7 @@ package org.openlmis.referencedata.repository.custom.impl;
 
 import static org.apache.commons.collections4.CollectionUtils.isEmpty;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -26,6 +27,7 @@ import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Join;
 import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Order;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.validation.constraints.NotNull;
@@ -60,7 +62,8 @@ public class SupervisoryNodeRepositoryImpl implements SupervisoryNodeRepositoryC
 
   /**
    * This method is supposed to retrieve all supervisory nodes with matched parameters.
-   * Method is ignoring case and using like operator for code and name.
+   * Method is ignoring case and using like operator for code and name. Nodes most similar to the
+   * searched code and name come first.
    *
    * @param searchParams Search parameters.
    * @return List of Supervisory Nodes matching the parameters.
@@ -97,16 +100,18 @@ public class SupervisoryNodeRepositoryImpl implements SupervisoryNodeRepositoryC
 
     Predicate predicate = builder.conjunction();
 
+    List<Order> orders = new ArrayList<>();
+
     String code = searchParams.getCode();
     if (code != null) {
-      predicate = builder.and(predicate,
-          builder.like(builder.upper(root.get(CODE)), "%" + code.toUpperCase() + "%"));
+      predicate = builder.and(predicate, TrigramSearch.contains(builder, root.get(CODE), code));
+      orders.add(TrigramSearch.bySimilarity(builder, root.get(CODE), code));
     }
 
     String name = searchParams.getName();
     if (name != null) {
-      predicate = builder.and(predicate,
-          builder.like(builder.upper(root.get(NAME)), "%" + name.toUpperCase() + "%"));
+      predicate = builder.and(predicate, TrigramSearch.contains(builder, root.get(NAME), name));
+      orders.add(TrigramSearch.bySimilarity(builder, root.get(NAME), name));
     }
 
     UUID facilityId = searchParams.getFacilityId();
@@ -144,6 +149,11 @@ public class SupervisoryNodeRepositoryImpl implements SupervisoryNodeRepositoryC
     }
 
     query.where(predicate);
+
+    if (!count && !orders.isEmpty()) {
+      query.orderBy(orders);
+    }
+
     return query;
   }
 }
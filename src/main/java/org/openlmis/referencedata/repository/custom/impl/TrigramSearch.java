@@ -0,0 +1,83 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.repository.custom.impl;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+
+/**
+ * Case-insensitive "contains" conditions for code and name columns. The conditions compare
+ * LOWER(column), which is the expression covered by the pg_trgm GIN indexes, so a search for
+ * '%term%' does not have to scan the whole table. Matches can be ranked by trigram similarity
+ * to the searched term.
+ */
+final class TrigramSearch {
+
+  private static final String SIMILARITY = "similarity";
+
+  private TrigramSearch() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Returns the LIKE pattern for the given term, to be bound to the parameter used in
+   * {@link #contains(String, String)}.
+   */
+  static String pattern(String term) {
+    return "%" + term.toLowerCase() + "%";
+  }
+
+  /**
+   * Returns the normalized term, to be bound to the parameter used in
+   * {@link #bySimilarity(String, String)}.
+   */
+  static String term(String term) {
+    return term.toLowerCase();
+  }
+
+  /**
+   * Creates SQL/HQL condition matching rows where the column contains the value of the parameter
+   * set to {@link #pattern(String)}.
+   */
+  static String contains(String column, String parameter) {
+    return "LOWER(" + column + ") LIKE :" + parameter;
+  }
+
+  /**
+   * Creates SQL/HQL order item putting rows most similar to the value of the parameter set to
+   * {@link #term(String)} first.
+   */
+  static String bySimilarity(String column, String parameter) {
+    return SIMILARITY + "(LOWER(" + column + "), :" + parameter + ") DESC";
+  }
+
+  /**
+   * Creates criteria predicate matching rows where the column contains the term.
+   */
+  static Predicate contains(CriteriaBuilder builder, Expression<String> column, String term) {
+    return builder.like(builder.lower(column), pattern(term));
+  }
+
+  /**
+   * Creates criteria order putting rows most similar to the term first.
+   */
+  static Order bySimilarity(CriteriaBuilder builder, Expression<String> column, String term) {
+    return builder.desc(builder.function(SIMILARITY, Float.class,
+        builder.lower(column), builder.literal(term(term))));
+  }
+}
@@ -15,22 +15,147 @@
 
 package org.openlmis.referencedata.security;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.AllArgsConstructor;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
 import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.RemoteTokenServices;
 
-public class CustomTokenServices extends RemoteTokenServices {
+/**
+ * Remote token services that retry the check of tokens reported as invalid, and keep validated
+ * authentications in a bounded local cache keyed by a hash of the token. A cached authentication
+ * is reused until the token expires, but never longer than the configured maximum time, so that
+ * revoked tokens stop being accepted soon. Tokens found invalid are cached for a short time as
+ * well, to protect the auth service from repeated checks of the same bad token. The cache is
+ * disabled if its maximum size is 0.
+ */
+public class CustomTokenServices extends RemoteTokenServices implements MeterBinder {
+
+  static final String CACHE_REQUESTS_METRIC = "auth.tokenCache.requests";
+  static final String CACHE_SIZE_METRIC = "auth.tokenCache.size";
+  private static final String RESULT_TAG = "result";
+  private static final String EXPIRATION = "exp";
+
+  private final int invalidTokenRetryLimit;
+  private final long maxTtlMillis;
+  private final long negativeTtlMillis;
+  private final Cache<String, CachedToken> cache;
+  private final ThreadLocal<Long> loadedExpiration = new ThreadLocal<>();
 
-  private int invalidTokenRetryLimit;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong negativeHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
 
   public CustomTokenServices(int invalidTokenRetryLimit) {
+    this(invalidTokenRetryLimit, 0, 0, 0);
+  }
+
+  /**
+   * Creates token services with a local cache of checked tokens.
+   *
+   * @param invalidTokenRetryLimit  how many times a token reported as invalid is checked again
+   * @param cacheMaxSize            maximum number of cached tokens, 0 disables the cache
+   * @param cacheMaxTtlSeconds      maximum time a valid token is cached
+   * @param cacheNegativeTtlSeconds time an invalid token is cached, 0 disables negative caching
+   */
+  public CustomTokenServices(int invalidTokenRetryLimit, int cacheMaxSize,
+      long cacheMaxTtlSeconds, long cacheNegativeTtlSeconds) {
     super();
     this.invalidTokenRetryLimit = invalidTokenRetryLimit;
+    this.maxTtlMillis = TimeUnit.SECONDS.toMillis(cacheMaxTtlSeconds);
+    this.negativeTtlMillis = TimeUnit.SECONDS.toMillis(cacheNegativeTtlSeconds);
+    this.cache = cacheMaxSize <= 0 ? null : CacheBuilder.newBuilder()
+        .maximumSize(cacheMaxSize)
+        .expireAfterWrite(Math.max(maxTtlMillis, negativeTtlMillis), TimeUnit.MILLISECONDS)
+        .build();
+    setAccessTokenConverter(new DefaultAccessTokenConverter());
+  }
+
+  @Override
+  public void setAccessTokenConverter(AccessTokenConverter accessTokenConverter) {
+    super.setAccessTokenConverter(new ExpirationRecordingConverter(accessTokenConverter));
   }
 
   @Override
   public OAuth2Authentication loadAuthentication(String accessToken) {
-    return loadAuthentication(accessToken, 0);
+    if (null == cache) {
+      return loadAuthentication(accessToken, 0);
+    }
+
+    String key = hash(accessToken);
+    long now = System.currentTimeMillis();
+    CachedToken cached = cache.getIfPresent(key);
+
+    if (null != cached && cached.expiresAt > now) {
+      if (null == cached.authentication) {
+        negativeHits.incrementAndGet();
+        throw new InvalidTokenException(cached.invalidMessage);
+      }
+
+      hits.incrementAndGet();
+      // a copy, as the authentication gets details of the current request set on it
+      return new OAuth2Authentication(cached.authentication.getOAuth2Request(),
+          cached.authentication.getUserAuthentication());
+    }
+
+    misses.incrementAndGet();
+    try {
+      OAuth2Authentication authentication = loadAuthentication(accessToken, 0);
+
+      long expiresAt = now + maxTtlMillis;
+      Long expiration = loadedExpiration.get();
+      if (null != expiration) {
+        expiresAt = Math.min(expiresAt, TimeUnit.SECONDS.toMillis(expiration));
+      }
+      if (expiresAt > now) {
+        cache.put(key, new CachedToken(new OAuth2Authentication(
+            authentication.getOAuth2Request(), authentication.getUserAuthentication()),
+            null, expiresAt));
+      }
+
+      return authentication;
+    } catch (InvalidTokenException ex) {
+      if (negativeTtlMillis > 0) {
+        cache.put(key, new CachedToken(null, ex.getMessage(), now + negativeTtlMillis));
+      }
+      throw ex;
+    } finally {
+      loadedExpiration.remove();
+    }
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder(CACHE_REQUESTS_METRIC, hits, AtomicLong::get)
+        .description("Token checks answered from the local cache with a valid token")
+        .tag(RESULT_TAG, "hit")
+        .register(registry);
+    FunctionCounter.builder(CACHE_REQUESTS_METRIC, negativeHits, AtomicLong::get)
+        .description("Token checks answered from the local cache with an invalid token")
+        .tag(RESULT_TAG, "negativeHit")
+        .register(registry);
+    FunctionCounter.builder(CACHE_REQUESTS_METRIC, misses, AtomicLong::get)
+        .description("Token checks sent to the auth service")
+        .tag(RESULT_TAG, "miss")
+        .register(registry);
+    Gauge.builder(CACHE_SIZE_METRIC, this, CustomTokenServices::getCacheSize)
+        .description("Number of tokens in the local cache")
+        .register(registry);
   }
 
   private OAuth2Authentication loadAuthentication(String accessToken, int attempt) {
@@ -46,4 +171,57 @@ public class CustomTokenServices extends RemoteTokenServices {
       }
     }
   }
-}
\ No newline at end of file
+
+  private long getCacheSize() {
+    return null == cache ? 0 : cache.size();
+  }
+
+  private String hash(String accessToken) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256")
+          .digest(accessToken.getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(digest);
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 is not available", ex);
+    }
+  }
+
+  @AllArgsConstructor
+  private static final class CachedToken {
+    private final OAuth2Authentication authentication;
+    private final String invalidMessage;
+    private final long expiresAt;
+  }
+
+  /**
+   * Records the expiration time of the checked token, which the wrapped converter drops.
+   */
+  private final class ExpirationRecordingConverter implements AccessTokenConverter {
+
+    private final AccessTokenConverter delegate;
+
+    private ExpirationRecordingConverter(AccessTokenConverter delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Map<String, ?> convertAccessToken(OAuth2AccessToken token,
+        OAuth2Authentication authentication) {
+      return delegate.convertAccessToken(token, authentication);
+    }
+
+    @Override
+    public OAuth2AccessToken extractAccessToken(String value, Map<String, ?> map) {
+      return delegate.extractAccessToken(value, map);
+    }
+
+    @Override
+    public OAuth2Authentication extractAuthentication(Map<String, ?> map) {
+      Object expiration = map.get(EXPIRATION);
+      loadedExpiration.set(expiration instanceof Number
+          ? ((Number) expiration).longValue()
+          : null);
+      return delegate.extractAuthentication(map);
+    }
+  }
+}
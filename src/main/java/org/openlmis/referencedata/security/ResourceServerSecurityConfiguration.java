@@ -36,7 +36,6 @@ import org.springframework.security.oauth2.provider.authentication.BearerTokenEx
 import org.springframework.security.oauth2.provider.authentication.TokenExtractor;
 import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
-import org.springframework.security.oauth2.provider.token.RemoteTokenServices;
 import org.springframework.security.web.authentication.preauth.AbstractPreAuthenticatedProcessingFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -119,12 +118,17 @@ public class ResourceServerSecurityConfiguration implements ResourceServerConfig
    */
   @Bean
   @Autowired
-  public RemoteTokenServices remoteTokenServices(
+  public CustomTokenServices remoteTokenServices(
       @Value("${auth.server.url}") String checkTokenUrl,
       @Value("${auth.server.clientId}") String clientId,
       @Value("${auth.server.clientSecret}") String clientSecret,
-      @Value("${auth.server.invalidToken.retryLimit}") int invalidTokenRetryLimit) {
-    final RemoteTokenServices remoteTokenServices = new CustomTokenServices(invalidTokenRetryLimit);
+      @Value("${auth.server.invalidToken.retryLimit}") int invalidTokenRetryLimit,
+      @Value("${auth.server.tokenCache.maxSize}") int tokenCacheMaxSize,
+      @Value("${auth.server.tokenCache.maxTtlSeconds}") long tokenCacheMaxTtlSeconds,
+      @Value("${auth.server.tokenCache.negativeTtlSeconds}") long tokenCacheNegativeTtlSeconds) {
+    final CustomTokenServices remoteTokenServices = new CustomTokenServices(
+        invalidTokenRetryLimit, tokenCacheMaxSize, tokenCacheMaxTtlSeconds,
+        tokenCacheNegativeTtlSeconds);
     remoteTokenServices.setCheckTokenEndpointUrl(checkTokenUrl);
     remoteTokenServices.setClientId(clientId);
     remoteTokenServices.setClientSecret(clientSecret);
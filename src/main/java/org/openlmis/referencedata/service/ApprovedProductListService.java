@@ -0,0 +1,224 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.openlmis.referencedata.domain.VersionIdentity;
+import org.openlmis.referencedata.exception.ValidationMessageException;
+import org.openlmis.referencedata.repository.FacilityTypeApprovedProductRepository;
+import org.openlmis.referencedata.util.messagekeys.FacilityMessageKeys;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps materialized lists of the latest active approved products of every facility type in every
+ * program, for full supply and non-full supply products separately. Database triggers give a list
+ * a new version and drop its content whenever an approved product, an orderable or a program
+ * orderable it depends on changes; the list is then rebuilt on the next read and stored only if
+ * it was not changed again in the meantime, so every stored version has exactly one content.
+ */
+@Service
+public class ApprovedProductListService {
+
+  private static final XLogger XLOGGER =
+      XLoggerFactory.getXLogger(ApprovedProductListService.class);
+
+  static final String SELECT_FACILITY_TYPE_SQL =
+      "SELECT typeid FROM referencedata.facilities WHERE id = ?;";
+  static final String SELECT_FACILITY_TYPES_SQL =
+      "SELECT id, typeid FROM referencedata.facilities WHERE id = ANY(?);";
+  static final String SELECT_LIST_SQL = "SELECT version, ftapids, ftapversionnumbers"
+      + " FROM referencedata.approved_product_lists"
+      + " WHERE facilitytypeid = ? AND programid = ? AND fullsupply = ?;";
+  static final String INSERT_LIST_SQL = "INSERT INTO referencedata.approved_product_lists"
+      + " (facilitytypeid, programid, fullsupply, version, ftapids, ftapversionnumbers)"
+      + " VALUES (?, ?, ?, nextval('referencedata.approved_product_list_version_seq'), ?, ?)"
+      + " ON CONFLICT DO NOTHING RETURNING version;";
+  static final String UPDATE_LIST_SQL = "UPDATE referencedata.approved_product_lists"
+      + " SET ftapids = ?, ftapversionnumbers = ?"
+      + " WHERE facilitytypeid = ? AND programid = ? AND fullsupply = ?"
+      + " AND version = ? AND ftapids IS NULL;";
+
+  @Autowired
+  private JdbcTemplate template;
+
+  @Autowired
+  private FacilityTypeApprovedProductRepository facilityTypeApprovedProductRepository;
+
+  /**
+   * Returns the list of approved products of the type of the given facility in the program. The
+   * list is built and stored if it is not known yet or has changed since it was last built.
+   *
+   * @param facilityId ID of the facility.
+   * @param programId ID of the program.
+   * @param fullSupply true for full supply products, false for non-full supply products.
+   * @return the identities of the approved products and the version of the list.
+   */
+  public ApprovedProductList getList(UUID facilityId, UUID programId, boolean fullSupply) {
+    return getListOfType(getFacilityTypeId(facilityId), programId, fullSupply);
+  }
+
+  /**
+   * Returns the list of approved products of the facility type in the program. The list is built
+   * and stored if it is not known yet or has changed since it was last built.
+   *
+   * @param facilityTypeId ID of the facility type.
+   * @param programId ID of the program.
+   * @param fullSupply true for full supply products, false for non-full supply products.
+   * @return the identities of the approved products and the version of the list.
+   */
+  public ApprovedProductList getListOfType(UUID facilityTypeId, UUID programId,
+      boolean fullSupply) {
+    List<ApprovedProductList> stored = template.query(SELECT_LIST_SQL,
+        (rs, rowNum) -> toList(rs), facilityTypeId, programId, fullSupply);
+    if (!stored.isEmpty() && null != stored.get(0).getIdentities()) {
+      return stored.get(0);
+    }
+
+    List<VersionIdentity> identities = facilityTypeApprovedProductRepository
+        .findApprovedProductIdentities(facilityTypeId, programId, fullSupply);
+
+    Long version = stored.isEmpty()
+        ? insert(facilityTypeId, programId, fullSupply, identities)
+        : update(facilityTypeId, programId, fullSupply, stored.get(0).getVersion(), identities);
+
+    XLOGGER.debug("Approved product list of facility type {} and program {} (full supply: {})"
+        + " rebuilt with {} products, version {}", facilityTypeId, programId, fullSupply,
+        identities.size(), version);
+    return new ApprovedProductList(version, identities);
+  }
+
+  /**
+   * Returns facility type ids of the given facilities, read with a single query. Facilities which
+   * do not exist are left out.
+   *
+   * @param facilityIds IDs of the facilities.
+   * @return map of facility ids to their facility type ids.
+   */
+  public Map<UUID, UUID> getFacilityTypeIds(Collection<UUID> facilityIds) {
+    Map<UUID, UUID> facilityTypeIds = new HashMap<>();
+    if (facilityIds.isEmpty()) {
+      return facilityTypeIds;
+    }
+
+    template.query(SELECT_FACILITY_TYPES_SQL,
+        ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", facilityIds.toArray())),
+        (RowCallbackHandler) rs -> facilityTypeIds.put(rs.getObject("id", UUID.class),
+            rs.getObject("typeid", UUID.class)));
+
+    return facilityTypeIds;
+  }
+
+  private UUID getFacilityTypeId(UUID facilityId) {
+    try {
+      return template.queryForObject(SELECT_FACILITY_TYPE_SQL, UUID.class, facilityId);
+    } catch (EmptyResultDataAccessException ex) {
+      throw new ValidationMessageException(ex, FacilityMessageKeys.ERROR_NOT_FOUND);
+    }
+  }
+
+  private Long insert(UUID facilityTypeId, UUID programId, boolean fullSupply,
+      List<VersionIdentity> identities) {
+    // nothing is returned if the list was built or changed by someone else in the meantime
+    List<Long> versions = template.query(INSERT_LIST_SQL, ps -> {
+      ps.setObject(1, facilityTypeId);
+      ps.setObject(2, programId);
+      ps.setBoolean(3, fullSupply);
+      setIdentities(ps, 4, identities);
+    }, (rs, rowNum) -> rs.getLong(1));
+
+    return versions.isEmpty() ? null : versions.get(0);
+  }
+
+  private Long update(UUID facilityTypeId, UUID programId, boolean fullSupply, Long version,
+      List<VersionIdentity> identities) {
+    int updated = template.update(UPDATE_LIST_SQL, ps -> {
+      setIdentities(ps, 1, identities);
+      ps.setObject(3, facilityTypeId);
+      ps.setObject(4, programId);
+      ps.setBoolean(5, fullSupply);
+      ps.setLong(6, version);
+    });
+
+    return updated > 0 ? version : null;
+  }
+
+  private void setIdentities(PreparedStatement ps, int index, List<VersionIdentity> identities)
+      throws SQLException {
+    ps.setArray(index, ps.getConnection().createArrayOf("uuid", identities
+        .stream()
+        .map(VersionIdentity::getId)
+        .toArray()));
+    ps.setArray(index + 1, ps.getConnection().createArrayOf("bigint", identities
+        .stream()
+        .map(VersionIdentity::getVersionNumber)
+        .toArray()));
+  }
+
+  private ApprovedProductList toList(ResultSet rs) throws SQLException {
+    long version = rs.getLong("version");
+    Array ids = rs.getArray("ftapids");
+    Array versionNumbers = rs.getArray("ftapversionnumbers");
+
+    if (null == ids || null == versionNumbers) {
+      return new ApprovedProductList(version, null);
+    }
+
+    Object[] idValues = (Object[]) ids.getArray();
+    Object[] versionNumberValues = (Object[]) versionNumbers.getArray();
+    List<VersionIdentity> identities = new ArrayList<>(idValues.length);
+    for (int i = 0; i < idValues.length; ++i) {
+      identities.add(new VersionIdentity((UUID) idValues[i],
+          ((Number) versionNumberValues[i]).longValue()));
+    }
+
+    return new ApprovedProductList(version, Collections.unmodifiableList(identities));
+  }
+
+  /**
+   * Identities of the approved products in a list, and the version of the list. The version is
+   * not known if the list changed while it was being built, in which case it was not stored.
+   */
+  @Getter
+  @AllArgsConstructor
+  public static final class ApprovedProductList {
+
+    private final Long version;
+    private final List<VersionIdentity> identities;
+
+    public String getETag() {
+      return null == version ? null : Long.toString(version);
+    }
+
+  }
+}
@@ -15,17 +15,42 @@
 
 package org.openlmis.referencedata.service;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import org.openlmis.referencedata.domain.User;
 import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.repository.UserRepository;
 import org.openlmis.referencedata.util.messagekeys.UserMessageKeys;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+/**
+ * Resolves the user of the current request. Within a web request the user is loaded once and
+ * kept in the request attributes, keyed by the user ID from the token, so that right checks and
+ * controllers calling this helper several times do not query the user again. Outside of a web
+ * request the user is always loaded from the database. Lookups answered from the request and
+ * lookups which had to query the user are exposed as metrics.
+ */
 @Component
-public class AuthenticationHelper {
+public class AuthenticationHelper implements MeterBinder {
+
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(AuthenticationHelper.class);
+
+  static final String CURRENT_USER_ATTRIBUTE = AuthenticationHelper.class.getName()
+      + ".currentUser.";
+  static final String CURRENT_USER_REQUESTS_METRIC = "auth.currentUser.requests";
+  private static final String RESULT_TAG = "result";
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
 
   @Autowired
   private UserRepository userRepository;
@@ -37,14 +62,62 @@ public class AuthenticationHelper {
    * @throws NotFoundException if user cannot be found.
    */
   public User getCurrentUser() {
-    UUID userId = (UUID) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    UUID userId = getCurrentUserId();
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+
+    if (null != attributes) {
+      User user = (User) attributes.getAttribute(CURRENT_USER_ATTRIBUTE + userId,
+          RequestAttributes.SCOPE_REQUEST);
+      if (null != user) {
+        hits.incrementAndGet();
+        XLOGGER.debug("Current user {} resolved from request, user query saved", userId);
+        return user;
+      }
+    }
+
+    misses.incrementAndGet();
     User user = userRepository.findById(userId).orElse(null);
 
     if (user == null) {
       throw new NotFoundException(UserMessageKeys.ERROR_NOT_FOUND);
     }
 
+    if (null != attributes) {
+      attributes.setAttribute(CURRENT_USER_ATTRIBUTE + userId, user,
+          RequestAttributes.SCOPE_REQUEST);
+    }
+
     return user;
   }
 
+  /**
+   * Drops the given user from the request, so that the next call loads it again. Should be called
+   * when the user is saved.
+   *
+   * @param userId ID of the saved user.
+   */
+  public void evictUser(UUID userId) {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (null != attributes) {
+      attributes.removeAttribute(CURRENT_USER_ATTRIBUTE + userId,
+          RequestAttributes.SCOPE_REQUEST);
+    }
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder(CURRENT_USER_REQUESTS_METRIC, hits, AtomicLong::get)
+        .description("Current user lookups answered from the request")
+        .tag(RESULT_TAG, "hit")
+        .register(registry);
+    FunctionCounter.builder(CURRENT_USER_REQUESTS_METRIC, misses, AtomicLong::get)
+        .description("Current user lookups which queried the user")
+        .tag(RESULT_TAG, "miss")
+        .register(registry);
+  }
+
+  private UUID getCurrentUserId() {
+    return (UUID) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+  }
+
 }
@@ -57,7 +57,7 @@ public class FacilityService implements ExportableDataService<FacilityDto> {
   private GeographicZoneRepository geographicZoneRepository;
 
   @Autowired
-  private GeographicZoneService geographicZoneService;
+  private GeographicHierarchy geographicHierarchy;
 
   private ObjectMapper mapper = new ObjectMapper();
 
@@ -75,7 +75,7 @@ public class FacilityService implements ExportableDataService<FacilityDto> {
     profiler.setLogger(LOGGER);
 
     profiler.start("CHECK_IF_GEO_ZONE_EXISTS");
-    if (null != params.getZoneId() && !geographicZoneRepository.existsById(params.getZoneId())) {
+    if (null != params.getZoneId() && !zoneExists(params.getZoneId())) {
       throw new ValidationMessageException(GeographicZoneMessageKeys.ERROR_NOT_FOUND);
     }
 
@@ -98,10 +98,6 @@ public class FacilityService implements ExportableDataService<FacilityDto> {
     Set<UUID> zones = Sets.newHashSet();
     if (null != params.getZoneId()) {
       zones.add(params.getZoneId());
-      if (params.isRecurse()) {
-        profiler.start("GET_ALL_ZONES_IN_HIERARCHY");
-        zones.addAll(geographicZoneService.getAllZonesInHierarchy(params.getZoneId()));
-      }
     }
 
     profiler.start("PARSE_EXTRA_DATA");
@@ -116,7 +112,14 @@ public class FacilityService implements ExportableDataService<FacilityDto> {
     }
 
     profiler.start("SEARCH_FOR_FACILITIES");
-    return facilityRepository.search(params, zones, extraDataString, pageable);
+    return facilityRepository.search(params, zones, params.isRecurse(), extraDataString,
+        pageable);
+  }
+
+  private boolean zoneExists(UUID zoneId) {
+    // zones created by other instances may not be in the hierarchy yet
+    return geographicHierarchy.getSnapshot().contains(zoneId)
+        || geographicZoneRepository.existsById(zoneId);
   }
 
   @Override
@@ -0,0 +1,339 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import com.google.common.collect.Maps;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openlmis.referencedata.repository.GeographicZoneRepository;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.slf4j.profiler.Profiler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-process, immutable snapshot of the geographic zone tree: parent and children of every zone,
+ * its level number and the range of its descendants. The snapshot is loaded when the service
+ * starts and replaced as a whole when zones change: changes have to be reported with
+ * {@link #invalidate()}. It is also rebuilt once it is older than the configured age, which picks
+ * up changes made by other instances or directly in the database.
+ */
+@Component
+public class GeographicHierarchy {
+
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(GeographicHierarchy.class);
+
+  @Autowired
+  private GeographicZoneRepository geographicZoneRepository;
+
+  @Value("${geographicHierarchy.maxAgeSeconds}")
+  private long maxAgeSeconds;
+
+  private final AtomicLong generation = new AtomicLong();
+  private final AtomicLong version = new AtomicLong();
+  private volatile Snapshot snapshot;
+
+  /**
+   * Returns the current snapshot of the zone tree, building it first if it is missing or
+   * outdated. The returned snapshot never changes, so it can be used for a whole request.
+   */
+  public Snapshot getSnapshot() {
+    Snapshot current = snapshot;
+
+    if (isValid(current)) {
+      return current;
+    }
+
+    return rebuild();
+  }
+
+  /**
+   * Marks the snapshot as outdated after zones have been created or changed. If a transaction is
+   * active, this happens after it commits, so the snapshot is not rebuilt from the old data.
+   */
+  public void invalidate() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+              generation.incrementAndGet();
+            }
+          });
+    } else {
+      generation.incrementAndGet();
+    }
+  }
+
+  private synchronized Snapshot rebuild() {
+    Snapshot current = snapshot;
+    if (isValid(current)) {
+      return current;
+    }
+
+    Profiler profiler = new Profiler("REBUILD_GEOGRAPHIC_HIERARCHY");
+    profiler.setLogger(XLOGGER);
+
+    // read before the data, so a change committed in the meantime makes the new snapshot outdated
+    long builtGeneration = generation.get();
+
+    profiler.start("FIND_ALL_ZONES");
+    List<Object[]> zones = geographicZoneRepository.findAllHierarchyEntries();
+
+    profiler.start("BUILD_SNAPSHOT");
+    snapshot = Snapshot.build(version.incrementAndGet(), builtGeneration, System.nanoTime(),
+        zones);
+
+    profiler.stop().log();
+    XLOGGER.debug("Built geographic hierarchy of {} zones", zones.size());
+    return snapshot;
+  }
+
+  private boolean isValid(Snapshot current) {
+    return null != current
+        && current.generation == generation.get()
+        && System.nanoTime() - current.builtAt < TimeUnit.SECONDS.toNanos(maxAgeSeconds);
+  }
+
+  /**
+   * The zone tree at one point in time. Zones are numbered in depth-first order, so the
+   * descendants of a zone are exactly the zones numbered after it up to the end of its subtree,
+   * which serves the descendant checks without keeping a set per zone.
+   */
+  public static final class Snapshot {
+
+    private static final int NONE = -1;
+
+    private final long version;
+    private final long generation;
+    private final long builtAt;
+    private final UUID[] ids;
+    private final Integer[] levelNumbers;
+    private final int[] parents;
+    private final int[][] children;
+    private final int[] subtreeEnds;
+    private final Map<UUID, Integer> indexesById;
+    private final Map<String, Integer> indexesByCode;
+
+    private Snapshot(long version, long generation, long builtAt, int size) {
+      this.version = version;
+      this.generation = generation;
+      this.builtAt = builtAt;
+      this.ids = new UUID[size];
+      this.levelNumbers = new Integer[size];
+      this.parents = new int[size];
+      this.children = new int[size][];
+      this.subtreeEnds = new int[size];
+      this.indexesById = Maps.newHashMapWithExpectedSize(size);
+      this.indexesByCode = Maps.newHashMapWithExpectedSize(size);
+    }
+
+    /**
+     * Builds a snapshot from rows of zone id, parent id, code and level number.
+     */
+    static Snapshot build(long version, long generation, long builtAt, List<Object[]> zones) {
+      Map<UUID, Object[]> rowsById = Maps.newLinkedHashMap();
+      Map<UUID, List<UUID>> childIds = Maps.newHashMap();
+      List<UUID> rootIds = new ArrayList<>();
+
+      for (Object[] row : zones) {
+        rowsById.put((UUID) row[0], row);
+      }
+
+      for (Object[] row : zones) {
+        UUID parentId = (UUID) row[1];
+        if (null == parentId || !rowsById.containsKey(parentId)) {
+          rootIds.add((UUID) row[0]);
+        } else {
+          childIds.computeIfAbsent(parentId, key -> new ArrayList<>()).add((UUID) row[0]);
+        }
+      }
+
+      Snapshot built = new Snapshot(version, generation, builtAt, rowsById.size());
+      int next = 0;
+
+      for (UUID rootId : rootIds) {
+        next = built.number(rootId, next, rowsById, childIds);
+      }
+
+      // zones which are part of a parent cycle are never reached from a root
+      for (UUID id : rowsById.keySet()) {
+        if (!built.indexesById.containsKey(id)) {
+          next = built.number(id, next, rowsById, childIds);
+        }
+      }
+
+      return built;
+    }
+
+    public long getVersion() {
+      return version;
+    }
+
+    public int size() {
+      return ids.length;
+    }
+
+    public boolean contains(UUID zoneId) {
+      return indexesById.containsKey(zoneId);
+    }
+
+    /**
+     * Returns the id of the zone with the given code, or null if there is no such zone.
+     */
+    public UUID findIdByCode(String code) {
+      Integer index = indexesByCode.get(code);
+      return null == index ? null : ids[index];
+    }
+
+    /**
+     * Returns the id of the parent of the given zone, or null if the zone is unknown or has no
+     * parent.
+     */
+    public UUID getParentId(UUID zoneId) {
+      Integer index = indexesById.get(zoneId);
+      return null == index || NONE == parents[index] ? null : ids[parents[index]];
+    }
+
+    /**
+     * Returns the level number of the given zone, or null if the zone is unknown.
+     */
+    public Integer getLevelNumber(UUID zoneId) {
+      Integer index = indexesById.get(zoneId);
+      return null == index ? null : levelNumbers[index];
+    }
+
+    /**
+     * Returns ids of the direct children of the given zone.
+     */
+    public Set<UUID> getChildIds(UUID zoneId) {
+      Integer index = indexesById.get(zoneId);
+      if (null == index) {
+        return Collections.emptySet();
+      }
+
+      Set<UUID> result = new HashSet<>();
+      for (int child : children[index]) {
+        result.add(ids[child]);
+      }
+
+      return result;
+    }
+
+    /**
+     * Returns ids of all descendants of the given zone, not including the zone itself.
+     */
+    public Set<UUID> getDescendantIds(UUID zoneId) {
+      Integer index = indexesById.get(zoneId);
+      if (null == index) {
+        return Collections.emptySet();
+      }
+
+      return new HashSet<>(Arrays.asList(ids).subList(index + 1, subtreeEnds[index]));
+    }
+
+    /**
+     * Returns ids of all ancestors of the given zone, starting with its parent.
+     */
+    public List<UUID> getAncestorIds(UUID zoneId) {
+      Integer index = indexesById.get(zoneId);
+      if (null == index) {
+        return Collections.emptyList();
+      }
+
+      List<UUID> result = new ArrayList<>();
+      for (int ancestor = parents[index]; NONE != ancestor; ancestor = parents[ancestor]) {
+        result.add(ids[ancestor]);
+      }
+
+      return result;
+    }
+
+    /**
+     * Checks whether the given zone is the ancestor zone itself or one of its descendants.
+     */
+    public boolean isInHierarchy(UUID ancestorId, UUID zoneId) {
+      Integer ancestor = indexesById.get(ancestorId);
+      Integer zone = indexesById.get(zoneId);
+
+      return null != ancestor && null != zone
+          && ancestor <= zone && zone < subtreeEnds[ancestor];
+    }
+
+    // numbers the subtree of the given zone iteratively, so deep trees can't overflow the stack
+    private int number(UUID rootId, int first, Map<UUID, Object[]> rowsById,
+        Map<UUID, List<UUID>> childIds) {
+      Deque<int[]> open = new ArrayDeque<>();
+      int next = first;
+
+      // entries hold the zone index, the next child to visit and the number of children added
+      open.push(new int[]{add(rootId, NONE, next++, rowsById, childIds), 0, 0});
+
+      while (!open.isEmpty()) {
+        int[] entry = open.peek();
+        int index = entry[0];
+        List<UUID> pending = childIds.getOrDefault(ids[index], Collections.emptyList());
+
+        if (entry[1] < pending.size()) {
+          UUID childId = pending.get(entry[1]++);
+
+          // a child seen before closes a parent cycle, which is cut here
+          if (!indexesById.containsKey(childId)) {
+            children[index][entry[2]++] = next;
+            open.push(new int[]{add(childId, index, next++, rowsById, childIds), 0, 0});
+          }
+        } else {
+          if (entry[2] < children[index].length) {
+            children[index] = Arrays.copyOf(children[index], entry[2]);
+          }
+
+          subtreeEnds[index] = next;
+          open.pop();
+        }
+      }
+
+      return next;
+    }
+
+    private int add(UUID id, int parent, int index, Map<UUID, Object[]> rowsById,
+        Map<UUID, List<UUID>> childIds) {
+      Object[] row = rowsById.get(id);
+
+      ids[index] = id;
+      levelNumbers[index] = (Integer) row[3];
+      parents[index] = parent;
+      children[index] = new int[childIds.getOrDefault(id, Collections.emptyList()).size()];
+      indexesById.put(id, index);
+      indexesByCode.put((String) row[2], index);
+
+      return index;
+    }
+  }
+}
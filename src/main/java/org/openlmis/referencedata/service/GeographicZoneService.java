@@ -15,7 +15,6 @@
 
 package org.openlmis.referencedata.service;
 
-import com.google.common.collect.Sets;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -50,6 +49,9 @@ public class GeographicZoneService {
   @Autowired
   private GeographicLevelRepository geographicLevelRepository;
 
+  @Autowired
+  private GeographicHierarchy geographicHierarchy;
+
   /**
    * Method returns page of geographic zones with matched parameters.
    * The result will be ordered using sort parameter from pageable.
@@ -85,21 +87,20 @@ public class GeographicZoneService {
   }
 
   /**
-   * Retrieves recursively all geographic zone IDs that are descendants of the given one.
+   * Retrieves all geographic zone IDs that are descendants of the given one. They are read from
+   * the in-memory geographic hierarchy, unless the zone is not there yet.
    *
    * @param root root of zone hierarchy
    * @return collection with all descendant zone IDs.
    */
   public Set<UUID> getAllZonesInHierarchy(UUID root) {
-    Set<UUID> children = geographicZoneRepository.findIdsByParent(root);
-    Set<UUID> result = Sets.newHashSet(children);
+    GeographicHierarchy.Snapshot hierarchy = geographicHierarchy.getSnapshot();
 
-    for (UUID zone : children) {
-      Set<UUID> descendants = getAllZonesInHierarchy(zone);
-      result.addAll(descendants);
+    if (hierarchy.contains(root)) {
+      return hierarchy.getDescendantIds(root);
     }
 
-    return result;
+    return geographicZoneRepository.findDescendantIds(root);
   }
 
   private GeographicZone findGeographicZone(Optional<UUID> parentId) {
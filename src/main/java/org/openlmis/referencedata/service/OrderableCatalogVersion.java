@@ -0,0 +1,140 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Version of the orderable catalog, derived from the database: the latest last updated date of
+ * all orderables together with the number of orderable and program orderable rows. Every instance
+ * computes the same version for the same data, so it can be used as the ETag of orderable lists
+ * behind a load balancer. Orderable lists use it to answer conditional requests with 304 without
+ * searching orderables. The version is kept in memory and read again once it is older than the
+ * configured age, or right after this instance has committed a change of orderables.
+ */
+@Component
+public class OrderableCatalogVersion {
+
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(OrderableCatalogVersion.class);
+
+  private static final String GMT = "GMT";
+
+  static final String SELECT_CATALOG_STATE_SQL = "SELECT max(o.lastupdated) AS lastupdated,"
+      + " count(*) AS orderables,"
+      + " (SELECT count(*) FROM referencedata.program_orderables) AS programorderables"
+      + " FROM referencedata.orderables o;";
+
+  @Autowired
+  private JdbcTemplate template;
+
+  @Value("${orderableCatalogVersion.revalidateAfterSeconds}")
+  private long revalidateAfterSeconds;
+
+  private volatile Snapshot snapshot;
+
+  /**
+   * Returns the current version of the catalog, reading it from the database if it is not known
+   * or is too old.
+   */
+  public Snapshot getSnapshot() {
+    Snapshot current = snapshot;
+    if (null != current && !isExpired(current)) {
+      return current;
+    }
+
+    return revalidate();
+  }
+
+  /**
+   * Drops the known version after orderables, program orderables or trade items have been saved,
+   * so that the next request reads it from the database. If a transaction is active, this happens
+   * after it commits, so that the version is not read before the change is visible.
+   */
+  public void orderablesChanged() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+              expire();
+            }
+          });
+    } else {
+      expire();
+    }
+  }
+
+  private synchronized Snapshot revalidate() {
+    Snapshot current = snapshot;
+    if (null != current && !isExpired(current)) {
+      return current;
+    }
+
+    XLOGGER.debug("Revalidating orderable catalog version");
+    snapshot = template.queryForObject(SELECT_CATALOG_STATE_SQL,
+        (rs, rowNum) -> toSnapshot(rs));
+    return snapshot;
+  }
+
+  private synchronized void expire() {
+    snapshot = null;
+  }
+
+  private boolean isExpired(Snapshot current) {
+    return System.nanoTime() - current.getLoadedAt()
+        > TimeUnit.SECONDS.toNanos(revalidateAfterSeconds);
+  }
+
+  private static Snapshot toSnapshot(ResultSet rs) throws SQLException {
+    Timestamp timestamp = rs.getTimestamp("lastupdated");
+    ZonedDateTime lastUpdated = null == timestamp
+        ? null
+        : ZonedDateTime.of(timestamp.toLocalDateTime(), ZoneId.of(GMT));
+
+    String version = (null == lastUpdated ? 0 : lastUpdated.toInstant().toEpochMilli())
+        + "-" + rs.getLong("orderables")
+        + "-" + rs.getLong("programorderables");
+
+    return new Snapshot(version, lastUpdated, System.nanoTime());
+  }
+
+  @Getter
+  @AllArgsConstructor
+  public static final class Snapshot {
+    private final String version;
+    private final ZonedDateTime lastUpdated;
+    private final long loadedAt;
+
+    public String getETag() {
+      return version;
+    }
+  }
+}
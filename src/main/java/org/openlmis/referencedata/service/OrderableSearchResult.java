@@ -0,0 +1,41 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import java.time.ZonedDateTime;
+import java.util.function.Supplier;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.openlmis.referencedata.domain.Orderable;
+import org.springframework.data.domain.Page;
+
+/**
+ * The latest last updated date of orderables matching a search and a page of them. The page is
+ * loaded only when it is requested, so answering a conditional request does not load orderables.
+ */
+@AllArgsConstructor
+public final class OrderableSearchResult {
+
+  @Getter
+  private final ZonedDateTime lastUpdated;
+
+  private final Supplier<Page<Orderable>> pageSupplier;
+
+  public Page<Orderable> getPage() {
+    return pageSupplier.get();
+  }
+
+}
@@ -15,6 +15,13 @@
 
 package org.openlmis.referencedata.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.sql.Timestamp;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
@@ -25,17 +32,23 @@ import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import javax.validation.constraints.NotNull;
 import org.openlmis.referencedata.domain.Orderable;
+import org.openlmis.referencedata.domain.VersionIdentity;
 import org.openlmis.referencedata.dto.OrderableDto;
+import org.openlmis.referencedata.repository.OrderableIdentitiesPage;
 import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.repository.custom.OrderableRepositoryCustom.SearchParams;
 import org.openlmis.referencedata.service.export.ExportableDataService;
+import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.web.QueryOrderableSearchParams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.profiler.Profiler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class OrderableService implements ExportableDataService<OrderableDto> {
@@ -47,6 +60,12 @@ public class OrderableService implements ExportableDataService<OrderableDto> {
   @Autowired
   private OrderableRepository orderableRepository;
 
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Value("${orderables.stream.batchSize}")
+  private int streamBatchSize;
+
   /**
    * Method returns all orderables with matched parameters.
    *
@@ -82,6 +101,45 @@ public class OrderableService implements ExportableDataService<OrderableDto> {
     return orderableRepository.search(queryMap, pageable);
   }
 
+  /**
+   * Method returns the latest last updated date out of all orderables with matched parameters and
+   * their page, which is loaded only when it is requested. Searches by other parameters than ids
+   * read the page identities, the total number and the date with a single query.
+   *
+   * @param queryMap request parameters (code, name, program, ids, tradeItemId).
+   * @param pageable the page to get.
+   * @return the latest last updated date and the page of orderables found.
+   */
+  public OrderableSearchResult searchOrderables(@NotNull QueryOrderableSearchParams queryMap,
+                                                Pageable pageable, Profiler profiler) {
+    if (queryMap.isEmpty() || !queryMap.getIds().isEmpty()) {
+      ZonedDateTime lastUpdated = getLatestLastUpdatedDate(queryMap, profiler);
+      return new OrderableSearchResult(lastUpdated, () -> searchOrderables(queryMap, pageable));
+    }
+
+    return searchOrderablesByParams(queryMap, pageable, profiler);
+  }
+
+  /**
+   * Method returns the latest last updated date out of all orderables with matched parameters and
+   * their page, which is loaded only when it is requested. The page identities, the total number
+   * and the date are read with a single query.
+   *
+   * @param searchParams search parameters (code, name, program codes, identities).
+   * @param pageable the page to get.
+   * @return the latest last updated date and the page of orderables found.
+   */
+  public OrderableSearchResult searchOrderablesByParams(@NotNull SearchParams searchParams,
+                                                        Pageable pageable, Profiler profiler) {
+    profiler.start("SEARCH_IDENTITIES_WITH_LAST_UPDATED");
+    OrderableIdentitiesPage identitiesPage = orderableRepository
+        .searchIdentities(searchParams, pageable);
+
+    return new OrderableSearchResult(identitiesPage.getLastUpdated(), () -> Pagination.getPage(
+        orderableRepository.findAllByIdentities(identitiesPage.getIdentities()),
+        pageable, identitiesPage.getTotalElements()));
+  }
+
   /**
    * Method returns the latest last updated date out of all orderables with matched parameters.
    *
@@ -121,6 +179,86 @@ public class OrderableService implements ExportableDataService<OrderableDto> {
     return null;
   }
 
+  /**
+   * Writes orderables with matched parameters to the output stream as newline-delimited JSON, one
+   * orderable per line. Orderables are read and written in batches, which are flushed to the
+   * stream one by one, so memory use does not depend on the size of the catalog.
+   *
+   * @param searchParams search parameters (code, name, program codes, trade item ids).
+   * @param outputStream stream the orderables are written to.
+   * @return the number of written orderables.
+   */
+  @Transactional(readOnly = true)
+  public long writeNdjson(@NotNull SearchParams searchParams, OutputStream outputStream)
+      throws IOException {
+    ObjectWriter writer = createOrderableWriter();
+
+    try (JsonGenerator generator = createGenerator(outputStream)) {
+      // lines are separated explicitly below
+      generator.setRootValueSeparator(null);
+
+      return orderableRepository.scroll(searchParams, streamBatchSize, orderables ->
+          writeBatch(writer, generator, orderables, true));
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  /**
+   * Writes orderables with the given identities to the output stream as a JSON array, in the
+   * order of the identities. Identities without an orderable are skipped. Orderables are read and
+   * written in batches, without counting or sorting them, so memory use does not depend on the
+   * number of identities.
+   *
+   * @param identities orderable ids with version numbers.
+   * @param outputStream stream the orderables are written to.
+   * @return the number of written orderables.
+   */
+  @Transactional(readOnly = true)
+  public long writeJsonByIdentities(@NotNull List<VersionIdentity> identities,
+      OutputStream outputStream) throws IOException {
+    ObjectWriter writer = createOrderableWriter();
+
+    try (JsonGenerator generator = createGenerator(outputStream)) {
+      generator.writeStartArray();
+      long written = orderableRepository.scrollByIdentities(identities, streamBatchSize,
+          orderables -> writeBatch(writer, generator, orderables, false));
+      generator.writeEndArray();
+
+      return written;
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  private ObjectWriter createOrderableWriter() {
+    return objectMapper
+        .writerFor(OrderableDto.class)
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+  }
+
+  private JsonGenerator createGenerator(OutputStream outputStream) throws IOException {
+    JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    return generator;
+  }
+
+  private void writeBatch(ObjectWriter writer, JsonGenerator generator,
+      List<Orderable> orderables, boolean newlineDelimited) {
+    try {
+      for (Orderable orderable : orderables) {
+        writer.writeValue(generator, OrderableDto.newInstance(orderable));
+        if (newlineDelimited) {
+          generator.writeRaw('\n');
+        }
+      }
+      generator.flush();
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
   @Override
   public List<OrderableDto> findAllExportableItems() {
     List<Orderable> orderables = orderableRepository.findAll();
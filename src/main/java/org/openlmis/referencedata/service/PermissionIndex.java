@@ -0,0 +1,278 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openlmis.referencedata.repository.RightAssignmentRepository;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-process index of right assignments, keyed by user. Right names, facility IDs and program IDs
+ * are interned to ints, and the assignments of a user are kept as a bit set of rights plus a
+ * sorted array of (right, facility, program) triples packed into longs, so a check is a bit test
+ * or a binary search. Users are loaded from the database on first use and dropped from the index
+ * whenever their right assignments change. They are also loaded again once their entry is older
+ * than the configured age, which picks up changes made by other instances or directly in the
+ * database. If the interned values would not fit into a packed key, the index starts over.
+ */
+@Component
+@SuppressWarnings("PMD.TooManyMethods")
+public class PermissionIndex {
+
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(PermissionIndex.class);
+
+  private static final int ENTITY_BITS = 24;
+  private static final int MAX_ENTITY_ID = (1 << ENTITY_BITS) - 1;
+  private static final int MAX_RIGHT_ID = (1 << 15) - 1;
+  private static final int NONE = 0;
+
+  @Autowired
+  private RightAssignmentRepository rightAssignmentRepository;
+
+  @Value("${permissionIndex.maxUsers}")
+  private int maxUsers;
+
+  @Value("${permissionIndex.maxAgeSeconds}")
+  private long maxAgeSeconds;
+
+  private volatile Dictionary dictionary = new Dictionary();
+  private final Map<UUID, UserPermissions> users = new ConcurrentHashMap<>();
+  private final AtomicLong invalidations = new AtomicLong();
+
+  /**
+   * Checks if the user has the right, regardless of facility and program.
+   */
+  public boolean hasRight(UUID userId, String rightName) {
+    UserPermissions permissions = getPermissions(userId);
+    if (null == permissions) {
+      return rightAssignmentRepository.existsByUserIdAndRightName(userId, rightName);
+    }
+
+    Integer right = idOf(permissions.dictionary.rightIds, rightName);
+    return null != right && permissions.hasRight(right);
+  }
+
+  /**
+   * Checks if the user has the right at the facility, for any or no program.
+   */
+  public boolean hasRight(UUID userId, String rightName, UUID facilityId) {
+    UserPermissions permissions = getPermissions(userId);
+    if (null == permissions) {
+      return rightAssignmentRepository.existsByUserIdAndAndRightNameAndFacilityId(
+          userId, rightName, facilityId);
+    }
+
+    Integer right = idOf(permissions.dictionary.rightIds, rightName);
+    Integer facility = idOf(permissions.dictionary.facilityIds, facilityId);
+    return null != right && null != facility && permissions.hasRight(right, facility);
+  }
+
+  /**
+   * Checks if the user has the right at the facility for the program.
+   */
+  public boolean hasRight(UUID userId, String rightName, UUID facilityId, UUID programId) {
+    UserPermissions permissions = getPermissions(userId);
+    if (null == permissions) {
+      return rightAssignmentRepository.existsByUserIdAndAndRightNameAndFacilityIdAndProgramId(
+          userId, rightName, facilityId, programId);
+    }
+
+    Integer right = idOf(permissions.dictionary.rightIds, rightName);
+    Integer facility = idOf(permissions.dictionary.facilityIds, facilityId);
+    Integer program = idOf(permissions.dictionary.programIds, programId);
+    return null != right && null != facility && null != program
+        && permissions.hasRight(right, facility, program);
+  }
+
+  /**
+   * Drops the given users from the index. If a transaction is active, this happens after it
+   * commits, so that the next check loads the committed right assignments.
+   */
+  public void invalidate(Collection<UUID> userIds) {
+    runAfterCommit(() -> {
+      invalidations.incrementAndGet();
+      userIds.forEach(users::remove);
+    });
+  }
+
+  /**
+   * Drops all users from the index. If a transaction is active, this happens after it commits.
+   */
+  public void invalidateAll() {
+    runAfterCommit(() -> {
+      invalidations.incrementAndGet();
+      users.clear();
+    });
+  }
+
+  private UserPermissions getPermissions(UUID userId) {
+    UserPermissions permissions = users.get(userId);
+    if (null != permissions && isValid(permissions)) {
+      return permissions;
+    }
+
+    long stamp = invalidations.get();
+    permissions = load(userId);
+    if (null == permissions) {
+      return null;
+    }
+
+    if (users.size() >= maxUsers) {
+      reset();
+    }
+    users.put(userId, permissions);
+
+    // an invalidation could have happened while loading, the loaded data may be stale
+    if (stamp != invalidations.get()) {
+      users.remove(userId, permissions);
+    }
+
+    return permissions;
+  }
+
+  private boolean isValid(UserPermissions permissions) {
+    return System.nanoTime() - permissions.loadedAt < TimeUnit.SECONDS.toNanos(maxAgeSeconds);
+  }
+
+  private UserPermissions load(UUID userId) {
+    long loadedAt = System.nanoTime();
+    List<Object[]> rows = rightAssignmentRepository.findRightAssignmentsByUser(userId);
+    Dictionary current = dictionary;
+
+    BitSet rights = new BitSet();
+    long[] keys = new long[rows.size()];
+    for (int i = 0; i < keys.length; ++i) {
+      Object[] row = rows.get(i);
+      int right = intern(current.rightIds, current.rightSequence, (String) row[0],
+          MAX_RIGHT_ID);
+      int facility = intern(current.facilityIds, current.facilitySequence, (UUID) row[1],
+          MAX_ENTITY_ID);
+      int program = intern(current.programIds, current.programSequence, (UUID) row[2],
+          MAX_ENTITY_ID);
+
+      if (right < 0 || facility < 0 || program < 0) {
+        XLOGGER.warn("Permission index is full, checking rights of user {} in database", userId);
+        reset();
+        return null;
+      }
+
+      rights.set(right);
+      keys[i] = pack(right, facility, program);
+    }
+
+    Arrays.sort(keys);
+    return new UserPermissions(current, rights, keys, loadedAt);
+  }
+
+  /**
+   * Drops all users and starts new interned values. Entries loaded with the previous values keep
+   * a reference to them, so checks running at the same time stay consistent.
+   */
+  private void reset() {
+    invalidations.incrementAndGet();
+    dictionary = new Dictionary();
+    users.clear();
+  }
+
+  private <K> int intern(Map<K, Integer> ids, AtomicInteger sequence, K key, int max) {
+    if (null == key) {
+      return NONE;
+    }
+
+    int id = ids.computeIfAbsent(key, any -> sequence.incrementAndGet());
+    return id > max ? -1 : id;
+  }
+
+  private <K> Integer idOf(Map<K, Integer> ids, K key) {
+    return null == key ? null : ids.get(key);
+  }
+
+  private void runAfterCommit(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+              action.run();
+            }
+          });
+    } else {
+      action.run();
+    }
+  }
+
+  private static long pack(int right, int facility, int program) {
+    return (long) right << (2 * ENTITY_BITS) | (long) facility << ENTITY_BITS | program;
+  }
+
+  private static final class Dictionary {
+    private final Map<String, Integer> rightIds = new ConcurrentHashMap<>();
+    private final Map<UUID, Integer> facilityIds = new ConcurrentHashMap<>();
+    private final Map<UUID, Integer> programIds = new ConcurrentHashMap<>();
+    private final AtomicInteger rightSequence = new AtomicInteger();
+    private final AtomicInteger facilitySequence = new AtomicInteger();
+    private final AtomicInteger programSequence = new AtomicInteger();
+  }
+
+  private static final class UserPermissions {
+    private final Dictionary dictionary;
+    private final BitSet rights;
+    private final long[] keys;
+    private final long loadedAt;
+
+    UserPermissions(Dictionary dictionary, BitSet rights, long[] keys, long loadedAt) {
+      this.dictionary = dictionary;
+      this.rights = rights;
+      this.keys = keys;
+      this.loadedAt = loadedAt;
+    }
+
+    boolean hasRight(int right) {
+      return rights.get(right);
+    }
+
+    boolean hasRight(int right, int facility) {
+      long from = pack(right, facility, NONE);
+      int index = Arrays.binarySearch(keys, from);
+      if (index >= 0) {
+        return true;
+      }
+
+      int insertionPoint = -index - 1;
+      return insertionPoint < keys.length
+          && keys[insertionPoint] >>> ENTITY_BITS == from >>> ENTITY_BITS;
+    }
+
+    boolean hasRight(int right, int facility, int program) {
+      return Arrays.binarySearch(keys, pack(right, facility, program)) >= 0;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import java.util.UUID;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Describes a single change that requires right assignments to be regenerated. The type of the
+ * changed entity determines which users could be affected by the change, and therefore which
+ * part of the right assignments table has to be recomputed.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class RightAssignmentChange {
+
+  public enum Type {
+    ROLE,
+    FACILITY,
+    SUPERVISORY_NODE,
+    REQUISITION_GROUP
+  }
+
+  private final Type type;
+  private final UUID entityId;
+
+  public static RightAssignmentChange ofRole(UUID roleId) {
+    return new RightAssignmentChange(Type.ROLE, roleId);
+  }
+
+  public static RightAssignmentChange ofFacility(UUID facilityId) {
+    return new RightAssignmentChange(Type.FACILITY, facilityId);
+  }
+
+  public static RightAssignmentChange ofSupervisoryNode(UUID supervisoryNodeId) {
+    return new RightAssignmentChange(Type.SUPERVISORY_NODE, supervisoryNodeId);
+  }
+
+  public static RightAssignmentChange ofRequisitionGroup(UUID requisitionGroupId) {
+    return new RightAssignmentChange(Type.REQUISITION_GROUP, requisitionGroupId);
+  }
+
+}
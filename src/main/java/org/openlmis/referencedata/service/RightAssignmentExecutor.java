@@ -23,6 +23,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 @Configuration
 @EnableAsync
@@ -59,4 +60,18 @@ public class RightAssignmentExecutor {
 
     return threadPoolTaskExecutor;
   }
+
+  /**
+   * Scheduler for coalesced right assignment regeneration runs. A single thread guarantees that
+   * regeneration runs never overlap.
+   */
+  @Bean
+  @Qualifier("rightAssignmentTaskScheduler")
+  public ThreadPoolTaskScheduler rightAssignmentTaskScheduler() {
+    ThreadPoolTaskScheduler threadPoolTaskScheduler = new ThreadPoolTaskScheduler();
+    threadPoolTaskScheduler.setPoolSize(1);
+    threadPoolTaskScheduler.setThreadNamePrefix("right-assignments-");
+
+    return threadPoolTaskScheduler;
+  }
 }
@@ -0,0 +1,199 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Coalesces right assignment regeneration requests. The first change schedules a run after the
+ * configured window; every change that arrives before that run starts is merged into it. Changes
+ * that arrive while a run is in progress schedule the next run, so the last change is never
+ * lost. Runs are executed one at a time on the {@code rightAssignmentTaskScheduler}. A failed
+ * run puts its changes back into the queue to be retried with the next run, which is delayed
+ * exponentially after each consecutive failure. Once the configured number of attempts is used
+ * up, the changes are kept and the next runs rebuild all right assignments until one succeeds.
+ */
+@Component
+public class RightAssignmentRegenerationScheduler implements MeterBinder {
+
+  private static final XLogger XLOGGER =
+      XLoggerFactory.getXLogger(RightAssignmentRegenerationScheduler.class);
+
+  static final String QUEUE_DEPTH_METRIC = "rightAssignments.regeneration.queue.depth";
+  static final String LAST_DURATION_METRIC = "rightAssignments.regeneration.last.duration";
+  static final String LAST_COMPLETION_METRIC = "rightAssignments.regeneration.last.completion";
+  static final String FAILED_ATTEMPTS_METRIC = "rightAssignments.regeneration.failed.attempts";
+  static final String FULL_REBUILD_PENDING_METRIC =
+      "rightAssignments.regeneration.full.rebuild.pending";
+
+  @Autowired
+  private RightAssignmentService rightAssignmentService;
+
+  @Autowired
+  @Qualifier("rightAssignmentTaskScheduler")
+  private TaskScheduler taskScheduler;
+
+  @Value("${rightAssignments.coalesce.windowMillis}")
+  private long windowMillis;
+
+  @Value("${rightAssignments.retry.maxAttempts}")
+  private int maxAttempts;
+
+  private final Set<RightAssignmentChange> pendingChanges = new LinkedHashSet<>();
+  private boolean runScheduled;
+  private int failedAttempts;
+  private long retryNotBefore;
+  private boolean fullRebuildRequired;
+
+  private volatile long lastDurationMillis;
+  private volatile long lastCompletionMillis;
+
+  /**
+   * Adds the change to the pending queue and makes sure a regeneration run is scheduled.
+   *
+   * @param change the change that requires right assignments to be regenerated
+   */
+  public void schedule(RightAssignmentChange change) {
+    XLOGGER.entry(change);
+    synchronized (this) {
+      pendingChanges.add(change);
+      scheduleRunIfNeeded();
+    }
+    XLOGGER.exit();
+  }
+
+  /**
+   * Returns the number of distinct changes waiting for the next regeneration run.
+   */
+  public synchronized int getQueueDepth() {
+    return pendingChanges.size();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder(QUEUE_DEPTH_METRIC, this, RightAssignmentRegenerationScheduler::getQueueDepth)
+        .description("Number of changes waiting for right assignment regeneration")
+        .register(registry);
+    Gauge.builder(LAST_DURATION_METRIC, this, scheduler -> scheduler.lastDurationMillis)
+        .description("Duration of the last right assignment regeneration run")
+        .baseUnit("milliseconds")
+        .register(registry);
+    Gauge.builder(LAST_COMPLETION_METRIC, this, scheduler -> scheduler.lastCompletionMillis)
+        .description("Completion time of the last right assignment regeneration run")
+        .baseUnit("milliseconds since epoch")
+        .register(registry);
+    Gauge.builder(FAILED_ATTEMPTS_METRIC, this,
+        RightAssignmentRegenerationScheduler::getFailedAttempts)
+        .description("Number of consecutive failed right assignment regeneration runs")
+        .register(registry);
+    Gauge.builder(FULL_REBUILD_PENDING_METRIC, this,
+        scheduler -> scheduler.isFullRebuildRequired() ? 1 : 0)
+        .description("Whether a full rebuild is pending after all regeneration attempts failed")
+        .register(registry);
+  }
+
+  synchronized int getFailedAttempts() {
+    return failedAttempts;
+  }
+
+  synchronized boolean isFullRebuildRequired() {
+    return fullRebuildRequired;
+  }
+
+  void run() {
+    List<RightAssignmentChange> changes;
+    boolean fullRebuild;
+    synchronized (this) {
+      runScheduled = false;
+      if (System.currentTimeMillis() < retryNotBefore) {
+        // scheduled by a change that arrived while backing off after a failure
+        scheduleRunIfNeeded();
+        return;
+      }
+
+      changes = new ArrayList<>(pendingChanges);
+      pendingChanges.clear();
+      fullRebuild = fullRebuildRequired;
+    }
+
+    if (changes.isEmpty() && !fullRebuild) {
+      return;
+    }
+
+    long start = System.currentTimeMillis();
+    try {
+      if (fullRebuild) {
+        rightAssignmentService.rebuildRightAssignments(changes);
+      } else {
+        rightAssignmentService.regenerateRightAssignments(changes);
+      }
+    } catch (RuntimeException ex) {
+      handleFailure(changes, ex);
+      return;
+    }
+
+    long end = System.currentTimeMillis();
+    synchronized (this) {
+      failedAttempts = 0;
+      retryNotBefore = 0;
+      if (fullRebuild) {
+        fullRebuildRequired = false;
+      }
+    }
+    lastDurationMillis = end - start;
+    lastCompletionMillis = end;
+  }
+
+  private synchronized void handleFailure(List<RightAssignmentChange> changes,
+      RuntimeException ex) {
+    ++failedAttempts;
+    pendingChanges.addAll(changes);
+
+    if (failedAttempts >= maxAttempts && !fullRebuildRequired) {
+      XLOGGER.error("Right assignment regeneration failed {} times, falling back to full rebuild",
+          failedAttempts);
+      fullRebuildRequired = true;
+    }
+
+    long backoffMillis = windowMillis << Math.min(failedAttempts, Math.min(maxAttempts, 20));
+    XLOGGER.error("Right assignment regeneration failed, changes will be retried in {} ms",
+        backoffMillis, ex);
+    retryNotBefore = System.currentTimeMillis() + backoffMillis;
+    scheduleRunIfNeeded();
+  }
+
+  private void scheduleRunIfNeeded() {
+    if (!runScheduled && (!pendingChanges.isEmpty() || fullRebuildRequired)) {
+      runScheduled = true;
+      long runAt = Math.max(System.currentTimeMillis() + windowMillis, retryNotBefore);
+      taskScheduler.schedule(this::run, new Date(runAt));
+    }
+  }
+}
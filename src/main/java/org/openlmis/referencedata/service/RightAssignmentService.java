@@ -15,22 +15,33 @@
 
 package org.openlmis.referencedata.service;
 
-import com.google.common.collect.Iterables;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
+import java.sql.Array;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.Future;
 import java.util.stream.Collectors;
-import org.apache.commons.lang3.tuple.MutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.openlmis.referencedata.dto.RightAssignmentDeltaDto;
 import org.openlmis.referencedata.dto.RightAssignmentDto;
 import org.openlmis.referencedata.util.Resource2Db;
+import org.openlmis.referencedata.util.TransactionUtils;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.slf4j.profiler.Profiler;
@@ -38,11 +49,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StreamUtils;
 
 /**
@@ -51,25 +65,90 @@ import org.springframework.util.StreamUtils;
  * right assignments. This component only runs when the "refresh-db" Spring profile is set.
  */
 @Service
+@SuppressWarnings("PMD.TooManyMethods")
 public class RightAssignmentService {
 
   private static final XLogger XLOGGER = XLoggerFactory.getXLogger(RightAssignmentService.class);
 
   private static final String USER_ID = "userid";
   private static final String RIGHT_NAME = "rightname";
+  private static final String FACILITY_ID = "facilityid";
+  private static final String PROGRAM_ID = "programid";
+  private static final String SUPERVISORY_NODE_ID = "supervisorynodeid";
   private static final String RIGHT_ASSIGNMENTS_PATH = "classpath:db/right-assignments/";
 
+  static final String TABLE_NAME = "referencedata.right_assignments";
+  static final String SHADOW_TABLE_NAME = "referencedata.right_assignments_shadow";
   static final String DELETE_SQL = "DELETE FROM referencedata.right_assignments;";
+  static final String COUNT_SQL = "SELECT COUNT(*) FROM referencedata.right_assignments;";
+  static final String SELECT_FOR_USERS_SQL = "SELECT id, userid, rightname, facilityid, programid"
+      + " FROM referencedata.right_assignments WHERE userid = ANY(?);";
+  static final String DELETE_BY_IDS_SQL =
+      "DELETE FROM referencedata.right_assignments WHERE id = ANY(?);";
+  static final String SUPERVISORY_NODE_EXISTS_SQL =
+      "SELECT EXISTS (SELECT 1 FROM referencedata.supervisory_nodes WHERE id = ?);";
+  static final String REQUISITION_GROUP_EXISTS_SQL =
+      "SELECT EXISTS (SELECT 1 FROM referencedata.requisition_groups WHERE id = ?);";
 
   @Value(value = RIGHT_ASSIGNMENTS_PATH + "get_right_assignments.sql")
   private Resource rightAssignmentsResource;
 
-  @Value(value = RIGHT_ASSIGNMENTS_PATH + "get_all_supervised_facilities_from_node.sql")
+  @Value(value = RIGHT_ASSIGNMENTS_PATH + "get_right_assignments_for_users.sql")
+  private Resource userRightAssignmentsResource;
+
+  @Value(value = RIGHT_ASSIGNMENTS_PATH + "get_supervised_facilities_for_nodes.sql")
   private Resource supervisedFacilitiesResource;
 
+  @Value(value = RIGHT_ASSIGNMENTS_PATH + "get_users_affected_by_role.sql")
+  private Resource roleAffectedUsersResource;
+
+  @Value(value = RIGHT_ASSIGNMENTS_PATH + "get_users_affected_by_facility.sql")
+  private Resource facilityAffectedUsersResource;
+
+  @Value(value = RIGHT_ASSIGNMENTS_PATH + "get_users_affected_by_supervision.sql")
+  private Resource supervisionAffectedUsersResource;
+
+  @Value(value = RIGHT_ASSIGNMENTS_PATH + "get_users_with_supervision_roles.sql")
+  private Resource supervisionRoleUsersResource;
+
+  @Value(value = RIGHT_ASSIGNMENTS_PATH + "create_right_assignments_shadow.sql")
+  private Resource createShadowTableResource;
+
+  @Value(value = RIGHT_ASSIGNMENTS_PATH + "swap_right_assignments_shadow.sql")
+  private Resource swapShadowTableResource;
+
+  @Value(value = RIGHT_ASSIGNMENTS_PATH + "start_right_assignments_write_log.sql")
+  private Resource startWriteLogResource;
+
+  @Value(value = RIGHT_ASSIGNMENTS_PATH + "stop_right_assignments_write_log.sql")
+  private Resource stopWriteLogResource;
+
+  @Value(value = RIGHT_ASSIGNMENTS_PATH + "validate_right_assignments_constraints.sql")
+  private Resource validateConstraintsResource;
+
+  @Value("${rightAssignments.rebuild.shadowTable}")
+  private boolean shadowTableRebuild;
+
+  @Value("${rightAssignments.delta.maxAffectedUsers}")
+  private int maxAffectedUsers;
+
+  @Value("${rightAssignments.delta.historySize}")
+  private int historySize;
+
   @Autowired
   private JdbcTemplate template;
 
+  @Autowired
+  private TransactionUtils transactionUtils;
+
+  @Autowired
+  private PermissionIndex permissionIndex;
+
+  @Autowired
+  private UserPermissionVersionService userPermissionVersionService;
+
+  private final Deque<RightAssignmentDeltaDto> recentDeltas = new ConcurrentLinkedDeque<>();
+
   /**
    * Re-generates right assignments. This operation needs to be transactional so that dropping 
    * and re-generating is one transaction. The isolation level is specified to READ_COMMITTED, 
@@ -85,87 +164,343 @@ public class RightAssignmentService {
     profiler.setLogger(XLOGGER);
     XLOGGER.entry();
 
-    // Drop existing rows; we are regenerating from scratch
-    profiler.start("DROP_RIGHT_ASSIGNMENTS");
-    template.update(DELETE_SQL);
+    long start = System.currentTimeMillis();
+    rebuildRightAssignments(Collections.emptyList(), profiler, start);
+
+    XLOGGER.exit();
+    profiler.stop().log();
+    return new AsyncResult<>(null);
+  }
+
+  /**
+   * Re-generates only the right assignments of users that could be affected by the given
+   * changes. The current right assignments of those users are compared with freshly computed
+   * ones, and only the difference is deleted and inserted, in one transaction. Users outside of
+   * the scope of the changes keep their rows untouched. If the number of affected users exceeds
+   * the configured limit, a full rebuild is performed instead, as it is cheaper at that point.
+   * Runs on the calling thread; callers are expected to go through
+   * {@link RightAssignmentRegenerationScheduler} which coalesces bursts of changes into one run.
+   *
+   * @param changes the changes that caused the regeneration
+   */
+  @Transactional(isolation = Isolation.READ_COMMITTED)
+  public void regenerateRightAssignments(Collection<RightAssignmentChange> changes) {
+    Profiler profiler = new Profiler("REGENERATE_RIGHT_ASSIGNMENTS_DELTA");
+    profiler.setLogger(XLOGGER);
+    XLOGGER.entry(changes);
 
-    // Get a right assignment matrix from database
-    profiler.start("GET_INTERMEDIATE_RIGHT_ASSIGNMENTS");
-    List<RightAssignmentDto> dbRightAssignments = new ArrayList<>();
+    long start = System.currentTimeMillis();
     try {
-      dbRightAssignments = getRightAssignmentsFromDbResource(rightAssignmentsResource);
+      profiler.start("FIND_AFFECTED_USERS");
+      Set<UUID> userIds = new HashSet<>();
+      for (RightAssignmentChange change : changes) {
+        userIds.addAll(findAffectedUsers(change));
+        if (userIds.size() > maxAffectedUsers) {
+          break;
+        }
+      }
+
+      if (userIds.size() > maxAffectedUsers) {
+        XLOGGER.info("At least {} users affected by {}, falling back to full rebuild",
+            userIds.size(), changes);
+        rebuildRightAssignments(changes, profiler, start);
+      } else {
+        applyDelta(changes, userIds, profiler, start);
+      }
     } catch (IOException ioe) {
-      XLOGGER.warn("Error when getting right assignments: " + ioe.getMessage());
+      // roll back, so no partial delta is committed
+      throw new UncheckedIOException("Error when regenerating right assignments", ioe);
     }
 
-    profiler.start("RESOURCE_2_DB");
+    XLOGGER.exit();
+    profiler.stop().log();
+  }
+
+  /**
+   * Rebuilds all right assignments on the calling thread, regardless of how many users the given
+   * changes affect. Used by {@link RightAssignmentRegenerationScheduler} once incremental runs
+   * keep failing.
+   *
+   * @param changes the changes that caused the regeneration
+   */
+  @Transactional(isolation = Isolation.READ_COMMITTED)
+  public void rebuildRightAssignments(Collection<RightAssignmentChange> changes) {
+    Profiler profiler = new Profiler("REBUILD_RIGHT_ASSIGNMENTS");
+    profiler.setLogger(XLOGGER);
+    XLOGGER.entry(changes);
+
+    rebuildRightAssignments(changes, profiler, System.currentTimeMillis());
+
+    XLOGGER.exit();
+    profiler.stop().log();
+  }
+
+  /**
+   * Returns summaries of the most recent right assignment regeneration runs, newest first.
+   */
+  public List<RightAssignmentDeltaDto> getRecentDeltas() {
+    return new ArrayList<>(recentDeltas);
+  }
+
+  /**
+   * Rebuilds the whole right assignments table. In shadow table mode the new rows are loaded
+   * into a separate table without indexes, which is then indexed and swapped in place of the
+   * live table, so readers keep using the complete old snapshot until the transaction commits and
+   * the old rows are dropped with the table instead of being deleted one by one. Writes to the
+   * live table made in the meantime are logged and replayed into the shadow table before the
+   * swap, and its foreign keys are validated after the commit. Otherwise the rows of the live
+   * table are deleted and re-inserted.
+   */
+  private void rebuildRightAssignments(Collection<RightAssignmentChange> changes,
+      Profiler profiler, long start) {
     Resource2Db r2db = new Resource2Db(template);
+    String tableName = shadowTableRebuild ? SHADOW_TABLE_NAME : TABLE_NAME;
+
+    int deleted;
+    List<RightAssignmentDto> dbRightAssignments;
+    Set<RightAssignmentDto> rightAssignmentsToInsert;
     try {
+      if (shadowTableRebuild) {
+        profiler.start("START_WRITE_LOG");
+        startWriteLog();
+
+        profiler.start("CREATE_SHADOW_TABLE");
+        r2db.updateDbFromSql(createShadowTableResource);
+        deleted = template.queryForObject(COUNT_SQL, Integer.class);
+      } else {
+        // Drop existing rows; we are regenerating from scratch
+        profiler.start("DROP_RIGHT_ASSIGNMENTS");
+        deleted = template.update(DELETE_SQL);
+      }
+
+      // Get a right assignment matrix from database
+      profiler.start("GET_INTERMEDIATE_RIGHT_ASSIGNMENTS");
+      dbRightAssignments = getRightAssignmentsFromDbResource(rightAssignmentsResource);
+
       profiler.start("CHANGE_SUPERVISORY_NODES_TO_FACILITIES_IN_RIGHT_ASSIGNMENTS");
-      Set<RightAssignmentDto> rightAssignmentsToInsert = convertForInsert(dbRightAssignments,
+      rightAssignmentsToInsert = convertForInsert(dbRightAssignments,
           supervisedFacilitiesResource);
 
       profiler.start("INSERT_INTO_DB");
-      for (List partialRightAssignments : Iterables.partition(rightAssignmentsToInsert, 100)) {
-        insertFromDbRightAssignmentList(r2db, partialRightAssignments);
+      insertRightAssignments(r2db, tableName, rightAssignmentsToInsert);
+
+      if (shadowTableRebuild) {
+        profiler.start("SWAP_SHADOW_TABLE");
+        r2db.updateDbFromSql(swapShadowTableResource);
       }
     } catch (IOException ioe) {
-      XLOGGER.warn("Error when getting inserting right assignments: " + ioe.getMessage());
+      // roll back, so the old right assignments stay in place
+      throw new UncheckedIOException("Error when rebuilding right assignments", ioe);
     }
 
-    XLOGGER.exit();
-    profiler.stop().log();
-    return new AsyncResult<>(null);
+    userPermissionVersionService.resetAll();
+    permissionIndex.invalidateAll();
+    recordDelta(changes, true, 0, rightAssignmentsToInsert.size(), deleted, start);
+  }
+
+  /**
+   * Starts logging writes to the live table in a separate transaction, so that writes committed
+   * by other transactions during the rebuild are logged. Logging stops when the rebuild
+   * transaction completes; if it committed, the foreign keys added as not valid are validated.
+   */
+  private void startWriteLog() throws IOException {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      // no other transaction can see the shadow table before it is swapped in
+      return;
+    }
+
+    runInOwnTransaction(startWriteLogResource);
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronizationAdapter() {
+          @Override
+          public void afterCompletion(int status) {
+            try {
+              runInOwnTransaction(stopWriteLogResource);
+              if (STATUS_COMMITTED == status) {
+                runInOwnTransaction(validateConstraintsResource);
+              }
+            } catch (IOException | RuntimeException ex) {
+              XLOGGER.warn("Error when finishing right assignments rebuild", ex);
+            }
+          }
+        });
+  }
+
+  private void runInOwnTransaction(Resource resource) throws IOException {
+    String[] statements = resourceToString(resource).split("\\n");
+    transactionUtils.runInOwnTransaction(() -> template.batchUpdate(statements));
+  }
+
+  private void applyDelta(Collection<RightAssignmentChange> changes, Set<UUID> userIds,
+      Profiler profiler, long start) throws IOException {
+    if (userIds.isEmpty()) {
+      recordDelta(changes, false, 0, 0, 0, start);
+      return;
+    }
+
+    profiler.start("GET_INTERMEDIATE_RIGHT_ASSIGNMENTS_FOR_USERS");
+    List<RightAssignmentDto> dbRightAssignments = template.query(
+        resourceToString(userRightAssignmentsResource),
+        uuidArraySetter(userIds, 2),
+        (ResultSet rs, int rowNum) -> mapIntermediateRightAssignment(rs));
+
+    profiler.start("CHANGE_SUPERVISORY_NODES_TO_FACILITIES_IN_RIGHT_ASSIGNMENTS");
+    Set<RightAssignmentDto> expected = convertForInsert(dbRightAssignments,
+        supervisedFacilitiesResource);
+
+    profiler.start("GET_CURRENT_RIGHT_ASSIGNMENTS_FOR_USERS");
+    Map<RightAssignmentDto, UUID> current = new HashMap<>();
+    template.query(SELECT_FOR_USERS_SQL, uuidArraySetter(userIds, 1), rs -> {
+      current.put(new RightAssignmentDto(
+          UUID.fromString(rs.getString(USER_ID)),
+          rs.getString(RIGHT_NAME),
+          getUuid(rs, FACILITY_ID),
+          getUuid(rs, PROGRAM_ID)), UUID.fromString(rs.getString("id")));
+    });
+
+    profiler.start("CALCULATE_DELTA");
+    Set<RightAssignmentDto> toInsert = new HashSet<>(expected);
+    toInsert.removeAll(current.keySet());
+
+    List<RightAssignmentDto> removed = current.keySet()
+        .stream()
+        .filter(rightAssignment -> !expected.contains(rightAssignment))
+        .collect(Collectors.toList());
+    List<UUID> toDelete = removed
+        .stream()
+        .map(current::get)
+        .collect(Collectors.toList());
+
+    profiler.start("DELETE_FROM_DB");
+    if (!toDelete.isEmpty()) {
+      template.update(DELETE_BY_IDS_SQL, uuidArraySetter(toDelete, 1));
+    }
+
+    profiler.start("INSERT_INTO_DB");
+    insertRightAssignments(new Resource2Db(template), TABLE_NAME, toInsert);
+
+    profiler.start("RECORD_PERMISSION_CHANGES");
+    userPermissionVersionService.recordChanges(toInsert, removed);
+    permissionIndex.invalidate(userIds);
+
+    recordDelta(changes, false, userIds.size(), toInsert.size(), toDelete.size(), start);
+  }
+
+  Set<UUID> findAffectedUsers(RightAssignmentChange change) throws IOException {
+    List<UUID> userIds;
+    switch (change.getType()) {
+      case ROLE:
+        userIds = template.queryForList(resourceToString(roleAffectedUsersResource),
+            UUID.class, change.getEntityId());
+        break;
+      case FACILITY:
+        UUID facilityId = change.getEntityId();
+        userIds = template.queryForList(resourceToString(facilityAffectedUsersResource),
+            UUID.class, facilityId, facilityId, facilityId, facilityId);
+        break;
+      case SUPERVISORY_NODE:
+        userIds = findUsersAffectedBySupervision(SUPERVISORY_NODE_EXISTS_SQL,
+            change.getEntityId(), new UUID[]{change.getEntityId()}, new UUID[0]);
+        break;
+      case REQUISITION_GROUP:
+        userIds = findUsersAffectedBySupervision(REQUISITION_GROUP_EXISTS_SQL,
+            change.getEntityId(), new UUID[0], new UUID[]{change.getEntityId()});
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported change type: " + change.getType());
+    }
+
+    return new HashSet<>(userIds);
   }
 
-  private void insertFromDbRightAssignmentList(Resource2Db resource2Db,
-      List<RightAssignmentDto> rightAssignmentDtos) {
-    // Convert set of right assignments to insert to a set of SQL inserts
-    XLOGGER.debug("Convert right assignments to SQL inserts");
-    MutablePair dataWithHeader = new MutablePair<List<String>, List<Object[]>>();
-    dataWithHeader.setRight(rightAssignmentDtos.stream()
-        .map(rad -> rad.toColumnArray())
-        .collect(Collectors.toList()));
+  private List<UUID> findUsersAffectedBySupervision(String existsSql, UUID entityId,
+      UUID[] nodeIds, UUID[] requisitionGroupIds) throws IOException {
+    if (!Boolean.TRUE.equals(template.queryForObject(existsSql, Boolean.class, entityId))) {
+      // deleted, the nodes and facilities it used to connect are not known anymore
+      return template.queryForList(resourceToString(supervisionRoleUsersResource), UUID.class);
+    }
+
+    return template.query(resourceToString(supervisionAffectedUsersResource),
+        ps -> {
+          ps.setArray(1, ps.getConnection().createArrayOf("uuid", nodeIds));
+          ps.setArray(2, ps.getConnection().createArrayOf("uuid", requisitionGroupIds));
+          ps.setArray(3, ps.getConnection().createArrayOf("uuid", requisitionGroupIds));
+        },
+        (rs, rowNum) -> rs.getObject(USER_ID, UUID.class));
+  }
 
-    // set column headers
-    dataWithHeader.setLeft(Arrays.asList("id",
-        USER_ID,
-        RIGHT_NAME,
-        "facilityid",
-        "programid"));
+  private void insertRightAssignments(Resource2Db resource2Db, String tableName,
+      Set<RightAssignmentDto> rightAssignments) {
+    if (rightAssignments.isEmpty()) {
+      return;
+    }
 
-    // insert into right_assignments
-    XLOGGER.debug("Perform SQL inserts");
-    resource2Db.insertToDbFromBatchedPair("referencedata.right_assignments", dataWithHeader);
+    // Stream right assignments straight into the table with COPY
+    resource2Db.copyToDb(tableName,
+        Arrays.asList("id", USER_ID, RIGHT_NAME, FACILITY_ID, PROGRAM_ID),
+        rightAssignments.stream().<Object[]>map(RightAssignmentDto::toColumnArray));
+  }
+
+  private void recordDelta(Collection<RightAssignmentChange> changes, boolean fullRebuild,
+      int affectedUsers, int inserted, int deleted, long start) {
+    String changeType = changes.isEmpty() ? null : changes
+        .stream()
+        .map(change -> change.getType().name())
+        .distinct()
+        .collect(Collectors.joining(","));
+    UUID entityId = changes.size() == 1 ? changes.iterator().next().getEntityId() : null;
+
+    RightAssignmentDeltaDto delta = new RightAssignmentDeltaDto(changeType, entityId,
+        changes.size(), fullRebuild, affectedUsers, inserted, deleted,
+        System.currentTimeMillis() - start, ZonedDateTime.now());
+    XLOGGER.info("Right assignments regenerated: {}", delta);
+
+    recentDeltas.addFirst(delta);
+    while (recentDeltas.size() > historySize) {
+      recentDeltas.pollLast();
+    }
+  }
+
+  private PreparedStatementSetter uuidArraySetter(Collection<UUID> ids, int times) {
+    return ps -> {
+      Array array = ps.getConnection().createArrayOf("uuid", ids.toArray());
+      for (int i = 1; i <= times; ++i) {
+        ps.setArray(i, array);
+      }
+    };
   }
 
   List<RightAssignmentDto> getRightAssignmentsFromDbResource(Resource resource)
       throws IOException {
     return template.query(
         resourceToString(resource),
-        (ResultSet rs, int rowNum) -> {
-
-          RightAssignmentDto rightAssignmentMap = new RightAssignmentDto();
-          rightAssignmentMap.setUserId(UUID.fromString(rs.getString(USER_ID)));
-          rightAssignmentMap.setRightName(rs.getString(RIGHT_NAME));
-          if (null != rs.getString("facilityid")) {
-            rightAssignmentMap.setFacilityId(UUID.fromString(rs.getString("facilityid")));
-          }
-          if (null != rs.getString("programid")) {
-            rightAssignmentMap.setProgramId(UUID.fromString(rs.getString("programid")));
-          }
-          if (null != rs.getString("supervisorynodeid")) {
-            rightAssignmentMap.setSupervisoryNodeId(
-                UUID.fromString(rs.getString("supervisorynodeid")));
-          }
-          return rightAssignmentMap;
-        }
+        (ResultSet rs, int rowNum) -> mapIntermediateRightAssignment(rs)
     );
   }
 
+  private RightAssignmentDto mapIntermediateRightAssignment(ResultSet rs) throws SQLException {
+    RightAssignmentDto rightAssignmentMap = new RightAssignmentDto();
+    rightAssignmentMap.setUserId(UUID.fromString(rs.getString(USER_ID)));
+    rightAssignmentMap.setRightName(rs.getString(RIGHT_NAME));
+    rightAssignmentMap.setFacilityId(getUuid(rs, FACILITY_ID));
+    rightAssignmentMap.setProgramId(getUuid(rs, PROGRAM_ID));
+    rightAssignmentMap.setSupervisoryNodeId(getUuid(rs, SUPERVISORY_NODE_ID));
+    return rightAssignmentMap;
+  }
+
+  private UUID getUuid(ResultSet rs, String column) throws SQLException {
+    String value = rs.getString(column);
+    return null == value ? null : UUID.fromString(value);
+  }
+
   Set<RightAssignmentDto> convertForInsert(List<RightAssignmentDto> rightAssignments,
       Resource supervisedFacilitiesResource)
       throws IOException {
+    // Expand every distinct (supervisory node, program) pair once, in a single query, and reuse
+    // the result for all right assignments with the same pair.
+    Map<Pair<UUID, UUID>, List<UUID>> supervisedFacilities = getSupervisedFacilityIds(
+        supervisedFacilitiesResource, rightAssignments);
+
     Set<RightAssignmentDto> rightAssignmentsToInsert = new HashSet<>();
     for (RightAssignmentDto rightAssignment : rightAssignments) {
 
@@ -175,9 +510,9 @@ public class RightAssignmentService {
         // turn it into a list of all facility IDs being supervised by this node.
 
         // Get all supervised facilities. Add each facility to the set.
-        List<UUID> facilityIds = getSupervisedFacilityIds(supervisedFacilitiesResource,
-            rightAssignment.getSupervisoryNodeId(),
-            rightAssignment.getProgramId());
+        List<UUID> facilityIds = supervisedFacilities.getOrDefault(
+            Pair.of(rightAssignment.getSupervisoryNodeId(), rightAssignment.getProgramId()),
+            Collections.emptyList());
 
         for (UUID facilityId : facilityIds) {
 
@@ -202,15 +537,42 @@ public class RightAssignmentService {
     return rightAssignmentsToInsert;
   }
 
-  private List<UUID> getSupervisedFacilityIds(Resource supervisedFacilitiesResource,
-      UUID supervisoryNodeId, UUID programId)
+  private Map<Pair<UUID, UUID>, List<UUID>> getSupervisedFacilityIds(
+      Resource supervisedFacilitiesResource, List<RightAssignmentDto> rightAssignments)
       throws IOException {
+    Set<Pair<UUID, UUID>> nodePrograms = rightAssignments
+        .stream()
+        .filter(rightAssignment -> null != rightAssignment.getSupervisoryNodeId())
+        .map(rightAssignment -> Pair.of(rightAssignment.getSupervisoryNodeId(),
+            rightAssignment.getProgramId()))
+        .collect(Collectors.toSet());
+
+    Map<Pair<UUID, UUID>, List<UUID>> supervisedFacilities = new HashMap<>();
+    if (nodePrograms.isEmpty()) {
+      return supervisedFacilities;
+    }
 
-    return template.queryForList(
+    List<UUID> nodeIds = new ArrayList<>(nodePrograms.size());
+    List<UUID> programIds = new ArrayList<>(nodePrograms.size());
+    for (Pair<UUID, UUID> nodeProgram : nodePrograms) {
+      nodeIds.add(nodeProgram.getLeft());
+      programIds.add(nodeProgram.getRight());
+    }
+
+    template.query(
         resourceToString(supervisedFacilitiesResource),
-        UUID.class,
-        supervisoryNodeId,
-        programId);
+        ps -> {
+          ps.setArray(1, ps.getConnection().createArrayOf("uuid", nodeIds.toArray()));
+          ps.setArray(2, ps.getConnection().createArrayOf("uuid", programIds.toArray()));
+        },
+        rs -> {
+          supervisedFacilities
+              .computeIfAbsent(Pair.of(getUuid(rs, SUPERVISORY_NODE_ID),
+                  getUuid(rs, PROGRAM_ID)), key -> new ArrayList<>())
+              .add(getUuid(rs, FACILITY_ID));
+        });
+
+    return supervisedFacilities;
   }
 
   private String resourceToString(final Resource resource) throws IOException {
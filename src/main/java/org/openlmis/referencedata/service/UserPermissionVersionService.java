@@ -0,0 +1,212 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.openlmis.referencedata.dto.PermissionStringsDeltaDto;
+import org.openlmis.referencedata.dto.RightAssignmentDto;
+import org.openlmis.referencedata.repository.RightAssignmentRepository;
+import org.openlmis.referencedata.util.Resource2Db;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps a version of the permission strings of every user, together with a log of the permission
+ * strings added and removed at each version. All versions are taken from one sequence, so a
+ * version is bumped only for the users whose right assignments changed, and the current version
+ * of a user can be read with a single primary key lookup. Changes older than the configured
+ * number of versions are pruned; a user whose version was reset (e.g. by a full rebuild of right
+ * assignments) has no changes logged before the reset, which is tracked by the base version.
+ */
+@Service
+public class UserPermissionVersionService {
+
+  private static final XLogger XLOGGER =
+      XLoggerFactory.getXLogger(UserPermissionVersionService.class);
+
+  static final String CHANGES_TABLE_NAME = "referencedata.user_permission_changes";
+  static final String NEXT_VERSION_SQL =
+      "SELECT nextval('referencedata.user_permission_version_seq');";
+  static final String SELECT_VERSION_SQL = "SELECT COALESCE(v.version, 0) AS version,"
+      + " COALESCE(v.baseversion, 0) AS baseversion, s.last_value AS lastversion"
+      + " FROM referencedata.user_permission_version_seq s"
+      + " LEFT JOIN referencedata.user_permission_versions v ON v.userid = ?;";
+  static final String BUMP_VERSIONS_SQL = "INSERT INTO referencedata.user_permission_versions"
+      + " (userid, version, baseversion) SELECT u, ?, 0 FROM unnest(?) AS u"
+      + " ON CONFLICT (userid) DO UPDATE SET version = EXCLUDED.version;";
+  static final String RESET_VERSIONS_SQL = "INSERT INTO referencedata.user_permission_versions"
+      + " (userid, version, baseversion) SELECT id, ?, ? FROM referencedata.users"
+      + " ON CONFLICT (userid) DO UPDATE"
+      + " SET version = EXCLUDED.version, baseversion = EXCLUDED.baseversion;";
+  static final String RESET_USER_VERSIONS_SQL = "INSERT INTO"
+      + " referencedata.user_permission_versions (userid, version, baseversion)"
+      + " SELECT u, ?, ? FROM unnest(?) AS u ON CONFLICT (userid) DO UPDATE"
+      + " SET version = EXCLUDED.version, baseversion = EXCLUDED.baseversion;";
+  static final String DELETE_CHANGES_SQL = "DELETE FROM referencedata.user_permission_changes;";
+  static final String DELETE_USER_CHANGES_SQL =
+      "DELETE FROM referencedata.user_permission_changes WHERE userid = ANY(?);";
+  static final String PRUNE_CHANGES_SQL =
+      "DELETE FROM referencedata.user_permission_changes WHERE version <= ?;";
+  static final String SELECT_CHANGES_SQL = "SELECT permissionstring, added"
+      + " FROM referencedata.user_permission_changes"
+      + " WHERE userid = ? AND version > ? ORDER BY version;";
+
+  @Value("${permissionStrings.delta.retainedVersions}")
+  private long retainedVersions;
+
+  @Autowired
+  private JdbcTemplate template;
+
+  @Autowired
+  private RightAssignmentRepository rightAssignmentRepository;
+
+  /**
+   * Returns the current permission version of the user. Users whose right assignments have not
+   * changed since versions were introduced have version 0.
+   */
+  public PermissionVersion getVersion(UUID userId) {
+    return template.queryForObject(SELECT_VERSION_SQL,
+        (rs, rowNum) -> new PermissionVersion(rs.getLong("version"),
+            Math.max(rs.getLong("baseversion"), rs.getLong("lastversion") - retainedVersions)),
+        userId);
+  }
+
+  /**
+   * Returns permission strings of the user added and removed since the given version. If the
+   * changes since that version are not known anymore, all current permission strings of the user
+   * are returned as a full delta.
+   */
+  public PermissionStringsDeltaDto getDelta(UUID userId, long sinceVersion) {
+    PermissionVersion version = getVersion(userId);
+
+    if (sinceVersion < version.getBaseVersion() || sinceVersion > version.getVersion()) {
+      return new PermissionStringsDeltaDto(version.getVersion(), true,
+          rightAssignmentRepository.findByUser(userId), new HashSet<>());
+    }
+
+    Set<String> added = new HashSet<>();
+    Set<String> removed = new HashSet<>();
+    template.query(SELECT_CHANGES_SQL, rs -> {
+      String permissionString = rs.getString("permissionstring");
+      if (rs.getBoolean("added")) {
+        removed.remove(permissionString);
+        added.add(permissionString);
+      } else {
+        added.remove(permissionString);
+        removed.add(permissionString);
+      }
+    }, userId, sinceVersion);
+
+    return new PermissionStringsDeltaDto(version.getVersion(), false, added, removed);
+  }
+
+  /**
+   * Bumps the version of the users whose right assignments were added or removed, and logs the
+   * changed permission strings under the new version. Should be called in the transaction that
+   * changes the right assignments.
+   */
+  public void recordChanges(Collection<RightAssignmentDto> added,
+      Collection<RightAssignmentDto> removed) {
+    if (added.isEmpty() && removed.isEmpty()) {
+      return;
+    }
+
+    long version = nextVersion();
+    Set<UUID> userIds = Stream.concat(added.stream(), removed.stream())
+        .map(RightAssignmentDto::getUserId)
+        .collect(Collectors.toSet());
+
+    template.update(BUMP_VERSIONS_SQL, ps -> {
+      ps.setLong(1, version);
+      ps.setArray(2, ps.getConnection().createArrayOf("uuid", userIds.toArray()));
+    });
+
+    new Resource2Db(template).copyToDb(CHANGES_TABLE_NAME,
+        Arrays.asList("userid", "version", "permissionstring", "added"),
+        Stream.concat(
+            added.stream().map(assignment -> toChangeRow(assignment, version, true)),
+            removed.stream().map(assignment -> toChangeRow(assignment, version, false))));
+
+    if (version > retainedVersions) {
+      template.update(PRUNE_CHANGES_SQL, version - retainedVersions);
+    }
+
+    XLOGGER.debug("Permission version {} recorded for {} users", version, userIds.size());
+  }
+
+  /**
+   * Bumps the version of all users and drops the logged changes, so that clients have to fetch
+   * the full permission strings again. Used when right assignments are rebuilt from scratch.
+   */
+  public void resetAll() {
+    long version = nextVersion();
+    template.update(DELETE_CHANGES_SQL);
+    template.update(RESET_VERSIONS_SQL, version, version);
+    XLOGGER.debug("Permission versions of all users reset to {}", version);
+  }
+
+  /**
+   * Bumps the version of the given users and drops their logged changes. Used when right
+   * assignments of the users are changed without computing which permission strings changed.
+   */
+  public void resetUsers(Collection<UUID> userIds) {
+    if (userIds.isEmpty()) {
+      return;
+    }
+
+    long version = nextVersion();
+    Object[] ids = userIds.toArray();
+    template.update(DELETE_USER_CHANGES_SQL,
+        ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids)));
+    template.update(RESET_USER_VERSIONS_SQL, ps -> {
+      ps.setLong(1, version);
+      ps.setLong(2, version);
+      ps.setArray(3, ps.getConnection().createArrayOf("uuid", ids));
+    });
+  }
+
+  private long nextVersion() {
+    return template.queryForObject(NEXT_VERSION_SQL, Long.class);
+  }
+
+  private Object[] toChangeRow(RightAssignmentDto assignment, long version, boolean added) {
+    return new Object[]{assignment.getUserId(), version, assignment.toPermissionString(), added};
+  }
+
+  /**
+   * Current permission version of a user, and the oldest version changes are known since.
+   */
+  @Getter
+  @AllArgsConstructor
+  public static final class PermissionVersion {
+
+    private final long version;
+    private final long baseVersion;
+
+  }
+}
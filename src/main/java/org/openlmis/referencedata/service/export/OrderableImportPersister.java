@@ -30,6 +30,7 @@ import org.openlmis.referencedata.domain.Code;
 import org.openlmis.referencedata.domain.Orderable;
 import org.openlmis.referencedata.dto.OrderableDto;
 import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.service.OrderableCatalogVersion;
 import org.openlmis.referencedata.util.EasyBatchUtils;
 import org.openlmis.referencedata.util.FileHelper;
 import org.openlmis.referencedata.util.TransactionUtils;
@@ -44,6 +45,7 @@ public class OrderableImportPersister
 
   @Autowired private FileHelper fileHelper;
   @Autowired private OrderableRepository orderableRepository;
+  @Autowired private OrderableCatalogVersion orderableCatalogVersion;
   @Autowired private TransactionUtils transactionUtils;
 
   @Autowired
@@ -70,6 +72,7 @@ public class OrderableImportPersister
   private List<OrderableDto> importBatch(List<OrderableDto> importedDtosBatch) {
     final List<Orderable> toPersistBatch = createOrUpdate(importedDtosBatch);
     final List<Orderable> persistedObjects = orderableRepository.saveAll(toPersistBatch);
+    orderableCatalogVersion.orderablesChanged();
 
     return OrderableDto.newInstances(persistedObjects);
   }
@@ -41,6 +41,7 @@ import org.openlmis.referencedata.repository.OrderableDisplayCategoryRepository;
 import org.openlmis.referencedata.repository.OrderableRepository;
 import org.openlmis.referencedata.repository.ProgramOrderableRepository;
 import org.openlmis.referencedata.repository.ProgramRepository;
+import org.openlmis.referencedata.service.OrderableCatalogVersion;
 import org.openlmis.referencedata.util.EasyBatchUtils;
 import org.openlmis.referencedata.util.FileHelper;
 import org.openlmis.referencedata.util.TransactionUtils;
@@ -62,6 +63,7 @@ public class ProgramOrderableImportPersister
   @Autowired private ProgramOrderableRepository programOrderableRepository;
   @Autowired private ProgramRepository programRepository;
   @Autowired private OrderableRepository orderableRepository;
+  @Autowired private OrderableCatalogVersion orderableCatalogVersion;
   @Autowired private OrderableDisplayCategoryRepository orderableDisplayCategoryRepository;
   @Autowired private TransactionUtils transactionUtils;
 
@@ -91,6 +93,7 @@ public class ProgramOrderableImportPersister
     final List<ProgramOrderable> toPersistBatch = createOrUpdate(importedDtosBatch);
     final List<ProgramOrderable> persistedObjects =
         programOrderableRepository.saveAll(toPersistBatch);
+    orderableCatalogVersion.orderablesChanged();
 
     return new ArrayList<>(ProgramOrderableDto.newInstance(persistedObjects));
   }
@@ -37,10 +37,12 @@ import org.openlmis.referencedata.dto.TradeItemDto;
 import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.repository.OrderableRepository;
 import org.openlmis.referencedata.repository.TradeItemRepository;
+import org.openlmis.referencedata.service.OrderableCatalogVersion;
 import org.openlmis.referencedata.util.EasyBatchUtils;
 import org.openlmis.referencedata.util.FileHelper;
 import org.openlmis.referencedata.util.Message;
 import org.openlmis.referencedata.util.TransactionUtils;
+import org.openlmis.referencedata.web.OrderableFulfillGraph;
 import org.slf4j.profiler.Profiler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -53,6 +55,8 @@ public class TradeItemImportPersister
   @Autowired private FileHelper fileHelper;
   @Autowired private TradeItemRepository tradeItemRepository;
   @Autowired private OrderableRepository orderableRepository;
+  @Autowired private OrderableCatalogVersion orderableCatalogVersion;
+  @Autowired private OrderableFulfillGraph orderableFulfillGraph;
   @Autowired private TransactionUtils transactionUtils;
 
   @Autowired
@@ -101,6 +105,8 @@ public class TradeItemImportPersister
   private List<OrderableDto> importBatch(List<TradeItemCsvModel> importedDtosBatch) {
     final List<Orderable> toPersistBatch = createOrUpdate(importedDtosBatch);
     final List<Orderable> persistedObjects = orderableRepository.saveAll(toPersistBatch);
+    orderableCatalogVersion.orderablesChanged();
+    orderableFulfillGraph.invalidate();
 
     return OrderableDto.newInstances(persistedObjects);
   }
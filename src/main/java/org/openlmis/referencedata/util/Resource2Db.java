@@ -20,22 +20,32 @@ import static java.util.stream.Collectors.joining;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.apache.commons.collections4.IteratorUtils;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.io.ByteOrderMark;
 import org.apache.commons.io.input.BOMInputStream;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.commons.lang3.tuple.Pair;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 /**
@@ -47,6 +57,14 @@ import org.springframework.jdbc.core.JdbcTemplate;
 public class Resource2Db {
   private static final XLogger XLOGGER = XLoggerFactory.getXLogger(Resource2Db.class);
 
+  // COPY treats unquoted empty fields as NULL in CSV format; an explicit marker keeps empty
+  // strings and NULLs apart for rows that do not come from a CSV resource
+  private static final String COPY_NULL = "\\N";
+  private static final CSVFormat COPY_FORMAT = CSVFormat.DEFAULT
+      .withRecordSeparator('\n')
+      .withNullString(COPY_NULL);
+  private static final int COPY_BUFFER_SIZE = 65536;
+
   private final JdbcTemplate template;
 
   /**
@@ -74,7 +92,9 @@ public class Resource2Db {
   }
 
   /**
-   * Insert into the database (a table) from a Resource with CSV data.
+   * Insert into the database (a table) from a Resource with CSV data. The records are streamed
+   * from the resource straight into a PostgreSQL {@code COPY FROM STDIN}, without being loaded
+   * into memory first.
    * @param tableName the name of the table (incl schema) to load the data into.
    * @param resource the Resource as a CSV, with a header, that has the data to load.
    * @throws IOException if the Resource can't be used.
@@ -85,10 +105,82 @@ public class Resource2Db {
     XLOGGER.entry(tableName, resource);
     Validate.notBlank(tableName);
     Validate.notNull(resource);
-    insertToDbFromBatchedPair(tableName, resourceCsvToBatchedPair(resource));
+
+    try (InputStreamReader isReader = new InputStreamReader(
+        new BOMInputStream(resource.getInputStream(), ByteOrderMark.UTF_8))) {
+      CSVParser parser = CSVFormat.DEFAULT.withHeader().withNullString("").parse(isReader);
+      List<String> columns = new ArrayList<>(parser.getHeaderMap().keySet());
+
+      Stream<Object[]> rows = StreamSupport
+          .stream(parser.spliterator(), false)
+          .map(this::toRow);
+      copyToDb(tableName, columns, rows);
+    }
+
     XLOGGER.exit();
   }
 
+  /**
+   * Loads rows into a single table with PostgreSQL {@code COPY FROM STDIN}. Rows are consumed
+   * lazily from the stream and written to the server in buffered chunks, so the whole data set
+   * never has to be held in memory. The copy joins the current transaction, if there is one.
+   * @param tableName the name of the table (including schema) to load the data into.
+   * @param columns an ordered list of column names.
+   * @param rows the rows to load, each ordered as the columns; {@code null} values become NULLs.
+   * @return the number of copied rows.
+   */
+  public long copyToDb(String tableName, List<String> columns, Stream<Object[]> rows) {
+    XLOGGER.entry(tableName);
+
+    String copySql = String.format("COPY %s (%s) FROM STDIN WITH (FORMAT csv, NULL '%s')",
+        tableName,
+        String.join(",", columns),
+        COPY_NULL);
+    XLOGGER.debug("Copy SQL: " + copySql);
+
+    Long copied = template.execute((ConnectionCallback<Long>) connection -> {
+      PGConnection pgConnection = connection.unwrap(PGConnection.class);
+      PGCopyOutputStream copyStream = new PGCopyOutputStream(pgConnection, copySql,
+          COPY_BUFFER_SIZE);
+      try (CSVPrinter printer = new CSVPrinter(
+          new OutputStreamWriter(copyStream, StandardCharsets.UTF_8), COPY_FORMAT)) {
+        try {
+          Iterator<Object[]> iterator = rows.iterator();
+          long count = 0;
+          while (iterator.hasNext()) {
+            printer.printRecord(iterator.next());
+            ++count;
+          }
+          return count;
+        } catch (IOException | RuntimeException ex) {
+          // closing the stream would end the COPY and keep the rows written so far
+          cancelCopy(copyStream, ex);
+          throw ex;
+        }
+      } catch (IOException ioe) {
+        throw new SQLException("Copy into " + tableName + " failed", ioe);
+      }
+    });
+
+    XLOGGER.exit("Total " + tableName + " copied: " + copied);
+    return null == copied ? 0 : copied;
+  }
+
+  private void cancelCopy(PGCopyOutputStream copyStream, Exception cause) {
+    try {
+      copyStream.cancelCopy();
+    } catch (SQLException ex) {
+      cause.addSuppressed(ex);
+    }
+  }
+
+  private Object[] toRow(CSVRecord record) {
+    if (!record.isConsistent()) {
+      throw new IllegalArgumentException("CSV record inconsistent: " + record);
+    }
+    return IteratorUtils.toList(record.iterator()).toArray();
+  }
+
   /*
    converts a Resource into a List of Strings - used when those strings are direct SQL
    */
@@ -127,12 +219,7 @@ public class Resource2Db {
       // read data rows
       List<Object[]> rows = new ArrayList<>();
       for (CSVRecord record : parser.getRecords()) {
-        if (!record.isConsistent()) {
-          throw new IllegalArgumentException("CSV record inconsistent: " + record);
-        }
-
-        List theRow = IteratorUtils.toList(record.iterator());
-        rows.add(theRow.toArray());
+        rows.add(toRow(record));
       }
       readData.setRight(rows);
 
@@ -178,10 +265,9 @@ public class Resource2Db {
         tableName,
         columnDesc,
         valueDesc);
-    XLOGGER.info("Insert SQL: " + insertSql);
+    XLOGGER.debug("Insert SQL: " + insertSql);
 
     List<Object[]> data = dataWithHeader.getRight();
-    data.forEach(e -> XLOGGER.info(tableName + ": " + Arrays.toString(e)));
     int[] updateCount = template.batchUpdate(insertSql, data);
 
     XLOGGER.exit("Total " + tableName + " inserts: " + Arrays.stream(updateCount).sum());
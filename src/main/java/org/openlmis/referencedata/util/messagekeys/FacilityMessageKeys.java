@@ -32,4 +32,11 @@ public abstract class FacilityMessageKeys extends MessageKeys {
       join(ERROR, EXTRA_DATA, UNALLOWED_KEY);
   public static final String ERROR_EXTRA_DATA_MODIFIED_KEY = join(ERROR, EXTRA_DATA, MODIFIED_KEY);
   public static final String ERROR_FIELD_IS_INVARIANT = join(ERROR, FIELD_IS_INVARIANT);
+  public static final String ERROR_APPROVED_PRODUCTS_LACKS_PARAMETERS =
+      join(ERROR, "approvedProducts", LACKS_PARAMETERS);
+  public static final String ERROR_APPROVED_PRODUCTS_TOO_MANY_FACILITIES =
+      join(ERROR, "approvedProducts", "facilities", "tooMany");
+  public static final String ERROR_BOUNDARY_SORT_INVALID =
+      join(ERROR, "boundary", "sort", INVALID);
+  public static final String ERROR_NEAREST_LIMIT_INVALID = join(ERROR, "nearest", "limit", INVALID);
 }
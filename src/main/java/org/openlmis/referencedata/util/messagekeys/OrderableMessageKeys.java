@@ -41,6 +41,8 @@ public abstract class OrderableMessageKeys extends MessageKeys {
 
   public static final String ERROR_INVALID_VERSION_IDENTITY =
       join(ERROR, SEARCH, "invalidVersionIdentity");
+  public static final String ERROR_TOO_MANY_VERSION_IDENTITIES =
+      join(ERROR, SEARCH, "versionIdentity", "tooMany");
   public static final String ERROR_MINIMUM_TEMPERATURE =
           join(ERROR, "minimumTemperature");
   public static final String ERROR_MAXIMUM_TEMPERATURE =
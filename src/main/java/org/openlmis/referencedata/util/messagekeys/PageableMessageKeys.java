@@ -19,10 +19,13 @@ public abstract class PageableMessageKeys extends MessageKeys {
   public static final String PAGEABLE = "pageable";
   public static final String SIZE = "size";
   public static final String NOT_POSITIVE = "notPositive";
+  public static final String CURSOR = "cursor";
 
   public static final String ERROR = join(SERVICE_ERROR, PAGEABLE);
   public static final String ERROR_SIZE = join(ERROR, SIZE);
   public static final String ERROR_SIZE_NULL = join(ERROR_SIZE, NULL);
   public static final String ERROR_SIZE_NOT_POSITIVE = join(ERROR_SIZE, NOT_POSITIVE);
+  public static final String ERROR_CURSOR = join(ERROR, CURSOR);
+  public static final String ERROR_CURSOR_INVALID = join(ERROR_CURSOR, INVALID);
 
 }
@@ -44,6 +44,9 @@ public abstract class UserMessageKeys extends MessageKeys {
   public static final String ERROR_USERNAME_INVALID = join(ERROR, USERNAME, INVALID);
 
   public static final String ERROR_FIELD_IS_INVARIANT = join(ERROR, "fieldIsInvariant");
+  public static final String ERROR_RIGHT_CHECK_ID_REQUIRED =
+      join(ERROR, "rightCheck", ID, REQUIRED);
+  public static final String ERROR_RIGHT_CHECK_TOO_MANY = join(ERROR, "rightCheck", "tooMany");
 
   public static final String WAREHOUSE_ID_REQUIRED =
       join(ERROR, RIGHT_SEARCH, WAREHOUSE_ID, REQUIRED);
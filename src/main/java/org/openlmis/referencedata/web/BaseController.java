@@ -19,6 +19,8 @@ import static org.openlmis.referencedata.util.messagekeys.CsvUploadMessageKeys.E
 import static org.openlmis.referencedata.util.messagekeys.CsvUploadMessageKeys.ERROR_INCORRECT_FILE_FORMAT;
 import static org.openlmis.referencedata.web.BaseController.API_PATH;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -26,6 +28,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.lang3.StringUtils;
 import org.javers.core.Javers;
 import org.javers.core.changelog.SimpleTextChangeLog;
@@ -38,6 +41,8 @@ import org.openlmis.referencedata.service.ObjectReferenceExpander;
 import org.openlmis.referencedata.service.RightService;
 import org.openlmis.referencedata.util.Message;
 import org.openlmis.referencedata.util.Pagination;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
 import org.slf4j.profiler.Profiler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -53,6 +58,8 @@ import org.springframework.web.multipart.MultipartFile;
 @RequestMapping(API_PATH)
 public abstract class BaseController {
 
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(BaseController.class);
+
   public static final DateTimeFormatter RFC_7231_FORMAT =
       DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss z").withZone(ZoneId.of("GMT"));
   public static final String API_PATH = "/api";
@@ -191,6 +198,54 @@ public abstract class BaseController {
     return ZonedDateTime.parse(httpDate, RFC_7231_FORMAT);
   }
 
+  /**
+   * Checks if the value of an If-None-Match header matches the given entity tag. Both strong and
+   * weak validators are accepted, as well as a list of them and the wildcard.
+   *
+   * @param ifNoneMatch value of the If-None-Match header, may be null
+   * @param eTag        current entity tag, without quotes
+   * @return true if the client already has the current representation
+   */
+  protected boolean matchesETag(String ifNoneMatch, String eTag) {
+    if (StringUtils.isBlank(ifNoneMatch)) {
+      return false;
+    }
+
+    String quoted = "\"" + eTag + "\"";
+    for (String candidate : ifNoneMatch.split(",")) {
+      String trimmed = StringUtils.removeStart(candidate.trim(), "W/");
+      if ("*".equals(trimmed) || quoted.equals(trimmed)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Writes a response body which is streamed while it is read from the database. Once writing has
+   * started the response is committed, so an error can not be turned into an error response any
+   * more; an IOException usually means that the client went away and is only logged.
+   *
+   * @param response    the response to write to
+   * @param description what is written, for the log
+   * @param body        writes the body and returns the number of written elements
+   */
+  protected void writeStreamingBody(HttpServletResponse response, String description,
+      StreamingBody body) {
+    try {
+      long written = body.writeTo(response.getOutputStream());
+      XLOGGER.debug("Wrote {} {} to the response", written, description);
+    } catch (IOException ex) {
+      XLOGGER.debug("Could not write {} to the response", description, ex);
+    }
+  }
+
+  @FunctionalInterface
+  protected interface StreamingBody {
+    long writeTo(OutputStream outputStream) throws IOException;
+  }
+
   void validateCsvFile(MultipartFile csvFile) {
     if (csvFile == null || csvFile.isEmpty()) {
       throw new ValidationMessageException(ERROR_FILE_IS_EMPTY);
@@ -62,6 +62,9 @@ public class CommodityTypeController extends BaseController {
   @Autowired
   private CommodityTypeValidator validator;
 
+  @Autowired
+  private OrderableFulfillGraph orderableFulfillGraph;
+
   /**
    * Add or update a commodity type.
    *
@@ -96,7 +99,10 @@ public class CommodityTypeController extends BaseController {
       commodityType.assignParent(parent);
     }
 
-    return CommodityTypeDto.newInstance(repository.save(commodityType));
+    CommodityType savedCommodityType = repository.save(commodityType);
+    orderableFulfillGraph.invalidate();
+
+    return CommodityTypeDto.newInstance(savedCommodityType);
   }
 
   /**
@@ -140,6 +146,7 @@ public class CommodityTypeController extends BaseController {
 
     // update the trade items with new classifications
     tradeItemRepository.saveAll(tradeItems);
+    orderableFulfillGraph.invalidate();
   }
 
   /**
@@ -15,10 +15,17 @@
 
 package org.openlmis.referencedata.web;
 
+import static org.apache.commons.collections4.CollectionUtils.isEmpty;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import com.vividsolutions.jts.geom.Point;
 import com.vividsolutions.jts.geom.Polygon;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -32,8 +39,10 @@ import org.openlmis.referencedata.domain.Facility;
 import org.openlmis.referencedata.domain.FacilityTypeApprovedProduct;
 import org.openlmis.referencedata.domain.Orderable;
 import org.openlmis.referencedata.domain.RightName;
+import org.openlmis.referencedata.domain.VersionIdentity;
 import org.openlmis.referencedata.dto.ApprovedProductDto;
 import org.openlmis.referencedata.dto.BasicFacilityDto;
+import org.openlmis.referencedata.dto.FacilitiesApprovedProductsQueryDto;
 import org.openlmis.referencedata.dto.FacilityDto;
 import org.openlmis.referencedata.dto.MinimalFacilityDto;
 import org.openlmis.referencedata.exception.NotFoundException;
@@ -42,19 +51,27 @@ import org.openlmis.referencedata.fhir.FhirClient;
 import org.openlmis.referencedata.repository.FacilityRepository;
 import org.openlmis.referencedata.repository.FacilityTypeApprovedProductRepository;
 import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.service.ApprovedProductListService;
+import org.openlmis.referencedata.service.ApprovedProductListService.ApprovedProductList;
 import org.openlmis.referencedata.service.FacilityBuilder;
 import org.openlmis.referencedata.service.FacilityService;
-import org.openlmis.referencedata.service.RightAssignmentService;
+import org.openlmis.referencedata.service.RightAssignmentChange;
+import org.openlmis.referencedata.service.RightAssignmentRegenerationScheduler;
+import org.openlmis.referencedata.util.Message;
+import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.util.messagekeys.FacilityMessageKeys;
 import org.openlmis.referencedata.validate.FacilityValidator;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.slf4j.profiler.Profiler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -64,7 +81,9 @@ import org.springframework.util.MultiValueMap;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -81,6 +100,20 @@ public class FacilityController extends BaseController {
 
   public static final String RESOURCE_PATH = "/facilities";
 
+  // Sort properties accepted by the boundary search, mapped to columns of its native query.
+  private static final Map<String, String> BOUNDARY_SORT_COLUMNS = new HashMap<>();
+
+  static {
+    BOUNDARY_SORT_COLUMNS.put("id", "id");
+    BOUNDARY_SORT_COLUMNS.put("code", "code");
+    BOUNDARY_SORT_COLUMNS.put("name", "name");
+    BOUNDARY_SORT_COLUMNS.put("description", "description");
+    BOUNDARY_SORT_COLUMNS.put("active", "active");
+    BOUNDARY_SORT_COLUMNS.put("enabled", "enabled");
+    BOUNDARY_SORT_COLUMNS.put("goLiveDate", "golivedate");
+    BOUNDARY_SORT_COLUMNS.put("goDownDate", "godowndate");
+  }
+
   @Autowired
   private FacilityRepository facilityRepository;
 
@@ -90,6 +123,9 @@ public class FacilityController extends BaseController {
   @Autowired
   private OrderableRepository orderableRepository;
 
+  @Autowired
+  private ApprovedProductListService approvedProductListService;
+
   @Autowired
   private FacilityService facilityService;
 
@@ -97,7 +133,7 @@ public class FacilityController extends BaseController {
   private FacilityValidator facilityValidator;
 
   @Autowired
-  private RightAssignmentService rightAssignmentService;
+  private RightAssignmentRegenerationScheduler rightAssignmentRegenerationScheduler;
 
   @Autowired
   private FhirClient fhirClient;
@@ -105,6 +141,12 @@ public class FacilityController extends BaseController {
   @Autowired
   private FacilityBuilder facilityBuilder;
 
+  @Value("${facilities.nearest.maxLimit}")
+  private int nearestMaxLimit;
+
+  @Value("${facilities.approvedProducts.maxFacilities}")
+  private int approvedProductsMaxFacilities;
+
   /**
    * Allows creating new facilities. If the id is specified, it will be ignored.
    *
@@ -281,7 +323,8 @@ public class FacilityController extends BaseController {
     fhirClient.synchronizeFacility(facilityToSave);
 
     profiler.start("REGENERATE_RIGHT_ASSIGNMENTS");
-    rightAssignmentService.regenerateRightAssignments();
+    rightAssignmentRegenerationScheduler.schedule(
+        RightAssignmentChange.ofFacility(facilityToSave.getId()));
 
     XLOGGER.info("Saved facility with id: {}", facilityToSave.getId());
     FacilityDto dto = toDto(facilityToSave, profiler);
@@ -311,18 +354,20 @@ public class FacilityController extends BaseController {
   }
 
   /**
-   * Returns full or non-full supply approved products for the given facility.
+   * Returns full or non-full supply approved products for the given facility. Active products of a
+   * program, which are either full supply or non-full supply, are served from the materialized
+   * approved product list of the facility type; the ETag of the response is then the version of
+   * that list, so a matching If-None-Match header is answered with 304 without loading products.
    *
    * @param facilityId ID of the facility
    * @param programId  ID of the program
    * @param fullSupply true to retrieve full-supply products, false to retrieve non-full supply
    *                   products
+   * @param ifNoneMatch entity tag of the approved product list known to the client.
    * @return collection of approved products
    */
   @RequestMapping(value = RESOURCE_PATH + "/{id}/approvedProducts")
-  @ResponseStatus(HttpStatus.OK)
-  @ResponseBody
-  public Page<ApprovedProductDto> getApprovedProducts(
+  public ResponseEntity<Page<ApprovedProductDto>> getApprovedProducts(
       @PathVariable("id") UUID facilityId,
       @RequestParam(required = false, value = "programId") UUID programId,
       @RequestParam(required = false, value = "fullSupply") Boolean fullSupply,
@@ -330,29 +375,153 @@ public class FacilityController extends BaseController {
       @RequestParam(required = false, value = "active") Boolean active,
       @RequestParam(required = false, value = "orderableCode") String orderableCode,
       @RequestParam(required = false, value = "orderableName") String orderableName,
-      @PageableDefault(size = Integer.MAX_VALUE) Pageable pageable) {
+      @PageableDefault(size = Integer.MAX_VALUE) Pageable pageable,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
     Profiler profiler = new Profiler("GET_FACILITY_APPROVED_PRODUCTS");
     profiler.setLogger(XLOGGER);
 
+    boolean listed = null != programId && null != fullSupply && isEmpty(orderablesId)
+        && !Boolean.FALSE.equals(active) && isBlank(orderableCode) && isBlank(orderableName);
+
+    if (!listed) {
+      profiler.start("FIND_APPROVED_PRODUCTS");
+      Page<FacilityTypeApprovedProduct> products = facilityTypeApprovedProductRepository
+          .searchProducts(facilityId, programId, fullSupply, orderablesId, active, orderableCode,
+              orderableName, pageable
+          );
+
+      Page<ApprovedProductDto> list = toDto(products, pageable, profiler);
+
+      profiler.stop().log();
+      return ResponseEntity.ok(list);
+    }
+
+    profiler.start("GET_APPROVED_PRODUCT_LIST");
+    ApprovedProductList approvedProductList = approvedProductListService
+        .getList(facilityId, programId, fullSupply);
+    String eTag = approvedProductList.getETag();
+    if (null != eTag && matchesETag(ifNoneMatch, eTag)) {
+      profiler.stop().log();
+      return ResponseEntity
+          .status(HttpStatus.NOT_MODIFIED)
+          .eTag(eTag)
+          .build();
+    }
+
     profiler.start("FIND_APPROVED_PRODUCTS");
-    Page<FacilityTypeApprovedProduct> products = facilityTypeApprovedProductRepository
-        .searchProducts(facilityId, programId, fullSupply, orderablesId, active, orderableCode,
-            orderableName, pageable
-        );
+    List<VersionIdentity> identities = approvedProductList.getIdentities();
+    List<FacilityTypeApprovedProduct> ftaps = facilityTypeApprovedProductRepository
+        .findAllByIdentities(Pagination.getPage(identities, pageable).getContent());
+    Page<FacilityTypeApprovedProduct> products = Pagination
+        .getPage(ftaps, pageable, identities.size());
 
     Page<ApprovedProductDto> list = toDto(products, pageable, profiler);
 
     profiler.stop().log();
-    return list;
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    if (null != eTag) {
+      response.eTag(eTag);
+    }
+    return response.body(list);
   }
 
   /**
-   * Retrieves all facilities within a boundary.
+   * Returns active approved products of many facilities in a program at once, keyed by facility
+   * ID. Facilities are grouped by their facility type, so the approved product list of every
+   * facility type is read once, and products and orderables of all lists are loaded together.
+   *
+   * @param query facility IDs, program ID and optionally full supply flag.
+   * @return approved products of every facility.
+   */
+  @PostMapping(RESOURCE_PATH + "/approvedProducts")
+  @ResponseStatus(HttpStatus.OK)
+  @ResponseBody
+  public Map<UUID, List<ApprovedProductDto>> getApprovedProductsOfFacilities(
+      @RequestBody FacilitiesApprovedProductsQueryDto query) {
+    Profiler profiler = new Profiler("GET_FACILITIES_APPROVED_PRODUCTS");
+    profiler.setLogger(XLOGGER);
+
+    if (isEmpty(query.getFacilityIds()) || null == query.getProgramId()) {
+      profiler.stop().log();
+      throw new ValidationMessageException(
+          FacilityMessageKeys.ERROR_APPROVED_PRODUCTS_LACKS_PARAMETERS);
+    }
+
+    if (query.getFacilityIds().size() > approvedProductsMaxFacilities) {
+      profiler.stop().log();
+      throw new ValidationMessageException(new Message(
+          FacilityMessageKeys.ERROR_APPROVED_PRODUCTS_TOO_MANY_FACILITIES,
+          approvedProductsMaxFacilities, query.getFacilityIds().size()));
+    }
+
+    profiler.start("GET_FACILITY_TYPES");
+    Map<UUID, UUID> facilityTypeIds = approvedProductListService
+        .getFacilityTypeIds(query.getFacilityIds());
+    for (UUID facilityId : query.getFacilityIds()) {
+      if (!facilityTypeIds.containsKey(facilityId)) {
+        profiler.stop().log();
+        throw new ValidationMessageException(
+            new Message(FacilityMessageKeys.ERROR_NOT_FOUND_WITH_ID, facilityId));
+      }
+    }
+
+    profiler.start("GET_APPROVED_PRODUCT_LISTS");
+    Map<UUID, List<VersionIdentity>> identitiesByType = new HashMap<>();
+    for (UUID facilityTypeId : new HashSet<>(facilityTypeIds.values())) {
+      List<VersionIdentity> identities = new ArrayList<>();
+      if (!Boolean.FALSE.equals(query.getFullSupply())) {
+        identities.addAll(approvedProductListService
+            .getListOfType(facilityTypeId, query.getProgramId(), true).getIdentities());
+      }
+      if (!Boolean.TRUE.equals(query.getFullSupply())) {
+        identities.addAll(approvedProductListService
+            .getListOfType(facilityTypeId, query.getProgramId(), false).getIdentities());
+      }
+      identitiesByType.put(facilityTypeId, identities);
+    }
+
+    profiler.start("FIND_APPROVED_PRODUCTS");
+    List<VersionIdentity> allIdentities = identitiesByType
+        .values()
+        .stream()
+        .flatMap(List::stream)
+        .distinct()
+        .collect(Collectors.toList());
+    List<FacilityTypeApprovedProduct> ftaps = facilityTypeApprovedProductRepository
+        .findAllByIdentities(allIdentities);
+    List<ApprovedProductDto> dtos = toApprovedProductDtos(ftaps, profiler);
+
+    Map<VersionIdentity, ApprovedProductDto> dtosByIdentity = new HashMap<>();
+    for (int i = 0; i < ftaps.size(); ++i) {
+      dtosByIdentity.put(ftaps.get(i).getVersionIdentity(), dtos.get(i));
+    }
+
+    profiler.start("GROUP_BY_FACILITY");
+    Map<UUID, List<ApprovedProductDto>> productsByType = new HashMap<>();
+    identitiesByType.forEach((facilityTypeId, identities) -> productsByType.put(facilityTypeId,
+        identities
+            .stream()
+            .map(dtosByIdentity::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList())));
+
+    Map<UUID, List<ApprovedProductDto>> result = new LinkedHashMap<>();
+    for (UUID facilityId : query.getFacilityIds()) {
+      result.put(facilityId, productsByType.get(facilityTypeIds.get(facilityId)));
+    }
+
+    profiler.stop().log();
+    return result;
+  }
+
+  /**
+   * Retrieves a page of facilities within a boundary. Only the requested page is read from the
+   * database; unless another order is requested, facilities are ordered by name.
    *
    * @param boundary GeoJSON polygon specifying a boundary
-   * @param pageable object used to encapsulate the pagination related values: page and size.
-   * @return List of wanted facilities within the boundary.
+   * @param pageable object used to encapsulate the pagination related values: page, size and sort.
+   * @return Page of wanted facilities within the boundary.
    */
   @RequestMapping(value = RESOURCE_PATH + "/byBoundary", method = RequestMethod.POST)
   @ResponseStatus(HttpStatus.OK)
@@ -364,16 +533,79 @@ public class FacilityController extends BaseController {
 
     checkAdminRight(RightName.FACILITIES_MANAGE_RIGHT, profiler);
 
+    Pageable sorted = getBoundarySort(pageable, profiler);
+
     profiler.start("DB_CALL");
-    List<Facility> foundFacilities = facilityRepository.findByBoundary(boundary);
+    Page<Facility> foundFacilities = facilityRepository.findByBoundary(boundary, sorted);
 
-    List<FacilityDto> facilityDtos = toDto(foundFacilities, profiler);
-    Page<FacilityDto> page = toPage(facilityDtos, pageable, profiler);
+    List<FacilityDto> facilityDtos = toDto(foundFacilities.getContent(), profiler);
+    Page<FacilityDto> page = toPage(facilityDtos, pageable,
+        foundFacilities.getTotalElements(), profiler);
 
     profiler.stop().log();
     return page;
   }
 
+  /**
+   * Maps the requested sort to columns of the boundary search, sorting by name when no sort is
+   * given. The id is always the last sort key, so pages are stable when sort values repeat.
+   */
+  private Pageable getBoundarySort(Pageable pageable, Profiler profiler) {
+    List<Sort.Order> orders = new ArrayList<>();
+    for (Sort.Order order : pageable.getSort()) {
+      String column = BOUNDARY_SORT_COLUMNS.get(order.getProperty());
+      if (null == column) {
+        profiler.stop().log();
+        throw new ValidationMessageException(new Message(
+            FacilityMessageKeys.ERROR_BOUNDARY_SORT_INVALID, order.getProperty()));
+      }
+      orders.add(new Sort.Order(order.getDirection(), column));
+    }
+
+    if (orders.isEmpty()) {
+      orders.add(Sort.Order.asc("name"));
+    }
+    if (orders.stream().noneMatch(order -> "id".equals(order.getProperty()))) {
+      orders.add(Sort.Order.asc("id"));
+    }
+
+    return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(orders));
+  }
+
+  /**
+   * Retrieves facilities nearest to a location, the nearest first. Facilities without a location
+   * are left out.
+   *
+   * @param location GeoJSON point specifying a location
+   * @param limit the number of facilities to return, capped by the configured maximum.
+   * @return List of facilities nearest to the location.
+   */
+  @PostMapping(RESOURCE_PATH + "/nearest")
+  @ResponseStatus(HttpStatus.OK)
+  @ResponseBody
+  public List<FacilityDto> findNearestFacilities(@RequestBody Point location,
+      @RequestParam(value = "limit", defaultValue = "10") int limit) {
+    Profiler profiler = new Profiler("GET_NEAREST_FACILITIES");
+    profiler.setLogger(XLOGGER);
+
+    checkAdminRight(RightName.FACILITIES_MANAGE_RIGHT, profiler);
+
+    if (limit < 1) {
+      profiler.stop().log();
+      throw new ValidationMessageException(
+          new Message(FacilityMessageKeys.ERROR_NEAREST_LIMIT_INVALID, limit));
+    }
+
+    profiler.start("DB_CALL");
+    List<Facility> foundFacilities = facilityRepository.findNearest(location,
+        Math.min(limit, nearestMaxLimit));
+
+    List<FacilityDto> facilityDtos = toDto(foundFacilities, profiler);
+
+    profiler.stop().log();
+    return facilityDtos;
+  }
+
   /**
    * Allows deleting facility.
    *
@@ -480,9 +712,14 @@ public class FacilityController extends BaseController {
 
   private Page<ApprovedProductDto> toDto(Page<FacilityTypeApprovedProduct> products,
       Pageable pageable, Profiler profiler) {
-    profiler.start("EXPORT_PRODUCTS_TO_DTO");
+    List<ApprovedProductDto> dtos = toApprovedProductDtos(products.getContent(), profiler);
+
+    return toPage(dtos, pageable, products.getTotalElements(), profiler);
+  }
 
-    List<FacilityTypeApprovedProduct> ftaps = products.getContent();
+  private List<ApprovedProductDto> toApprovedProductDtos(List<FacilityTypeApprovedProduct> ftaps,
+      Profiler profiler) {
+    profiler.start("EXPORT_PRODUCTS_TO_DTO");
 
     Set<UUID> orderableId = ftaps
         .stream()
@@ -507,7 +744,7 @@ public class FacilityController extends BaseController {
       dtos.add(productDto);
     }
 
-    return toPage(dtos, pageable, products.getTotalElements(), profiler);
+    return dtos;
   }
 
   private Page<MinimalFacilityDto> toMinimalDto(Page<Facility> facilities, Profiler profiler,
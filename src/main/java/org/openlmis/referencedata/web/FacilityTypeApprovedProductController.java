@@ -31,10 +31,13 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.openlmis.referencedata.domain.FacilityTypeApprovedProduct;
 import org.openlmis.referencedata.domain.Orderable;
 import org.openlmis.referencedata.dto.ApprovedProductDto;
+import org.openlmis.referencedata.dto.CursorPageDto;
 import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.repository.FacilityTypeApprovedProductRepository;
+import org.openlmis.referencedata.repository.KeysetPage;
 import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.repository.SeekCursor;
 import org.openlmis.referencedata.service.FacilityTypeApprovedProductBuilder;
 import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.util.UuidUtil;
@@ -232,6 +235,46 @@ public class FacilityTypeApprovedProductController extends BaseController {
     return page;
   }
 
+  /**
+   * Search approved products by search criteria page by page with a cursor. Approved products are
+   * ordered by id and version number and each page is read right after the cursor returned with
+   * the previous one instead of with an offset. The total number of approved
+   * products is not returned.
+   *
+   * @param queryParams a map containing search parameters. Supported keys are:
+   *                    * facilityType [required]
+   *                    * program
+   * @param cursor      the cursor returned with the previous page, none for the first page.
+   * @return a page of approved products together with the cursor of the next page
+   */
+  @GetMapping("/cursor")
+  public CursorPageDto<ApprovedProductDto> searchFacilityTypeApprovedProductsByCursor(
+      @RequestParam MultiValueMap<String, Object> queryParams,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      Pageable pageable) {
+    Profiler profiler = new Profiler("SEEK_FACILITY_TYPE_APPROVED_PRODUCT");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("PARSE_QUERY_PARAMETERS");
+    QueryFacilityTypeApprovedProductSearchParams searchParams =
+        new QueryFacilityTypeApprovedProductSearchParams(queryParams);
+    SeekCursor after = SeekCursor.decode(cursor);
+
+    profiler.start("SEEK_FTAPS");
+    KeysetPage<FacilityTypeApprovedProduct> ftaps = repository
+        .seekProducts(searchParams, after, pageable.getPageSize());
+
+    List<ApprovedProductDto> content = toDto(ftaps.getContent(), profiler);
+
+    profiler.start("CREATE_PAGE");
+    SeekCursor next = ftaps.getNextCursor();
+    CursorPageDto<ApprovedProductDto> page =
+        new CursorPageDto<>(content, null == next ? null : next.encode());
+
+    profiler.stop().log();
+    return page;
+  }
+
   /**
    * Search approved products by search criteria.
    *
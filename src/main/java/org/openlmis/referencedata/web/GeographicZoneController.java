@@ -27,6 +27,7 @@ import org.openlmis.referencedata.dto.GeographicZoneSimpleDto;
 import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.fhir.FhirClient;
 import org.openlmis.referencedata.repository.GeographicZoneRepository;
+import org.openlmis.referencedata.service.GeographicHierarchy;
 import org.openlmis.referencedata.service.GeographicZoneBuilder;
 import org.openlmis.referencedata.service.GeographicZoneService;
 import org.openlmis.referencedata.util.messagekeys.GeographicZoneMessageKeys;
@@ -67,6 +68,9 @@ public class GeographicZoneController extends BaseController {
   @Autowired
   private GeographicZoneBuilder geographicZoneBuilder;
 
+  @Autowired
+  private GeographicHierarchy geographicHierarchy;
+
   @Autowired
   private GeographicZoneValidator geographicZoneValidator;
 
@@ -101,6 +105,7 @@ public class GeographicZoneController extends BaseController {
 
     profiler.start("SAVE_TO_DB");
     GeographicZone zone = geographicZoneRepository.save(geographicZone);
+    geographicHierarchy.invalidate();
 
     profiler.start("SYNC_FHIR_RESOURCE");
     fhirClient.synchronizeGeographicZone(zone);
@@ -164,6 +169,7 @@ public class GeographicZoneController extends BaseController {
     XLOGGER.debug("Updating geographicZone");
     profiler.start("SAVE");
     GeographicZone zone = geographicZoneRepository.save(geoZoneToSave);
+    geographicHierarchy.invalidate();
 
     profiler.start("SYNC_FHIR_RESOURCE");
     fhirClient.synchronizeGeographicZone(zone);
@@ -227,6 +233,7 @@ public class GeographicZoneController extends BaseController {
 
     profiler.start("DELETE_INSTANCE");
     geographicZoneRepository.deleteById(geographicZoneId);
+    geographicHierarchy.invalidate();
 
     profiler.stop().log();
   }
@@ -18,21 +18,31 @@ package org.openlmis.referencedata.web;
 import static org.openlmis.referencedata.domain.RightName.ORDERABLES_MANAGE;
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
-import org.apache.commons.lang3.tuple.Pair;
+import javax.servlet.http.HttpServletResponse;
 import org.openlmis.referencedata.domain.Orderable;
+import org.openlmis.referencedata.domain.VersionIdentity;
+import org.openlmis.referencedata.dto.CursorPageDto;
 import org.openlmis.referencedata.dto.OrderableDto;
+import org.openlmis.referencedata.dto.VersionIdentityDto;
 import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.extension.ExtensionManager;
 import org.openlmis.referencedata.extension.point.ExtensionPointId;
 import org.openlmis.referencedata.extension.point.OrderableCreatePostProcessor;
 import org.openlmis.referencedata.extension.point.OrderableUpdatePostProcessor;
+import org.openlmis.referencedata.repository.KeysetPage;
 import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.repository.SeekCursor;
+import org.openlmis.referencedata.service.OrderableCatalogVersion;
+import org.openlmis.referencedata.service.OrderableSearchResult;
 import org.openlmis.referencedata.service.OrderableService;
+import org.openlmis.referencedata.util.Message;
 import org.openlmis.referencedata.util.OrderableBuilder;
 import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.util.UuidUtil;
@@ -42,14 +52,15 @@ import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.slf4j.profiler.Profiler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -69,10 +80,8 @@ import org.springframework.web.bind.annotation.RestController;
 public class OrderableController extends BaseController {
 
   public static final String RESOURCE_PATH = "/orderables";
+  public static final String NDJSON = "application/x-ndjson";
   private static final XLogger XLOGGER = XLoggerFactory.getXLogger(OrderableController.class);
-  private static final String NAME = "name";
-  private static final String CODE = "code";
-  private static final String PROGRAM_CODE = "program";
 
   @Autowired
   private OrderableRepository repository;
@@ -89,6 +98,12 @@ public class OrderableController extends BaseController {
   @Autowired
   private ExtensionManager extensionManager;
 
+  @Autowired
+  private OrderableCatalogVersion orderableCatalogVersion;
+
+  @Value("${orderables.versions.maxSize}")
+  private int versionsMaxSize;
+
   /**
    * Create an orderable.
    *
@@ -114,6 +129,7 @@ public class OrderableController extends BaseController {
 
     profiler.start("SAVE_ORDERABLE");
     repository.save(orderable);
+    orderableCatalogVersion.orderablesChanged();
 
     OrderableCreatePostProcessor orderableCreatePostProcessor = extensionManager.getExtension(
         ExtensionPointId.ORDERABLE_CREATE_POST_POINT_ID, OrderableCreatePostProcessor.class);
@@ -157,6 +173,7 @@ public class OrderableController extends BaseController {
 
     Orderable savedOrderable = repository
         .save(orderableBuilder.newOrderable(orderableDto, foundOrderable));
+    orderableCatalogVersion.orderablesChanged();
 
     OrderableUpdatePostProcessor orderableUpdatePostProcessor = extensionManager.getExtension(
         ExtensionPointId.ORDERABLE_UPDATE_POST_POINT_ID, OrderableUpdatePostProcessor.class);
@@ -173,7 +190,9 @@ public class OrderableController extends BaseController {
   /**
    * Finds orderables matching all of the provided parameters. If no params provided, returns all.
    * If provided invalid param, throws {@link ValidationMessageException}. If provided request
-   * param doesn't have value, it will search for empty value in database.
+   * param doesn't have value, it will search for empty value in database. If no orderable was
+   * changed since the If-Modified-Since date or the If-None-Match catalog version, 304 is returned
+   * without querying the database.
    *
    * @param queryParams request parameters (code, name, program, ids).
    * @param pageable    object used to encapsulate the pagination related values: page and size.
@@ -183,17 +202,31 @@ public class OrderableController extends BaseController {
   public ResponseEntity<Page<OrderableDto>> findAll(
       @RequestParam MultiValueMap<String, Object> queryParams,
       @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false) String ifModifiedDate,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
       Pageable pageable) {
     XLOGGER.entry(queryParams, pageable);
     Profiler profiler = new Profiler("ORDERABLES_SEARCH");
     profiler.setLogger(XLOGGER);
 
+    // invalid parameters are rejected even if the catalog has not changed
+    profiler.start("VALIDATE_PARAMS");
     QueryOrderableSearchParams searchParams = new QueryOrderableSearchParams(queryParams);
-    ZonedDateTime lastUpdated = orderableService.getLatestLastUpdatedDate(searchParams, profiler);
+
+    profiler.start("GET_CATALOG_VERSION");
+    OrderableCatalogVersion.Snapshot catalog = orderableCatalogVersion.getSnapshot();
+    if (isCatalogNotModified(catalog, ifModifiedDate, ifNoneMatch)) {
+      profiler.stop().log();
+      return catalogNotModified(catalog);
+    }
+
+    OrderableSearchResult result = orderableService
+        .searchOrderables(searchParams, pageable, profiler);
+    ZonedDateTime lastUpdated = result.getLastUpdated();
 
     if (lastUpdated == null) {
       Page<OrderableDto> emptyPage = Pagination.getPage(Collections.emptyList(), pageable, 0);
       return ResponseEntity.ok()
+          .eTag(catalog.getETag())
           .body(emptyPage);
     }
 
@@ -202,8 +235,7 @@ public class OrderableController extends BaseController {
       XLOGGER.info("search orderable query params: {}", queryParams);
 
       profiler.start("ORDERABLE_SERVICE_SEARCH");
-      Page<Orderable> orderablesPage =
-          orderableService.searchOrderables(searchParams, pageable);
+      Page<Orderable> orderablesPage = result.getPage();
 
       profiler.start("ORDERABLE_PAGINATION");
       Page<OrderableDto> page = Pagination.getPage(
@@ -215,17 +247,133 @@ public class OrderableController extends BaseController {
       XLOGGER.exit(page);
       return ResponseEntity.ok()
           .headers(buildLastModifiedHeader(lastUpdated))
+          .eTag(catalog.getETag())
           .body(page);
     } else {
       profiler.stop().log();
       return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
           .headers(buildLastModifiedHeader(lastUpdated))
+          .eTag(catalog.getETag())
           .build();
     }
   }
 
   /**
-   * Search orderables by search criteria.
+   * Finds orderables matching the parameters page by page with a cursor. Orderables are ordered
+   * by name, id and version number and each page is read right after the cursor returned with the
+   * previous one instead of with an offset, so all pages cost the same no matter how deep the
+   * client is. The total number of orderables is not returned.
+   *
+   * @param queryParams request parameters (code, name, program, tradeItemId).
+   * @param cursor      the cursor returned with the previous page, none for the first page.
+   * @param pageable    object used to encapsulate the size of the page.
+   * @return a page of orderables together with the cursor of the next page
+   */
+  @GetMapping(RESOURCE_PATH + "/cursor")
+  public CursorPageDto<OrderableDto> findAllByCursor(
+      @RequestParam MultiValueMap<String, Object> queryParams,
+      @RequestParam(value = "cursor", required = false) String cursor,
+      Pageable pageable) {
+    Profiler profiler = new Profiler("ORDERABLES_SEEK");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("PARSE_QUERY_PARAMETERS");
+    QueryOrderableSearchParams searchParams = new QueryOrderableSearchParams(queryParams);
+    if (!searchParams.getIds().isEmpty()) {
+      profiler.stop().log();
+      throw new ValidationMessageException(OrderableMessageKeys.ERROR_INVALID_PARAMS);
+    }
+
+    SeekCursor after = SeekCursor.decode(cursor);
+
+    profiler.start("SEEK_ORDERABLES");
+    KeysetPage<Orderable> orderables = repository
+        .seek(searchParams, after, pageable.getPageSize());
+
+    profiler.start("EXPORT_TO_DTO");
+    SeekCursor next = orderables.getNextCursor();
+    CursorPageDto<OrderableDto> page = new CursorPageDto<>(
+        OrderableDto.newInstances(orderables.getContent()),
+        null == next ? null : next.encode());
+
+    profiler.stop().log();
+    return page;
+  }
+
+  /**
+   * Streams the latest versions of orderables matching the parameters as newline-delimited JSON,
+   * one orderable per line, ordered by name. Orderables are written in batches while they are
+   * read from the database, so the whole catalog is never kept in memory.
+   *
+   * @param queryParams request parameters (code, name, program, tradeItemId).
+   */
+  @GetMapping(RESOURCE_PATH + "/stream")
+  @ResponseStatus(HttpStatus.OK)
+  public void streamOrderables(@RequestParam MultiValueMap<String, Object> queryParams,
+      HttpServletResponse response) {
+    Profiler profiler = new Profiler("ORDERABLES_STREAM");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("PARSE_QUERY_PARAMETERS");
+    QueryOrderableSearchParams searchParams = new QueryOrderableSearchParams(queryParams);
+    if (!searchParams.getIds().isEmpty()) {
+      profiler.stop().log();
+      throw new ValidationMessageException(OrderableMessageKeys.ERROR_INVALID_PARAMS);
+    }
+
+    response.setContentType(NDJSON);
+
+    profiler.start("WRITE_ORDERABLES");
+    writeStreamingBody(response, "orderables",
+        outputStream -> orderableService.writeNdjson(searchParams, outputStream));
+
+    profiler.stop().log();
+  }
+
+  /**
+   * Returns orderables with the given ids and version numbers as a JSON array, in the order of the
+   * identities. Identities without an orderable are skipped and duplicates are returned once. The
+   * orderables are neither counted nor sorted, and they are written in batches while they are
+   * read from the database. The number of identities in one request is limited.
+   *
+   * @param body orderable ids with version numbers.
+   */
+  @PostMapping(RESOURCE_PATH + "/versions")
+  @ResponseStatus(HttpStatus.OK)
+  public void getOrderableVersions(@RequestBody List<VersionIdentityDto> body,
+      HttpServletResponse response) {
+    Profiler profiler = new Profiler("ORDERABLES_GET_VERSIONS");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("VALIDATE_IDENTITIES");
+    if (body.size() > versionsMaxSize) {
+      profiler.stop().log();
+      throw new ValidationMessageException(new Message(
+          OrderableMessageKeys.ERROR_TOO_MANY_VERSION_IDENTITIES, versionsMaxSize, body.size()));
+    }
+
+    Set<VersionIdentity> identities = new LinkedHashSet<>();
+    for (VersionIdentityDto identity : body) {
+      if (null == identity || null == identity.getId() || null == identity.getVersionNumber()) {
+        profiler.stop().log();
+        throw new ValidationMessageException(OrderableMessageKeys.ERROR_INVALID_VERSION_IDENTITY);
+      }
+
+      identities.add(new VersionIdentity(identity.getId(), identity.getVersionNumber()));
+    }
+
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+    profiler.start("WRITE_ORDERABLES");
+    writeStreamingBody(response, "orderable versions", outputStream -> orderableService
+        .writeJsonByIdentities(new ArrayList<>(identities), outputStream));
+
+    profiler.stop().log();
+  }
+
+  /**
+   * Search orderables by search criteria. If no orderable was changed since the If-Modified-Since
+   * date or the If-None-Match catalog version, 304 is returned without querying the database.
    *
    * @param body - specify criteria for orderables.
    * @return a page of orderables matching the criteria
@@ -234,26 +382,36 @@ public class OrderableController extends BaseController {
   public ResponseEntity<Page<OrderableDto>> searchOrderables(
       @RequestBody OrderableSearchParams body,
       @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false)
-      String ifModifiedDate) {
+      String ifModifiedDate,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+      String ifNoneMatch) {
     Profiler profiler = new Profiler("ORDERABLES_SEARCH_POST");
     profiler.setLogger(XLOGGER);
 
     Pageable pageable = body.getPageable();
 
-    profiler.start("GET_LATEST_LAST_UPDATED_DATE");
-    ZonedDateTime lastUpdated = orderableService
-        .getLatestLastUpdatedDate(getQueryOrderableSearchParams(body), profiler);
+    profiler.start("GET_CATALOG_VERSION");
+    OrderableCatalogVersion.Snapshot catalog = orderableCatalogVersion.getSnapshot();
+    if (isCatalogNotModified(catalog, ifModifiedDate, ifNoneMatch)) {
+      profiler.stop().log();
+      return catalogNotModified(catalog);
+    }
+
+    OrderableSearchResult result = orderableService
+        .searchOrderablesByParams(body, pageable, profiler);
+    ZonedDateTime lastUpdated = result.getLastUpdated();
 
     if (lastUpdated == null) {
       Page<OrderableDto> emptyPage = Pagination.getPage(Collections.emptyList(), pageable, 0);
       return ResponseEntity.ok()
+          .eTag(catalog.getETag())
           .body(emptyPage);
     }
 
     if (ifModifiedDate == null
         || wasModifiedSince(lastUpdated, parseHttpDateToZonedDateTime(ifModifiedDate))) {
       profiler.start("SEARCH_ORDERABLES");
-      Page<Orderable> orderablesPage = repository.search(body, pageable);
+      Page<Orderable> orderablesPage = result.getPage();
 
       profiler.start("EXPORT_TO_DTO");
       Page<OrderableDto> page = Pagination.getPage(
@@ -265,11 +423,13 @@ public class OrderableController extends BaseController {
       XLOGGER.exit(page);
       return ResponseEntity.ok()
           .headers(buildLastModifiedHeader(lastUpdated))
+          .eTag(catalog.getETag())
           .body(page);
     } else {
       profiler.stop().log();
       return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
           .headers(buildLastModifiedHeader(lastUpdated))
+          .eTag(catalog.getETag())
           .build();
     }
   }
@@ -354,29 +514,29 @@ public class OrderableController extends BaseController {
     return headers;
   }
 
-  public boolean wasModifiedSince(ZonedDateTime lastUpdated, ZonedDateTime date) {
-    return date == null || lastUpdated == null || lastUpdated.isAfter(date);
-  }
-
-  private QueryOrderableSearchParams getQueryOrderableSearchParams(
-      OrderableSearchParams searchParams) {
-
-    Set<UUID> ids = searchParams.getIdentityPairs()
-        .stream()
-        .map(Pair::getKey)
-        .collect(Collectors.toSet());
+  private boolean isCatalogNotModified(OrderableCatalogVersion.Snapshot catalog,
+      String ifModifiedDate, String ifNoneMatch) {
+    if (matchesETag(ifNoneMatch, catalog.getETag())) {
+      return true;
+    }
 
-    LinkedMultiValueMap<String, Object> queryMap = new LinkedMultiValueMap<>();
+    return ifModifiedDate != null && catalog.getLastUpdated() != null
+        && !wasModifiedSince(catalog.getLastUpdated(),
+        parseHttpDateToZonedDateTime(ifModifiedDate));
+  }
 
-    if (!ids.isEmpty()) {
-      for (UUID id : ids) {
-        queryMap.add("id", id.toString());
-      }
+  private <T> ResponseEntity<T> catalogNotModified(OrderableCatalogVersion.Snapshot catalog) {
+    ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.NOT_MODIFIED);
+    if (catalog.getLastUpdated() != null) {
+      builder.headers(buildLastModifiedHeader(catalog.getLastUpdated()));
     }
-    queryMap.add(NAME, searchParams.getName());
-    queryMap.add(CODE, searchParams.getCode());
-    queryMap.add(PROGRAM_CODE, searchParams.getProgramCode());
 
-    return new QueryOrderableSearchParams(queryMap);
+    return builder
+        .eTag(catalog.getETag())
+        .build();
+  }
+
+  public boolean wasModifiedSince(ZonedDateTime lastUpdated, ZonedDateTime date) {
+    return date == null || lastUpdated == null || lastUpdated.isAfter(date);
   }
 }
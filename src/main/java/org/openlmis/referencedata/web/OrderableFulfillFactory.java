@@ -15,13 +15,22 @@
 
 package org.openlmis.referencedata.web;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.openlmis.referencedata.domain.Orderable.COMMODITY_TYPE;
 import static org.openlmis.referencedata.domain.Orderable.TRADE_ITEM;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.openlmis.referencedata.domain.BaseEntity;
 import org.openlmis.referencedata.domain.CommodityType;
 import org.openlmis.referencedata.domain.Dispensable;
@@ -48,76 +57,103 @@ public class OrderableFulfillFactory {
    */
   public OrderableFulfill createFor(Orderable orderable, EntityCollection<TradeItem> tradeItems,
                                     EntityCollection<CommodityType> commodityTypes) {
-    Profiler profiler = new Profiler("CREATE_ORDERABLE_FULFILL");
+    return createFor(singletonList(orderable), tradeItems, commodityTypes).get(orderable.getId());
+  }
+
+  /**
+   * Create new instances of {@link OrderableFulfill} for the given orderables. Orderables which
+   * have neither a trade item nor a commodity type identifier, or whose trade item or commodity
+   * type does not exist, are left out of the result. The orderables related through trade items
+   * and commodity types are found with one query for each identifier type, whatever the number
+   * of given orderables is.
+   */
+  public Map<UUID, OrderableFulfill> createFor(List<Orderable> orderables,
+      EntityCollection<TradeItem> tradeItems, EntityCollection<CommodityType> commodityTypes) {
+    Profiler profiler = new Profiler("CREATE_ORDERABLE_FULFILLS");
     profiler.setLogger(XLOGGER);
-    profiler.start("GET_IDENTIFIERS");
-    String tradeItemId = orderable.getTradeItemIdentifier();
-    String commodityTypeId = orderable.getCommodityTypeIdentifier();
-
-    OrderableFulfill result = null;
-    if (isNotBlank(tradeItemId)) {
-      result = createForTradeItem(tradeItems, commodityTypes, tradeItemId, orderable, profiler);
-    } else if (isNotBlank(commodityTypeId)) {
-      result = createForCommodityType(tradeItems, commodityTypes, commodityTypeId, orderable,
-          profiler);
+
+    profiler.start("MATCH_TRADE_ITEMS_AND_COMMODITY_TYPES");
+    Map<Orderable, List<CommodityType>> fulfilledCommodityTypes = Maps.newIdentityHashMap();
+    Map<Orderable, List<TradeItem>> fulfillingTradeItems = Maps.newIdentityHashMap();
+    for (Orderable orderable : orderables) {
+      String tradeItemId = orderable.getTradeItemIdentifier();
+      String commodityTypeId = orderable.getCommodityTypeIdentifier();
+
+      if (isNotBlank(tradeItemId)) {
+        TradeItem tradeItem = tradeItems.getById(UUID.fromString(tradeItemId));
+        if (null == tradeItem) {
+          XLOGGER.warn("Orderable {} refers to a missing trade item {}", orderable.getId(),
+              tradeItemId);
+          continue;
+        }
+
+        fulfilledCommodityTypes.put(orderable, commodityTypes.values()
+            .stream()
+            .filter(tradeItem::canFulfill)
+            .collect(Collectors.toList()));
+      } else if (isNotBlank(commodityTypeId)) {
+        CommodityType commodityType = commodityTypes.getById(UUID.fromString(commodityTypeId));
+        if (null == commodityType) {
+          XLOGGER.warn("Orderable {} refers to a missing commodity type {}", orderable.getId(),
+              commodityTypeId);
+          continue;
+        }
+
+        fulfillingTradeItems.put(orderable, tradeItems.values()
+            .stream()
+            .filter(tradeItem -> tradeItem.canFulfill(commodityType))
+            .collect(Collectors.toList()));
+      }
     }
 
+    profiler.start("FIND_ORDERABLES_BY_COMMODITY_TYPES");
+    Map<UUID, List<Orderable>> commodityTypeOrderables = findAllLatestByIdentifiers(
+        COMMODITY_TYPE, fulfilledCommodityTypes.values(), Orderable::getCommodityTypeIdentifier);
+
+    profiler.start("FIND_ORDERABLES_BY_TRADE_ITEMS");
+    Map<UUID, List<Orderable>> tradeItemOrderables = findAllLatestByIdentifiers(
+        TRADE_ITEM, fulfillingTradeItems.values(), Orderable::getTradeItemIdentifier);
+
+    profiler.start("CREATE_ORDERABLE_FULFILLS");
+    Map<UUID, OrderableFulfill> result = Maps.newHashMap();
+    fulfilledCommodityTypes.forEach((orderable, matched) -> result.put(orderable.getId(),
+        OrderableFulfill.ofTradeItem(
+            getIdsWithDispensable(matched, commodityTypeOrderables, orderable.getDispensable()))));
+    fulfillingTradeItems.forEach((orderable, matched) -> result.put(orderable.getId(),
+        OrderableFulfill.ofCommodityType(
+            getIdsWithDispensable(matched, tradeItemOrderables, orderable.getDispensable()))));
+
     profiler.stop().log();
     return result;
   }
 
-  private OrderableFulfill createForTradeItem(EntityCollection<TradeItem> tradeItems,
-      EntityCollection<CommodityType> commodityTypes, String id,
-      Orderable tradeItemOrderable, Profiler profiler) {
-    profiler.start("FETCH_TRADE_ITEM");
-    TradeItem tradeItem = tradeItems.getById(UUID.fromString(id));
-
-    profiler.start("CREATE_ORDERABLE_FULFILL_FOR_TRADE_ITEM");
-    List<UUID> canBeFulfilledByMe = Lists.newArrayList();
-    commodityTypes.values().forEach(
-        commodityType -> {
-          if (tradeItem.canFulfill(commodityType)) {
-            addToListIfDispensableMatches(canBeFulfilledByMe, COMMODITY_TYPE, commodityType,
-                tradeItemOrderable.getDispensable());
-          }
-        }
-    );
-
-    return OrderableFulfill.ofTradeItem(canBeFulfilledByMe);
-  }
+  private Map<UUID, List<Orderable>> findAllLatestByIdentifiers(String identifierType,
+      Collection<? extends List<? extends BaseEntity>> entities,
+      Function<Orderable, String> identifier) {
+    Set<UUID> ids = Sets.newHashSet();
+    entities.forEach(list -> list.forEach(entity -> ids.add(entity.getId())));
 
-  private OrderableFulfill createForCommodityType(EntityCollection<TradeItem> tradeItems,
-      EntityCollection<CommodityType> commodityTypes, String id,
-      Orderable commodityTypeOrderable, Profiler profiler) {
-    profiler.start("FETCH_COMMODITY_TYPE");
-    CommodityType commodityType = commodityTypes.getById(UUID.fromString(id));
-
-    profiler.start("CREATE_ORDERABLE_FULFILL_FOR_COMMODITY_TYPE");
-    List<UUID> canFulfillForMe = Lists.newArrayList();
-    tradeItems.values().forEach(
-        tradeItem -> {
-          if (tradeItem.canFulfill(commodityType)) {
-            addToListIfDispensableMatches(canFulfillForMe, TRADE_ITEM, tradeItem,
-                commodityTypeOrderable.getDispensable());
-          }
-        }
-    );
+    if (ids.isEmpty()) {
+      return Maps.newHashMap();
+    }
 
-    return OrderableFulfill.ofCommodityType(canFulfillForMe);
+    return orderableRepository.findAllLatestByIdentifiers(identifierType, ids)
+        .stream()
+        .collect(Collectors.groupingBy(orderable -> UUID.fromString(identifier.apply(orderable))));
   }
 
-  private void addToListIfDispensableMatches(List<UUID> list, String key, BaseEntity entity,
-                                             Dispensable dispensableToMatch) {
-    List<Orderable> orderables = orderableRepository
-        .findAllLatestByIdentifier(key, entity.getId().toString());
-
-    orderables.forEach(
-        item -> {
+  private List<UUID> getIdsWithDispensable(List<? extends BaseEntity> entities,
+      Map<UUID, List<Orderable>> orderablesByIdentifier, Dispensable dispensableToMatch) {
+    List<UUID> ids = Lists.newArrayList();
+    entities.forEach(entity -> orderablesByIdentifier
+        .getOrDefault(entity.getId(), emptyList())
+        .forEach(item -> {
           if (item.hasDispensable(dispensableToMatch)) {
-            list.add(item.getId());
+            ids.add(item.getId());
           }
-        }
-    );
+        }));
+
+    return ids;
   }
 
 }
@@ -0,0 +1,199 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.web;
+
+import static org.openlmis.referencedata.domain.Orderable.COMMODITY_TYPE;
+import static org.openlmis.referencedata.domain.Orderable.TRADE_ITEM;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.openlmis.referencedata.domain.BaseEntity;
+import org.openlmis.referencedata.domain.CommodityType;
+import org.openlmis.referencedata.domain.Orderable;
+import org.openlmis.referencedata.domain.TradeItem;
+import org.openlmis.referencedata.repository.CommodityTypeRepository;
+import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.repository.TradeItemRepository;
+import org.openlmis.referencedata.service.OrderableCatalogVersion;
+import org.openlmis.referencedata.util.EntityCollection;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.slf4j.profiler.Profiler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-process graph of the {@link OrderableFulfill} of every latest orderable which has a trade item
+ * or commodity type identifier. It is built once and reused until trade items, commodity types or
+ * orderables change: changes of orderables are seen through the {@link OrderableCatalogVersion},
+ * changes of trade items and commodity types have to be reported with {@link #invalidate()}. The
+ * graph is also rebuilt once it is older than the configured age, which picks up changes made by
+ * other instances or directly in the database. The graph is never patched in place: any of these
+ * events makes the next request rebuild the whole graph from the database.
+ */
+@Component
+public class OrderableFulfillGraph {
+
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(OrderableFulfillGraph.class);
+
+  @Autowired
+  private OrderableRepository orderableRepository;
+
+  @Autowired
+  private TradeItemRepository tradeItemRepository;
+
+  @Autowired
+  private CommodityTypeRepository commodityTypeRepository;
+
+  @Autowired
+  private OrderableFulfillFactory orderableFulfillFactory;
+
+  @Autowired
+  private OrderableCatalogVersion orderableCatalogVersion;
+
+  @Value("${orderableFulfillGraph.maxAgeSeconds}")
+  private long maxAgeSeconds;
+
+  private final AtomicLong generation = new AtomicLong();
+  private volatile Graph graph;
+
+  /**
+   * Returns the orderable fulfills of all latest orderables, keyed by orderable id.
+   */
+  public Map<UUID, OrderableFulfill> getAll() {
+    return getGraph().getFulfills();
+  }
+
+  /**
+   * Returns the orderable fulfills of the given orderables, keyed by orderable id. Orderables
+   * without trade item or commodity type identifiers are left out.
+   */
+  public Map<UUID, OrderableFulfill> get(Collection<UUID> orderableIds) {
+    Map<UUID, OrderableFulfill> fulfills = getGraph().getFulfills();
+    Map<UUID, OrderableFulfill> result = Maps.newHashMapWithExpectedSize(orderableIds.size());
+
+    for (UUID orderableId : orderableIds) {
+      OrderableFulfill fulfill = fulfills.get(orderableId);
+      if (null != fulfill) {
+        result.put(orderableId, fulfill);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Marks the graph as outdated after trade items or commodity types have been changed. If a
+   * transaction is active, this happens after it commits, so the graph is not rebuilt from the
+   * old data.
+   */
+  public void invalidate() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+              generation.incrementAndGet();
+            }
+          });
+    } else {
+      generation.incrementAndGet();
+    }
+  }
+
+  private Graph getGraph() {
+    String catalogVersion = orderableCatalogVersion.getSnapshot().getVersion();
+    Graph current = graph;
+
+    if (isValid(current, catalogVersion)) {
+      return current;
+    }
+
+    return rebuild(catalogVersion);
+  }
+
+  private synchronized Graph rebuild(String catalogVersion) {
+    Graph current = graph;
+    if (isValid(current, catalogVersion)) {
+      return current;
+    }
+
+    Profiler profiler = new Profiler("REBUILD_ORDERABLE_FULFILL_GRAPH");
+    profiler.setLogger(XLOGGER);
+
+    // read before the data, so a change committed in the meantime makes the new graph outdated
+    long builtGeneration = generation.get();
+
+    profiler.start("FIND_ALL_TRADE_ITEMS_AND_COMMODITY_TYPES");
+    List<TradeItem> tradeItems = tradeItemRepository.findAll();
+    List<CommodityType> commodityTypes = Lists.newArrayList(commodityTypeRepository.findAll());
+
+    profiler.start("FIND_ORDERABLES_WITH_IDENTIFIERS");
+    List<Orderable> orderables = new ArrayList<>(orderableRepository
+        .findAllLatestByIdentifiers(TRADE_ITEM, getIds(tradeItems)));
+    orderables.addAll(orderableRepository
+        .findAllLatestByIdentifiers(COMMODITY_TYPE, getIds(commodityTypes)));
+
+    profiler.start("CREATE_ORDERABLE_FULFILLS");
+    Map<UUID, OrderableFulfill> fulfills = orderableFulfillFactory.createFor(orderables,
+        new EntityCollection<>(tradeItems), new EntityCollection<>(commodityTypes));
+
+    graph = new Graph(catalogVersion, builtGeneration, System.nanoTime(),
+        Collections.unmodifiableMap(fulfills));
+
+    profiler.stop().log();
+    XLOGGER.debug("Built orderable fulfill graph of {} orderables", fulfills.size());
+    return graph;
+  }
+
+  private boolean isValid(Graph current, String catalogVersion) {
+    return null != current
+        && current.getCatalogVersion().equals(catalogVersion)
+        && current.getGeneration() == generation.get()
+        && System.nanoTime() - current.getBuiltAt() < TimeUnit.SECONDS.toNanos(maxAgeSeconds);
+  }
+
+  private Set<UUID> getIds(Collection<? extends BaseEntity> entities) {
+    return entities
+        .stream()
+        .map(BaseEntity::getId)
+        .collect(Collectors.toSet());
+  }
+
+  @Getter
+  @AllArgsConstructor
+  private static final class Graph {
+    private final String catalogVersion;
+    private final long generation;
+    private final long builtAt;
+    private final Map<UUID, OrderableFulfill> fulfills;
+  }
+}
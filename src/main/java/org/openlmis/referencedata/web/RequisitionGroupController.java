@@ -30,7 +30,8 @@ import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.repository.RequisitionGroupRepository;
 import org.openlmis.referencedata.repository.SupervisoryNodeRepository;
 import org.openlmis.referencedata.service.RequisitionGroupService;
-import org.openlmis.referencedata.service.RightAssignmentService;
+import org.openlmis.referencedata.service.RightAssignmentChange;
+import org.openlmis.referencedata.service.RightAssignmentRegenerationScheduler;
 import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.util.messagekeys.RequisitionGroupMessageKeys;
 import org.openlmis.referencedata.validate.RequisitionGroupValidator;
@@ -78,7 +79,7 @@ public class RequisitionGroupController extends BaseController {
   private RequisitionGroupService requisitionGroupService;
 
   @Autowired
-  private RightAssignmentService rightAssignmentService;
+  private RightAssignmentRegenerationScheduler rightAssignmentRegenerationScheduler;
 
   @Autowired
   private SupervisoryNodeRepository supervisoryNodeRepository;
@@ -112,7 +113,8 @@ public class RequisitionGroupController extends BaseController {
       requisitionGroupRepository.saveAndFlush(requisitionGroup);
 
       profiler.start("REGENERATE_RIGHT_ASSIGNMENTS");
-      rightAssignmentService.regenerateRightAssignments();
+      rightAssignmentRegenerationScheduler.schedule(
+          RightAssignmentChange.ofRequisitionGroup(requisitionGroup.getId()));
 
       LOGGER.info("Created new requisitionGroup with id: {}", requisitionGroup.getId());
       profiler.start("EXPORT_REQUISITION_GROUP_TO_DTO");
@@ -208,7 +210,8 @@ public class RequisitionGroupController extends BaseController {
       requisitionGroupToUpdate = requisitionGroupRepository.saveAndFlush(requisitionGroupToUpdate);
 
       profiler.start("REGENERATE_RIGHT_ASSIGNMENTS");
-      rightAssignmentService.regenerateRightAssignments();
+      rightAssignmentRegenerationScheduler.schedule(
+          RightAssignmentChange.ofRequisitionGroup(requisitionGroupToUpdate.getId()));
 
       LOGGER.info("Saved requisitionGroup with id: {}", requisitionGroupToUpdate.getId());
       profiler.start("EXPORT_REQUISITION_GROUP_TO_DTO");
@@ -248,7 +251,8 @@ public class RequisitionGroupController extends BaseController {
       requisitionGroupRepository.flush();
 
       profiler.start("REGENERATE_RIGHT_ASSIGNMENTS");
-      rightAssignmentService.regenerateRightAssignments();
+      rightAssignmentRegenerationScheduler.schedule(
+          RightAssignmentChange.ofRequisitionGroup(requisitionGroupId));
 
       profiler.stop().log();
     }
@@ -0,0 +1,68 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.web;
+
+import static org.openlmis.referencedata.web.RightAssignmentController.RESOURCE_PATH;
+
+import java.util.List;
+import org.openlmis.referencedata.domain.RightName;
+import org.openlmis.referencedata.dto.RightAssignmentDeltaDto;
+import org.openlmis.referencedata.service.RightAssignmentService;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.slf4j.profiler.Profiler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(RESOURCE_PATH)
+public class RightAssignmentController extends BaseController {
+
+  public static final String RESOURCE_PATH = API_PATH + "/rightAssignments";
+
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(
+      RightAssignmentController.class);
+
+  @Autowired
+  private RightAssignmentService rightAssignmentService;
+
+  /**
+   * Get summaries of the most recent right assignment regenerations, newest first. Each entry
+   * contains the change that triggered the regeneration, the number of affected users and the
+   * number of inserted and deleted right assignments.
+   *
+   * @return list of recent right assignment deltas.
+   */
+  @GetMapping("/deltas")
+  @ResponseStatus(HttpStatus.OK)
+  public List<RightAssignmentDeltaDto> getRecentDeltas() {
+    Profiler profiler = new Profiler("GET_RIGHT_ASSIGNMENT_DELTAS");
+    profiler.setLogger(XLOGGER);
+
+    checkAdminRight(RightName.USER_ROLES_MANAGE_RIGHT, profiler);
+
+    profiler.start("GET_RECENT_DELTAS");
+    List<RightAssignmentDeltaDto> deltas = rightAssignmentService.getRecentDeltas();
+
+    profiler.stop().log();
+    return deltas;
+  }
+
+}
@@ -48,6 +48,7 @@ public final class SearchParams {
   private static final String SIZE = "size";
   private static final String SORT = "sort";
   private static final String ACCESS_TOKEN = "access_token";
+  private static final String CURSOR = "cursor";
 
   private MultiValueMap<String, Object> params;
 
@@ -61,6 +62,7 @@ public final class SearchParams {
       params.remove(SIZE);
       params.remove(SORT);
       params.remove(ACCESS_TOKEN);
+      params.remove(CURSOR);
     } else {
       params = new LinkedMultiValueMap<>();
     }
@@ -51,6 +51,9 @@ public class TradeItemController extends BaseController {
   @Autowired
   private TradeItemValidator validator;
 
+  @Autowired
+  private OrderableFulfillGraph orderableFulfillGraph;
+
   /**
    * Create or update a trade item.
    *
@@ -65,8 +68,10 @@ public class TradeItemController extends BaseController {
     throwValidationMessageExceptionIfErrors(bindingResult);
 
     TradeItem tradeItem = TradeItem.newInstance(tradeItemDto);
+    TradeItem savedTradeItem = repository.save(tradeItem);
+    orderableFulfillGraph.invalidate();
 
-    return TradeItemDto.newInstance(repository.save(tradeItem));
+    return TradeItemDto.newInstance(savedTradeItem);
   }
 
   /**
@@ -19,11 +19,17 @@ import static java.util.stream.Collectors.toList;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import javax.validation.Valid;
 import lombok.NoArgsConstructor;
@@ -42,8 +48,10 @@ import org.openlmis.referencedata.domain.User;
 import org.openlmis.referencedata.dto.DetailedRoleAssignmentDto;
 import org.openlmis.referencedata.dto.FacilityDto;
 import org.openlmis.referencedata.dto.NamedResource;
+import org.openlmis.referencedata.dto.PermissionStringsDeltaDto;
 import org.openlmis.referencedata.dto.ProgramDto;
 import org.openlmis.referencedata.dto.ResultDto;
+import org.openlmis.referencedata.dto.RightCheckDto;
 import org.openlmis.referencedata.dto.RoleAssignmentDto;
 import org.openlmis.referencedata.dto.UserDto;
 import org.openlmis.referencedata.exception.NotFoundException;
@@ -57,6 +65,9 @@ import org.openlmis.referencedata.repository.RoleRepository;
 import org.openlmis.referencedata.repository.SupervisoryNodeRepository;
 import org.openlmis.referencedata.repository.UserRepository;
 import org.openlmis.referencedata.repository.UserSearchParams;
+import org.openlmis.referencedata.service.AuthenticationHelper;
+import org.openlmis.referencedata.service.PermissionIndex;
+import org.openlmis.referencedata.service.UserPermissionVersionService;
 import org.openlmis.referencedata.service.UserService;
 import org.openlmis.referencedata.util.Message;
 import org.openlmis.referencedata.util.Pagination;
@@ -72,9 +83,11 @@ import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.slf4j.profiler.Profiler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -85,6 +98,7 @@ import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -132,10 +146,22 @@ public class UserController extends BaseController {
   
   @Autowired
   private RightAssignmentRepository rightAssignmentRepository;
+
+  @Autowired
+  private PermissionIndex permissionIndex;
+
+  @Autowired
+  private UserPermissionVersionService userPermissionVersionService;
+
+  @Autowired
+  private AuthenticationHelper authenticationHelper;
   
   @Autowired
   private RoleAssignmentRepository roleAssignmentRepository;
 
+  @Value("${users.rightChecks.maxSize}")
+  private int rightChecksMaxSize;
+
   /**
    * Constructor for controller unit testing.
    */
@@ -209,10 +235,13 @@ public class UserController extends BaseController {
       user = userRepository.saveAndFlush(user);
 
       assignRolesToUser(roleAssignmentDtos, user);
+      userPermissionVersionService.resetUsers(Collections.singleton(user.getId()));
     }
 
     profiler.start("SAVE_USER");
     user = userRepository.save(user);
+    permissionIndex.invalidate(Collections.singleton(user.getId()));
+    authenticationHelper.evictUser(user.getId());
 
     profiler.start(PROFILER_TO_DTO);
     UserDto responseDto = exportUserToDto(user);
@@ -353,6 +382,8 @@ public class UserController extends BaseController {
     } else {
       profiler.start("DELETE_USER_FROM_DB");
       userRepository.deleteById(userId);
+      permissionIndex.invalidate(Collections.singleton(userId));
+      authenticationHelper.evictUser(userId);
     }
     profiler.stop().log();
   }
@@ -421,56 +452,103 @@ public class UserController extends BaseController {
 
     checkUserExists(userId, profiler);
 
-    boolean hasRight;
-
     profiler.start("GET_RIGHT");
     Right right = rightRepository.findById(rightId)
         .orElseThrow(() -> new ValidationMessageException(
             new Message(RightMessageKeys.ERROR_NOT_FOUND_WITH_ID, rightId)));
 
-    if (programId != null) {
-      profiler.start("CHECK_PROGRAM_EXISTS");
-      if (!programRepository.existsById(programId)) {
-        throw new ValidationMessageException(new Message(
-            ProgramMessageKeys.ERROR_NOT_FOUND_WITH_ID, programId));
-      }
+    boolean hasRight = hasRight(userId, right, programId, facilityId, warehouseId,
+        programRepository::existsById, facilityRepository::existsById, profiler::start);
 
-      if (facilityId != null) {
-        profiler.start("CHECK_FACILITY_EXISTS");
-        if (!facilityRepository.existsById(facilityId)) {
-          throw new ValidationMessageException(new Message(
-              FacilityMessageKeys.ERROR_NOT_FOUND_WITH_ID, facilityId));
-        }
+    profiler.stop().log();
+    LOGGER.info("hasRight(userId={},rightName={},facilityId={},programId={},warehouseId={}) = {}",
+        userId, right.getName(), facilityId, programId, warehouseId, hasRight);
+    return new ResultDto<>(hasRight);
+  }
 
-        profiler.start("CHECK_HAS_RIGHT_BY_USER_RIGHT_FACILITY_PROGRAM");
-        hasRight = rightAssignmentRepository.existsByUserIdAndAndRightNameAndFacilityIdAndProgramId(
-            userId, right.getName(), facilityId, programId);
+  /**
+   * Check if users have rights with certain criteria, in bulk. Every check is validated the same
+   * way as in {@link #checkIfUserHasRight}, but all referenced users, rights, programs and
+   * facilities are loaded with one query per type, and the rights are looked up in the
+   * permission index. The number of checks in one request is limited.
+   *
+   * @param rightChecks the checks to perform
+   * @return the same checks, in the same order, with their results filled in
+   */
+  @RequestMapping(value = "/users/hasRight", method = RequestMethod.POST)
+  @ResponseStatus(HttpStatus.OK)
+  @ResponseBody
+  public List<RightCheckDto> checkIfUsersHaveRights(
+      @RequestBody List<RightCheckDto> rightChecks) {
+    Profiler profiler = new Profiler("POST_USERS_HAVE_RIGHTS");
+    profiler.setLogger(LOGGER);
 
-      } else {
-        throw new ValidationMessageException(UserMessageKeys.ERROR_PROGRAM_WITHOUT_FACILITY);
-      }
+    if (rightChecks.size() > rightChecksMaxSize) {
+      profiler.stop().log();
+      throw new ValidationMessageException(new Message(
+          UserMessageKeys.ERROR_RIGHT_CHECK_TOO_MANY, rightChecksMaxSize, rightChecks.size()));
+    }
 
-    } else if (warehouseId != null) {
+    boolean missingId = rightChecks.stream()
+        .anyMatch(check -> null == check.getUserId() || null == check.getRightId());
+    if (missingId) {
+      profiler.stop().log();
+      throw new ValidationMessageException(UserMessageKeys.ERROR_RIGHT_CHECK_ID_REQUIRED);
+    }
 
-      profiler.start("CHECK_WAREHOUSE_EXISTS");
-      if (!facilityRepository.existsById(warehouseId)) {
-        throw new ValidationMessageException(new Message(
-            FacilityMessageKeys.ERROR_NOT_FOUND_WITH_ID, warehouseId));
-      }
+    profiler.start("CHECK_ADMIN");
+    Set<UUID> userIds = collectIds(rightChecks, RightCheckDto::getUserId);
+    for (UUID userId : userIds) {
+      rightService.checkAdminRight(RightName.USERS_MANAGE_RIGHT, true, userId);
+    }
 
-      profiler.start("CHECK_HAS_RIGHT_BY_USER_RIGHT_WAREHOUSE");
-      hasRight = rightAssignmentRepository.existsByUserIdAndAndRightNameAndFacilityId(
-          userId, right.getName(), warehouseId);
+    profiler.start("CHECK_USERS_EXIST");
+    Set<UUID> existingUserIds = new HashSet<>();
+    userRepository.findAllById(userIds).forEach(user -> existingUserIds.add(user.getId()));
+    userIds.stream()
+        .filter(userId -> !existingUserIds.contains(userId))
+        .findFirst()
+        .ifPresent(userId -> {
+          profiler.stop().log();
+          throw new NotFoundException(
+              new Message(UserMessageKeys.ERROR_NOT_FOUND_WITH_ID, userId));
+        });
+
+    profiler.start("GET_RIGHTS");
+    Map<UUID, Right> rights = new HashMap<>();
+    rightRepository.findAllById(collectIds(rightChecks, RightCheckDto::getRightId))
+        .forEach(right -> rights.put(right.getId(), right));
+
+    profiler.start("GET_PROGRAMS");
+    Set<UUID> existingProgramIds = new HashSet<>();
+    programRepository.findAllById(collectIds(rightChecks, RightCheckDto::getProgramId))
+        .forEach(program -> existingProgramIds.add(program.getId()));
+
+    profiler.start("GET_FACILITIES");
+    Set<UUID> facilityIds = collectIds(rightChecks, RightCheckDto::getFacilityId);
+    facilityIds.addAll(collectIds(rightChecks, RightCheckDto::getWarehouseId));
+    Set<UUID> existingFacilityIds = new HashSet<>();
+    facilityRepository.findAllById(facilityIds)
+        .forEach(facility -> existingFacilityIds.add(facility.getId()));
+
+    // one stage for all checks, so large requests do not produce a stage per check
+    profiler.start("CHECK_RIGHTS");
+    for (RightCheckDto check : rightChecks) {
+      Right right = rights.get(check.getRightId());
+      if (null == right) {
+        profiler.stop().log();
+        throw new ValidationMessageException(
+            new Message(RightMessageKeys.ERROR_NOT_FOUND_WITH_ID, check.getRightId()));
+      }
 
-    } else {
-      profiler.start("CHECK_HAS_RIGHT_BY_USER_RIGHT");
-      hasRight = rightAssignmentRepository.existsByUserIdAndRightName(userId, right.getName());
+      check.setResult(hasRight(check.getUserId(), right, check.getProgramId(),
+          check.getFacilityId(), check.getWarehouseId(), existingProgramIds::contains,
+          existingFacilityIds::contains, stage -> { }));
     }
 
     profiler.stop().log();
-    LOGGER.info("hasRight(userId={},rightName={},facilityId={},programId={},warehouseId={}) = {}",
-        userId, right.getName(), facilityId, programId, warehouseId, hasRight);
-    return new ResultDto<>(hasRight);
+    LOGGER.debug("Checked {} rights of {} users", rightChecks.size(), userIds.size());
+    return rightChecks;
   }
 
   /**
@@ -642,13 +720,17 @@ public class UserController extends BaseController {
   }
   
   /**
-   * Get permissions (in string format) of the specified user.
+   * Get permissions (in string format) of the specified user. The ETag of the response is the
+   * permission version of the user, so a matching If-None-Match header is answered with 304
+   * without reading the permission strings.
    *
-   * @param userId UUID of the user to retrieve.
+   * @param userId      UUID of the user to retrieve.
+   * @param ifNoneMatch entity tag of the permission strings known to the client.
    * @return a set of user permission strings.
    */
   @RequestMapping(value = "/users/{id}/permissionStrings", method = RequestMethod.GET)
-  public ResponseEntity<Set<String>> getUserPermissionStrings(@PathVariable("id") UUID userId) {
+  public ResponseEntity<Set<String>> getUserPermissionStrings(@PathVariable("id") UUID userId,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
     XLOGGER.entry(userId);
     Profiler profiler = new Profiler("GET_USER_PERM_STRINGS");
     profiler.setLogger(LOGGER);
@@ -656,6 +738,17 @@ public class UserController extends BaseController {
     checkAdminRight(RightName.USERS_MANAGE_RIGHT, true, userId, profiler);
     checkUserExists(userId, profiler);
 
+    profiler.start("GET_PERMISSION_VERSION");
+    String eTag = Long.toString(userPermissionVersionService.getVersion(userId).getVersion());
+    if (matchesETag(ifNoneMatch, eTag)) {
+      profiler.stop().log();
+      XLOGGER.exit();
+      return ResponseEntity
+          .status(HttpStatus.NOT_MODIFIED)
+          .eTag(eTag)
+          .build();
+    }
+
     profiler.start("GET_PERM_STRINGS_FROM_RIGHT_ASSIGNMENTS");
     Set<String> permissionStrings = rightAssignmentRepository.findByUser(userId);
 
@@ -663,10 +756,41 @@ public class UserController extends BaseController {
     XLOGGER.exit(permissionStrings);
     return ResponseEntity
         .ok()
-        .eTag(Integer.toString(permissionStrings.hashCode()))
+        .eTag(eTag)
         .body(permissionStrings);
   }
 
+  /**
+   * Get permission strings of the specified user added and removed since the given permission
+   * version. If the changes since that version are not known anymore, a full delta with all
+   * permission strings is returned.
+   *
+   * @param userId       UUID of the user to retrieve.
+   * @param sinceVersion permission version known to the client.
+   * @return permission strings added and removed since the version.
+   */
+  @RequestMapping(value = "/users/{id}/permissionStrings", method = RequestMethod.GET,
+      params = "sinceVersion")
+  public ResponseEntity<PermissionStringsDeltaDto> getUserPermissionStringsDelta(
+      @PathVariable("id") UUID userId, @RequestParam("sinceVersion") long sinceVersion) {
+    XLOGGER.entry(userId, sinceVersion);
+    Profiler profiler = new Profiler("GET_USER_PERM_STRINGS_DELTA");
+    profiler.setLogger(LOGGER);
+
+    checkAdminRight(RightName.USERS_MANAGE_RIGHT, true, userId, profiler);
+    checkUserExists(userId, profiler);
+
+    profiler.start("GET_PERMISSION_STRINGS_DELTA");
+    PermissionStringsDeltaDto delta = userPermissionVersionService.getDelta(userId, sinceVersion);
+
+    profiler.stop().log();
+    XLOGGER.exit(delta);
+    return ResponseEntity
+        .ok()
+        .eTag(Long.toString(delta.getVersion()))
+        .body(delta);
+  }
+
   /**
    * Get all the facilities that the user has supervision rights (home facility and supervised 
    * facilities).
@@ -838,6 +962,53 @@ public class UserController extends BaseController {
     return dtos;
   }
 
+  private boolean hasRight(UUID userId, Right right, UUID programId, UUID facilityId,
+      UUID warehouseId, Predicate<UUID> programExists, Predicate<UUID> facilityExists,
+      Consumer<String> startStage) {
+    if (programId != null) {
+      startStage.accept("CHECK_PROGRAM_EXISTS");
+      if (!programExists.test(programId)) {
+        throw new ValidationMessageException(new Message(
+            ProgramMessageKeys.ERROR_NOT_FOUND_WITH_ID, programId));
+      }
+
+      if (facilityId == null) {
+        throw new ValidationMessageException(UserMessageKeys.ERROR_PROGRAM_WITHOUT_FACILITY);
+      }
+
+      startStage.accept("CHECK_FACILITY_EXISTS");
+      if (!facilityExists.test(facilityId)) {
+        throw new ValidationMessageException(new Message(
+            FacilityMessageKeys.ERROR_NOT_FOUND_WITH_ID, facilityId));
+      }
+
+      startStage.accept("CHECK_HAS_RIGHT_BY_USER_RIGHT_FACILITY_PROGRAM");
+      return permissionIndex.hasRight(userId, right.getName(), facilityId, programId);
+    }
+
+    if (warehouseId != null) {
+      startStage.accept("CHECK_WAREHOUSE_EXISTS");
+      if (!facilityExists.test(warehouseId)) {
+        throw new ValidationMessageException(new Message(
+            FacilityMessageKeys.ERROR_NOT_FOUND_WITH_ID, warehouseId));
+      }
+
+      startStage.accept("CHECK_HAS_RIGHT_BY_USER_RIGHT_WAREHOUSE");
+      return permissionIndex.hasRight(userId, right.getName(), warehouseId);
+    }
+
+    startStage.accept("CHECK_HAS_RIGHT_BY_USER_RIGHT");
+    return permissionIndex.hasRight(userId, right.getName());
+  }
+
+  private Set<UUID> collectIds(List<RightCheckDto> rightChecks,
+      Function<RightCheckDto, UUID> idExtractor) {
+    return rightChecks.stream()
+        .map(idExtractor)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet());
+  }
+
   private void checkUserExists(UUID userId, Profiler profiler) {
     profiler.start("CHECK_USER_EXISTS");
     if (!userRepository.existsById(userId)) {
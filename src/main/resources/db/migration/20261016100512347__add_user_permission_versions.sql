@@ -0,0 +1,19 @@
+CREATE SEQUENCE user_permission_version_seq;
+
+CREATE TABLE user_permission_versions (
+    userId UUID PRIMARY KEY,
+    version BIGINT NOT NULL,
+    baseVersion BIGINT NOT NULL,
+    CONSTRAINT fk_user_permission_versions_user FOREIGN KEY (userId) REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE TABLE user_permission_changes (
+    userId UUID NOT NULL,
+    version BIGINT NOT NULL,
+    permissionString TEXT NOT NULL,
+    added BOOLEAN NOT NULL,
+    CONSTRAINT fk_user_permission_changes_user FOREIGN KEY (userId) REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE INDEX user_permission_changes_userid_version_idx ON user_permission_changes (userId, version);
+CREATE INDEX user_permission_changes_version_idx ON user_permission_changes (version);
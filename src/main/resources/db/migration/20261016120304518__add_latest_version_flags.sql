@@ -0,0 +1,76 @@
+-- Marks the highest version of every versioned orderable and facility type approved product,
+-- so the "latest version" lookups can use a partial index instead of a MAX(versionNumber)
+-- GROUP BY subquery over the whole table.
+ALTER TABLE orderables ADD COLUMN latest BOOLEAN NOT NULL DEFAULT false;
+ALTER TABLE facility_type_approved_products ADD COLUMN latest BOOLEAN NOT NULL DEFAULT false;
+
+UPDATE orderables AS o
+SET latest = true
+FROM (SELECT id, MAX(versionNumber) AS versionNumber FROM orderables GROUP BY id) AS l
+WHERE o.id = l.id AND o.versionNumber = l.versionNumber;
+
+UPDATE facility_type_approved_products AS ftap
+SET latest = true
+FROM (SELECT id, MAX(versionNumber) AS versionNumber
+      FROM facility_type_approved_products GROUP BY id) AS l
+WHERE ftap.id = l.id AND ftap.versionNumber = l.versionNumber;
+
+CREATE UNIQUE INDEX orderables_latest_id_idx ON orderables (id) WHERE latest;
+CREATE INDEX orderables_latest_lastupdated_idx ON orderables (lastUpdated) WHERE latest;
+CREATE UNIQUE INDEX ftap_latest_id_idx ON facility_type_approved_products (id) WHERE latest;
+CREATE INDEX ftap_latest_facilitytype_program_idx
+    ON facility_type_approved_products (facilityTypeId, programId) WHERE latest;
+
+-- A new row is the latest one unless a higher version already exists; if it is, the previous
+-- latest row gets unmarked. Updating the previous row also locks it, so concurrent inserts of
+-- new versions of the same resource are serialized.
+CREATE OR REPLACE FUNCTION mark_latest_version_on_insert() RETURNS TRIGGER AS $$
+BEGIN
+    EXECUTE format('SELECT NOT EXISTS (SELECT 1 FROM %I.%I WHERE id = $1 AND versionNumber > $2)',
+        TG_TABLE_SCHEMA, TG_TABLE_NAME)
+        INTO NEW.latest
+        USING NEW.id, NEW.versionNumber;
+
+    IF NEW.latest THEN
+        EXECUTE format('UPDATE %I.%I SET latest = false WHERE id = $1 AND latest',
+            TG_TABLE_SCHEMA, TG_TABLE_NAME)
+            USING NEW.id;
+    END IF;
+
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Removing the latest row promotes the highest remaining version.
+CREATE OR REPLACE FUNCTION mark_latest_version_on_delete() RETURNS TRIGGER AS $$
+BEGIN
+    IF OLD.latest THEN
+        EXECUTE format('UPDATE %1$I.%2$I SET latest = true WHERE id = $1 AND versionNumber ='
+            || ' (SELECT MAX(versionNumber) FROM %1$I.%2$I WHERE id = $1)',
+            TG_TABLE_SCHEMA, TG_TABLE_NAME)
+            USING OLD.id;
+    END IF;
+
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER orderables_mark_latest_on_insert
+    BEFORE INSERT ON orderables
+    FOR EACH ROW
+    EXECUTE PROCEDURE mark_latest_version_on_insert();
+
+CREATE TRIGGER orderables_mark_latest_on_delete
+    AFTER DELETE ON orderables
+    FOR EACH ROW
+    EXECUTE PROCEDURE mark_latest_version_on_delete();
+
+CREATE TRIGGER ftap_mark_latest_on_insert
+    BEFORE INSERT ON facility_type_approved_products
+    FOR EACH ROW
+    EXECUTE PROCEDURE mark_latest_version_on_insert();
+
+CREATE TRIGGER ftap_mark_latest_on_delete
+    AFTER DELETE ON facility_type_approved_products
+    FOR EACH ROW
+    EXECUTE PROCEDURE mark_latest_version_on_delete();
@@ -0,0 +1,28 @@
+-- Code and name searches match LOWER(column) LIKE '%term%', which a B-tree index can't serve.
+-- Trigram GIN indexes on the same expressions let PostgreSQL use an index for those predicates.
+CREATE EXTENSION IF NOT EXISTS pg_trgm WITH SCHEMA public;
+
+CREATE INDEX orderables_code_trgm_idx
+    ON orderables USING gin (LOWER(code) public.gin_trgm_ops);
+CREATE INDEX orderables_fullproductname_trgm_idx
+    ON orderables USING gin (LOWER(fullproductname) public.gin_trgm_ops);
+
+CREATE INDEX facilities_code_trgm_idx
+    ON facilities USING gin (LOWER(code) public.gin_trgm_ops);
+CREATE INDEX facilities_name_trgm_idx
+    ON facilities USING gin (LOWER(name) public.gin_trgm_ops);
+
+CREATE INDEX geographic_zones_code_trgm_idx
+    ON geographic_zones USING gin (LOWER(code) public.gin_trgm_ops);
+CREATE INDEX geographic_zones_name_trgm_idx
+    ON geographic_zones USING gin (LOWER(name) public.gin_trgm_ops);
+
+CREATE INDEX supervisory_nodes_code_trgm_idx
+    ON supervisory_nodes USING gin (LOWER(code) public.gin_trgm_ops);
+CREATE INDEX supervisory_nodes_name_trgm_idx
+    ON supervisory_nodes USING gin (LOWER(name) public.gin_trgm_ops);
+
+CREATE INDEX requisition_groups_code_trgm_idx
+    ON requisition_groups USING gin (LOWER(code) public.gin_trgm_ops);
+CREATE INDEX requisition_groups_name_trgm_idx
+    ON requisition_groups USING gin (LOWER(name) public.gin_trgm_ops);
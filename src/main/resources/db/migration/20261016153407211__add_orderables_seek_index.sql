@@ -0,0 +1,3 @@
+CREATE INDEX orderables_latest_seek_idx
+    ON orderables (COALESCE(fullproductname, ''), id, versionnumber)
+    WHERE latest;
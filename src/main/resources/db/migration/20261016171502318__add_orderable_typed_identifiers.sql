@@ -0,0 +1,54 @@
+-- Trade item and commodity type identifiers of orderables, kept as uuids next to their type, so
+-- orderables can be found for many identifiers at once through a composite index instead of
+-- comparing the text values of the orderable_identifiers collection one identifier at a time.
+CREATE TABLE orderable_typed_identifiers (
+    identifierType VARCHAR(20) NOT NULL,
+    identifierId UUID NOT NULL,
+    orderableId UUID NOT NULL,
+    orderableVersionNumber BIGINT NOT NULL,
+    CONSTRAINT orderable_typed_identifiers_pkey
+        PRIMARY KEY (identifierType, identifierId, orderableId, orderableVersionNumber),
+    CONSTRAINT orderable_typed_identifiers_orderable_fkey
+        FOREIGN KEY (orderableId, orderableVersionNumber)
+        REFERENCES orderables (id, versionNumber) ON DELETE CASCADE
+);
+
+CREATE INDEX orderable_typed_identifiers_orderable_idx
+    ON orderable_typed_identifiers (orderableId, orderableVersionNumber, identifierType);
+
+INSERT INTO orderable_typed_identifiers
+    (identifierType, identifierId, orderableId, orderableVersionNumber)
+SELECT key, CAST(value AS uuid), orderableId, orderableVersionNumber
+FROM orderable_identifiers
+WHERE key IN ('tradeItem', 'commodityType')
+    AND value ~* '^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$';
+
+-- Identifiers are written by Hibernate, the demo data loader and the CSV import, so the typed
+-- rows are kept in step by a trigger rather than by the application. Values which are not uuids
+-- are left out, as they can not match any trade item or commodity type.
+CREATE OR REPLACE FUNCTION sync_orderable_typed_identifiers() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        DELETE FROM referencedata.orderable_typed_identifiers
+        WHERE orderableId = OLD.orderableId
+            AND orderableVersionNumber = OLD.orderableVersionNumber
+            AND identifierType = OLD.key;
+    END IF;
+
+    IF TG_OP IN ('INSERT', 'UPDATE')
+        AND NEW.key IN ('tradeItem', 'commodityType')
+        AND NEW.value ~* '^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$' THEN
+        INSERT INTO referencedata.orderable_typed_identifiers
+            (identifierType, identifierId, orderableId, orderableVersionNumber)
+        VALUES (NEW.key, CAST(NEW.value AS uuid), NEW.orderableId, NEW.orderableVersionNumber)
+        ON CONFLICT DO NOTHING;
+    END IF;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER orderable_identifiers_sync_typed_identifiers
+    AFTER INSERT OR UPDATE OR DELETE ON orderable_identifiers
+    FOR EACH ROW
+    EXECUTE PROCEDURE sync_orderable_typed_identifiers();
@@ -0,0 +1,98 @@
+-- Materialized lists of the latest active approved products of a facility type in a program, kept
+-- separately for full supply and non-full supply products, so the approved products of a facility
+-- can be served with a single primary key lookup instead of a count and a search over the latest
+-- versions of approved products, orderables and program orderables.
+CREATE SEQUENCE approved_product_list_version_seq;
+
+CREATE TABLE approved_product_lists (
+    facilityTypeId UUID NOT NULL,
+    programId UUID NOT NULL,
+    fullSupply BOOLEAN NOT NULL,
+    version BIGINT NOT NULL,
+    ftapIds UUID[],
+    ftapVersionNumbers BIGINT[],
+    CONSTRAINT approved_product_lists_pkey PRIMARY KEY (facilityTypeId, programId, fullSupply)
+);
+
+-- A change of an approved product, an orderable or a program orderable gives the affected lists a
+-- new version and drops their content, which is rebuilt on the next read. Lists which have not
+-- been built yet get a row as well, so a list read before the change can not be stored after it.
+CREATE OR REPLACE FUNCTION invalidate_approved_product_lists(facilityTypeIds UUID[],
+    programIds UUID[]) RETURNS VOID AS $$
+BEGIN
+    INSERT INTO referencedata.approved_product_lists
+        (facilityTypeId, programId, fullSupply, version)
+    SELECT k.facilityTypeId, k.programId, s.fullSupply,
+        nextval('referencedata.approved_product_list_version_seq')
+    FROM (SELECT DISTINCT * FROM unnest(facilityTypeIds, programIds))
+        AS k (facilityTypeId, programId)
+    CROSS JOIN (VALUES (true), (false)) AS s (fullSupply)
+    ON CONFLICT (facilityTypeId, programId, fullSupply) DO UPDATE
+    SET version = EXCLUDED.version,
+        ftapIds = NULL,
+        ftapVersionNumbers = NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION invalidate_approved_product_lists_of_ftap() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM referencedata.invalidate_approved_product_lists(
+            ARRAY[OLD.facilityTypeId], ARRAY[OLD.programId]);
+    END IF;
+
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM referencedata.invalidate_approved_product_lists(
+            ARRAY[NEW.facilityTypeId], ARRAY[NEW.programId]);
+    END IF;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Used for both orderables and program orderables; a program orderable only affects the lists
+-- of its program.
+CREATE OR REPLACE FUNCTION invalidate_approved_product_lists_of_orderable() RETURNS TRIGGER AS $$
+DECLARE
+    changed RECORD;
+    changedOrderableId UUID;
+    changedProgramId UUID;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        changed := OLD;
+    ELSE
+        changed := NEW;
+    END IF;
+
+    IF TG_TABLE_NAME = 'program_orderables' THEN
+        changedOrderableId := changed.orderableId;
+        changedProgramId := changed.programId;
+    ELSE
+        changedOrderableId := changed.id;
+    END IF;
+
+    PERFORM referencedata.invalidate_approved_product_lists(
+        array_agg(ftap.facilityTypeId), array_agg(ftap.programId))
+    FROM referencedata.facility_type_approved_products AS ftap
+    WHERE ftap.orderableId = changedOrderableId
+        AND ftap.latest
+        AND (changedProgramId IS NULL OR ftap.programId = changedProgramId);
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER ftap_invalidate_approved_product_lists
+    AFTER INSERT OR UPDATE OR DELETE ON facility_type_approved_products
+    FOR EACH ROW
+    EXECUTE PROCEDURE invalidate_approved_product_lists_of_ftap();
+
+CREATE TRIGGER orderables_invalidate_approved_product_lists
+    AFTER INSERT OR UPDATE OR DELETE ON orderables
+    FOR EACH ROW
+    EXECUTE PROCEDURE invalidate_approved_product_lists_of_orderable();
+
+CREATE TRIGGER program_orderables_invalidate_approved_product_lists
+    AFTER INSERT OR UPDATE OR DELETE ON program_orderables
+    FOR EACH ROW
+    EXECUTE PROCEDURE invalidate_approved_product_lists_of_orderable();
@@ -0,0 +1,82 @@
+-- Closure table of the geographic zone hierarchy: one row for every zone and each of its
+-- ancestors, including the zone itself at depth 0, so descendants and ancestors of a zone can be
+-- found with a single index lookup instead of walking the parent links one level at a time.
+CREATE TABLE geographic_zone_hierarchy (
+    ancestorId UUID NOT NULL,
+    descendantId UUID NOT NULL,
+    depth INTEGER NOT NULL,
+    CONSTRAINT geographic_zone_hierarchy_pkey PRIMARY KEY (ancestorId, descendantId),
+    CONSTRAINT geographic_zone_hierarchy_ancestorid_fkey FOREIGN KEY (ancestorId)
+        REFERENCES geographic_zones (id) ON DELETE CASCADE,
+    CONSTRAINT geographic_zone_hierarchy_descendantid_fkey FOREIGN KEY (descendantId)
+        REFERENCES geographic_zones (id) ON DELETE CASCADE
+);
+
+CREATE INDEX geographic_zone_hierarchy_descendantid_idx
+    ON geographic_zone_hierarchy (descendantId, ancestorId);
+
+WITH RECURSIVE hierarchy (ancestorId, descendantId, depth) AS (
+    SELECT id, id, 0
+    FROM geographic_zones
+    UNION ALL
+    SELECT h.ancestorId, z.id, h.depth + 1
+    FROM hierarchy AS h
+    INNER JOIN geographic_zones AS z ON z.parentId = h.descendantId
+)
+INSERT INTO geographic_zone_hierarchy (ancestorId, descendantId, depth)
+SELECT ancestorId, descendantId, depth
+FROM hierarchy;
+
+-- A new zone gets the ancestors of its parent; a zone moved to another parent takes its whole
+-- subtree along, so the links between the subtree and the old ancestors are replaced with links
+-- to the new ones. Deleted zones are removed by the foreign keys.
+CREATE OR REPLACE FUNCTION maintain_geographic_zone_hierarchy() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO referencedata.geographic_zone_hierarchy (ancestorId, descendantId, depth)
+        SELECT NEW.id, NEW.id, 0
+        UNION ALL
+        SELECT h.ancestorId, NEW.id, h.depth + 1
+        FROM referencedata.geographic_zone_hierarchy AS h
+        WHERE h.descendantId = NEW.parentId;
+
+        RETURN NULL;
+    END IF;
+
+    IF NEW.parentId IS NOT DISTINCT FROM OLD.parentId THEN
+        RETURN NULL;
+    END IF;
+
+    IF EXISTS (
+        SELECT 1
+        FROM referencedata.geographic_zone_hierarchy AS h
+        WHERE h.ancestorId = NEW.id
+            AND h.descendantId = NEW.parentId) THEN
+        RAISE EXCEPTION 'Geographic zone % can not be moved under its descendant %',
+            NEW.id, NEW.parentId;
+    END IF;
+
+    DELETE FROM referencedata.geographic_zone_hierarchy AS link
+    USING referencedata.geographic_zone_hierarchy AS subtree,
+        referencedata.geographic_zone_hierarchy AS ancestor
+    WHERE subtree.ancestorId = NEW.id
+        AND ancestor.descendantId = NEW.id
+        AND ancestor.ancestorId <> NEW.id
+        AND link.ancestorId = ancestor.ancestorId
+        AND link.descendantId = subtree.descendantId;
+
+    INSERT INTO referencedata.geographic_zone_hierarchy (ancestorId, descendantId, depth)
+    SELECT ancestor.ancestorId, subtree.descendantId, ancestor.depth + subtree.depth + 1
+    FROM referencedata.geographic_zone_hierarchy AS ancestor
+    CROSS JOIN referencedata.geographic_zone_hierarchy AS subtree
+    WHERE ancestor.descendantId = NEW.parentId
+        AND subtree.ancestorId = NEW.id;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER geographic_zones_maintain_hierarchy
+    AFTER INSERT OR UPDATE OF parentId ON geographic_zones
+    FOR EACH ROW
+    EXECUTE PROCEDURE maintain_geographic_zone_hierarchy();
@@ -0,0 +1,3 @@
+-- Lets point-in-polygon lookups of geographic zones use the spatial index instead of testing the
+-- boundary of every zone. Facility locations are indexed the same way already.
+CREATE INDEX geographic_zones_boundary_idx ON geographic_zones USING GIST (boundary);
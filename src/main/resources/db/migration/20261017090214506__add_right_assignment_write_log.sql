@@ -0,0 +1,45 @@
+-- Writes to right_assignments made while a full rebuild loads the shadow table are recorded here,
+-- so the rebuild can replay them into the shadow table before it is swapped in place of the live
+-- table. Writes are only recorded while the single row of right_assignment_rebuild is active.
+CREATE TABLE right_assignment_rebuild (
+    id INTEGER NOT NULL PRIMARY KEY,
+    active BOOLEAN NOT NULL
+);
+
+INSERT INTO right_assignment_rebuild (id, active) VALUES (1, false);
+
+CREATE TABLE right_assignment_writes (
+    seq BIGSERIAL NOT NULL PRIMARY KEY,
+    operation CHAR(1) NOT NULL,
+    id UUID NOT NULL,
+    userid UUID,
+    rightname TEXT NOT NULL,
+    facilityid UUID,
+    programid UUID
+);
+
+CREATE OR REPLACE FUNCTION log_right_assignment_write() RETURNS TRIGGER AS $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM referencedata.right_assignment_rebuild WHERE active) THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        INSERT INTO referencedata.right_assignment_writes
+            (operation, id, userid, rightname, facilityid, programid)
+        VALUES ('D', OLD.id, OLD.userid, OLD.rightname, OLD.facilityid, OLD.programid);
+    END IF;
+
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        INSERT INTO referencedata.right_assignment_writes
+            (operation, id, userid, rightname, facilityid, programid)
+        VALUES ('I', NEW.id, NEW.userid, NEW.rightname, NEW.facilityid, NEW.programid);
+    END IF;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER right_assignments_write_log
+    AFTER INSERT OR UPDATE OR DELETE ON right_assignments
+    FOR EACH ROW EXECUTE PROCEDURE log_right_assignment_write();
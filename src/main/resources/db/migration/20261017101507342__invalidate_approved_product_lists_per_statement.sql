@@ -0,0 +1,162 @@
+-- Approved product lists are invalidated once per statement instead of once per changed row, from
+-- the distinct keys of the transition tables. List rows are locked and written in key order, so
+-- concurrent invalidations of overlapping lists wait on each other instead of deadlocking.
+DROP TRIGGER ftap_invalidate_approved_product_lists ON facility_type_approved_products;
+DROP TRIGGER orderables_invalidate_approved_product_lists ON orderables;
+DROP TRIGGER program_orderables_invalidate_approved_product_lists ON program_orderables;
+
+DROP FUNCTION invalidate_approved_product_lists_of_ftap();
+DROP FUNCTION invalidate_approved_product_lists_of_orderable();
+
+CREATE OR REPLACE FUNCTION invalidate_approved_product_lists(facilityTypeIds UUID[],
+    programIds UUID[]) RETURNS VOID AS $$
+BEGIN
+    PERFORM 1
+    FROM referencedata.approved_product_lists AS l
+    JOIN (SELECT DISTINCT * FROM unnest(facilityTypeIds, programIds))
+        AS k (facilityTypeId, programId)
+        ON l.facilityTypeId = k.facilityTypeId AND l.programId = k.programId
+    ORDER BY l.facilityTypeId, l.programId, l.fullSupply
+    FOR UPDATE OF l;
+
+    INSERT INTO referencedata.approved_product_lists
+        (facilityTypeId, programId, fullSupply, version)
+    SELECT k.facilityTypeId, k.programId, s.fullSupply,
+        nextval('referencedata.approved_product_list_version_seq')
+    FROM (SELECT DISTINCT * FROM unnest(facilityTypeIds, programIds))
+        AS k (facilityTypeId, programId)
+    CROSS JOIN (VALUES (true), (false)) AS s (fullSupply)
+    ORDER BY k.facilityTypeId, k.programId, s.fullSupply
+    ON CONFLICT (facilityTypeId, programId, fullSupply) DO UPDATE
+    SET version = EXCLUDED.version,
+        ftapIds = NULL,
+        ftapVersionNumbers = NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Transition tables are named old_rows and new_rows; only the ones of the firing event exist.
+CREATE OR REPLACE FUNCTION invalidate_approved_product_lists_of_ftaps() RETURNS TRIGGER AS $$
+DECLARE
+    facilityTypeIds UUID[];
+    programIds UUID[];
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        SELECT array_agg(facilityTypeId), array_agg(programId)
+        INTO facilityTypeIds, programIds
+        FROM old_rows;
+    END IF;
+
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        SELECT facilityTypeIds || array_agg(facilityTypeId), programIds || array_agg(programId)
+        INTO facilityTypeIds, programIds
+        FROM new_rows;
+    END IF;
+
+    PERFORM referencedata.invalidate_approved_product_lists(facilityTypeIds, programIds);
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION invalidate_approved_product_lists_of_orderables() RETURNS TRIGGER AS $$
+DECLARE
+    orderableIds UUID[];
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        SELECT array_agg(DISTINCT id) INTO orderableIds FROM old_rows;
+    ELSE
+        SELECT array_agg(DISTINCT id) INTO orderableIds FROM new_rows;
+    END IF;
+
+    PERFORM referencedata.invalidate_approved_product_lists(
+        array_agg(ftap.facilityTypeId), array_agg(ftap.programId))
+    FROM referencedata.facility_type_approved_products AS ftap
+    WHERE ftap.orderableId = ANY(orderableIds)
+        AND ftap.latest;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- A program orderable only affects the lists of its program.
+CREATE OR REPLACE FUNCTION invalidate_approved_product_lists_of_program_orderables()
+    RETURNS TRIGGER AS $$
+DECLARE
+    orderableIds UUID[];
+    programIds UUID[];
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        SELECT array_agg(orderableId), array_agg(programId)
+        INTO orderableIds, programIds
+        FROM (SELECT DISTINCT orderableId, programId FROM old_rows) AS changed;
+    ELSE
+        SELECT array_agg(orderableId), array_agg(programId)
+        INTO orderableIds, programIds
+        FROM (SELECT DISTINCT orderableId, programId FROM new_rows) AS changed;
+    END IF;
+
+    PERFORM referencedata.invalidate_approved_product_lists(
+        array_agg(ftap.facilityTypeId), array_agg(ftap.programId))
+    FROM referencedata.facility_type_approved_products AS ftap
+    JOIN unnest(orderableIds, programIds) AS c (orderableId, programId)
+        ON ftap.orderableId = c.orderableId AND ftap.programId = c.programId
+    WHERE ftap.latest;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- A trigger with transition tables can fire on a single event only.
+CREATE TRIGGER ftap_insert_invalidate_approved_product_lists
+    AFTER INSERT ON facility_type_approved_products
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+    EXECUTE PROCEDURE invalidate_approved_product_lists_of_ftaps();
+
+CREATE TRIGGER ftap_update_invalidate_approved_product_lists
+    AFTER UPDATE ON facility_type_approved_products
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+    EXECUTE PROCEDURE invalidate_approved_product_lists_of_ftaps();
+
+CREATE TRIGGER ftap_delete_invalidate_approved_product_lists
+    AFTER DELETE ON facility_type_approved_products
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+    EXECUTE PROCEDURE invalidate_approved_product_lists_of_ftaps();
+
+CREATE TRIGGER orderables_insert_invalidate_approved_product_lists
+    AFTER INSERT ON orderables
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+    EXECUTE PROCEDURE invalidate_approved_product_lists_of_orderables();
+
+CREATE TRIGGER orderables_update_invalidate_approved_product_lists
+    AFTER UPDATE ON orderables
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+    EXECUTE PROCEDURE invalidate_approved_product_lists_of_orderables();
+
+CREATE TRIGGER orderables_delete_invalidate_approved_product_lists
+    AFTER DELETE ON orderables
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+    EXECUTE PROCEDURE invalidate_approved_product_lists_of_orderables();
+
+CREATE TRIGGER program_orderables_insert_invalidate_lists
+    AFTER INSERT ON program_orderables
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+    EXECUTE PROCEDURE invalidate_approved_product_lists_of_program_orderables();
+
+CREATE TRIGGER program_orderables_update_invalidate_lists
+    AFTER UPDATE ON program_orderables
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+    EXECUTE PROCEDURE invalidate_approved_product_lists_of_program_orderables();
+
+CREATE TRIGGER program_orderables_delete_invalidate_lists
+    AFTER DELETE ON program_orderables
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+    EXECUTE PROCEDURE invalidate_approved_product_lists_of_program_orderables();
@@ -0,0 +1,5 @@
+-- The approved product seek orders the latest versions by (id, versionNumber), so it is read
+-- straight from this index instead of sorting all matching approved products.
+CREATE INDEX ftap_latest_seek_idx
+    ON facility_type_approved_products (id, versionnumber)
+    WHERE latest;
@@ -0,0 +1,2 @@
+DROP TABLE IF EXISTS referencedata.right_assignments_shadow;
+CREATE TABLE referencedata.right_assignments_shadow (LIKE referencedata.right_assignments INCLUDING DEFAULTS INCLUDING CONSTRAINTS);
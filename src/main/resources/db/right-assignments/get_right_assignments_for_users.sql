@@ -0,0 +1,37 @@
+-- This SQL is the user-scoped variant of get_right_assignments.sql. It produces the same 
+-- intermediate right assignments (right name, facility ID, program ID, supervisory node ID), but 
+-- only for the users whose IDs are passed in. It is used by the incremental right assignment 
+-- regeneration, which only recomputes the users affected by a change.
+--
+-- Input: an array of user IDs (bound twice, once for each part of the EXCEPT)
+-- Output: intermediate right assignments of the given users
+WITH filtered_role_assignments AS
+(
+  SELECT ra.*
+  FROM referencedata.role_assignments ra
+  WHERE ra.userid = ANY(?)
+  EXCEPT
+  SELECT ra.*
+  FROM referencedata.role_assignments ra
+    INNER JOIN referencedata.users u ON ra.userid = u.id
+    LEFT JOIN referencedata.supported_programs sp ON sp.facilityid = u.homefacilityid
+      AND sp.programid = ra.programid
+  WHERE ra.userid = ANY(?)
+    AND ra.type = 'supervision'
+    AND ra.programid IS NOT NULL
+    AND ra.supervisorynodeid IS NULL
+    AND (sp.active = FALSE OR sp.active IS NULL)
+)
+SELECT DISTINCT ra.userid
+  , ri.name AS rightname
+  , CASE WHEN ra.programid IS NOT NULL THEN u.homefacilityid
+         WHEN ra.warehouseid IS NOT NULL THEN ra.warehouseid
+         ELSE NULL
+    END AS facilityid
+  , ra.programid
+  , ra.supervisorynodeid
+FROM filtered_role_assignments ra
+  INNER JOIN referencedata.role_rights rr ON rr.roleid = ra.roleid
+  INNER JOIN referencedata.rights ri ON ri.id = rr.rightid
+  INNER JOIN referencedata.users u ON u.id = ra.userid
+;
@@ -0,0 +1,38 @@
+-- This SQL query expands a whole set of (supervisory node, program) pairs into supervised 
+-- facilities in one go, so that each pair is only expanded once per right assignment 
+-- regeneration, no matter how many users are assigned to it.
+--
+-- The CTE node_programs builds the distinct pairs out of two arrays of equal length; element i 
+-- of both arrays forms the i-th pair. The recursive CTE supervisory_nodes_recursive returns, for 
+-- every requested node (rootid), all of its descendant supervisory node IDs including itself. 
+-- Each descendant is then expanded into a list of facility IDs, based on the pair's program ID.
+--
+-- Input: an array of supervisory node IDs and an array of program IDs
+-- Output: supervisory node ID, program ID and a supervised facility ID
+WITH RECURSIVE node_programs AS
+(
+  SELECT DISTINCT p.supervisorynodeid, p.programid
+  FROM unnest(?::uuid[], ?::uuid[]) AS p(supervisorynodeid, programid)
+),
+supervisory_nodes_recursive AS
+(
+  SELECT DISTINCT np.supervisorynodeid AS rootid, np.supervisorynodeid AS id
+  FROM node_programs np
+  UNION
+  SELECT supervisory_nodes_recursive.rootid, sn.id
+  FROM supervisory_nodes_recursive
+  JOIN referencedata.supervisory_nodes sn ON supervisory_nodes_recursive.id = sn.parentid
+)
+SELECT DISTINCT np.supervisorynodeid
+  , np.programid
+  , rgm.facilityid
+FROM node_programs np
+  JOIN supervisory_nodes_recursive snr ON snr.rootid = np.supervisorynodeid
+  JOIN referencedata.requisition_groups rg ON rg.supervisorynodeid = snr.id
+  JOIN referencedata.requisition_group_members rgm ON rgm.requisitiongroupid = rg.id
+  JOIN referencedata.requisition_group_program_schedules rgps ON rgps.requisitiongroupid = rg.id
+    AND rgps.programid = np.programid
+  JOIN referencedata.supported_programs sp ON sp.facilityid = rgm.facilityid
+    AND sp.programid = rgps.programid
+    AND sp.active = TRUE
+;
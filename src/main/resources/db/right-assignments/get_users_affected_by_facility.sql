@@ -0,0 +1,39 @@
+-- Returns the users whose right assignments may change when a facility changes (e.g. its 
+-- supported programs are activated or deactivated). A facility contributes to right assignments 
+-- in three ways: as a home facility, as a fulfillment warehouse and as a member of a requisition 
+-- group supervised by a supervisory node (directly or through any of the node's ancestors).
+--
+-- The current content of the right assignments table reflects the state before the change, so 
+-- every user who currently has a right at the facility is included as well. This covers users 
+-- who are about to lose rights.
+--
+-- Input: facility ID (bound four times)
+-- Output: a list of user IDs
+WITH RECURSIVE supervising_nodes AS
+(
+  SELECT rg.supervisorynodeid AS id
+  FROM referencedata.requisition_group_members rgm
+    JOIN referencedata.requisition_groups rg ON rg.id = rgm.requisitiongroupid
+  WHERE rgm.facilityid = ?
+  UNION
+  SELECT sn.parentid
+  FROM supervising_nodes
+    JOIN referencedata.supervisory_nodes sn ON sn.id = supervising_nodes.id
+  WHERE sn.parentid IS NOT NULL
+)
+SELECT u.id AS userid
+FROM referencedata.users u
+WHERE u.homefacilityid = ?
+UNION
+SELECT ra.userid
+FROM referencedata.role_assignments ra
+WHERE ra.warehouseid = ?
+UNION
+SELECT ra.userid
+FROM referencedata.role_assignments ra
+  JOIN supervising_nodes ON supervising_nodes.id = ra.supervisorynodeid
+UNION
+SELECT ra.userid
+FROM referencedata.right_assignments ra
+WHERE ra.facilityid = ?
+;
@@ -0,0 +1,9 @@
+-- Returns the users whose right assignments may change when a role (its set of rights) changes. 
+-- These are simply all users that have the role assigned, regardless of the role assignment type.
+--
+-- Input: role ID
+-- Output: a list of user IDs
+SELECT DISTINCT ra.userid
+FROM referencedata.role_assignments ra
+WHERE ra.roleid = ?
+;
@@ -0,0 +1,62 @@
+-- Returns the users whose right assignments may change when a supervisory node or a requisition 
+-- group changes. The changed nodes are the given supervisory nodes and the supervisory nodes of 
+-- the given requisition groups. Supervision rights reach down the tree, so a change of a node 
+-- affects the users with a role assignment at the node or at any of its ancestors.
+--
+-- The previous shape of the tree (old parent, old members) is not available after the change has 
+-- been saved, but the current content of the right assignments table still reflects it. Every 
+-- user who currently has a right at a facility supervised by a changed node, or at a member 
+-- facility of a changed requisition group, is included as well. This covers users at former 
+-- ancestors who are about to lose rights.
+--
+-- Input: an array of supervisory node IDs and an array of requisition group IDs (bound twice)
+-- Output: a list of user IDs
+WITH RECURSIVE changed_nodes AS
+(
+  SELECT sn.id
+  FROM referencedata.supervisory_nodes sn
+  WHERE sn.id = ANY(?::uuid[])
+  UNION
+  SELECT rg.supervisorynodeid
+  FROM referencedata.requisition_groups rg
+  WHERE rg.id = ANY(?::uuid[])
+    AND rg.supervisorynodeid IS NOT NULL
+),
+supervising_nodes AS
+(
+  SELECT changed_nodes.id
+  FROM changed_nodes
+  UNION
+  SELECT sn.parentid
+  FROM supervising_nodes
+    JOIN referencedata.supervisory_nodes sn ON sn.id = supervising_nodes.id
+  WHERE sn.parentid IS NOT NULL
+),
+supervised_nodes AS
+(
+  SELECT changed_nodes.id
+  FROM changed_nodes
+  UNION
+  SELECT sn.id
+  FROM supervised_nodes
+    JOIN referencedata.supervisory_nodes sn ON sn.parentid = supervised_nodes.id
+),
+supervised_facilities AS
+(
+  SELECT rgm.facilityid
+  FROM supervised_nodes
+    JOIN referencedata.requisition_groups rg ON rg.supervisorynodeid = supervised_nodes.id
+    JOIN referencedata.requisition_group_members rgm ON rgm.requisitiongroupid = rg.id
+  UNION
+  SELECT rgm.facilityid
+  FROM referencedata.requisition_group_members rgm
+  WHERE rgm.requisitiongroupid = ANY(?::uuid[])
+)
+SELECT ra.userid
+FROM referencedata.role_assignments ra
+  JOIN supervising_nodes ON supervising_nodes.id = ra.supervisorynodeid
+UNION
+SELECT ra.userid
+FROM referencedata.right_assignments ra
+  JOIN supervised_facilities ON supervised_facilities.facilityid = ra.facilityid
+;
@@ -0,0 +1,11 @@
+-- Returns every user with a role assignment at any supervisory node. Used when a supervisory 
+-- node or a requisition group has been deleted, as the nodes and facilities it used to connect 
+-- are not known anymore. Users with only home facility, fulfillment or direct role assignments 
+-- are never affected by supervision changes.
+--
+-- Input: none
+-- Output: a list of user IDs
+SELECT DISTINCT ra.userid
+FROM referencedata.role_assignments ra
+WHERE ra.supervisorynodeid IS NOT NULL
+;
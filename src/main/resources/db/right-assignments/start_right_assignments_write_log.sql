@@ -0,0 +1,2 @@
+DELETE FROM referencedata.right_assignment_writes;
+UPDATE referencedata.right_assignment_rebuild SET active = true;
@@ -0,0 +1,2 @@
+UPDATE referencedata.right_assignment_rebuild SET active = false;
+DELETE FROM referencedata.right_assignment_writes;
@@ -0,0 +1,23 @@
+LOCK TABLE referencedata.right_assignments IN SHARE MODE;
+WITH last AS (SELECT DISTINCT ON (userid, rightname, facilityid, programid) operation, userid, rightname, facilityid, programid FROM referencedata.right_assignment_writes ORDER BY userid, rightname, facilityid, programid, seq DESC) DELETE FROM referencedata.right_assignments_shadow s USING last l WHERE l.operation = 'D' AND s.userid IS NOT DISTINCT FROM l.userid AND s.rightname = l.rightname AND s.facilityid IS NOT DISTINCT FROM l.facilityid AND s.programid IS NOT DISTINCT FROM l.programid;
+WITH last AS (SELECT DISTINCT ON (userid, rightname, facilityid, programid) operation, id, userid, rightname, facilityid, programid FROM referencedata.right_assignment_writes ORDER BY userid, rightname, facilityid, programid, seq DESC) INSERT INTO referencedata.right_assignments_shadow (id, userid, rightname, facilityid, programid) SELECT l.id, l.userid, l.rightname, l.facilityid, l.programid FROM last l WHERE l.operation = 'I' AND NOT EXISTS (SELECT 1 FROM referencedata.right_assignments_shadow s WHERE s.userid IS NOT DISTINCT FROM l.userid AND s.rightname = l.rightname AND s.facilityid IS NOT DISTINCT FROM l.facilityid AND s.programid IS NOT DISTINCT FROM l.programid);
+ALTER TABLE referencedata.right_assignments_shadow ADD CONSTRAINT right_assignments_shadow_pkey PRIMARY KEY (id);
+ALTER TABLE referencedata.right_assignments_shadow ADD CONSTRAINT right_assignments_shadow_unq UNIQUE (rightname, facilityid, programid, userid);
+ALTER TABLE referencedata.right_assignments_shadow ADD CONSTRAINT right_assignments_shadow_rightname_fkey FOREIGN KEY (rightname) REFERENCES referencedata.rights (name) NOT VALID;
+ALTER TABLE referencedata.right_assignments_shadow ADD CONSTRAINT right_assignments_shadow_facilityid_fkey FOREIGN KEY (facilityid) REFERENCES referencedata.facilities (id) NOT VALID;
+ALTER TABLE referencedata.right_assignments_shadow ADD CONSTRAINT right_assignments_shadow_programid_fkey FOREIGN KEY (programid) REFERENCES referencedata.programs (id) NOT VALID;
+ALTER TABLE referencedata.right_assignments_shadow ADD CONSTRAINT right_assignments_shadow_userid_fkey FOREIGN KEY (userid) REFERENCES referencedata.users (id) NOT VALID;
+CREATE INDEX right_assignments_shadow_userid_rightname_idx ON referencedata.right_assignments_shadow (userid, rightname);
+CREATE INDEX right_assignments_shadow_programid_idx ON referencedata.right_assignments_shadow (programid);
+DROP TABLE referencedata.right_assignments;
+ALTER TABLE referencedata.right_assignments_shadow RENAME TO right_assignments;
+ALTER TABLE referencedata.right_assignments RENAME CONSTRAINT right_assignments_shadow_pkey TO permission_strings_pkey;
+ALTER TABLE referencedata.right_assignments RENAME CONSTRAINT right_assignments_shadow_unq TO right_assignment_unq;
+ALTER TABLE referencedata.right_assignments RENAME CONSTRAINT right_assignments_shadow_rightname_fkey TO right_assignments_rightname_fkey;
+ALTER TABLE referencedata.right_assignments RENAME CONSTRAINT right_assignments_shadow_facilityid_fkey TO right_assignments_facilityid_fkey;
+ALTER TABLE referencedata.right_assignments RENAME CONSTRAINT right_assignments_shadow_programid_fkey TO right_assignments_programid_fkey;
+ALTER TABLE referencedata.right_assignments RENAME CONSTRAINT right_assignments_shadow_userid_fkey TO right_assignments_userid_fkey;
+ALTER INDEX referencedata.right_assignments_shadow_userid_rightname_idx RENAME TO right_assignments_userid_rightname_idx;
+ALTER INDEX referencedata.right_assignments_shadow_programid_idx RENAME TO right_assignments_programid_idx;
+CREATE TRIGGER right_assignments_write_log AFTER INSERT OR UPDATE OR DELETE ON referencedata.right_assignments FOR EACH ROW EXECUTE PROCEDURE referencedata.log_right_assignment_write();
+ANALYZE referencedata.right_assignments;
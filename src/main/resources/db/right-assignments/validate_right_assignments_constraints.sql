@@ -0,0 +1,4 @@
+ALTER TABLE referencedata.right_assignments VALIDATE CONSTRAINT right_assignments_rightname_fkey;
+ALTER TABLE referencedata.right_assignments VALIDATE CONSTRAINT right_assignments_facilityid_fkey;
+ALTER TABLE referencedata.right_assignments VALIDATE CONSTRAINT right_assignments_programid_fkey;
+ALTER TABLE referencedata.right_assignments VALIDATE CONSTRAINT right_assignments_userid_fkey;
@@ -0,0 +1,89 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.config.CacheConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.referencedata.domain.Orderable;
+import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.web.QueryOrderableSearchParams;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderableCacheInitializerTest {
+
+  private static final int BATCH_SIZE = 50;
+  private static final int CAPACITY = 20000;
+
+  @Mock
+  private OrderableRepository orderableRepository;
+
+  @Mock
+  private CacheManager cacheManager;
+
+  private OrderableCacheInitializer initializer;
+
+  @Before
+  public void setUp() {
+    initializer = new OrderableCacheInitializer(cacheManager);
+    ReflectionTestUtils.setField(initializer, "orderableRepository", orderableRepository);
+    ReflectionTestUtils.setField(initializer, "enabled", true);
+    ReflectionTestUtils.setField(initializer, "batchSize", BATCH_SIZE);
+  }
+
+  @Test
+  public void shouldLoadLatestOrderablesInBatchesUpToRegionCapacity() {
+    Ehcache cache = mock(Ehcache.class);
+    when(cache.getCacheConfiguration())
+        .thenReturn(new CacheConfiguration().maxEntriesLocalHeap(CAPACITY));
+    when(cacheManager.getEhcache(Orderable.class.getName())).thenReturn(cache);
+
+    initializer.run();
+
+    verify(orderableRepository)
+        .scroll(any(QueryOrderableSearchParams.class), eq(BATCH_SIZE), eq(CAPACITY), any());
+  }
+
+  @Test
+  public void shouldLoadAllLatestOrderablesIfRegionIsNotConfigured() {
+    initializer.run();
+
+    verify(orderableRepository)
+        .scroll(any(QueryOrderableSearchParams.class), eq(BATCH_SIZE), eq(0), any());
+  }
+
+  @Test
+  public void shouldNotLoadOrderablesIfWarmUpIsDisabled() {
+    ReflectionTestUtils.setField(initializer, "enabled", false);
+
+    initializer.run();
+
+    verifyZeroInteractions(orderableRepository);
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SecondLevelCacheMetricsTest {
+
+  private static final String REGION = "org.openlmis.referencedata.domain.Orderable";
+  private static final String CACHE_TAG = "cache";
+
+  private CacheManager cacheManager;
+  private MeterRegistry registry;
+
+  @Before
+  public void setUp() {
+    cacheManager = CacheManager.newInstance(new Configuration()
+        .name("second-level-cache-metrics-test"));
+    cacheManager.addCache(REGION);
+    registry = new SimpleMeterRegistry();
+  }
+
+  @After
+  public void tearDown() {
+    cacheManager.shutdown();
+  }
+
+  @Test
+  public void shouldExportStatisticsOfEveryRegion() {
+    new SecondLevelCacheMetrics(cacheManager).bindTo(registry);
+
+    Ehcache cache = cacheManager.getEhcache(REGION);
+    cache.put(new Element("key", "value"));
+    cache.get("key");
+    cache.get("other");
+
+    assertNotNull(registry.find("cache.size").tag(CACHE_TAG, REGION).gauge());
+    assertEquals(1, registry.get("cache.gets").tag(CACHE_TAG, REGION).tag("result", "hit")
+        .functionCounter().count(), 0);
+    assertEquals(1, registry.get("cache.gets").tag(CACHE_TAG, REGION).tag("result", "miss")
+        .functionCounter().count(), 0);
+    assertEquals(1, registry.get("cache.puts").tag(CACHE_TAG, REGION)
+        .functionCounter().count(), 0);
+  }
+}
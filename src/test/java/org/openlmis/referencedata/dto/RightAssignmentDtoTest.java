@@ -15,6 +15,9 @@
 
 package org.openlmis.referencedata.dto;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.UUID;
 import nl.jqno.equalsverifier.EqualsVerifier;
 import nl.jqno.equalsverifier.Warning;
 import org.junit.Test;
@@ -29,4 +32,17 @@ public class RightAssignmentDtoTest {
         .verify();
   }
 
+  @Test
+  public void shouldConvertToPermissionString() {
+    UUID facilityId = UUID.randomUUID();
+    UUID programId = UUID.randomUUID();
+
+    assertEquals("right",
+        new RightAssignmentDto(null, "right", null, null).toPermissionString());
+    assertEquals("right|" + facilityId,
+        new RightAssignmentDto(null, "right", facilityId, null).toPermissionString());
+    assertEquals("right|" + facilityId + "|" + programId,
+        new RightAssignmentDto(null, "right", facilityId, programId).toPermissionString());
+  }
+
 }
@@ -0,0 +1,50 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.UUID;
+import org.junit.Test;
+import org.openlmis.referencedata.exception.ValidationMessageException;
+
+public class SeekCursorTest {
+
+  @Test
+  public void shouldDecodeEncodedCursor() {
+    SeekCursor cursor = new SeekCursor("Name: with separators", UUID.randomUUID(), 3L);
+
+    assertEquals(cursor, SeekCursor.decode(cursor.encode()));
+  }
+
+  @Test
+  public void shouldDecodeBlankTokenAsFirstPage() {
+    assertNull(SeekCursor.decode(null));
+    assertNull(SeekCursor.decode(" "));
+  }
+
+  @Test(expected = ValidationMessageException.class)
+  public void shouldThrowExceptionIfTokenIsNotBase64() {
+    SeekCursor.decode("not a cursor");
+  }
+
+  @Test(expected = ValidationMessageException.class)
+  public void shouldThrowExceptionIfTokenHasNoIdentity() {
+    SeekCursor.decode(new SeekCursor("name", UUID.randomUUID(), 1L).encode().substring(0, 4));
+  }
+
+}
@@ -31,6 +31,7 @@ import static org.mockito.Mockito.when;
 import static org.openlmis.referencedata.repository.custom.impl.OrderableRepositoryImpl.CODE;
 import static org.openlmis.referencedata.repository.custom.impl.OrderableRepositoryImpl.ID;
 import static org.openlmis.referencedata.repository.custom.impl.OrderableRepositoryImpl.IDENTITY;
+import static org.openlmis.referencedata.repository.custom.impl.OrderableRepositoryImpl.LATEST;
 import static org.openlmis.referencedata.repository.custom.impl.OrderableRepositoryImpl.PRODUCT_CODE;
 import static org.openlmis.referencedata.repository.custom.impl.OrderableRepositoryImpl.PROGRAM;
 import static org.openlmis.referencedata.repository.custom.impl.OrderableRepositoryImpl.PROGRAM_ORDERABLES;
@@ -56,7 +57,6 @@ import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
-import javax.persistence.criteria.Subquery;
 import org.hibernate.query.criteria.internal.CriteriaBuilderImpl;
 import org.hibernate.transform.DistinctRootEntityResultTransformer;
 import org.junit.Test;
@@ -154,18 +154,11 @@ public class OrderableRepositoryImplTest {
     Path versionNumberPath = mock(Path.class);
     when(identityPath.get(ID)).thenReturn(idPath);
     when(identityPath.get(VERSION_NUMBER)).thenReturn(versionNumberPath);
-    Expression idExpression = mock(Expression.class);
-    when(idPath.as(String.class)).thenReturn(idExpression);
 
     when(root.get(IDENTITY)).thenReturn(identityPath);
 
-    Expression concatenatedExpression = mock(Expression.class);
-    when(criteriaBuilder.concat(idExpression, versionNumberPath))
-        .thenReturn(concatenatedExpression);
-    Expression concatenatedExpressionAsString = mock(Expression.class);
-    when(concatenatedExpression.as(String.class)).thenReturn(concatenatedExpressionAsString);
-    when(criteriaBuilder.in(concatenatedExpressionAsString))
-        .thenReturn(mock(CriteriaBuilder.In.class));
+    Path latestPath = mock(Path.class);
+    when(root.get(LATEST)).thenReturn(latestPath);
 
     when(criteriaQuery.select(identityPath)).thenReturn(newQuery);
 
@@ -185,24 +178,6 @@ public class OrderableRepositoryImplTest {
     Expression lowerExpression = mock(Expression.class);
     when(criteriaBuilder.lower(pathCodeCode)).thenReturn(lowerExpression);
 
-    //getTotal/getIdentities->prepareQuery->prepareParams->createSubQuery
-
-    Subquery latestOrderableQuery = mock(Subquery.class);
-    when(newQuery.subquery(String.class)).thenReturn(latestOrderableQuery);
-    Root latestOrderableRoot = mock(Root.class);
-    when(latestOrderableQuery.from(Orderable.class)).thenReturn(latestOrderableRoot);
-    Path latestOrderableIdentityPath = mock(Path.class);
-    Path latestOrderableIdPath = mock(Path.class);
-    Path latestOrderableVersionNumberPath = mock(Path.class);
-    when(latestOrderableIdentityPath.get(ID)).thenReturn(latestOrderableIdPath);
-    when(latestOrderableIdentityPath.get(VERSION_NUMBER))
-        .thenReturn(latestOrderableVersionNumberPath);
-    when(criteriaBuilder.max(latestOrderableVersionNumberPath)).thenReturn(mock(Expression.class));
-
-    when(latestOrderableRoot.get(IDENTITY)).thenReturn(latestOrderableIdentityPath);
-
-    //end: getTotal/getIdentities->prepareQuery->prepareParams->createSubQuery
-
     when(root.get(PRODUCT_CODE)).thenReturn(mock(Path.class));
 
     //end: getTotal/getIdentities->prepareQuery->prepareParams
@@ -279,5 +254,6 @@ public class OrderableRepositoryImplTest {
     verify(lowerExpression, times(2)).in(codesArgumentCaptor.capture());
     assertTrue(codesArgumentCaptor.getAllValues().stream()
         .allMatch(codeList -> codeList.containsAll(programCodes)));
+    verify(criteriaBuilder, times(2)).isTrue(latestPath);
   }
 }
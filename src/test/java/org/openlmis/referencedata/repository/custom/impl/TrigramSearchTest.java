@@ -0,0 +1,77 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.repository.custom.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import org.junit.Test;
+
+public class TrigramSearchTest {
+
+  @Test
+  public void shouldCreateContainsCondition() {
+    assertEquals("LOWER(f.name) LIKE :name", TrigramSearch.contains("f.name", "name"));
+    assertEquals("%abc def%", TrigramSearch.pattern("ABC Def"));
+  }
+
+  @Test
+  public void shouldCreateSimilarityOrder() {
+    assertEquals("similarity(LOWER(f.name), :nameTerm) DESC",
+        TrigramSearch.bySimilarity("f.name", "nameTerm"));
+    assertEquals("abc def", TrigramSearch.term("ABC Def"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldCreateContainsPredicateOnLowerCaseColumn() {
+    // given
+    CriteriaBuilder builder = mock(CriteriaBuilder.class);
+    Expression<String> column = mock(Expression.class);
+    Expression<String> lowerColumn = mock(Expression.class);
+    when(builder.lower(column)).thenReturn(lowerColumn);
+
+    // when
+    TrigramSearch.contains(builder, column, "ABC");
+
+    // then
+    verify(builder).like(lowerColumn, "%abc%");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldCreateSimilarityOrderOnLowerCaseColumn() {
+    // given
+    CriteriaBuilder builder = mock(CriteriaBuilder.class);
+    Expression<String> column = mock(Expression.class);
+    Expression<String> lowerColumn = mock(Expression.class);
+    Expression<String> term = mock(Expression.class);
+    Expression<Float> similarity = mock(Expression.class);
+    when(builder.lower(column)).thenReturn(lowerColumn);
+    when(builder.literal("abc")).thenReturn(term);
+    when(builder.function("similarity", Float.class, lowerColumn, term)).thenReturn(similarity);
+
+    // when
+    TrigramSearch.bySimilarity(builder, column, "ABC");
+
+    // then
+    verify(builder).desc(similarity);
+  }
+}
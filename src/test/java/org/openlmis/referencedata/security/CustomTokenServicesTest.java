@@ -15,13 +15,25 @@
 
 package org.openlmis.referencedata.security;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.when;
 
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Matchers;
@@ -43,6 +55,10 @@ public class CustomTokenServicesTest {
   private static final String CLIENT_CHECK_TOKEN_ENDPOINT_URI = "/oauth/check_token";
   private static final String ACCESS_TOKEN = "access-token-1234";
   private static final int INVALID_TOKEN_RETRY_LIMIT = 3;
+  private static final String RESULT_TAG = "result";
+
+  @Rule
+  public WireMockRule wireMockRule = new WireMockRule(options().dynamicPort());
 
   @Mock
   private RestTemplate restTemplate;
@@ -88,4 +104,86 @@ public class CustomTokenServicesTest {
     this.customTokenServices.setRestTemplate(restTemplate);
     this.customTokenServices.loadAuthentication(ACCESS_TOKEN);
   }
+
+  @Test
+  public void shouldCheckValidTokenWithAuthServiceOnlyOnce() {
+    stubCheckToken("{\"active\": true, \"client_id\": \"" + CLIENT_ID + "\", \"exp\": "
+        + TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() + 3_600_000) + "}");
+    CustomTokenServices cachingTokenServices = newCachingTokenServices();
+    MeterRegistry registry = new SimpleMeterRegistry();
+    cachingTokenServices.bindTo(registry);
+
+    assertNotNull(cachingTokenServices.loadAuthentication(ACCESS_TOKEN));
+    OAuth2Authentication authentication = cachingTokenServices.loadAuthentication(ACCESS_TOKEN);
+
+    assertEquals(CLIENT_ID, authentication.getOAuth2Request().getClientId());
+    wireMockRule.verify(1, postRequestedFor(urlEqualTo(CLIENT_CHECK_TOKEN_ENDPOINT_URI)));
+    assertEquals(1, registry.get(CustomTokenServices.CACHE_REQUESTS_METRIC)
+        .tag(RESULT_TAG, "hit").functionCounter().count(), 0);
+    assertEquals(1, registry.get(CustomTokenServices.CACHE_REQUESTS_METRIC)
+        .tag(RESULT_TAG, "miss").functionCounter().count(), 0);
+    assertEquals(1, registry.get(CustomTokenServices.CACHE_SIZE_METRIC).gauge().value(), 0);
+  }
+
+  @Test
+  public void shouldCheckExpiredTokenWithAuthServiceEveryTime() {
+    stubCheckToken("{\"active\": true, \"client_id\": \"" + CLIENT_ID + "\", \"exp\": "
+        + TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - 10_000) + "}");
+    CustomTokenServices cachingTokenServices = newCachingTokenServices();
+
+    cachingTokenServices.loadAuthentication(ACCESS_TOKEN);
+    cachingTokenServices.loadAuthentication(ACCESS_TOKEN);
+
+    wireMockRule.verify(2, postRequestedFor(urlEqualTo(CLIENT_CHECK_TOKEN_ENDPOINT_URI)));
+  }
+
+  @Test
+  public void shouldCacheInvalidToken() {
+    stubCheckToken("{\"error\": \"invalid_token\"}");
+    CustomTokenServices cachingTokenServices = newCachingTokenServices();
+    MeterRegistry registry = new SimpleMeterRegistry();
+    cachingTokenServices.bindTo(registry);
+
+    for (int i = 0; i < 2; ++i) {
+      try {
+        cachingTokenServices.loadAuthentication(ACCESS_TOKEN);
+        fail("Expected InvalidTokenException");
+      } catch (InvalidTokenException ex) {
+        // expected
+      }
+    }
+
+    wireMockRule.verify(INVALID_TOKEN_RETRY_LIMIT + 1,
+        postRequestedFor(urlEqualTo(CLIENT_CHECK_TOKEN_ENDPOINT_URI)));
+    assertEquals(1, registry.get(CustomTokenServices.CACHE_REQUESTS_METRIC)
+        .tag(RESULT_TAG, "negativeHit").functionCounter().count(), 0);
+  }
+
+  @Test
+  public void shouldNotCacheTokensIfCacheIsDisabled() {
+    stubCheckToken("{\"active\": true, \"client_id\": \"" + CLIENT_ID + "\"}");
+    CustomTokenServices tokenServices = new CustomTokenServices(INVALID_TOKEN_RETRY_LIMIT);
+    tokenServices.setCheckTokenEndpointUrl(wireMockRule.url(CLIENT_CHECK_TOKEN_ENDPOINT_URI));
+
+    tokenServices.loadAuthentication(ACCESS_TOKEN);
+    tokenServices.loadAuthentication(ACCESS_TOKEN);
+
+    wireMockRule.verify(2, postRequestedFor(urlEqualTo(CLIENT_CHECK_TOKEN_ENDPOINT_URI)));
+  }
+
+  private CustomTokenServices newCachingTokenServices() {
+    CustomTokenServices tokenServices = new CustomTokenServices(INVALID_TOKEN_RETRY_LIMIT,
+        10, 60, 5);
+    tokenServices.setClientId(CLIENT_ID);
+    tokenServices.setClientSecret(CLIENT_SECRET);
+    tokenServices.setCheckTokenEndpointUrl(wireMockRule.url(CLIENT_CHECK_TOKEN_ENDPOINT_URI));
+    return tokenServices;
+  }
+
+  private void stubCheckToken(String body) {
+    wireMockRule.stubFor(post(urlEqualTo(CLIENT_CHECK_TOKEN_ENDPOINT_URI))
+        .willReturn(aResponse()
+            .withHeader("Content-Type", "application/json")
+            .withBody(body)));
+  }
 }
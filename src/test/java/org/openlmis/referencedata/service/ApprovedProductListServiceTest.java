@@ -0,0 +1,181 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.referencedata.domain.VersionIdentity;
+import org.openlmis.referencedata.exception.ValidationMessageException;
+import org.openlmis.referencedata.repository.FacilityTypeApprovedProductRepository;
+import org.openlmis.referencedata.service.ApprovedProductListService.ApprovedProductList;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ApprovedProductListServiceTest {
+
+  private static final long VERSION = 7L;
+
+  @Mock
+  private JdbcTemplate template;
+
+  @Mock
+  private FacilityTypeApprovedProductRepository facilityTypeApprovedProductRepository;
+
+  @InjectMocks
+  private ApprovedProductListService approvedProductListService;
+
+  private UUID facilityId = UUID.randomUUID();
+  private UUID facilityTypeId = UUID.randomUUID();
+  private UUID programId = UUID.randomUUID();
+  private List<VersionIdentity> identities =
+      Collections.singletonList(new VersionIdentity(UUID.randomUUID(), 1L));
+
+  @Test
+  public void shouldReturnStoredList() {
+    mockStoredList(new ApprovedProductList(VERSION, identities));
+
+    ApprovedProductList list = approvedProductListService.getList(facilityId, programId, true);
+
+    assertEquals(VERSION, (long) list.getVersion());
+    assertEquals(identities, list.getIdentities());
+    verify(facilityTypeApprovedProductRepository, never())
+        .findApprovedProductIdentities(facilityTypeId, programId, true);
+  }
+
+  @Test
+  public void shouldBuildAndInsertListIfItIsNotStored() {
+    mockStoredList();
+    mockIdentities();
+    doReturn(Collections.singletonList(VERSION)).when(template).query(
+        eq(ApprovedProductListService.INSERT_LIST_SQL), any(PreparedStatementSetter.class),
+        any(RowMapper.class));
+
+    ApprovedProductList list = approvedProductListService.getList(facilityId, programId, true);
+
+    assertEquals(VERSION, (long) list.getVersion());
+    assertEquals(String.valueOf(VERSION), list.getETag());
+    assertEquals(identities, list.getIdentities());
+  }
+
+  @Test
+  public void shouldRebuildListWithItsVersionIfItWasInvalidated() {
+    mockStoredList(new ApprovedProductList(VERSION, null));
+    mockIdentities();
+    when(template.update(eq(ApprovedProductListService.UPDATE_LIST_SQL),
+        any(PreparedStatementSetter.class))).thenReturn(1);
+
+    ApprovedProductList list = approvedProductListService.getList(facilityId, programId, true);
+
+    assertEquals(VERSION, (long) list.getVersion());
+    assertEquals(identities, list.getIdentities());
+  }
+
+  @Test
+  public void shouldReturnListWithoutVersionIfItChangedWhileBeingBuilt() {
+    mockStoredList(new ApprovedProductList(VERSION, null));
+    mockIdentities();
+    when(template.update(eq(ApprovedProductListService.UPDATE_LIST_SQL),
+        any(PreparedStatementSetter.class))).thenReturn(0);
+
+    ApprovedProductList list = approvedProductListService.getList(facilityId, programId, true);
+
+    assertNull(list.getVersion());
+    assertNull(list.getETag());
+    assertEquals(identities, list.getIdentities());
+  }
+
+  @Test(expected = ValidationMessageException.class)
+  public void shouldThrowExceptionIfFacilityDoesNotExist() {
+    when(template.queryForObject(ApprovedProductListService.SELECT_FACILITY_TYPE_SQL,
+        UUID.class, facilityId)).thenThrow(new EmptyResultDataAccessException(1));
+
+    approvedProductListService.getList(facilityId, programId, true);
+  }
+
+  @Test
+  public void shouldNotQueryFacilityTypesOfNoFacilities() {
+    assertTrue(approvedProductListService.getFacilityTypeIds(Collections.emptyList()).isEmpty());
+    verifyZeroInteractions(template);
+  }
+
+  @Test
+  public void shouldReadFacilityTypesOfManyFacilitiesAtOnce() throws SQLException {
+    UUID otherFacilityId = UUID.randomUUID();
+    doAnswer(invocation -> {
+      RowCallbackHandler handler = (RowCallbackHandler) invocation.getArguments()[2];
+      processFacilityType(handler, facilityId, facilityTypeId);
+      processFacilityType(handler, otherFacilityId, facilityTypeId);
+      return null;
+    }).when(template).query(eq(ApprovedProductListService.SELECT_FACILITY_TYPES_SQL),
+        any(PreparedStatementSetter.class), any(RowCallbackHandler.class));
+
+    Map<UUID, UUID> facilityTypeIds = approvedProductListService
+        .getFacilityTypeIds(Arrays.asList(facilityId, otherFacilityId));
+
+    assertEquals(2, facilityTypeIds.size());
+    assertEquals(facilityTypeId, facilityTypeIds.get(facilityId));
+    assertEquals(facilityTypeId, facilityTypeIds.get(otherFacilityId));
+  }
+
+  private void mockStoredList(ApprovedProductList... lists) {
+    when(template.queryForObject(ApprovedProductListService.SELECT_FACILITY_TYPE_SQL,
+        UUID.class, facilityId)).thenReturn(facilityTypeId);
+    doReturn(Arrays.asList(lists)).when(template).query(
+        eq(ApprovedProductListService.SELECT_LIST_SQL), any(RowMapper.class),
+        eq(facilityTypeId), eq(programId), eq(true));
+  }
+
+  private void mockIdentities() {
+    when(facilityTypeApprovedProductRepository
+        .findApprovedProductIdentities(facilityTypeId, programId, true))
+        .thenReturn(identities);
+  }
+
+  private void processFacilityType(RowCallbackHandler handler, UUID id, UUID typeId)
+      throws SQLException {
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getObject("id", UUID.class)).thenReturn(id);
+    when(rs.getObject("typeid", UUID.class)).thenReturn(typeId);
+    handler.processRow(rs);
+  }
+}
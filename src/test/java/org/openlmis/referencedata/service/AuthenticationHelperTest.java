@@ -0,0 +1,140 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.referencedata.domain.User;
+import org.openlmis.referencedata.exception.NotFoundException;
+import org.openlmis.referencedata.repository.UserRepository;
+import org.openlmis.referencedata.testbuilder.UserDataBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AuthenticationHelperTest {
+
+  @Mock
+  private UserRepository userRepository;
+
+  @InjectMocks
+  private AuthenticationHelper authenticationHelper;
+
+  private User user = new UserDataBuilder().build();
+
+  @Before
+  public void setUp() {
+    Authentication authentication = mock(Authentication.class);
+    when(authentication.getPrincipal()).thenReturn(user.getId());
+    SecurityContextHolder.setContext(new SecurityContextImpl(authentication));
+
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+  }
+
+  @After
+  public void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  public void shouldLoadCurrentUserOncePerRequest() {
+    when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+
+    assertSame(user, authenticationHelper.getCurrentUser());
+    assertSame(user, authenticationHelper.getCurrentUser());
+
+    verify(userRepository, times(1)).findById(user.getId());
+  }
+
+  @Test
+  public void shouldCountCurrentUserLookupsAnsweredFromRequest() {
+    when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+    MeterRegistry registry = new SimpleMeterRegistry();
+    authenticationHelper.bindTo(registry);
+
+    authenticationHelper.getCurrentUser();
+    authenticationHelper.getCurrentUser();
+    authenticationHelper.getCurrentUser();
+
+    assertEquals(2, registry.get(AuthenticationHelper.CURRENT_USER_REQUESTS_METRIC)
+        .tag("result", "hit").functionCounter().count(), 0);
+    assertEquals(1, registry.get(AuthenticationHelper.CURRENT_USER_REQUESTS_METRIC)
+        .tag("result", "miss").functionCounter().count(), 0);
+  }
+
+  @Test
+  public void shouldLoadCurrentUserAgainAfterItWasEvicted() {
+    when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+
+    authenticationHelper.getCurrentUser();
+    authenticationHelper.evictUser(user.getId());
+    authenticationHelper.getCurrentUser();
+
+    verify(userRepository, times(2)).findById(user.getId());
+  }
+
+  @Test
+  public void shouldLoadCurrentUserEveryTimeOutsideOfRequest() {
+    RequestContextHolder.resetRequestAttributes();
+    when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+
+    authenticationHelper.getCurrentUser();
+    authenticationHelper.getCurrentUser();
+
+    verify(userRepository, times(2)).findById(user.getId());
+  }
+
+  @Test(expected = NotFoundException.class)
+  public void shouldThrowExceptionIfCurrentUserDoesNotExist() {
+    when(userRepository.findById(user.getId())).thenReturn(Optional.empty());
+
+    authenticationHelper.getCurrentUser();
+  }
+
+  @Test
+  public void shouldKeepCurrentUserIfOtherUserIsEvicted() {
+    UUID otherUserId = UUID.randomUUID();
+    when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+
+    authenticationHelper.getCurrentUser();
+    authenticationHelper.evictUser(otherUserId);
+    authenticationHelper.getCurrentUser();
+
+    verify(userRepository, times(1)).findById(user.getId());
+  }
+}
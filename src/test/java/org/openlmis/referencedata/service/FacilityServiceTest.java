@@ -21,6 +21,7 @@ import static org.hamcrest.Matchers.hasItem;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -66,10 +67,10 @@ public class FacilityServiceTest {
   private GeographicZoneRepository geographicZoneRepository;
 
   @Mock
-  private GeographicZoneService geographicZoneService;
+  private FacilityRepository facilityRepository;
 
   @Mock
-  private FacilityRepository facilityRepository;
+  private GeographicHierarchy geographicHierarchy;
 
   @Mock
   private FacilityTypeRepository facilityTypeRepository;
@@ -83,8 +84,6 @@ public class FacilityServiceTest {
   private UUID facility1Id = UUID.randomUUID();
   private UUID facility2Id = UUID.randomUUID();
   private UUID parentId = UUID.randomUUID();
-  private UUID childId = UUID.randomUUID();
-  private UUID childOfChildId = UUID.randomUUID();
   private List<Facility> facilityList;
 
   @InjectMocks
@@ -101,6 +100,8 @@ public class FacilityServiceTest {
 
     when(facilityTypeRepository.existsByCode(FACILITY_TYPE)).thenReturn(true);
     when(geographicZoneRepository.existsById(parentId)).thenReturn(true);
+    when(geographicHierarchy.getSnapshot())
+        .thenReturn(GeographicHierarchy.Snapshot.build(1, 1, 0, Lists.newArrayList()));
   }
 
   @Test
@@ -114,7 +115,7 @@ public class FacilityServiceTest {
     FacilitySearchParams searchParams = new FacilitySearchParams(params);
 
     when(facilityRepository
-        .search(searchParams, emptySet(), null, pageable))
+        .search(searchParams, emptySet(), false, null, pageable))
         .thenReturn(Pagination.getPage(facilityList, pageable, 2));
 
     List<Facility> actual = facilityService.searchFacilities(searchParams, pageable).getContent();
@@ -144,6 +145,24 @@ public class FacilityServiceTest {
     facilityService.searchFacilities(new FacilitySearchParams(params), pageable);
   }
 
+  @Test
+  public void shouldNotCheckDatabaseIfGeographicZoneIsInHierarchy() {
+    when(geographicHierarchy.getSnapshot()).thenReturn(GeographicHierarchy.Snapshot.build(1, 1, 0,
+        Lists.<Object[]>newArrayList(new Object[]{parentId, null, "parent", 1})));
+
+    MultiValueMap<String, Object> params = new LinkedMultiValueMap<>();
+    params.add(RECURSE, false);
+    params.add(ZONE_ID, parentId.toString());
+
+    prepareForSearchWithoutRecurse(params);
+
+    List<Facility> actual = facilityService.searchFacilities(
+        new FacilitySearchParams(params), pageable).getContent();
+
+    verifyAfterSearchWithoutRecurse(actual, params);
+    verify(geographicZoneRepository, never()).existsById(any(UUID.class));
+  }
+
   @Test(expected = ValidationMessageException.class)
   public void shouldThrowExceptionIfFacilityTypeDoesNotExist() {
     when(facilityTypeRepository.existsByCode(any(String.class))).thenReturn(false);
@@ -159,7 +178,7 @@ public class FacilityServiceTest {
     FacilitySearchParams searchParams = new FacilitySearchParams(new LinkedMultiValueMap<>());
 
     when(facilityRepository
-        .search(searchParams, emptySet(), null, pageable))
+        .search(searchParams, emptySet(), false, null, pageable))
         .thenReturn(Pagination.getPage(facilityList, pageable, 2));
 
     List<Facility> actual = facilityService
@@ -177,7 +196,7 @@ public class FacilityServiceTest {
     FacilitySearchParams searchParams = new FacilitySearchParams(params);
 
     when(facilityRepository
-        .search(searchParams, emptySet(), null, pageable))
+        .search(searchParams, emptySet(), false, null, pageable))
         .thenReturn(Pagination.getPage(facilityList, pageable, 2));
 
     List<Facility> actual = facilityService
@@ -233,9 +252,6 @@ public class FacilityServiceTest {
     final String code = "FAC1";
     final String name = "Facility";
 
-    when(geographicZoneService.getAllZonesInHierarchy(parentId))
-        .thenReturn(Sets.newHashSet(childId, childOfChildId));
-
     Map<String, String> extraData = new HashMap<>();
     extraData.put("type", "rural");
 
@@ -248,7 +264,7 @@ public class FacilityServiceTest {
     params.add("extraData", extraData);
 
     when(facilityRepository
-        .search(new FacilitySearchParams(params), of(parentId, childId, childOfChildId),
+        .search(new FacilitySearchParams(params), of(parentId), true,
             "{\"type\":\"rural\"}", pageable))
         .thenReturn(Pagination.getPage(Lists.newArrayList(facility2), pageable, 1));
 
@@ -260,17 +276,14 @@ public class FacilityServiceTest {
   }
 
   private void prepareForSearchWithRecurse(FacilitySearchParams params) {
-    when(geographicZoneService.getAllZonesInHierarchy(parentId))
-        .thenReturn(Sets.newHashSet(childId, childOfChildId));
-
     when(facilityRepository
-        .search(params, of(parentId, childId, childOfChildId), null, pageable))
+        .search(params, of(parentId), true, null, pageable))
         .thenReturn(Pagination.getPage(Lists.newArrayList(facility, facility2), pageable, 2));
   }
 
   private void verifyAfterSearchWithRecurse(List<Facility> actual, FacilitySearchParams params) {
     verify(facilityRepository)
-        .search(params, of(parentId, childId, childOfChildId), null, pageable);
+        .search(params, of(parentId), true, null, pageable);
 
     assertEquals(2, actual.size());
     assertThat(actual, hasItem(facility));
@@ -279,14 +292,14 @@ public class FacilityServiceTest {
 
   private void prepareForSearchWithoutRecurse(MultiValueMap<String, Object> params) {
     when(facilityRepository
-        .search(new FacilitySearchParams(params), of(parentId), null, pageable))
+        .search(new FacilitySearchParams(params), of(parentId), false, null, pageable))
         .thenReturn(Pagination.getPage(Lists.newArrayList(facility), pageable, 1));
   }
 
   private void verifyAfterSearchWithoutRecurse(List<Facility> actual,
       MultiValueMap<String, Object> params) {
     verify(facilityRepository)
-        .search(new FacilitySearchParams(params), of(parentId), null, pageable);
+        .search(new FacilitySearchParams(params), of(parentId), false, null, pageable);
     verifyNoMoreInteractions(facilityRepository);
 
     assertEquals(1, actual.size());
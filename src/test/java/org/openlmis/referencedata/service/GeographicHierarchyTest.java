@@ -0,0 +1,165 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.Lists;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.referencedata.repository.GeographicZoneRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GeographicHierarchyTest {
+
+  private static final long MAX_AGE_SECONDS = 300;
+
+  @Mock
+  private GeographicZoneRepository geographicZoneRepository;
+
+  @InjectMocks
+  private GeographicHierarchy hierarchy;
+
+  private UUID countryId = UUID.randomUUID();
+  private UUID regionId = UUID.randomUUID();
+  private UUID otherRegionId = UUID.randomUUID();
+  private UUID districtId = UUID.randomUUID();
+  private UUID otherCountryId = UUID.randomUUID();
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(hierarchy, "maxAgeSeconds", MAX_AGE_SECONDS);
+  }
+
+  @Test
+  public void shouldFindDescendantsOfZone() {
+    GeographicHierarchy.Snapshot snapshot = loadTree();
+
+    assertThat(snapshot.getDescendantIds(countryId),
+        containsInAnyOrder(regionId, otherRegionId, districtId));
+    assertThat(snapshot.getDescendantIds(regionId), containsInAnyOrder(districtId));
+    assertThat(snapshot.getDescendantIds(districtId), is(empty()));
+    assertThat(snapshot.getDescendantIds(UUID.randomUUID()), is(empty()));
+  }
+
+  @Test
+  public void shouldFindParentChildrenAndAncestorsOfZone() {
+    GeographicHierarchy.Snapshot snapshot = loadTree();
+
+    assertThat(snapshot.getParentId(regionId), is(countryId));
+    assertThat(snapshot.getParentId(countryId), is(nullValue()));
+    assertThat(snapshot.getChildIds(countryId), containsInAnyOrder(regionId, otherRegionId));
+    assertThat(snapshot.getAncestorIds(districtId), contains(regionId, countryId));
+    assertThat(snapshot.getLevelNumber(districtId), is(3));
+  }
+
+  @Test
+  public void shouldCheckWhetherZoneIsInHierarchy() {
+    GeographicHierarchy.Snapshot snapshot = loadTree();
+
+    assertThat(snapshot.isInHierarchy(countryId, districtId), is(true));
+    assertThat(snapshot.isInHierarchy(countryId, countryId), is(true));
+    assertThat(snapshot.isInHierarchy(otherRegionId, districtId), is(false));
+    assertThat(snapshot.isInHierarchy(otherCountryId, regionId), is(false));
+  }
+
+  @Test
+  public void shouldFindZoneByCode() {
+    GeographicHierarchy.Snapshot snapshot = loadTree();
+
+    assertThat(snapshot.findIdByCode("region"), is(regionId));
+    assertThat(snapshot.findIdByCode("unknown"), is(nullValue()));
+    assertThat(snapshot.contains(otherCountryId), is(true));
+  }
+
+  @Test
+  public void shouldCutParentCycles() {
+    UUID firstId = UUID.randomUUID();
+    UUID secondId = UUID.randomUUID();
+    when(geographicZoneRepository.findAllHierarchyEntries()).thenReturn(Lists.newArrayList(
+        zone(firstId, secondId, "first", 1), zone(secondId, firstId, "second", 1)));
+
+    GeographicHierarchy.Snapshot snapshot = hierarchy.getSnapshot();
+
+    assertThat(snapshot.size(), is(2));
+    assertThat(snapshot.getDescendantIds(firstId), containsInAnyOrder(secondId));
+    assertThat(snapshot.getDescendantIds(secondId), is(empty()));
+  }
+
+  @Test
+  public void shouldBuildSnapshotOnlyOnce() {
+    GeographicHierarchy.Snapshot snapshot = loadTree();
+
+    assertThat(hierarchy.getSnapshot(), is(sameInstance(snapshot)));
+    verify(geographicZoneRepository, times(1)).findAllHierarchyEntries();
+  }
+
+  @Test
+  public void shouldReplaceSnapshotAfterInvalidation() {
+    GeographicHierarchy.Snapshot snapshot = loadTree();
+    hierarchy.invalidate();
+
+    GeographicHierarchy.Snapshot rebuilt = hierarchy.getSnapshot();
+
+    assertThat(rebuilt, is(not(sameInstance(snapshot))));
+    assertThat(rebuilt.getVersion(), is(snapshot.getVersion() + 1));
+    verify(geographicZoneRepository, times(2)).findAllHierarchyEntries();
+  }
+
+  @Test
+  public void shouldRebuildSnapshotWhenItIsTooOld() {
+    ReflectionTestUtils.setField(hierarchy, "maxAgeSeconds", 0L);
+
+    loadTree();
+    hierarchy.getSnapshot();
+
+    verify(geographicZoneRepository, times(2)).findAllHierarchyEntries();
+  }
+
+  private GeographicHierarchy.Snapshot loadTree() {
+    // children are listed before their parents on purpose
+    List<Object[]> zones = Lists.newArrayList(
+        zone(districtId, regionId, "district", 3),
+        zone(regionId, countryId, "region", 2),
+        zone(otherRegionId, countryId, "other-region", 2),
+        zone(countryId, null, "country", 1),
+        zone(otherCountryId, null, "other-country", 1));
+
+    when(geographicZoneRepository.findAllHierarchyEntries()).thenReturn(zones);
+    return hierarchy.getSnapshot();
+  }
+
+  private Object[] zone(UUID id, UUID parentId, String code, int levelNumber) {
+    return new Object[]{id, parentId, code, levelNumber};
+  }
+}
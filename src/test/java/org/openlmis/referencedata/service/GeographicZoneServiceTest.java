@@ -21,6 +21,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.openlmis.referencedata.service.GeographicZoneService.CODE;
@@ -63,6 +64,9 @@ public class GeographicZoneServiceTest {
   @Mock
   private GeographicLevelRepository geographicLevelRepository;
 
+  @Mock
+  private GeographicHierarchy geographicHierarchy;
+
   @Mock
   private GeographicZone parent;
 
@@ -94,29 +98,31 @@ public class GeographicZoneServiceTest {
   }
 
   @Test
-  public void shouldRetrieveOneDescendantWhenParentHasOneChild() {
-    mockFindIdByParent(parentId, childId);
-    assertGetAllZonesInHierarchy(parentId, childId);
-  }
-
-  @Test
-  public void shouldRetrieveManyDescendantsWhenTheChildHasAChild() {
-    mockFindIdByParent(parentId, childId);
-    mockFindIdByParent(childId, childOfChildId);
+  public void shouldRetrieveDescendantsFromGeographicHierarchy() {
+    mockHierarchy(
+        new Object[]{parentId, null, "parent", 1},
+        new Object[]{childId, parentId, "child", 2},
+        new Object[]{childOfChildId, childId, "child-of-child", 3});
 
     assertGetAllZonesInHierarchy(parentId, childId, childOfChildId);
+    verify(geographicZoneRepository, never()).findDescendantIds(any(UUID.class));
+    verify(geographicZoneRepository, never()).findIdsByParent(any(UUID.class));
   }
 
   @Test
-  public void shouldRetrieveManyDescendantsWhenParentHasManyChildren() {
-    mockFindIdByParent(parentId, childId, childOfChildId);
-    assertGetAllZonesInHierarchy(parentId, childId, childOfChildId);
+  public void shouldNotRetrieveAnyDescendantsWhenParentHasNoChildren() {
+    mockHierarchy(new Object[]{parentId, null, "parent", 1});
+    assertGetAllZonesInHierarchy(parentId);
   }
 
   @Test
-  public void shouldNotRetrieveAnyDescendantsWhenParentHasNoChildren() {
-    mockFindIdByParent(parentId);
-    assertGetAllZonesInHierarchy(parentId);
+  public void shouldRetrieveDescendantsWithSingleLookupIfZoneIsNotInHierarchy() {
+    mockHierarchy();
+    mockFindDescendantIds(parentId, childId, childOfChildId);
+
+    assertGetAllZonesInHierarchy(parentId, childId, childOfChildId);
+    verify(geographicZoneRepository).findDescendantIds(parentId);
+    verify(geographicZoneRepository, never()).findIdsByParent(any(UUID.class));
   }
 
   @Test(expected = ValidationMessageException.class)
@@ -172,9 +178,14 @@ public class GeographicZoneServiceTest {
     assertEquals(geographicZones, actual.getContent());
   }
 
-  private void mockFindIdByParent(UUID parentId, UUID... children) {
-    when(geographicZoneRepository.findIdsByParent(parentId))
-        .thenReturn(Sets.newHashSet(children));
+  private void mockHierarchy(Object[]... zones) {
+    when(geographicHierarchy.getSnapshot())
+        .thenReturn(GeographicHierarchy.Snapshot.build(1, 1, 0, Lists.newArrayList(zones)));
+  }
+
+  private void mockFindDescendantIds(UUID parentId, UUID... descendants) {
+    when(geographicZoneRepository.findDescendantIds(parentId))
+        .thenReturn(Sets.newHashSet(descendants));
   }
 
   private void assertGetAllZonesInHierarchy(UUID parentId, UUID... expected) {
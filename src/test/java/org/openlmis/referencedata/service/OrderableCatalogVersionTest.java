@@ -0,0 +1,133 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderableCatalogVersionTest {
+
+  private static final String REVALIDATE_AFTER_SECONDS = "revalidateAfterSeconds";
+
+  @Mock
+  private JdbcTemplate template;
+
+  @InjectMocks
+  private OrderableCatalogVersion catalogVersion;
+
+  private ZonedDateTime lastUpdated = ZonedDateTime.now(ZoneId.of("GMT")).withNano(0);
+
+  @Before
+  public void setUp() throws SQLException {
+    ReflectionTestUtils.setField(catalogVersion, REVALIDATE_AFTER_SECONDS, 60L);
+    mockCatalogState(lastUpdated, 10, 20);
+  }
+
+  @Test
+  public void shouldLoadVersionOnlyOnce() {
+    OrderableCatalogVersion.Snapshot first = catalogVersion.getSnapshot();
+    OrderableCatalogVersion.Snapshot second = catalogVersion.getSnapshot();
+
+    assertEquals(lastUpdated, first.getLastUpdated());
+    assertEquals(first.getVersion(), second.getVersion());
+    verifyCatalogStateLoaded(1);
+  }
+
+  @Test
+  public void shouldDeriveSameVersionFromSameDatabaseState() {
+    OrderableCatalogVersion other = new OrderableCatalogVersion();
+    ReflectionTestUtils.setField(other, "template", template);
+    ReflectionTestUtils.setField(other, REVALIDATE_AFTER_SECONDS, 60L);
+
+    assertEquals(catalogVersion.getSnapshot().getETag(), other.getSnapshot().getETag());
+  }
+
+  @Test
+  public void shouldReloadVersionWhenOrderablesChange() throws SQLException {
+    OrderableCatalogVersion.Snapshot before = catalogVersion.getSnapshot();
+
+    mockCatalogState(lastUpdated.plusMinutes(1), 11, 20);
+    catalogVersion.orderablesChanged();
+
+    OrderableCatalogVersion.Snapshot after = catalogVersion.getSnapshot();
+    assertNotEquals(before.getETag(), after.getETag());
+    assertEquals(lastUpdated.plusMinutes(1), after.getLastUpdated());
+    verifyCatalogStateLoaded(2);
+  }
+
+  @Test
+  public void shouldChangeVersionIfOnlyRowCountChanges() throws SQLException {
+    ReflectionTestUtils.setField(catalogVersion, REVALIDATE_AFTER_SECONDS, -1L);
+    OrderableCatalogVersion.Snapshot first = catalogVersion.getSnapshot();
+
+    mockCatalogState(lastUpdated, 10, 21);
+    OrderableCatalogVersion.Snapshot second = catalogVersion.getSnapshot();
+
+    assertNotEquals(first.getETag(), second.getETag());
+  }
+
+  @Test
+  public void shouldKeepVersionIfRevalidatedStateIsTheSame() {
+    ReflectionTestUtils.setField(catalogVersion, REVALIDATE_AFTER_SECONDS, -1L);
+
+    OrderableCatalogVersion.Snapshot first = catalogVersion.getSnapshot();
+    OrderableCatalogVersion.Snapshot second = catalogVersion.getSnapshot();
+
+    assertEquals(first.getVersion(), second.getVersion());
+    verifyCatalogStateLoaded(2);
+  }
+
+  private void mockCatalogState(ZonedDateTime date, long orderables, long programOrderables)
+      throws SQLException {
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.getTimestamp("lastupdated"))
+        .thenReturn(Timestamp.valueOf(date.toLocalDateTime()));
+    when(resultSet.getLong("orderables")).thenReturn(orderables);
+    when(resultSet.getLong("programorderables")).thenReturn(programOrderables);
+
+    when(template.queryForObject(eq(OrderableCatalogVersion.SELECT_CATALOG_STATE_SQL),
+        any(RowMapper.class)))
+        .thenAnswer(invocation -> ((RowMapper) invocation.getArguments()[1])
+            .mapRow(resultSet, 0));
+  }
+
+  private void verifyCatalogStateLoaded(int times) {
+    verify(template, times(times)).queryForObject(
+        eq(OrderableCatalogVersion.SELECT_CATALOG_STATE_SQL), any(RowMapper.class));
+  }
+}
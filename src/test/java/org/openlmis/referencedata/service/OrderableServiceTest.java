@@ -18,15 +18,24 @@ package org.openlmis.referencedata.service;
 import static org.hamcrest.Matchers.hasItem;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Lists;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
@@ -34,6 +43,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -42,16 +52,20 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.referencedata.domain.Orderable;
+import org.openlmis.referencedata.domain.VersionIdentity;
 import org.openlmis.referencedata.dto.OrderableDto;
 import org.openlmis.referencedata.exception.ValidationMessageException;
+import org.openlmis.referencedata.repository.OrderableIdentitiesPage;
 import org.openlmis.referencedata.repository.OrderableRepository;
 import org.openlmis.referencedata.repository.custom.OrderableRepositoryCustom.SearchParams;
+import org.openlmis.referencedata.testbuilder.OrderableDataBuilder;
 import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.web.QueryOrderableSearchParams;
 import org.slf4j.profiler.Profiler;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
@@ -314,6 +328,56 @@ public class OrderableServiceTest {
     assertEquals(orderable2.getLastUpdated(), lastUpdated);
   }
 
+  @Test
+  public void shouldSearchOrderableIdentitiesWithLastUpdatedDateInOneQuery() {
+    // given
+    List<VersionIdentity> identities = Lists.newArrayList(
+        new VersionIdentity(orderableId, 1L), new VersionIdentity(UUID.randomUUID(), 2L));
+    given(orderableRepository.searchIdentities(any(SearchParams.class), any(Pageable.class)))
+        .willReturn(new OrderableIdentitiesPage(identities, 5L, modifiedDate));
+    given(orderableRepository.findAllByIdentities(identities)).willReturn(orderableList);
+
+    searchParams.add(CODE, "ORD1");
+    QueryOrderableSearchParams queryMap = new QueryOrderableSearchParams(searchParams);
+    Pageable pageRequest = PageRequest.of(0, 2);
+
+    // when
+    OrderableSearchResult result = orderableService
+        .searchOrderables(queryMap, pageRequest, profiler);
+
+    // then
+    assertEquals(modifiedDate, result.getLastUpdated());
+    verify(orderableRepository).searchIdentities(queryMap, pageRequest);
+    verify(orderableRepository, never()).findAllByIdentities(anyListOf(VersionIdentity.class));
+    verify(orderableRepository, never()).findLatestModifiedDateByParams(any(SearchParams.class));
+
+    Page<Orderable> page = result.getPage();
+    assertEquals(5, page.getTotalElements());
+    assertEquals(orderableList, page.getContent());
+  }
+
+  @Test
+  public void shouldSearchOrderablesByIdsWithLatestModifiedDateOfIds() {
+    // given
+    Timestamp time = Timestamp.valueOf(orderable2.getLastUpdated().toLocalDateTime());
+    given(orderableRepository.findLatestModifiedDateByIds(anySetOf(UUID.class))).willReturn(time);
+    given(orderableRepository.findAllLatestByIds(anySetOf(UUID.class), any(Pageable.class)))
+        .willReturn(Pagination.getPage(Lists.newArrayList(orderable2), PageRequest.of(0, 1)));
+
+    searchParams.add(ID, orderableId.toString());
+    QueryOrderableSearchParams queryMap = new QueryOrderableSearchParams(searchParams);
+
+    // when
+    OrderableSearchResult result = orderableService
+        .searchOrderables(queryMap, pageable, profiler);
+
+    // then
+    assertEquals(orderable2.getLastUpdated(), result.getLastUpdated());
+    verify(orderableRepository, never())
+        .searchIdentities(any(SearchParams.class), any(Pageable.class));
+    assertThat(result.getPage(), hasItem(orderable2));
+  }
+
   @Test
   public void shouldFindAllOrderables() {
     // given
@@ -340,4 +404,100 @@ public class OrderableServiceTest {
     assertEquals(product.getClass(), resultType);
   }
 
+  @Test
+  public void shouldWriteOrderablesAsNewlineDelimitedJson() throws IOException {
+    // given
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    ReflectionTestUtils.setField(orderableService, "objectMapper", objectMapper);
+    ReflectionTestUtils.setField(orderableService, "streamBatchSize", 2);
+
+    Orderable first = new OrderableDataBuilder().build();
+    Orderable second = new OrderableDataBuilder().build();
+    Orderable third = new OrderableDataBuilder().build();
+    SearchParams params = new QueryOrderableSearchParams(searchParams);
+
+    when(orderableRepository.scroll(eq(params), eq(2), any()))
+        .thenAnswer(invocation -> {
+          @SuppressWarnings("unchecked")
+          Consumer<List<Orderable>> consumer =
+              (Consumer<List<Orderable>>) invocation.getArguments()[2];
+          consumer.accept(Arrays.asList(first, second));
+          consumer.accept(Arrays.asList(third));
+          return 3L;
+        });
+
+    // when
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    long written = orderableService.writeNdjson(params, outputStream);
+
+    // then
+    assertEquals(3, written);
+
+    String content = new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    String[] lines = content.split("\n");
+    assertEquals(3, lines.length);
+    assertEquals('\n', content.charAt(content.length() - 1));
+    assertEquals(first.getId().toString(), objectMapper.readTree(lines[0]).get(ID).asText());
+    assertEquals(second.getId().toString(), objectMapper.readTree(lines[1]).get(ID).asText());
+    assertEquals(third.getId().toString(), objectMapper.readTree(lines[2]).get(ID).asText());
+  }
+
+  @Test
+  public void shouldWriteOrderablesByIdentitiesAsJsonArray() throws IOException {
+    // given
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    ReflectionTestUtils.setField(orderableService, "objectMapper", objectMapper);
+    ReflectionTestUtils.setField(orderableService, "streamBatchSize", 2);
+
+    Orderable first = new OrderableDataBuilder().build();
+    Orderable second = new OrderableDataBuilder().build();
+    Orderable third = new OrderableDataBuilder().build();
+    List<VersionIdentity> identities = Arrays.asList(first.getVersionIdentity(),
+        second.getVersionIdentity(), third.getVersionIdentity());
+
+    when(orderableRepository.scrollByIdentities(eq(identities), eq(2), any()))
+        .thenAnswer(invocation -> {
+          @SuppressWarnings("unchecked")
+          Consumer<List<Orderable>> consumer =
+              (Consumer<List<Orderable>>) invocation.getArguments()[2];
+          consumer.accept(Arrays.asList(first, second));
+          consumer.accept(Arrays.asList(third));
+          return 3L;
+        });
+
+    // when
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    long written = orderableService.writeJsonByIdentities(identities, outputStream);
+
+    // then
+    assertEquals(3, written);
+
+    JsonNode content = objectMapper.readTree(outputStream.toByteArray());
+    assertTrue(content.isArray());
+    assertEquals(3, content.size());
+    assertEquals(first.getId().toString(), content.get(0).get(ID).asText());
+    assertEquals(second.getId().toString(), content.get(1).get(ID).asText());
+    assertEquals(third.getId().toString(), content.get(2).get(ID).asText());
+  }
+
+  @Test
+  public void shouldWriteEmptyJsonArrayIfNoOrderableWasFound() throws IOException {
+    // given
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    ReflectionTestUtils.setField(orderableService, "objectMapper", objectMapper);
+    ReflectionTestUtils.setField(orderableService, "streamBatchSize", 2);
+
+    List<VersionIdentity> identities = Lists.newArrayList(
+        new VersionIdentity(UUID.randomUUID(), 1L));
+    when(orderableRepository.scrollByIdentities(eq(identities), eq(2), any())).thenReturn(0L);
+
+    // when
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    long written = orderableService.writeJsonByIdentities(identities, outputStream);
+
+    // then
+    assertEquals(0, written);
+    assertEquals("[]", new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+  }
+
 }
@@ -0,0 +1,141 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.referencedata.repository.RightAssignmentRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PermissionIndexTest {
+
+  private static final String RIGHT_NAME = "RIGHT_NAME";
+  private static final String FACILITY_RIGHT_NAME = "FACILITY_RIGHT_NAME";
+  private static final String OTHER_RIGHT_NAME = "OTHER_RIGHT_NAME";
+
+  @Mock
+  private RightAssignmentRepository rightAssignmentRepository;
+
+  @InjectMocks
+  private PermissionIndex permissionIndex;
+
+  private UUID userId = UUID.randomUUID();
+  private UUID facilityId = UUID.randomUUID();
+  private UUID programId = UUID.randomUUID();
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(permissionIndex, "maxUsers", 10);
+    ReflectionTestUtils.setField(permissionIndex, "maxAgeSeconds", 60L);
+    when(rightAssignmentRepository.findRightAssignmentsByUser(userId)).thenReturn(Arrays.asList(
+        new Object[]{RIGHT_NAME, null, null},
+        new Object[]{FACILITY_RIGHT_NAME, facilityId, programId}));
+  }
+
+  @Test
+  public void shouldCheckRightWithoutScope() {
+    assertTrue(permissionIndex.hasRight(userId, RIGHT_NAME));
+    assertTrue(permissionIndex.hasRight(userId, FACILITY_RIGHT_NAME));
+    assertFalse(permissionIndex.hasRight(userId, OTHER_RIGHT_NAME));
+    assertFalse(permissionIndex.hasRight(userId, null));
+  }
+
+  @Test
+  public void shouldCheckRightAtFacilityForAnyProgram() {
+    assertTrue(permissionIndex.hasRight(userId, FACILITY_RIGHT_NAME, facilityId));
+    assertFalse(permissionIndex.hasRight(userId, RIGHT_NAME, facilityId));
+    assertFalse(permissionIndex.hasRight(userId, FACILITY_RIGHT_NAME, UUID.randomUUID()));
+  }
+
+  @Test
+  public void shouldCheckRightAtFacilityForProgram() {
+    assertTrue(permissionIndex.hasRight(userId, FACILITY_RIGHT_NAME, facilityId, programId));
+    assertFalse(permissionIndex.hasRight(userId, FACILITY_RIGHT_NAME, facilityId,
+        UUID.randomUUID()));
+    assertFalse(permissionIndex.hasRight(userId, RIGHT_NAME, facilityId, programId));
+  }
+
+  @Test
+  public void shouldLoadUserOnlyOnce() {
+    permissionIndex.hasRight(userId, RIGHT_NAME);
+    permissionIndex.hasRight(userId, FACILITY_RIGHT_NAME, facilityId);
+    permissionIndex.hasRight(userId, FACILITY_RIGHT_NAME, facilityId, programId);
+
+    verify(rightAssignmentRepository, times(1)).findRightAssignmentsByUser(userId);
+  }
+
+  @Test
+  public void shouldReloadUserAfterInvalidation() {
+    assertTrue(permissionIndex.hasRight(userId, RIGHT_NAME));
+
+    when(rightAssignmentRepository.findRightAssignmentsByUser(userId))
+        .thenReturn(Collections.emptyList());
+    permissionIndex.invalidate(Collections.singleton(userId));
+
+    assertFalse(permissionIndex.hasRight(userId, RIGHT_NAME));
+    verify(rightAssignmentRepository, times(2)).findRightAssignmentsByUser(userId);
+  }
+
+  @Test
+  public void shouldReloadAllUsersAfterFullInvalidation() {
+    permissionIndex.hasRight(userId, RIGHT_NAME);
+    permissionIndex.invalidateAll();
+    permissionIndex.hasRight(userId, RIGHT_NAME);
+
+    verify(rightAssignmentRepository, times(2)).findRightAssignmentsByUser(userId);
+  }
+
+  @Test
+  public void shouldReloadUserOnceEntryIsOutdated() {
+    ReflectionTestUtils.setField(permissionIndex, "maxAgeSeconds", 0L);
+    assertTrue(permissionIndex.hasRight(userId, RIGHT_NAME));
+
+    when(rightAssignmentRepository.findRightAssignmentsByUser(userId))
+        .thenReturn(Collections.emptyList());
+
+    assertFalse(permissionIndex.hasRight(userId, RIGHT_NAME));
+    verify(rightAssignmentRepository, times(2)).findRightAssignmentsByUser(userId);
+  }
+
+  @Test
+  public void shouldStartOverWhenIndexIsFull() {
+    ReflectionTestUtils.setField(permissionIndex, "maxUsers", 1);
+    UUID otherUserId = UUID.randomUUID();
+    when(rightAssignmentRepository.findRightAssignmentsByUser(otherUserId)).thenReturn(
+        Collections.singletonList(new Object[]{OTHER_RIGHT_NAME, null, null}));
+
+    assertTrue(permissionIndex.hasRight(userId, FACILITY_RIGHT_NAME, facilityId, programId));
+    assertTrue(permissionIndex.hasRight(otherUserId, OTHER_RIGHT_NAME));
+    assertTrue(permissionIndex.hasRight(userId, FACILITY_RIGHT_NAME, facilityId, programId));
+
+    verify(rightAssignmentRepository, times(2)).findRightAssignmentsByUser(userId);
+    verify(rightAssignmentRepository, times(1)).findRightAssignmentsByUser(otherUserId);
+  }
+}
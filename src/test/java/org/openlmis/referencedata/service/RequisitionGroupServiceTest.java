@@ -17,7 +17,9 @@ package org.openlmis.referencedata.service;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -44,6 +46,7 @@ import org.openlmis.referencedata.repository.ProgramRepository;
 import org.openlmis.referencedata.repository.RequisitionGroupRepository;
 import org.openlmis.referencedata.repository.SupervisoryNodeRepository;
 import org.openlmis.referencedata.util.Pagination;
+import org.openlmis.referencedata.web.SupervisoryNodeSearchParams;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -68,6 +71,9 @@ public class RequisitionGroupServiceTest {
   @Mock
   private ProgramRepository programRepository;
 
+  @Mock
+  private GeographicHierarchy geographicHierarchy;
+
   @Mock
   private Pageable pageable;
 
@@ -101,6 +107,8 @@ public class RequisitionGroupServiceTest {
     when(requisitionGroup2.getName()).thenReturn("RG-2");
     when(pageable.getPageSize()).thenReturn(10);
     when(pageable.getPageNumber()).thenReturn(0);
+    when(geographicHierarchy.getSnapshot())
+        .thenReturn(GeographicHierarchy.Snapshot.build(1, 1, 0, Lists.newArrayList()));
   }
 
   @Test(expected = ValidationMessageException.class)
@@ -160,4 +168,22 @@ public class RequisitionGroupServiceTest {
     verify(requisitionGroupRepository).search("code", "name", program, nodes, pageable);
     assertEquals(requisitionGroups, actual.getContent());
   }
+
+  @Test
+  public void shouldFindZoneByCodeInGeographicHierarchy() {
+    UUID zoneId = UUID.randomUUID();
+    when(geographicHierarchy.getSnapshot()).thenReturn(GeographicHierarchy.Snapshot.build(1, 1, 0,
+        Lists.<Object[]>newArrayList(new Object[]{zoneId, null, "zone-code", 1})));
+    List<SupervisoryNode> nodes = Collections.singletonList(supervisoryNode);
+    doReturn(new PageImpl(nodes, pageable, nodes.size()))
+        .when(supervisoryNodeRepository).search(any(), any());
+
+    Map<String, Object> searchParams = new HashMap<>();
+    searchParams.put(ZONE, "zone-code");
+    requisitionGroupService.searchRequisitionGroups(searchParams, pageable);
+
+    verify(supervisoryNodeRepository).search(
+        eq(new SupervisoryNodeSearchParams(null, null, null, null, zoneId, null)), any());
+    verify(geographicZoneRepository, never()).findByCode(any(String.class));
+  }
 }
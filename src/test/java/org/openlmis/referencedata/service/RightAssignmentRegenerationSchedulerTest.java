@@ -0,0 +1,208 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RightAssignmentRegenerationSchedulerTest {
+
+  @Mock
+  private RightAssignmentService rightAssignmentService;
+
+  @Mock
+  private TaskScheduler taskScheduler;
+
+  @InjectMocks
+  private RightAssignmentRegenerationScheduler scheduler;
+
+  private RightAssignmentChange roleChange;
+  private RightAssignmentChange facilityChange;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(scheduler, "windowMillis", 1000L);
+    ReflectionTestUtils.setField(scheduler, "maxAttempts", 3);
+    roleChange = RightAssignmentChange.ofRole(UUID.randomUUID());
+    facilityChange = RightAssignmentChange.ofFacility(UUID.randomUUID());
+  }
+
+  @Test
+  public void shouldCoalesceChangesIntoSingleRun() {
+    scheduler.schedule(roleChange);
+    scheduler.schedule(facilityChange);
+    scheduler.schedule(roleChange);
+
+    verify(taskScheduler, times(1)).schedule(any(Runnable.class), any(Date.class));
+    assertEquals(2, scheduler.getQueueDepth());
+
+    scheduler.run();
+
+    verify(rightAssignmentService)
+        .regenerateRightAssignments(Arrays.asList(roleChange, facilityChange));
+    assertEquals(0, scheduler.getQueueDepth());
+  }
+
+  @Test
+  public void shouldScheduleNextRunForChangesArrivingDuringRun() {
+    scheduler.schedule(roleChange);
+    doAnswer(invocation -> {
+      scheduler.schedule(facilityChange);
+      return null;
+    }).when(rightAssignmentService)
+        .regenerateRightAssignments(Collections.singletonList(roleChange));
+
+    scheduler.run();
+
+    verify(taskScheduler, times(2)).schedule(any(Runnable.class), any(Date.class));
+    assertEquals(1, scheduler.getQueueDepth());
+  }
+
+  @Test
+  public void shouldRequeueChangesIfRunFails() {
+    scheduler.schedule(roleChange);
+    doThrow(new IllegalStateException("test")).when(rightAssignmentService)
+        .regenerateRightAssignments(Collections.singletonList(roleChange));
+
+    scheduler.run();
+
+    verify(taskScheduler, times(2)).schedule(any(Runnable.class), any(Date.class));
+    assertEquals(1, scheduler.getQueueDepth());
+  }
+
+  @Test
+  public void shouldBackOffExponentiallyAfterFailures() {
+    scheduler.schedule(roleChange);
+    doThrow(new IllegalStateException("test")).when(rightAssignmentService)
+        .regenerateRightAssignments(Collections.singletonList(roleChange));
+
+    long start = System.currentTimeMillis();
+    scheduler.run();
+    ReflectionTestUtils.setField(scheduler, "retryNotBefore", 0L);
+    scheduler.run();
+
+    ArgumentCaptor<Date> captor = ArgumentCaptor.forClass(Date.class);
+    verify(taskScheduler, times(3)).schedule(any(Runnable.class), captor.capture());
+    assertTrue(captor.getAllValues().get(1).getTime() >= start + 2000L);
+    assertTrue(captor.getAllValues().get(2).getTime() >= start + 4000L);
+    assertEquals(2, scheduler.getFailedAttempts());
+  }
+
+  @Test
+  public void shouldNotRunBeforeBackoffEnds() {
+    scheduler.schedule(roleChange);
+    doThrow(new IllegalStateException("test")).when(rightAssignmentService)
+        .regenerateRightAssignments(Collections.singletonList(roleChange));
+
+    scheduler.run();
+    scheduler.run();
+
+    verify(rightAssignmentService, times(1))
+        .regenerateRightAssignments(Collections.singletonList(roleChange));
+    assertEquals(1, scheduler.getQueueDepth());
+  }
+
+  @Test
+  public void shouldFallBackToFullRebuildAfterMaxAttempts() {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    scheduler.bindTo(registry);
+    scheduler.schedule(roleChange);
+    doThrow(new IllegalStateException("test")).when(rightAssignmentService)
+        .regenerateRightAssignments(Collections.singletonList(roleChange));
+
+    for (int attempt = 0; attempt < 3; ++attempt) {
+      ReflectionTestUtils.setField(scheduler, "retryNotBefore", 0L);
+      scheduler.run();
+    }
+
+    verify(rightAssignmentService, times(3))
+        .regenerateRightAssignments(Collections.singletonList(roleChange));
+    assertEquals(1, scheduler.getQueueDepth());
+    assertEquals(1.0, registry.get(
+        RightAssignmentRegenerationScheduler.FULL_REBUILD_PENDING_METRIC).gauge().value(), 0.0);
+
+    ReflectionTestUtils.setField(scheduler, "retryNotBefore", 0L);
+    scheduler.run();
+
+    verify(rightAssignmentService)
+        .rebuildRightAssignments(Collections.singletonList(roleChange));
+    assertEquals(0, scheduler.getQueueDepth());
+    assertEquals(0.0, registry.get(
+        RightAssignmentRegenerationScheduler.FULL_REBUILD_PENDING_METRIC).gauge().value(), 0.0);
+    assertEquals(0.0, registry.get(RightAssignmentRegenerationScheduler.FAILED_ATTEMPTS_METRIC)
+        .gauge().value(), 0.0);
+  }
+
+  @Test
+  public void shouldKeepFullRebuildPendingUntilItSucceeds() {
+    scheduler.schedule(roleChange);
+    ReflectionTestUtils.setField(scheduler, "fullRebuildRequired", true);
+    doThrow(new IllegalStateException("test")).when(rightAssignmentService)
+        .rebuildRightAssignments(Collections.singletonList(roleChange));
+
+    scheduler.run();
+
+    assertTrue(scheduler.isFullRebuildRequired());
+    assertEquals(1, scheduler.getQueueDepth());
+    verify(rightAssignmentService, never()).regenerateRightAssignments(any());
+  }
+
+  @Test
+  public void shouldNotRegenerateIfNothingIsPending() {
+    scheduler.run();
+
+    verify(rightAssignmentService, never()).regenerateRightAssignments(any());
+  }
+
+  @Test
+  public void shouldExposeMetrics() {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    scheduler.bindTo(registry);
+
+    scheduler.schedule(roleChange);
+    assertEquals(1.0, registry.get(RightAssignmentRegenerationScheduler.QUEUE_DEPTH_METRIC)
+        .gauge().value(), 0.0);
+
+    scheduler.run();
+    assertEquals(0.0, registry.get(RightAssignmentRegenerationScheduler.QUEUE_DEPTH_METRIC)
+        .gauge().value(), 0.0);
+    assertTrue(registry.get(RightAssignmentRegenerationScheduler.LAST_COMPLETION_METRIC)
+        .gauge().value() > 0);
+  }
+}
@@ -16,14 +16,24 @@
 package org.openlmis.referencedata.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -36,9 +46,18 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.referencedata.dto.RightAssignmentDeltaDto;
 import org.openlmis.referencedata.dto.RightAssignmentDto;
+import org.openlmis.referencedata.util.TransactionUtils;
 import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @RunWith(MockitoJUnitRunner.class)
 public class RightAssignmentServiceTest {
@@ -48,6 +67,15 @@ public class RightAssignmentServiceTest {
   @Mock
   private JdbcTemplate jdbcTemplate;
 
+  @Mock
+  private PermissionIndex permissionIndex;
+
+  @Mock
+  private UserPermissionVersionService userPermissionVersionService;
+
+  @Mock
+  private TransactionUtils transactionUtils;
+
   @InjectMocks
   private RightAssignmentService rightAssignmentService;
 
@@ -60,6 +88,9 @@ public class RightAssignmentServiceTest {
     userId = UUID.randomUUID();
     supervisoryNodeId = UUID.randomUUID();
     programId = UUID.randomUUID();
+
+    ReflectionTestUtils.setField(rightAssignmentService, "maxAffectedUsers", 10);
+    ReflectionTestUtils.setField(rightAssignmentService, "historySize", 10);
   }
 
   @Test
@@ -101,11 +132,7 @@ public class RightAssignmentServiceTest {
     UUID facility1Id = UUID.randomUUID();
     UUID facility2Id = UUID.randomUUID();
     List<UUID> facilityIds = Arrays.asList(facility1Id, facility2Id);
-    when(jdbcTemplate.queryForList(
-        any(String.class),
-        any(Class.class),
-        any(UUID.class),
-        any(UUID.class))).thenReturn(facilityIds);
+    mockSupervisedFacilities(facilityIds);
     
     // when
     Set<RightAssignmentDto> actual = rightAssignmentService
@@ -120,4 +147,272 @@ public class RightAssignmentServiceTest {
       assertTrue(facilityIds.contains(current.getFacilityId()));
     }
   }
+
+  @Test
+  public void convertForInsertShouldExpandSupervisoryNodesInSingleQuery() throws IOException {
+    // given
+    Resource resource = mock(Resource.class);
+    when(resource.getInputStream()).thenReturn(IOUtils.toInputStream("some data"));
+
+    UUID otherUserId = UUID.randomUUID();
+    List<RightAssignmentDto> rightAssignments = Arrays.asList(
+        new RightAssignmentDto(userId, RIGHT_NAME, null, programId, supervisoryNodeId),
+        new RightAssignmentDto(otherUserId, RIGHT_NAME, null, programId, supervisoryNodeId),
+        new RightAssignmentDto(userId, "otherRight", null, programId, supervisoryNodeId));
+    mockSupervisedFacilities(Collections.singletonList(UUID.randomUUID()));
+
+    // when
+    Set<RightAssignmentDto> actual = rightAssignmentService
+        .convertForInsert(rightAssignments, resource);
+
+    // then
+    assertEquals(3, actual.size());
+    verify(jdbcTemplate, times(1)).query(anyString(), any(PreparedStatementSetter.class),
+        any(RowCallbackHandler.class));
+  }
+
+  @Test
+  public void regenerateRightAssignmentsShouldApplyOnlyDeltaOfAffectedUsers() throws Exception {
+    // given
+    mockResources("roleAffectedUsersResource", "userRightAssignmentsResource");
+    UUID roleId = UUID.randomUUID();
+    UUID facilityId = UUID.randomUUID();
+    when(jdbcTemplate.queryForList(anyString(), eq(UUID.class), eq(roleId)))
+        .thenReturn(Collections.singletonList(userId));
+    when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class),
+        any(RowMapper.class)))
+        .thenReturn(Collections.singletonList(
+            new RightAssignmentDto(userId, RIGHT_NAME, facilityId, programId, null)));
+    mockCurrentRightAssignment(new RightAssignmentDto(userId, "staleRight", null, null));
+
+    // when
+    rightAssignmentService.regenerateRightAssignments(
+        Collections.singletonList(RightAssignmentChange.ofRole(roleId)));
+
+    // then
+    verify(jdbcTemplate, never()).update(RightAssignmentService.DELETE_SQL);
+    verify(jdbcTemplate).update(eq(RightAssignmentService.DELETE_BY_IDS_SQL),
+        any(PreparedStatementSetter.class));
+    verify(jdbcTemplate).execute(any(ConnectionCallback.class));
+    verify(permissionIndex).invalidate(Collections.singleton(userId));
+    verify(userPermissionVersionService).recordChanges(
+        Collections.singleton(new RightAssignmentDto(userId, RIGHT_NAME, facilityId, programId)),
+        Collections.singletonList(new RightAssignmentDto(userId, "staleRight", null, null)));
+
+    List<RightAssignmentDeltaDto> deltas = rightAssignmentService.getRecentDeltas();
+    assertEquals(1, deltas.size());
+    assertFalse(deltas.get(0).isFullRebuild());
+    assertEquals(1, deltas.get(0).getAffectedUsers());
+    assertEquals(1, deltas.get(0).getInserted());
+    assertEquals(1, deltas.get(0).getDeleted());
+  }
+
+  @Test
+  public void regenerateRightAssignmentsShouldFallBackToFullRebuildIfTooManyUsersAffected()
+      throws Exception {
+    // given
+    mockResources("roleAffectedUsersResource", "rightAssignmentsResource");
+    ReflectionTestUtils.setField(rightAssignmentService, "maxAffectedUsers", 0);
+    UUID roleId = UUID.randomUUID();
+    when(jdbcTemplate.queryForList(anyString(), eq(UUID.class), eq(roleId)))
+        .thenReturn(Collections.singletonList(userId));
+
+    // when
+    rightAssignmentService.regenerateRightAssignments(
+        Collections.singletonList(RightAssignmentChange.ofRole(roleId)));
+
+    // then
+    verify(jdbcTemplate).update(RightAssignmentService.DELETE_SQL);
+    verify(userPermissionVersionService).resetAll();
+
+    List<RightAssignmentDeltaDto> deltas = rightAssignmentService.getRecentDeltas();
+    assertEquals(1, deltas.size());
+    assertTrue(deltas.get(0).isFullRebuild());
+    assertEquals("ROLE", deltas.get(0).getChangeType());
+  }
+
+  @Test
+  public void regenerateRightAssignmentsShouldSwapInShadowTableIfEnabled() throws Exception {
+    // given
+    mockResources("createShadowTableResource", "swapShadowTableResource",
+        "rightAssignmentsResource");
+    ReflectionTestUtils.setField(rightAssignmentService, "shadowTableRebuild", true);
+    when(jdbcTemplate.queryForObject(RightAssignmentService.COUNT_SQL, Integer.class))
+        .thenReturn(3);
+    when(jdbcTemplate.batchUpdate(any(String.class))).thenReturn(new int[]{0});
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class)))
+        .thenReturn(Collections.singletonList(
+            new RightAssignmentDto(userId, RIGHT_NAME, UUID.randomUUID(), programId, null)));
+
+    // when
+    rightAssignmentService.regenerateRightAssignments();
+
+    // then
+    verify(jdbcTemplate, never()).update(RightAssignmentService.DELETE_SQL);
+    verify(jdbcTemplate, times(2)).batchUpdate(any(String.class));
+    verify(jdbcTemplate).execute(any(ConnectionCallback.class));
+
+    List<RightAssignmentDeltaDto> deltas = rightAssignmentService.getRecentDeltas();
+    assertEquals(1, deltas.size());
+    assertTrue(deltas.get(0).isFullRebuild());
+    assertEquals(1, deltas.get(0).getInserted());
+    assertEquals(3, deltas.get(0).getDeleted());
+  }
+
+  @Test
+  public void regenerateRightAssignmentsShouldLogWritesDuringShadowTableRebuild()
+      throws Exception {
+    // given
+    mockResources("createShadowTableResource", "swapShadowTableResource",
+        "rightAssignmentsResource", "startWriteLogResource", "stopWriteLogResource",
+        "validateConstraintsResource");
+    ReflectionTestUtils.setField(rightAssignmentService, "shadowTableRebuild", true);
+    when(jdbcTemplate.batchUpdate(any(String.class))).thenReturn(new int[]{0});
+    when(jdbcTemplate.query(anyString(), any(RowMapper.class)))
+        .thenReturn(Collections.emptyList());
+
+    // when
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      rightAssignmentService.regenerateRightAssignments();
+      verify(transactionUtils, times(1)).runInOwnTransaction(any());
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(synchronization ->
+          synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    // then
+    verify(transactionUtils, times(3)).runInOwnTransaction(any());
+  }
+
+  @Test
+  public void regenerateRightAssignmentsShouldNotSwapInShadowTableIfFetchFails()
+      throws Exception {
+    // given
+    mockResources("createShadowTableResource", "swapShadowTableResource");
+    ReflectionTestUtils.setField(rightAssignmentService, "shadowTableRebuild", true);
+    Resource resource = mock(Resource.class);
+    when(resource.getInputStream()).thenThrow(new IOException("test"));
+    ReflectionTestUtils.setField(rightAssignmentService, "rightAssignmentsResource", resource);
+    when(jdbcTemplate.batchUpdate(any(String.class))).thenReturn(new int[]{0});
+
+    // when
+    try {
+      rightAssignmentService.regenerateRightAssignments();
+      fail("Expected UncheckedIOException");
+    } catch (UncheckedIOException ex) {
+      // expected
+    }
+
+    // then
+    verify(jdbcTemplate, times(1)).batchUpdate(any(String.class));
+    verify(userPermissionVersionService, never()).resetAll();
+    verify(permissionIndex, never()).invalidateAll();
+    assertTrue(rightAssignmentService.getRecentDeltas().isEmpty());
+  }
+
+  @Test
+  public void regenerateRightAssignmentsShouldApplyCoalescedChangesInSingleRun() throws Exception {
+    // given
+    mockResources("roleAffectedUsersResource", "facilityAffectedUsersResource",
+        "userRightAssignmentsResource");
+    UUID roleId = UUID.randomUUID();
+    UUID facilityId = UUID.randomUUID();
+    when(jdbcTemplate.queryForList(anyString(), eq(UUID.class), eq(roleId)))
+        .thenReturn(Collections.singletonList(userId));
+    when(jdbcTemplate.queryForList(anyString(), eq(UUID.class), eq(facilityId), eq(facilityId),
+        eq(facilityId), eq(facilityId)))
+        .thenReturn(Collections.singletonList(UUID.randomUUID()));
+    when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class),
+        any(RowMapper.class)))
+        .thenReturn(Collections.emptyList());
+
+    // when
+    rightAssignmentService.regenerateRightAssignments(Arrays.asList(
+        RightAssignmentChange.ofRole(roleId), RightAssignmentChange.ofFacility(facilityId)));
+
+    // then
+    List<RightAssignmentDeltaDto> deltas = rightAssignmentService.getRecentDeltas();
+    assertEquals(1, deltas.size());
+    assertEquals(2, deltas.get(0).getChanges());
+    assertEquals(2, deltas.get(0).getAffectedUsers());
+    assertEquals("ROLE,FACILITY", deltas.get(0).getChangeType());
+  }
+
+  @Test
+  public void findAffectedUsersShouldLimitSupervisionChangeToChangedNode() throws Exception {
+    // given
+    mockResources("supervisionAffectedUsersResource", "supervisionRoleUsersResource");
+    when(jdbcTemplate.queryForObject(RightAssignmentService.SUPERVISORY_NODE_EXISTS_SQL,
+        Boolean.class, supervisoryNodeId)).thenReturn(true);
+    when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class),
+        any(RowMapper.class))).thenReturn(Collections.singletonList(userId));
+
+    // when
+    Set<UUID> userIds = rightAssignmentService.findAffectedUsers(
+        RightAssignmentChange.ofSupervisoryNode(supervisoryNodeId));
+
+    // then
+    assertEquals(Collections.singleton(userId), userIds);
+    verify(jdbcTemplate, never()).queryForList(anyString(), eq(UUID.class));
+  }
+
+  @Test
+  public void findAffectedUsersShouldIncludeAllSupervisorsIfRequisitionGroupWasDeleted()
+      throws Exception {
+    // given
+    mockResources("supervisionAffectedUsersResource", "supervisionRoleUsersResource");
+    UUID requisitionGroupId = UUID.randomUUID();
+    when(jdbcTemplate.queryForObject(RightAssignmentService.REQUISITION_GROUP_EXISTS_SQL,
+        Boolean.class, requisitionGroupId)).thenReturn(false);
+    when(jdbcTemplate.queryForList(anyString(), eq(UUID.class)))
+        .thenReturn(Collections.singletonList(userId));
+
+    // when
+    Set<UUID> userIds = rightAssignmentService.findAffectedUsers(
+        RightAssignmentChange.ofRequisitionGroup(requisitionGroupId));
+
+    // then
+    assertEquals(Collections.singleton(userId), userIds);
+    verify(jdbcTemplate, never()).query(anyString(), any(PreparedStatementSetter.class),
+        any(RowMapper.class));
+  }
+
+  private void mockResources(String... fields) throws IOException {
+    for (String field : fields) {
+      Resource resource = mock(Resource.class);
+      when(resource.getInputStream()).thenReturn(IOUtils.toInputStream("some data"));
+      ReflectionTestUtils.setField(rightAssignmentService, field, resource);
+    }
+  }
+
+  private void mockSupervisedFacilities(List<UUID> facilityIds) {
+    doAnswer(invocation -> {
+      RowCallbackHandler handler = (RowCallbackHandler) invocation.getArguments()[2];
+      for (UUID facilityId : facilityIds) {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getString("supervisorynodeid")).thenReturn(supervisoryNodeId.toString());
+        when(resultSet.getString("programid")).thenReturn(programId.toString());
+        when(resultSet.getString("facilityid")).thenReturn(facilityId.toString());
+        handler.processRow(resultSet);
+      }
+      return null;
+    }).when(jdbcTemplate).query(anyString(), any(PreparedStatementSetter.class),
+        any(RowCallbackHandler.class));
+  }
+
+  private void mockCurrentRightAssignment(RightAssignmentDto current) {
+    doAnswer(invocation -> {
+      ResultSet resultSet = mock(ResultSet.class);
+      when(resultSet.getString("id")).thenReturn(UUID.randomUUID().toString());
+      when(resultSet.getString("userid")).thenReturn(current.getUserId().toString());
+      when(resultSet.getString("rightname")).thenReturn(current.getRightName());
+
+      ((RowCallbackHandler) invocation.getArguments()[2]).processRow(resultSet);
+      return null;
+    }).when(jdbcTemplate).query(eq(RightAssignmentService.SELECT_FOR_USERS_SQL),
+        any(PreparedStatementSetter.class), any(RowCallbackHandler.class));
+  }
 }
@@ -16,7 +16,6 @@
 package org.openlmis.referencedata.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.openlmis.referencedata.testbuilder.OAuth2AuthenticationDataBuilder.API_KEY_PREFIX;
@@ -31,8 +30,6 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.referencedata.domain.User;
 import org.openlmis.referencedata.exception.UnauthorizedException;
-import org.openlmis.referencedata.repository.RightAssignmentRepository;
-import org.openlmis.referencedata.repository.UserRepository;
 import org.openlmis.referencedata.testbuilder.OAuth2AuthenticationDataBuilder;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -46,10 +43,7 @@ public class RightServiceTest {
   private static final String RIGHT_NAME = "RIGHT_NAME";
 
   @Mock
-  private UserRepository userRepository;
-
-  @Mock
-  private RightAssignmentRepository rightAssignmentRepository;
+  private PermissionIndex permissionIndex;
 
   @Mock
   private AuthenticationHelper authenticationHelper;
@@ -107,7 +101,7 @@ public class RightServiceTest {
   @Test
   public void checkAdminRightShouldAllowUserWhoHasRight() {
     when(securityContext.getAuthentication()).thenReturn(userClient);
-    when(rightAssignmentRepository.existsByUserIdAndRightName(user.getId(), RIGHT_NAME))
+    when(permissionIndex.hasRight(user.getId(), RIGHT_NAME))
         .thenReturn(true);
 
     rightService.checkAdminRight(RIGHT_NAME);
@@ -116,7 +110,6 @@ public class RightServiceTest {
   @Test
   public void checkAdminRightShouldAllowRequesterWithSpecifiedUserId() {
     when(securityContext.getAuthentication()).thenReturn(userClient);
-    when(userRepository.existsById(any(UUID.class))).thenReturn(true);
 
     rightService.checkAdminRight(RIGHT_NAME, true, user.getId());
   }
@@ -124,7 +117,7 @@ public class RightServiceTest {
   @Test(expected = UnauthorizedException.class)
   public void checkAdminRightShouldThrowUnauthorizedExceptionForUserWhoDoesNotHaveRight() {
     when(securityContext.getAuthentication()).thenReturn(userClient);
-    when(rightAssignmentRepository.existsByUserIdAndRightName(user.getId(), RIGHT_NAME))
+    when(permissionIndex.hasRight(user.getId(), RIGHT_NAME))
         .thenReturn(false);
 
     rightService.checkAdminRight(RIGHT_NAME);
@@ -154,7 +147,7 @@ public class RightServiceTest {
   @Test
   public void shouldReturnTrueIfUserHasRight() {
     when(securityContext.getAuthentication()).thenReturn(userClient);
-    when(rightAssignmentRepository.existsByUserIdAndRightName(user.getId(), RIGHT_NAME))
+    when(permissionIndex.hasRight(user.getId(), RIGHT_NAME))
         .thenReturn(true);
 
     assertThat(rightService.hasRight(RIGHT_NAME)).isTrue();
@@ -163,7 +156,7 @@ public class RightServiceTest {
   @Test
   public void shouldReturnFalseIfUserHasNoRight() {
     when(securityContext.getAuthentication()).thenReturn(userClient);
-    when(rightAssignmentRepository.existsByUserIdAndRightName(user.getId(), RIGHT_NAME))
+    when(permissionIndex.hasRight(user.getId(), RIGHT_NAME))
         .thenReturn(false);
 
     assertThat(rightService.hasRight(RIGHT_NAME)).isFalse();
@@ -0,0 +1,195 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.referencedata.dto.PermissionStringsDeltaDto;
+import org.openlmis.referencedata.dto.RightAssignmentDto;
+import org.openlmis.referencedata.repository.RightAssignmentRepository;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UserPermissionVersionServiceTest {
+
+  private static final String RIGHT_NAME = "RIGHT_NAME";
+  private static final String OTHER_RIGHT_NAME = "OTHER_RIGHT_NAME";
+  private static final String THIRD_RIGHT_NAME = "THIRD_RIGHT_NAME";
+
+  @Mock
+  private JdbcTemplate template;
+
+  @Mock
+  private RightAssignmentRepository rightAssignmentRepository;
+
+  @InjectMocks
+  private UserPermissionVersionService userPermissionVersionService;
+
+  private UUID userId = UUID.randomUUID();
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(userPermissionVersionService, "retainedVersions", 100L);
+  }
+
+  @Test
+  public void getVersionShouldReturnVersionOfUser() throws Exception {
+    mockVersion(5, 2, 8);
+
+    UserPermissionVersionService.PermissionVersion version =
+        userPermissionVersionService.getVersion(userId);
+
+    assertEquals(5, version.getVersion());
+    assertEquals(2, version.getBaseVersion());
+  }
+
+  @Test
+  public void getVersionShouldNotReturnBaseVersionOlderThanRetainedChanges() throws Exception {
+    mockVersion(150, 2, 160);
+
+    assertEquals(60, userPermissionVersionService.getVersion(userId).getBaseVersion());
+  }
+
+  @Test
+  public void getDeltaShouldFoldChangesSinceVersion() throws Exception {
+    mockVersion(5, 0, 5);
+    doAnswer(invocation -> {
+      RowCallbackHandler handler = (RowCallbackHandler) invocation.getArguments()[1];
+      processChange(handler, RIGHT_NAME, true);
+      processChange(handler, OTHER_RIGHT_NAME, true);
+      processChange(handler, RIGHT_NAME, false);
+      processChange(handler, THIRD_RIGHT_NAME, false);
+      processChange(handler, THIRD_RIGHT_NAME, true);
+      return null;
+    }).when(template).query(eq(UserPermissionVersionService.SELECT_CHANGES_SQL),
+        any(RowCallbackHandler.class), eq(userId), eq(2L));
+
+    PermissionStringsDeltaDto delta = userPermissionVersionService.getDelta(userId, 2);
+
+    assertEquals(5, delta.getVersion());
+    assertFalse(delta.isFull());
+    assertEquals(Collections.singleton(RIGHT_NAME), delta.getRemoved());
+    assertEquals(2, delta.getAdded().size());
+    assertTrue(delta.getAdded().containsAll(Arrays.asList(OTHER_RIGHT_NAME, THIRD_RIGHT_NAME)));
+    verify(rightAssignmentRepository, never()).findByUser(userId);
+  }
+
+  @Test
+  public void getDeltaShouldReturnFullDeltaIfChangesAreNotKnown() throws Exception {
+    mockVersion(5, 4, 5);
+    when(rightAssignmentRepository.findByUser(userId))
+        .thenReturn(Collections.singleton(RIGHT_NAME));
+
+    PermissionStringsDeltaDto delta = userPermissionVersionService.getDelta(userId, 2);
+
+    assertEquals(5, delta.getVersion());
+    assertTrue(delta.isFull());
+    assertEquals(Collections.singleton(RIGHT_NAME), delta.getAdded());
+    assertTrue(delta.getRemoved().isEmpty());
+  }
+
+  @Test
+  public void recordChangesShouldBumpVersionAndCopyChanges() {
+    when(template.queryForObject(UserPermissionVersionService.NEXT_VERSION_SQL, Long.class))
+        .thenReturn(7L);
+
+    userPermissionVersionService.recordChanges(
+        Collections.singletonList(new RightAssignmentDto(userId, RIGHT_NAME, null, null)),
+        Collections.singletonList(new RightAssignmentDto(userId, OTHER_RIGHT_NAME, null, null)));
+
+    verify(template).update(eq(UserPermissionVersionService.BUMP_VERSIONS_SQL),
+        any(PreparedStatementSetter.class));
+    verify(template).execute(any(ConnectionCallback.class));
+    verify(template, never()).update(eq(UserPermissionVersionService.PRUNE_CHANGES_SQL),
+        anyLong());
+  }
+
+  @Test
+  public void recordChangesShouldPruneChangesOutsideOfRetainedVersions() {
+    when(template.queryForObject(UserPermissionVersionService.NEXT_VERSION_SQL, Long.class))
+        .thenReturn(170L);
+
+    userPermissionVersionService.recordChanges(
+        Collections.singletonList(new RightAssignmentDto(userId, RIGHT_NAME, null, null)),
+        Collections.emptyList());
+
+    verify(template).update(UserPermissionVersionService.PRUNE_CHANGES_SQL, 70L);
+  }
+
+  @Test
+  public void recordChangesShouldDoNothingIfThereAreNoChanges() {
+    userPermissionVersionService.recordChanges(Collections.emptyList(), Collections.emptyList());
+
+    verifyZeroInteractions(template);
+  }
+
+  @Test
+  public void resetAllShouldDropChangesAndResetVersions() {
+    when(template.queryForObject(UserPermissionVersionService.NEXT_VERSION_SQL, Long.class))
+        .thenReturn(9L);
+
+    userPermissionVersionService.resetAll();
+
+    verify(template).update(UserPermissionVersionService.DELETE_CHANGES_SQL);
+    verify(template).update(UserPermissionVersionService.RESET_VERSIONS_SQL, 9L, 9L);
+  }
+
+  private void mockVersion(long version, long baseVersion, long lastVersion) throws Exception {
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.getLong("version")).thenReturn(version);
+    when(resultSet.getLong("baseversion")).thenReturn(baseVersion);
+    when(resultSet.getLong("lastversion")).thenReturn(lastVersion);
+
+    when(template.queryForObject(eq(UserPermissionVersionService.SELECT_VERSION_SQL),
+        any(RowMapper.class), eq(userId)))
+        .thenAnswer(invocation -> ((RowMapper) invocation.getArguments()[1])
+            .mapRow(resultSet, 0));
+  }
+
+  private void processChange(RowCallbackHandler handler, String permissionString,
+      boolean added) throws Exception {
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.getString("permissionstring")).thenReturn(permissionString);
+    when(resultSet.getBoolean("added")).thenReturn(added);
+    handler.processRow(resultSet);
+  }
+}
@@ -36,6 +36,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.openlmis.referencedata.domain.Orderable;
 import org.openlmis.referencedata.dto.OrderableDto;
 import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.service.OrderableCatalogVersion;
 import org.openlmis.referencedata.testbuilder.OrderableDataBuilder;
 import org.openlmis.referencedata.util.FileHelper;
 import org.openlmis.referencedata.util.TransactionUtils;
@@ -51,6 +52,7 @@ public class OrderableImportPersisterTest {
 
   @Mock private FileHelper fileHelper;
   @Mock private OrderableRepository orderableRepository;
+  @Mock private OrderableCatalogVersion orderableCatalogVersion;
   @Mock private TransactionUtils transactionUtils;
   @InjectMocks private OrderableImportPersister orderableImportPersister;
 
@@ -83,5 +85,6 @@ public class OrderableImportPersisterTest {
     assertEquals(1, result.size());
     verify(fileHelper).readCsv(OrderableDto.class, dataStream);
     verify(orderableRepository).saveAll(any());
+    verify(orderableCatalogVersion).orderablesChanged();
   }
 }
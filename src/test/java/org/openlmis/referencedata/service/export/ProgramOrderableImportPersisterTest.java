@@ -42,6 +42,7 @@ import org.openlmis.referencedata.repository.OrderableDisplayCategoryRepository;
 import org.openlmis.referencedata.repository.OrderableRepository;
 import org.openlmis.referencedata.repository.ProgramOrderableRepository;
 import org.openlmis.referencedata.repository.ProgramRepository;
+import org.openlmis.referencedata.service.OrderableCatalogVersion;
 import org.openlmis.referencedata.testbuilder.OrderableDataBuilder;
 import org.openlmis.referencedata.testbuilder.OrderableDisplayCategoryDataBuilder;
 import org.openlmis.referencedata.testbuilder.ProgramDataBuilder;
@@ -59,6 +60,7 @@ public class ProgramOrderableImportPersisterTest {
   @Mock private ProgramOrderableRepository programOrderableRepository;
   @Mock private ProgramRepository programRepository;
   @Mock private OrderableRepository orderableRepository;
+  @Mock private OrderableCatalogVersion orderableCatalogVersion;
   @Mock private OrderableDisplayCategoryRepository orderableDisplayCategoryRepository;
   @Mock private TransactionUtils transactionUtils;
 
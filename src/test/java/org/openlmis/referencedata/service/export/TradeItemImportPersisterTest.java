@@ -43,10 +43,12 @@ import org.openlmis.referencedata.dto.OrderableDto;
 import org.openlmis.referencedata.dto.TradeItemCsvModel;
 import org.openlmis.referencedata.repository.OrderableRepository;
 import org.openlmis.referencedata.repository.TradeItemRepository;
+import org.openlmis.referencedata.service.OrderableCatalogVersion;
 import org.openlmis.referencedata.testbuilder.OrderableDataBuilder;
 import org.openlmis.referencedata.testbuilder.TradeItemDataBuilder;
 import org.openlmis.referencedata.util.FileHelper;
 import org.openlmis.referencedata.util.TransactionUtils;
+import org.openlmis.referencedata.web.OrderableFulfillGraph;
 import org.slf4j.profiler.Profiler;
 import org.springframework.test.util.ReflectionTestUtils;
 
@@ -63,6 +65,8 @@ public class TradeItemImportPersisterTest {
   @Mock private FileHelper fileHelper;
   @Mock private TradeItemRepository tradeItemRepository;
   @Mock private OrderableRepository orderableRepository;
+  @Mock private OrderableCatalogVersion orderableCatalogVersion;
+  @Mock private OrderableFulfillGraph orderableFulfillGraph;
   @Mock private TransactionUtils transactionUtils;
   @InjectMocks private TradeItemImportPersister tradeItemImportPersister;
 
@@ -17,17 +17,29 @@ package org.openlmis.referencedata.util;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Test;
@@ -35,7 +47,11 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
 import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -69,7 +85,7 @@ public class Resource2DbTest {
     Resource resource = mock(Resource.class);
     InputStream inputStream = spy(IOUtils.toInputStream("some data"));
     when(resource.getInputStream()).thenReturn(inputStream);
-    when(template.batchUpdate(any(String.class), any(List.class))).thenReturn(new int[]{1});
+    when(template.execute(any(ConnectionCallback.class))).thenReturn(0L);
 
     // when
     resource2Db.insertToDbFromCsv("sometable", resource);
@@ -79,6 +95,79 @@ public class Resource2DbTest {
     assertFalse(resource.isOpen());
   }
 
+  @Test
+  public void copyToDbShouldStreamRowsAsCsvIntoCopy() throws Exception {
+    // given
+    Connection connection = mock(Connection.class);
+    PGConnection pgConnection = mock(PGConnection.class);
+    CopyManager copyManager = mock(CopyManager.class);
+    CopyIn copyIn = mock(CopyIn.class);
+    when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+    when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+    when(copyManager.copyIn(anyString())).thenReturn(copyIn);
+    when(copyIn.isActive()).thenReturn(true);
+
+    ByteArrayOutputStream copied = new ByteArrayOutputStream();
+    doAnswer(invocation -> {
+      Object[] args = invocation.getArguments();
+      copied.write((byte[]) args[0], (int) args[1], (int) args[2]);
+      return null;
+    }).when(copyIn).writeToCopy(any(byte[].class), anyInt(), anyInt());
+    when(template.execute(any(ConnectionCallback.class))).thenAnswer(invocation ->
+        ((ConnectionCallback) invocation.getArguments()[0]).doInConnection(connection));
+
+    // when
+    long count = resource2Db.copyToDb("sometable", Arrays.asList("Col1", "Col2"),
+        Stream.of(new Object[]{"a", null}, new Object[]{"b,c", ""}));
+
+    // then
+    assertEquals(2, count);
+    verify(copyManager)
+        .copyIn("COPY sometable (Col1,Col2) FROM STDIN WITH (FORMAT csv, NULL '\\N')");
+    verify(copyIn).endCopy();
+    assertEquals("a,\\N\n\"b,c\",\n", copied.toString(StandardCharsets.UTF_8.name()));
+  }
+
+  @Test
+  public void copyToDbShouldCancelCopyIfRowsFail() throws Exception {
+    // given
+    Connection connection = mock(Connection.class);
+    PGConnection pgConnection = mock(PGConnection.class);
+    CopyManager copyManager = mock(CopyManager.class);
+    CopyIn copyIn = mock(CopyIn.class);
+    when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+    when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+    when(copyManager.copyIn(anyString())).thenReturn(copyIn);
+
+    AtomicBoolean active = new AtomicBoolean(true);
+    when(copyIn.isActive()).thenAnswer(invocation -> active.get());
+    doAnswer(invocation -> {
+      active.set(false);
+      return null;
+    }).when(copyIn).cancelCopy();
+    when(template.execute(any(ConnectionCallback.class))).thenAnswer(invocation ->
+        ((ConnectionCallback) invocation.getArguments()[0]).doInConnection(connection));
+
+    Stream<Object[]> rows = Stream.<Supplier<Object[]>>of(
+        () -> new Object[]{"a", "b"},
+        () -> {
+          throw new IllegalStateException("test");
+        })
+        .map(Supplier::get);
+
+    // when
+    try {
+      resource2Db.copyToDb("sometable", Arrays.asList("Col1", "Col2"), rows);
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException ex) {
+      // expected
+    }
+
+    // then
+    verify(copyIn).cancelCopy();
+    verify(copyIn, never()).endCopy();
+  }
+
   @Test
   public void resourceCsvToBatchedPairShouldReturnListPair() throws IOException {
     // given
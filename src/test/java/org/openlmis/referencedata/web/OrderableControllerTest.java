@@ -18,7 +18,9 @@ package org.openlmis.referencedata.web;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import java.time.ZonedDateTime;
@@ -35,7 +37,10 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.openlmis.referencedata.domain.Orderable;
 import org.openlmis.referencedata.dto.OrderableDto;
 import org.openlmis.referencedata.dto.VersionIdentityDto;
+import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.service.OrderableCatalogVersion;
+import org.openlmis.referencedata.service.OrderableSearchResult;
 import org.openlmis.referencedata.service.OrderableService;
 import org.openlmis.referencedata.util.Pagination;
 import org.slf4j.profiler.Profiler;
@@ -43,6 +48,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 
 @RunWith(MockitoJUnitRunner.class)
 public class OrderableControllerTest {
@@ -56,6 +63,9 @@ public class OrderableControllerTest {
   @Mock
   private OrderableService orderableService;
 
+  @Mock
+  private OrderableCatalogVersion orderableCatalogVersion;
+
   @Test
   public void shouldSearch() {
     //given
@@ -82,19 +92,20 @@ public class OrderableControllerTest {
     ZonedDateTime now = ZonedDateTime.now();
     ZonedDateTime lastUpdated = now;
     String ifModifiedNow = now.minusDays(1).format(BaseController.RFC_7231_FORMAT);
-    when(orderableService.getLatestLastUpdatedDate(
-        any(QueryOrderableSearchParams.class),
-        any(Profiler.class))
-    ).thenReturn(lastUpdated);
+    when(orderableCatalogVersion.getSnapshot())
+        .thenReturn(new OrderableCatalogVersion.Snapshot("1", lastUpdated, 0L));
     Orderable mockOrderable = mock(Orderable.class);
     Pageable pageable = params.getPageable();
-    when(repository.search(params, pageable))
-        .thenReturn(Pagination.getPage(
-            Collections.singletonList(mockOrderable), pageable, 1));
+    when(orderableService.searchOrderablesByParams(
+        eq(params),
+        eq(pageable),
+        any(Profiler.class))
+    ).thenReturn(new OrderableSearchResult(lastUpdated, () -> Pagination.getPage(
+        Collections.singletonList(mockOrderable), pageable, 1)));
 
     //when
     ResponseEntity<Page<OrderableDto>> responseEntity =
-        orderableController.searchOrderables(params, ifModifiedNow);
+        orderableController.searchOrderables(params, ifModifiedNow, null);
 
     //then
     assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
@@ -104,6 +115,38 @@ public class OrderableControllerTest {
         .collect(Collectors.toList());
     assertNotNull(orderableDtos);
     assertEquals(1, orderableDtos.size());
+    assertEquals("\"1\"", responseEntity.getHeaders().getETag());
+  }
+
+  @Test
+  public void shouldNotSearchIfCatalogVersionMatches() {
+    //given
+    when(orderableCatalogVersion.getSnapshot())
+        .thenReturn(new OrderableCatalogVersion.Snapshot("7", ZonedDateTime.now(), 0L));
+
+    //when
+    ResponseEntity<Page<OrderableDto>> responseEntity =
+        orderableController.searchOrderables(new OrderableSearchParams(), null, "\"7\"");
+
+    //then
+    assertEquals(HttpStatus.NOT_MODIFIED, responseEntity.getStatusCode());
+    assertEquals("\"7\"", responseEntity.getHeaders().getETag());
+    verifyZeroInteractions(orderableService);
+  }
+
+  @Test(expected = ValidationMessageException.class)
+  public void shouldRejectInvalidParamsEvenIfCatalogVersionMatches() {
+    //given
+    MultiValueMap<String, Object> queryParams = new LinkedMultiValueMap<>();
+    queryParams.add("invalidParam", "value");
+
+    //when
+    try {
+      orderableController.findAll(queryParams, null, "\"7\"", Pageable.unpaged());
+    } finally {
+      //then
+      verifyZeroInteractions(orderableCatalogVersion);
+    }
   }
 
 }
@@ -15,17 +15,23 @@
 
 package org.openlmis.referencedata.web;
 
+import static java.util.Collections.singleton;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.openlmis.referencedata.domain.Orderable.COMMODITY_TYPE;
 import static org.openlmis.referencedata.domain.Orderable.TRADE_ITEM;
 
 import com.google.common.collect.Lists;
 import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -70,8 +76,8 @@ public class OrderableFulfillFactoryTest {
 
   @Test
   public void shouldCreateResourceForTradeItem() {
-    when(orderableRepository.findAllLatestByIdentifier(
-        COMMODITY_TYPE, commodityType.getId().toString()))
+    when(orderableRepository.findAllLatestByIdentifiers(
+        COMMODITY_TYPE, singleton(commodityType.getId())))
         .thenReturn(Lists.newArrayList(commodityTypeOrderable));
 
     OrderableFulfill response = factory.createFor(tradeItemOrderable, tradeItems, commodityTypes);
@@ -82,7 +88,7 @@ public class OrderableFulfillFactoryTest {
 
   @Test
   public void shouldCreateResourceForCommodityType() {
-    when(orderableRepository.findAllLatestByIdentifier(TRADE_ITEM, tradeItem.getId().toString()))
+    when(orderableRepository.findAllLatestByIdentifiers(TRADE_ITEM, singleton(tradeItem.getId())))
         .thenReturn(Lists.newArrayList(tradeItemOrderable));
 
     OrderableFulfill response = factory.createFor(commodityTypeOrderable,
@@ -98,4 +104,35 @@ public class OrderableFulfillFactoryTest {
         tradeItems, commodityTypes);
     assertThat(response, is(nullValue()));
   }
+
+  @Test
+  public void shouldCreateResourcesForManyOrderablesWithOneQueryPerIdentifierType() {
+    Orderable otherTradeItemOrderable = new OrderableDataBuilder()
+        .withIdentifier(TRADE_ITEM, tradeItem.getId())
+        .build();
+    when(orderableRepository.findAllLatestByIdentifiers(
+        COMMODITY_TYPE, singleton(commodityType.getId())))
+        .thenReturn(Lists.newArrayList(commodityTypeOrderable));
+    when(orderableRepository.findAllLatestByIdentifiers(TRADE_ITEM, singleton(tradeItem.getId())))
+        .thenReturn(Lists.newArrayList(tradeItemOrderable, otherTradeItemOrderable));
+
+    Map<UUID, OrderableFulfill> response = factory.createFor(
+        Lists.newArrayList(tradeItemOrderable, otherTradeItemOrderable, commodityTypeOrderable,
+            new OrderableDataBuilder().build()),
+        tradeItems, commodityTypes);
+
+    assertThat(response.size(), is(3));
+    assertThat(response.get(tradeItemOrderable.getId()).getCanBeFulfilledByMe(),
+        contains(commodityTypeOrderable.getId()));
+    assertThat(response.get(otherTradeItemOrderable.getId()).getCanBeFulfilledByMe(),
+        contains(commodityTypeOrderable.getId()));
+    assertThat(response.get(commodityTypeOrderable.getId()).getCanFulfillForMe(),
+        contains(tradeItemOrderable.getId(), otherTradeItemOrderable.getId()));
+
+    verify(orderableRepository).findAllLatestByIdentifiers(
+        COMMODITY_TYPE, singleton(commodityType.getId()));
+    verify(orderableRepository).findAllLatestByIdentifiers(
+        TRADE_ITEM, singleton(tradeItem.getId()));
+    verifyNoMoreInteractions(orderableRepository);
+  }
 }
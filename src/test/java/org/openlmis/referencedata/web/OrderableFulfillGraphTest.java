@@ -0,0 +1,143 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.web;
+
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.referencedata.domain.Orderable;
+import org.openlmis.referencedata.repository.CommodityTypeRepository;
+import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.repository.TradeItemRepository;
+import org.openlmis.referencedata.service.OrderableCatalogVersion;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderableFulfillGraphTest {
+
+  private static final long MAX_AGE_SECONDS = 300;
+
+  @Mock
+  private OrderableRepository orderableRepository;
+
+  @Mock
+  private TradeItemRepository tradeItemRepository;
+
+  @Mock
+  private CommodityTypeRepository commodityTypeRepository;
+
+  @Mock
+  private OrderableFulfillFactory orderableFulfillFactory;
+
+  @Mock
+  private OrderableCatalogVersion orderableCatalogVersion;
+
+  @InjectMocks
+  private OrderableFulfillGraph graph;
+
+  private UUID tradeItemOrderableId = UUID.randomUUID();
+  private UUID commodityTypeOrderableId = UUID.randomUUID();
+  private Map<UUID, OrderableFulfill> fulfills = Collections.singletonMap(
+      tradeItemOrderableId, OrderableFulfill.ofTradeItem(commodityTypeOrderableId));
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(graph, "maxAgeSeconds", MAX_AGE_SECONDS);
+
+    when(orderableCatalogVersion.getSnapshot()).thenReturn(snapshot(1));
+    when(tradeItemRepository.findAll()).thenReturn(Lists.newArrayList());
+    when(commodityTypeRepository.findAll()).thenReturn(Lists.newArrayList());
+    when(orderableRepository.findAllLatestByIdentifiers(anyString(), anySetOf(UUID.class)))
+        .thenReturn(Lists.newArrayList());
+    when(orderableFulfillFactory.createFor(anyListOf(Orderable.class), any(), any()))
+        .thenReturn(fulfills);
+  }
+
+  @Test
+  public void shouldBuildGraphOnlyOnce() {
+    assertThat(graph.getAll(), is(fulfills));
+    assertThat(graph.getAll(), is(fulfills));
+
+    verifyGraphBuilt(1);
+  }
+
+  @Test
+  public void shouldReturnFulfillsOfRequestedOrderablesOnly() {
+    Map<UUID, OrderableFulfill> result = graph.get(
+        Sets.newHashSet(tradeItemOrderableId, commodityTypeOrderableId));
+
+    assertThat(result, hasKey(tradeItemOrderableId));
+    assertThat(result, not(hasKey(commodityTypeOrderableId)));
+  }
+
+  @Test
+  public void shouldRebuildGraphAfterInvalidation() {
+    graph.getAll();
+    graph.invalidate();
+    graph.getAll();
+
+    verifyGraphBuilt(2);
+  }
+
+  @Test
+  public void shouldRebuildGraphWhenCatalogVersionChanges() {
+    graph.getAll();
+    when(orderableCatalogVersion.getSnapshot()).thenReturn(snapshot(2));
+    graph.getAll();
+
+    verifyGraphBuilt(2);
+  }
+
+  @Test
+  public void shouldRebuildGraphWhenItIsTooOld() {
+    ReflectionTestUtils.setField(graph, "maxAgeSeconds", 0L);
+
+    graph.getAll();
+    graph.getAll();
+
+    verifyGraphBuilt(2);
+  }
+
+  private void verifyGraphBuilt(int times) {
+    verify(tradeItemRepository, times(times)).findAll();
+    verify(orderableFulfillFactory, times(times))
+        .createFor(anyListOf(Orderable.class), any(), any());
+  }
+
+  private OrderableCatalogVersion.Snapshot snapshot(long version) {
+    return new OrderableCatalogVersion.Snapshot(String.valueOf(version), null, System.nanoTime());
+  }
+}
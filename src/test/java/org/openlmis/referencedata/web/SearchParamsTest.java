@@ -86,6 +86,16 @@ public class SearchParamsTest {
     assertFalse(searchParams.containsKey(accessToken));
   }
 
+  @Test
+  public void shouldRemoveCursorParamWhenCreateObject() {
+    String cursor = "cursor";
+    map.add(cursor, UUID.randomUUID().toString());
+
+    SearchParams searchParams = new SearchParams(map);
+
+    assertFalse(searchParams.containsKey(cursor));
+  }
+
   @Test
   public void shouldRemovePageParamWhenCreateObject() {
     String page = "page";
@@ -244,6 +254,6 @@ public class SearchParamsTest {
     SearchParams params = new SearchParams(map);
 
     ToStringTestUtils.verify(SearchParams.class, params,
-        "PAGE", "SIZE", "SORT", "ZONE_ID", "ACCESS_TOKEN");
+        "PAGE", "SIZE", "SORT", "ZONE_ID", "ACCESS_TOKEN", "CURSOR");
   }
 }
\ No newline at end of file
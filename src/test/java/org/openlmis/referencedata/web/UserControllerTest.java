@@ -57,7 +57,10 @@ import org.openlmis.referencedata.repository.RoleRepository;
 import org.openlmis.referencedata.repository.SupervisoryNodeRepository;
 import org.openlmis.referencedata.repository.UserRepository;
 import org.openlmis.referencedata.repository.UserSearchParams;
+import org.openlmis.referencedata.service.AuthenticationHelper;
+import org.openlmis.referencedata.service.PermissionIndex;
 import org.openlmis.referencedata.service.RightService;
+import org.openlmis.referencedata.service.UserPermissionVersionService;
 import org.openlmis.referencedata.service.UserService;
 import org.openlmis.referencedata.testbuilder.SupportedProgramDataBuilder;
 import org.openlmis.referencedata.testbuilder.UserDataBuilder;
@@ -106,6 +109,15 @@ public class UserControllerTest {
   @Mock
   private UserService userService;
 
+  @Mock
+  private PermissionIndex permissionIndex;
+
+  @Mock
+  private UserPermissionVersionService userPermissionVersionService;
+
+  @Mock
+  private AuthenticationHelper authenticationHelper;
+
   @InjectMocks
   private UserController controller = new UserController();
 
@@ -447,6 +459,7 @@ public class UserControllerTest {
 
     //then
     verify(repository).deleteById(userId);
+    verify(authenticationHelper).evictUser(userId);
   }
 
   @Test(expected = NotFoundException.class)